@@ -4,9 +4,11 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import stroom.config.app.AppConfig;
 import stroom.config.global.impl.validation.ConfigValidator;
+import stroom.data.store.impl.fs.DataStoreServiceConfig;
 import stroom.test.AbstractCoreIntegrationTest;
 
 import javax.inject.Inject;
+import java.util.Map;
 
 public class TestConfigValidator extends AbstractCoreIntegrationTest {
 
@@ -24,4 +26,21 @@ public class TestConfigValidator extends AbstractCoreIntegrationTest {
         Assertions.assertThat(result.getErrorCount()).isEqualTo(0);
     }
 
+    @Test
+    void testValidate_blockCodec() {
+        final DataStoreServiceConfig dataStoreServiceConfig = new DataStoreServiceConfig();
+        Assertions.assertThat(configValidator.validate(dataStoreServiceConfig).getErrorCount()).isEqualTo(0);
+
+        dataStoreServiceConfig.setBlockCodec("lz4");
+        dataStoreServiceConfig.setBlockCodecByStreamType(Map.of("Events", "ZSTD", "Raw Events", "gzip"));
+        Assertions.assertThat(configValidator.validate(dataStoreServiceConfig).getErrorCount()).isEqualTo(0);
+
+        // An unknown codec must be reported when the config is validated rather than when data is written.
+        dataStoreServiceConfig.setBlockCodec("SNAPPY");
+        Assertions.assertThat(configValidator.validate(dataStoreServiceConfig).getErrorCount()).isEqualTo(1);
+
+        dataStoreServiceConfig.setBlockCodec("GZIP");
+        dataStoreServiceConfig.setBlockCodecByStreamType(Map.of("Events", "LZO"));
+        Assertions.assertThat(configValidator.validate(dataStoreServiceConfig).getErrorCount()).isEqualTo(1);
+    }
 }
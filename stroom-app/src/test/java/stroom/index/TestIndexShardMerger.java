@@ -0,0 +1,166 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.index;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.NIOFSDirectory;
+import org.junit.jupiter.api.Test;
+import stroom.docref.DocRef;
+import stroom.index.impl.FieldTypeFactory;
+import stroom.index.impl.IndexShardKeyUtil;
+import stroom.index.impl.IndexShardManager;
+import stroom.index.impl.IndexShardMerger;
+import stroom.index.impl.IndexShardService;
+import stroom.index.impl.IndexShardUtil;
+import stroom.index.impl.IndexShardWriter;
+import stroom.index.impl.IndexShardWriterCache;
+import stroom.index.impl.IndexStore;
+import stroom.index.shared.IndexDoc;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.index.shared.IndexShardKey;
+import stroom.security.api.SecurityContext;
+import stroom.test.AbstractCoreIntegrationTest;
+import stroom.test.CommonTestScenarioCreator;
+
+import javax.inject.Inject;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestIndexShardMerger extends AbstractCoreIntegrationTest {
+    private static final int DOCUMENT_COUNT = 3;
+
+    @Inject
+    private CommonTestScenarioCreator commonTestScenarioCreator;
+    @Inject
+    private IndexShardService indexShardService;
+    @Inject
+    private IndexShardManager indexShardManager;
+    @Inject
+    private IndexShardWriterCache indexShardWriterCache;
+    @Inject
+    private IndexShardMerger indexShardMerger;
+    @Inject
+    private IndexStore indexStore;
+    @Inject
+    private SecurityContext securityContext;
+
+    @Override
+    public void onBefore() {
+        indexShardWriterCache.shutdown();
+    }
+
+    @Test
+    void testMerge() throws IOException {
+        final IndexShardKey indexShardKey = createIndexShardKey("TEST_MERGE");
+        final long indexShardId = createClosedShard(indexShardKey);
+        final IndexShard before = indexShardService.loadById(indexShardId);
+        final Path dir = IndexShardUtil.getIndexPath(before);
+        assertThat(getSegmentCount(dir)).isEqualTo(DOCUMENT_COUNT);
+
+        // The shard is full so it is merged without waiting for it to be idle.
+        securityContext.asProcessingUser(indexShardMerger::merge);
+
+        assertThat(getSegmentCount(dir)).isEqualTo(1);
+        final IndexShard after = indexShardService.loadById(indexShardId);
+        assertThat(after.getStatus()).isEqualTo(IndexShardStatus.CLOSED);
+        assertThat(after.getDocumentCount()).isEqualTo(DOCUMENT_COUNT);
+        assertThat(after.getFileSize()).isEqualTo(getFileSize(dir));
+    }
+
+    @Test
+    void testClaimedShardIsNotOpened() throws IOException {
+        final IndexShardKey indexShardKey = createIndexShardKey("TEST_MERGE_CLAIM");
+        final long indexShardId = createClosedShard(indexShardKey);
+
+        // Claim the shard as the merger does before it merges a shard.
+        assertThat(indexShardManager.setStatus(indexShardId, IndexShardStatus.CLOSED, IndexShardStatus.OPENING))
+                .isTrue();
+
+        // The writer cache must not open the claimed shard for writing.
+        final IndexShardWriter writer = indexShardWriterCache.getWriterByShardKey(indexShardKey);
+        assertThat(writer.getIndexShardId()).isNotEqualTo(indexShardId);
+        assertThat(indexShardService.loadById(indexShardId).getStatus()).isEqualTo(IndexShardStatus.OPENING);
+
+        // Nor can a second merge claim it.
+        assertThat(indexShardManager.setStatus(indexShardId, IndexShardStatus.CLOSED, IndexShardStatus.OPENING))
+                .isFalse();
+        assertThat(indexShardManager.setStatus(indexShardId, IndexShardStatus.OPENING, IndexShardStatus.CLOSED))
+                .isTrue();
+
+        indexShardWriterCache.shutdown();
+    }
+
+    private IndexShardKey createIndexShardKey(final String name) {
+        final DocRef indexRef = commonTestScenarioCreator.createIndex(name,
+                commonTestScenarioCreator.createIndexFields(),
+                DOCUMENT_COUNT);
+        final IndexDoc index = indexStore.readDocument(indexRef);
+        return IndexShardKeyUtil.createTestKey(index);
+    }
+
+    /**
+     * Create a full, closed shard with a segment for each document.
+     */
+    private long createClosedShard(final IndexShardKey indexShardKey) throws IOException {
+        final IndexShardWriter writer = indexShardWriterCache.getWriterByShardKey(indexShardKey);
+        for (int i = 0; i < DOCUMENT_COUNT; i++) {
+            final Document document = new Document();
+            document.add(new Field("test", "test" + i, FieldTypeFactory.createBasic()));
+            writer.addDocument(document);
+            writer.flush();
+        }
+
+        indexShardWriterCache.close(writer);
+        indexShardWriterCache.shutdown();
+
+        final IndexShard indexShard = indexShardService.loadById(writer.getIndexShardId());
+        assertThat(indexShard.getStatus()).isEqualTo(IndexShardStatus.CLOSED);
+        assertThat(indexShard.getDocumentCount()).isEqualTo(DOCUMENT_COUNT);
+        return indexShard.getId();
+    }
+
+    private int getSegmentCount(final Path dir) throws IOException {
+        try (final Directory directory = new NIOFSDirectory(dir)) {
+            return SegmentInfos.readLatestCommit(directory).size();
+        }
+    }
+
+    private long getFileSize(final Path dir) throws IOException {
+        try (final Stream<Path> stream = Files.list(dir)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .mapToLong(file -> {
+                        try {
+                            return Files.size(file);
+                        } catch (final IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    })
+                    .sum();
+        }
+    }
+}
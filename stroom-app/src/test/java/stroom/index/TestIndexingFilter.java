@@ -17,7 +17,10 @@
 package stroom.index;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.DocValuesType;
 import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexableField;
 import org.apache.lucene.index.IndexableFieldType;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -34,8 +37,11 @@ import stroom.index.shared.IndexField;
 import stroom.index.shared.IndexFieldType;
 import stroom.index.shared.IndexFields;
 import stroom.index.shared.IndexShardKey;
+import stroom.pipeline.DefaultLocationFactory;
+import stroom.pipeline.LocationFactoryProxy;
 import stroom.pipeline.PipelineStore;
 import stroom.pipeline.PipelineTestUtil;
+import stroom.pipeline.errorhandler.ErrorReceiver;
 import stroom.pipeline.errorhandler.ErrorReceiverProxy;
 import stroom.pipeline.errorhandler.LoggingErrorReceiver;
 import stroom.pipeline.factory.Pipeline;
@@ -48,11 +54,16 @@ import stroom.pipeline.state.FeedHolder;
 import stroom.test.AbstractProcessIntegrationTest;
 import stroom.test.common.StroomPipelineTestFileUtil;
 import stroom.util.date.DateUtil;
+import stroom.util.io.StreamUtil;
 import stroom.util.pipeline.scope.PipelineScopeRunnable;
+import stroom.util.shared.Location;
+import stroom.util.shared.Severity;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -67,6 +78,8 @@ class TestIndexingFilter extends AbstractProcessIntegrationTest {
     @Inject
     private Provider<FeedHolder> feedHolderProvider;
     @Inject
+    private Provider<LocationFactoryProxy> locationFactoryProvider;
+    @Inject
     private MockIndexShardWriterCache indexShardWriterCache;
     @Inject
     private IndexStore indexStore;
@@ -179,7 +192,99 @@ class TestIndexingFilter extends AbstractProcessIntegrationTest {
 
     }
 
+    @Test
+    void testDocValuesOnlyFields() {
+        final List<IndexField> indexFields = IndexFields.createStreamIndexFields();
+        indexFields.add(IndexField.createField("f1"));
+        indexFields.add(new IndexField.Builder()
+                .fieldName("f2")
+                .indexed(false)
+                .docValues(true)
+                .build());
+        indexFields.add(new IndexField.Builder()
+                .fieldType(IndexFieldType.DATE_FIELD)
+                .fieldName("d1")
+                .indexed(false)
+                .docValues(true)
+                .build());
+        indexFields.add(new IndexField.Builder()
+                .fieldType(IndexFieldType.NUMERIC_FIELD)
+                .fieldName("n1")
+                .indexed(false)
+                .docValues(true)
+                .build());
+
+        final List<Document> documents = doTest("TestIndexDocumentFilter/ComplexContent.xml", indexFields);
+
+        assertThat(documents.size()).isEqualTo(1);
+        final Document doc = documents.get(0);
+        assertThat(doc.getField("f1").fieldType().indexOptions()).isNotEqualTo(IndexOptions.NONE);
+
+        // Fields that only want doc values should only get a doc values field.
+        assertThat(doc.getFields("f2").length).isEqualTo(1);
+        final IndexableField f2 = doc.getField("f2");
+        assertThat(f2.fieldType().docValuesType()).isEqualTo(DocValuesType.SORTED);
+        assertThat(f2.fieldType().indexOptions()).isEqualTo(IndexOptions.NONE);
+        assertThat(f2.fieldType().stored()).isFalse();
+        assertThat(f2.binaryValue().utf8ToString()).isEqualTo("someuser");
+
+        assertThat(doc.getFields("d1").length).isEqualTo(1);
+        final IndexableField d1 = doc.getField("d1");
+        assertThat(d1.fieldType().docValuesType()).isEqualTo(DocValuesType.NUMERIC);
+        assertThat(d1.numericValue().longValue()).isEqualTo(DateUtil.parseUnknownString("2010-01-01T12:00:00.000Z"));
+
+        assertThat(doc.getFields("n1").length).isEqualTo(1);
+        final IndexableField n1 = doc.getField("n1");
+        assertThat(n1.fieldType().docValuesType()).isEqualTo(DocValuesType.NUMERIC);
+        assertThat(n1.numericValue().longValue()).isEqualTo(2022L);
+    }
+
+    @Test
+    void testBadDocumentInBatch() {
+        final List<IndexField> indexFields = IndexFields.createStreamIndexFields();
+        indexFields.add(IndexField.createField("sid", AnalyzerType.KEYWORD));
+
+        // The second record has a value that is too long to be indexed as a single term.
+        final String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" +
+                "<records>\n" +
+                "  <record>\n" +
+                "    <data name=\"sid\" value=\"user1\" />\n" +
+                "  </record>\n" +
+                "  <record>\n" +
+                "    <data name=\"sid\" value=\"" + "a".repeat(IndexWriter.MAX_TERM_LENGTH + 1) + "\" />\n" +
+                "  </record>\n" +
+                "  <record>\n" +
+                "    <data name=\"sid\" value=\"user3\" />\n" +
+                "  </record>\n" +
+                "</records>\n";
+
+        final List<Location> errorLocations = new ArrayList<>();
+        final List<Document> documents = doTest(
+                new ByteArrayInputStream(xml.getBytes(StreamUtil.DEFAULT_CHARSET)),
+                indexFields,
+                (severity, location, elementId, message, e) -> {
+                    if (Severity.FATAL_ERROR.equals(severity) && "indexingFilter".equals(elementId)) {
+                        errorLocations.add(location);
+                    }
+                });
+
+        // The good documents in the batch are still indexed.
+        assertThat(documents).hasSize(2);
+        assertThat(documents.get(0).getField("sid").stringValue()).isEqualTo("user1");
+        assertThat(documents.get(1).getField("sid").stringValue()).isEqualTo("user3");
+
+        // The error is reported against the end of the bad record rather than the end of the batch.
+        assertThat(errorLocations).hasSize(1);
+        assertThat(errorLocations.get(0).getLineNo()).isEqualTo(8);
+    }
+
     private List<Document> doTest(final String resourceName, final List<IndexField> indexFields) {
+        return doTest(StroomPipelineTestFileUtil.getInputStream(resourceName), indexFields, new LoggingErrorReceiver());
+    }
+
+    private List<Document> doTest(final InputStream input,
+                                  final List<IndexField> indexFields,
+                                  final ErrorReceiver errorReceiver) {
         return pipelineScopeRunnable.scopeResult(() -> {
             // Setup the index.
             final DocRef indexRef = indexStore.createDocument("Test index");
@@ -188,8 +293,8 @@ class TestIndexingFilter extends AbstractProcessIntegrationTest {
             indexStore.writeDocument(index);
 
             // Setup the error handler.
-            final LoggingErrorReceiver loggingErrorReceiver = new LoggingErrorReceiver();
-            errorReceiverProvider.get().setErrorReceiver(loggingErrorReceiver);
+            errorReceiverProvider.get().setErrorReceiver(errorReceiver);
+            locationFactoryProvider.get().setLocationFactory(new DefaultLocationFactory());
 
             // Create the pipeline.
             final String data = StroomPipelineTestFileUtil.getString(PIPELINE);
@@ -208,7 +313,6 @@ class TestIndexingFilter extends AbstractProcessIntegrationTest {
 //            metaDataHolder.setMetaDataProvider(new StreamMetaDataProvider(metaHolder, streamProcessorService, pipelineStore));
 
             // Set the input.
-            final InputStream input = StroomPipelineTestFileUtil.getInputStream(resourceName);
             try {
                 pipeline.process(input);
             } catch (final RuntimeException e) {
@@ -95,7 +95,7 @@ public class MockPipelineElementRegistryFactory implements ElementRegistryFactor
                 return (T) new SplitFilter();
             }
             if (elementClass.equals(XsltFilter.class)) {
-                return (T) new XsltFilter(null, null, null, null, null, null, null);
+                return (T) new XsltFilter(null, null, null, null, null, null, null, null, null);
             }
             if (elementClass.equals(SchemaFilterSplit.class)) {
                 return (T) new SchemaFilterSplit(
@@ -26,6 +26,7 @@ import stroom.importexport.impl.ContentPackImportConfig;
 import stroom.importexport.impl.ExportConfig;
 import stroom.index.impl.IndexCacheConfig;
 import stroom.index.impl.IndexConfig;
+import stroom.index.impl.IndexMergeConfig;
 import stroom.index.impl.IndexWriterConfig;
 import stroom.index.impl.selection.VolumeConfig;
 import stroom.job.impl.JobSystemConfig;
@@ -134,9 +135,11 @@ public class AppConfigModule extends AbstractModule {
         bindConfig(AppConfig::getExplorerConfig, ExplorerConfig.class);
         bindConfig(AppConfig::getExportConfig, ExportConfig.class);
         bindConfig(AppConfig::getFeedConfig, FeedConfig.class);
-        bindConfig(AppConfig::getIndexConfig, IndexConfig.class, indexConfig ->
-                bindConfig(indexConfig, IndexConfig::getIndexWriterConfig, IndexWriterConfig.class, indexWriterConfig ->
-                        bindConfig(indexWriterConfig, IndexWriterConfig::getIndexCacheConfig, IndexCacheConfig.class)));
+        bindConfig(AppConfig::getIndexConfig, IndexConfig.class, indexConfig -> {
+            bindConfig(indexConfig, IndexConfig::getIndexWriterConfig, IndexWriterConfig.class, indexWriterConfig ->
+                    bindConfig(indexWriterConfig, IndexWriterConfig::getIndexCacheConfig, IndexCacheConfig.class));
+            bindConfig(indexConfig, IndexConfig::getIndexMergeConfig, IndexMergeConfig.class);
+        });
         bindConfig(AppConfig::getJobSystemConfig, JobSystemConfig.class);
         bindConfig(AppConfig::getKafkaConfig, KafkaConfig.class);
         bindConfig(AppConfig::getLifecycleConfig, LifecycleConfig.class);
@@ -51,6 +51,7 @@ public class IndexFieldEditPresenter extends MyPresenterWidget<IndexFieldEditVie
         getView().setTermPositions(indexField.isTermPositions());
         getView().setAnalyzerType(indexField.getAnalyzerType());
         getView().setCaseSensitive(indexField.isCaseSensitive());
+        getView().setDocValues(indexField.isDocValues());
     }
 
     public IndexField write() {
@@ -72,11 +73,12 @@ public class IndexFieldEditPresenter extends MyPresenterWidget<IndexFieldEditVie
                 .termPositions(getView().isTermPositions())
                 .analyzerType(getView().getAnalyzerType())
                 .caseSensitive(getView().isCaseSensitive())
+                .docValues(getView().isDocValues())
                 .build();
     }
 
     public void show(final String caption, final PopupUiHandlers uiHandlers) {
-        final PopupSize popupSize = new PopupSize(305, 220, 305, 220, 800, 220, true);
+        final PopupSize popupSize = new PopupSize(305, 245, 305, 245, 800, 245, true);
         ShowPopupEvent.fire(this, this, PopupType.OK_CANCEL_DIALOG, popupSize, caption, uiHandlers);
     }
 
@@ -112,5 +114,9 @@ public class IndexFieldEditPresenter extends MyPresenterWidget<IndexFieldEditVie
         boolean isCaseSensitive();
 
         void setCaseSensitive(boolean caseSensitive);
+
+        boolean isDocValues();
+
+        void setDocValues(boolean docValues);
     }
 }
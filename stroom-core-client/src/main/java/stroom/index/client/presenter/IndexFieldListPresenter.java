@@ -171,6 +171,7 @@ public class IndexFieldListPresenter extends MyPresenterWidget<DataGridView<Inde
         addTermVectorColumn();
         addAnalyzerColumn();
         addCaseSensitiveColumn();
+        addDocValuesColumn();
         getView().addEndColumn(new EndColumn<>());
     }
 
@@ -237,6 +238,15 @@ public class IndexFieldListPresenter extends MyPresenterWidget<DataGridView<Inde
         }, "Case Sensitive", 100);
     }
 
+    private void addDocValuesColumn() {
+        getView().addResizableColumn(new Column<IndexField, String>(new TextCell()) {
+            @Override
+            public String getValue(final IndexField row) {
+                return getYesNoString(row.isDocValues());
+            }
+        }, "Doc Values", 100);
+    }
+
     private String getYesNoString(final boolean bool) {
         if (bool) {
             return "Yes";
@@ -44,6 +44,8 @@ public class IndexFieldEditViewImpl extends ViewImpl implements IndexFieldEditVi
     ItemListBox<AnalyzerType> analyser;
     @UiField
     TickBox caseSensitive;
+    @UiField
+    TickBox docValues;
 
     @Inject
     public IndexFieldEditViewImpl(final Binder binder) {
@@ -128,6 +130,16 @@ public class IndexFieldEditViewImpl extends ViewImpl implements IndexFieldEditVi
         this.caseSensitive.setBooleanValue(caseSensitive);
     }
 
+    @Override
+    public boolean isDocValues() {
+        return docValues.getBooleanValue();
+    }
+
+    @Override
+    public void setDocValues(final boolean docValues) {
+        this.docValues.setBooleanValue(docValues);
+    }
+
     public interface Binder extends UiBinder<Widget, IndexFieldEditViewImpl> {
     }
 }
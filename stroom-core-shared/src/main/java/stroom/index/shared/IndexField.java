@@ -38,7 +38,7 @@ import java.util.Objects;
  * </p>
  */
 @XmlAccessorType(XmlAccessType.FIELD)
-@XmlType(name = "indexField", propOrder = {"analyzerType", "caseSensitive", "fieldName", "fieldType", "indexed", "stored", "termPositions"})
+@XmlType(name = "indexField", propOrder = {"analyzerType", "caseSensitive", "fieldName", "fieldType", "indexed", "stored", "termPositions", "docValues"})
 @JsonInclude(JsonInclude.Include.NON_NULL)
 public class IndexField implements HasDisplayValue, Comparable<IndexField>, Serializable {
     private static final long serialVersionUID = 3100770758821157580L;
@@ -64,6 +64,9 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
     @XmlElement(name = "caseSensitive")
     @JsonProperty
     private final boolean caseSensitive;
+    @XmlElement(name = "docValues")
+    @JsonProperty
+    private final boolean docValues;
 
     @JsonCreator
     public IndexField(@JsonProperty("fieldType") final IndexFieldType fieldType,
@@ -72,7 +75,8 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
                       @JsonProperty("indexed") final boolean indexed,
                       @JsonProperty("stored") final boolean stored,
                       @JsonProperty("termPositions") final boolean termPositions,
-                      @JsonProperty("caseSensitive") final boolean caseSensitive) {
+                      @JsonProperty("caseSensitive") final boolean caseSensitive,
+                      @JsonProperty("docValues") final boolean docValues) {
         this.fieldType = fieldType;
         this.fieldName = fieldName;
         this.analyzerType = analyzerType;
@@ -80,6 +84,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
         this.indexed = indexed;
         this.termPositions = termPositions;
         this.caseSensitive = caseSensitive;
+        this.docValues = docValues;
     }
 
     public static IndexField createField(final String fieldName) {
@@ -177,6 +182,14 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
         return termPositions;
     }
 
+    /**
+     * @return True if values of this field are also written as column oriented doc values so that they can be
+     * read for display without decoding stored fields.
+     */
+    public boolean isDocValues() {
+        return docValues;
+    }
+
     @JsonIgnore
     public List<Condition> getSupportedConditions() {
         return getDefaultConditions();
@@ -197,6 +210,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
                 indexed == that.indexed &&
                 termPositions == that.termPositions &&
                 caseSensitive == that.caseSensitive &&
+                docValues == that.docValues &&
                 fieldType == that.fieldType &&
                 Objects.equals(fieldName, that.fieldName) &&
                 analyzerType == that.analyzerType;
@@ -204,7 +218,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
 
     @Override
     public int hashCode() {
-        return Objects.hash(fieldType, fieldName, stored, indexed, termPositions, analyzerType, caseSensitive);
+        return Objects.hash(fieldType, fieldName, stored, indexed, termPositions, analyzerType, caseSensitive, docValues);
     }
 
     @Override
@@ -272,6 +286,7 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
         private boolean stored;
         private boolean termPositions;
         private boolean caseSensitive;
+        private boolean docValues;
 
         public Builder fieldType(final IndexFieldType fieldType) {
             this.fieldType = fieldType;
@@ -308,8 +323,13 @@ public class IndexField implements HasDisplayValue, Comparable<IndexField>, Seri
             return this;
         }
 
+        public Builder docValues(final boolean docValues) {
+            this.docValues = docValues;
+            return this;
+        }
+
         public IndexField build() {
-            return new IndexField(fieldType, fieldName, analyzerType, indexed, stored, termPositions, caseSensitive);
+            return new IndexField(fieldType, fieldName, analyzerType, indexed, stored, termPositions, caseSensitive, docValues);
         }
     }
 }
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.core.receive;
+
+import stroom.proxy.repo.ProxyRepositoryConfig;
+import stroom.proxy.repo.ProxyRepositoryManager;
+import stroom.proxy.repo.ProxyRepositoryStreamHandler;
+import stroom.proxy.repo.StreamHandler;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.util.Objects;
+
+/**
+ * The repository in the proxy aggregation directory that received data is written to when it is to be aggregated
+ * by the Proxy Aggregation job rather than being written straight to the stream store.
+ * <p>
+ * The repository follows the proxy aggregation directory if it is changed and is stopped when Stroom shuts down.
+ */
+@Singleton
+class ProxyAggregationRepository {
+    private final ProxyAggregationConfig proxyAggregationConfig;
+
+    private ProxyRepositoryManager proxyRepositoryManager;
+    private String proxyDir;
+    private boolean stopped;
+
+    @Inject
+    ProxyAggregationRepository(final ProxyAggregationConfig proxyAggregationConfig) {
+        this.proxyAggregationConfig = proxyAggregationConfig;
+    }
+
+    /**
+     * @return A handler that writes a single receipt to the repository as a new zip file.
+     */
+    StreamHandler createStreamHandler() {
+        return new ProxyRepositoryStreamHandler(getProxyRepositoryManager());
+    }
+
+    private synchronized ProxyRepositoryManager getProxyRepositoryManager() {
+        if (stopped) {
+            throw new IllegalStateException("The proxy aggregation repository has been stopped");
+        }
+
+        // Write to a single static repository in the directory that the Proxy Aggregation job currently reads.
+        final String currentProxyDir = proxyAggregationConfig.getProxyDir();
+        if (proxyRepositoryManager == null || !Objects.equals(proxyDir, currentProxyDir)) {
+            stopProxyRepositoryManager();
+
+            final ProxyRepositoryConfig proxyRepositoryConfig = new ProxyRepositoryConfig();
+            proxyRepositoryConfig.setRepoDir(currentProxyDir);
+            final ProxyRepositoryManager manager = new ProxyRepositoryManager(proxyRepositoryConfig);
+            manager.start();
+            proxyRepositoryManager = manager;
+            proxyDir = currentProxyDir;
+        }
+        return proxyRepositoryManager;
+    }
+
+    synchronized void stop() {
+        stopped = true;
+        stopProxyRepositoryManager();
+    }
+
+    private void stopProxyRepositoryManager() {
+        if (proxyRepositoryManager != null) {
+            proxyRepositoryManager.stop();
+            proxyRepositoryManager = null;
+            proxyDir = null;
+        }
+    }
+}
@@ -18,6 +18,7 @@ public class ReceiveDataConfig extends AbstractConfig {
     private int bufferSize = DEFAULT_BUFFER_SIZE;
     private String unknownClassification = "UNKNOWN CLASSIFICATION";
     private String feedNamePattern = "^[A-Z0-9_-]{3,}$";
+    private boolean aggregationEnabled;
 
     @JsonPropertyDescription("The UUID of the data receipt policy to use")
     public String getReceiptPolicyUuid() {
@@ -61,6 +62,20 @@ public class ReceiveDataConfig extends AbstractConfig {
         this.feedNamePattern = feedNamePattern;
     }
 
+    @JsonPropertyDescription("If true, received data is written to the proxy aggregation directory rather than " +
+            "straight to the stream store. The Proxy Aggregation job then stores the data received for each feed as " +
+            "fewer, larger streams with a part for each receipt. How often the job runs and the proxy aggregation " +
+            "limits bound how long data is held and how big each stream gets. Data for reference feeds is always " +
+            "stored straight away.")
+    public boolean isAggregationEnabled() {
+        return aggregationEnabled;
+    }
+
+    @SuppressWarnings("unused")
+    public void setAggregationEnabled(final boolean aggregationEnabled) {
+        this.aggregationEnabled = aggregationEnabled;
+    }
+
     @Override
     public String toString() {
         return "DataFeedConfig{" +
@@ -68,6 +83,7 @@ public class ReceiveDataConfig extends AbstractConfig {
                 ", bufferSize=" + bufferSize +
                 ", unknownClassification='" + unknownClassification + '\'' +
                 ", feedNamePattern='" + feedNamePattern + '\'' +
+                ", aggregationEnabled=" + aggregationEnabled +
                 '}';
     }
 }
@@ -17,11 +17,15 @@
 package stroom.core.receive;
 
 import com.google.inject.AbstractModule;
+import stroom.lifecycle.api.LifecycleBinder;
 import stroom.proxy.repo.FileSetProcessor;
 import stroom.receive.common.FeedStatusService;
 import stroom.receive.common.RequestHandler;
+import stroom.util.RunnableWrapper;
 import stroom.util.io.BufferFactory;
 
+import javax.inject.Inject;
+
 public class ReceiveDataModule extends AbstractModule {
     @Override
     protected void configure() {
@@ -29,5 +33,15 @@ public class ReceiveDataModule extends AbstractModule {
         bind(FileSetProcessor.class).to(DataStoreFileSetProcessor.class);
         bind(RequestHandler.class).to(ReceiveDataRequestHandler.class);
         bind(FeedStatusService.class).to(FeedStatusServiceImpl.class);
+
+        LifecycleBinder.create(binder())
+                .bindShutdownTaskTo(ProxyAggregationRepositoryShutdown.class);
+    }
+
+    private static class ProxyAggregationRepositoryShutdown extends RunnableWrapper {
+        @Inject
+        ProxyAggregationRepositoryShutdown(final ProxyAggregationRepository proxyAggregationRepository) {
+            super(proxyAggregationRepository::stop);
+        }
     }
 }
\ No newline at end of file
@@ -26,12 +26,14 @@ import stroom.meta.api.AttributeMap;
 import stroom.meta.api.StandardHeaderArguments;
 import stroom.meta.statistics.api.MetaStatistics;
 import stroom.proxy.StroomStatusCode;
+import stroom.proxy.repo.StreamHandler;
 import stroom.receive.common.AttributeMapFilter;
 import stroom.receive.common.RequestHandler;
 import stroom.receive.common.StreamTargetStroomStreamHandler;
 import stroom.receive.common.StroomStreamException;
 import stroom.receive.common.StroomStreamProcessor;
 import stroom.security.api.SecurityContext;
+import stroom.task.api.ExecutorProvider;
 import stroom.util.io.BufferFactory;
 
 import javax.inject.Inject;
@@ -56,6 +58,9 @@ class ReceiveDataRequestHandler implements RequestHandler {
     private final MetaStatistics metaDataStatistics;
     private final AttributeMapFilterFactory attributeMapFilterFactory;
     private final BufferFactory bufferFactory;
+    private final ReceiveDataConfig receiveDataConfig;
+    private final ProxyAggregationRepository proxyAggregationRepository;
+    private final ExecutorProvider executorProvider;
 
     @Inject
     public ReceiveDataRequestHandler(final SecurityContext securityContext,
@@ -63,13 +68,19 @@ class ReceiveDataRequestHandler implements RequestHandler {
                                      final FeedProperties feedProperties,
                                      final MetaStatistics metaDataStatistics,
                                      final AttributeMapFilterFactory attributeMapFilterFactory,
-                                     final BufferFactory bufferFactory) {
+                                     final BufferFactory bufferFactory,
+                                     final ReceiveDataConfig receiveDataConfig,
+                                     final ProxyAggregationRepository proxyAggregationRepository,
+                                     final ExecutorProvider executorProvider) {
         this.securityContext = securityContext;
         this.streamStore = streamStore;
         this.feedProperties = feedProperties;
         this.metaDataStatistics = metaDataStatistics;
         this.attributeMapFilterFactory = attributeMapFilterFactory;
         this.bufferFactory = bufferFactory;
+        this.receiveDataConfig = receiveDataConfig;
+        this.proxyAggregationRepository = proxyAggregationRepository;
+        this.executorProvider = executorProvider;
     }
 
     @Override
@@ -86,8 +97,6 @@ class ReceiveDataRequestHandler implements RequestHandler {
                     throw new StroomStreamException(StroomStatusCode.FEED_MUST_BE_SPECIFIED);
                 }
 
-                final String streamTypeName = feedProperties.getStreamTypeName(feedName);
-
 //                final String feedName = attributeMap.get(StroomHeaderArguments.FEED);
 //                if (feedName == null) {
 //                    throw new StroomStreamException(StroomStatusCode.FEED_IS_NOT_DEFINED);
@@ -97,22 +106,11 @@ class ReceiveDataRequestHandler implements RequestHandler {
 //                    throw new StroomStreamException(StroomStatusCode.FEED_IS_NOT_SET_TO_RECEIVED_DATA);
 //                }
 
-                List<StreamTargetStroomStreamHandler> handlers = StreamTargetStroomStreamHandler.buildSingleHandlerList(streamStore,
-                        feedProperties, metaDataStatistics, feedName, streamTypeName);
-
-                final byte[] buffer = bufferFactory.create();
-                final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, handlers, buffer, "DataFeedRequestHandler-" + attributeMap.get(StandardHeaderArguments.GUID));
-
-                try {
-                    stroomStreamProcessor.processRequestHeader(request);
-                    stroomStreamProcessor.process(getInputStream(request), "");
-                    stroomStreamProcessor.closeHandlers();
-                    handlers = null;
-                } finally {
-                    // some kind of error
-                    if (handlers != null) {
-                        handlers.get(0).closeDelete();
-                    }
+                // We don't want to aggregate reference feeds.
+                if (receiveDataConfig.isAggregationEnabled() && !feedProperties.isReference(feedName)) {
+                    aggregate(request, attributeMap);
+                } else {
+                    store(request, attributeMap, feedName);
                 }
             } else {
                 // Drop the data.
@@ -125,6 +123,65 @@ class ReceiveDataRequestHandler implements RequestHandler {
         });
     }
 
+    /**
+     * Write the data straight to the stream store as a new stream.
+     */
+    private void store(final HttpServletRequest request, final AttributeMap attributeMap, final String feedName) {
+        final String streamTypeName = feedProperties.getStreamTypeName(feedName);
+        List<StreamTargetStroomStreamHandler> handlers = StreamTargetStroomStreamHandler.buildSingleHandlerList(streamStore,
+                feedProperties, metaDataStatistics, feedName, streamTypeName);
+
+        final byte[] buffer = bufferFactory.create();
+        final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, handlers, buffer, "DataFeedRequestHandler-" + attributeMap.get(StandardHeaderArguments.GUID),
+                executorProvider.get(StroomStreamProcessor.READ_AHEAD_THREAD_POOL));
+
+        try {
+            stroomStreamProcessor.processRequestHeader(request);
+            stroomStreamProcessor.process(getInputStream(request), "");
+            stroomStreamProcessor.closeHandlers();
+            handlers = null;
+        } finally {
+            // some kind of error
+            if (handlers != null) {
+                handlers.get(0).closeDelete();
+            }
+        }
+    }
+
+    /**
+     * Write the data to the proxy aggregation repository so that the Proxy Aggregation job can store it with other
+     * data received for the same feed as part of a larger stream.
+     */
+    private void aggregate(final HttpServletRequest request, final AttributeMap attributeMap) {
+        final StreamHandler handler = proxyAggregationRepository.createStreamHandler();
+        handler.setAttributeMap(attributeMap);
+
+        final byte[] buffer = bufferFactory.create();
+        final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, List.of(handler), buffer, "DataFeedRequestHandler-" + attributeMap.get(StandardHeaderArguments.GUID),
+                executorProvider.get(StroomStreamProcessor.READ_AHEAD_THREAD_POOL));
+
+        try {
+            stroomStreamProcessor.processRequestHeader(request);
+            handler.handleHeader();
+            stroomStreamProcessor.process(getInputStream(request), "");
+            handler.handleFooter();
+        } catch (final IOException e) {
+            handleError(handler);
+            throw new StroomStreamException(StroomStatusCode.UNKNOWN_ERROR, e.getMessage());
+        } catch (final RuntimeException e) {
+            handleError(handler);
+            throw e;
+        }
+    }
+
+    private void handleError(final StreamHandler handler) {
+        try {
+            handler.handleError();
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
+
     private void debug(final String message, final AttributeMap attributeMap) {
         if (LOGGER.isDebugEnabled()) {
             final List<String> keys = attributeMap.keySet().stream().sorted().collect(Collectors.toList());
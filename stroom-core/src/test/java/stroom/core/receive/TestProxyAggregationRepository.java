@@ -0,0 +1,85 @@
+package stroom.core.receive;
+
+import org.junit.jupiter.api.Test;
+import stroom.data.zip.StroomZipFile;
+import stroom.meta.api.AttributeMap;
+import stroom.meta.api.StandardHeaderArguments;
+import stroom.proxy.repo.StreamHandler;
+import stroom.test.common.util.test.StroomUnitTest;
+import stroom.util.io.FileUtil;
+import stroom.util.io.StreamUtil;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestProxyAggregationRepository extends StroomUnitTest {
+    @Test
+    void testWritesToCurrentProxyDir() throws IOException {
+        final Path dir1 = getCurrentTestDir().resolve("proxy1");
+        final Path dir2 = getCurrentTestDir().resolve("proxy2");
+
+        final ProxyAggregationConfig proxyAggregationConfig = new ProxyAggregationConfig();
+        proxyAggregationConfig.setProxyDir(FileUtil.getCanonicalPath(dir1));
+        final ProxyAggregationRepository proxyAggregationRepository =
+                new ProxyAggregationRepository(proxyAggregationConfig);
+
+        try {
+            write(proxyAggregationRepository);
+            write(proxyAggregationRepository);
+            assertThat(countZipFiles(dir1)).isEqualTo(2);
+
+            // Changing the proxy dir must take effect without a restart.
+            proxyAggregationConfig.setProxyDir(FileUtil.getCanonicalPath(dir2));
+            write(proxyAggregationRepository);
+            assertThat(countZipFiles(dir1)).isEqualTo(2);
+            assertThat(countZipFiles(dir2)).isEqualTo(1);
+        } finally {
+            proxyAggregationRepository.stop();
+        }
+    }
+
+    @Test
+    void testStop() throws IOException {
+        final ProxyAggregationConfig proxyAggregationConfig = new ProxyAggregationConfig();
+        proxyAggregationConfig.setProxyDir(FileUtil.getCanonicalPath(getCurrentTestDir().resolve("proxy")));
+        final ProxyAggregationRepository proxyAggregationRepository =
+                new ProxyAggregationRepository(proxyAggregationConfig);
+
+        write(proxyAggregationRepository);
+        proxyAggregationRepository.stop();
+
+        // Nothing can be written once Stroom is shutting down.
+        assertThatThrownBy(proxyAggregationRepository::createStreamHandler)
+                .isInstanceOf(IllegalStateException.class);
+
+        // Stopping again must be harmless.
+        proxyAggregationRepository.stop();
+    }
+
+    private void write(final ProxyAggregationRepository proxyAggregationRepository) throws IOException {
+        final AttributeMap attributeMap = new AttributeMap();
+        attributeMap.put(StandardHeaderArguments.FEED, "TEST_FEED");
+
+        final byte[] data = "dummy".getBytes(StreamUtil.DEFAULT_CHARSET);
+        final StreamHandler handler = proxyAggregationRepository.createStreamHandler();
+        handler.setAttributeMap(attributeMap);
+        handler.handleHeader();
+        handler.handleEntryStart(StroomZipFile.SINGLE_DATA_ENTRY);
+        handler.handleEntryData(data, 0, data.length);
+        handler.handleEntryEnd();
+        handler.handleFooter();
+    }
+
+    private long countZipFiles(final Path dir) throws IOException {
+        try (final Stream<Path> stream = Files.walk(dir)) {
+            return stream
+                    .filter(file -> file.getFileName().toString().endsWith(".zip"))
+                    .count();
+        }
+    }
+}
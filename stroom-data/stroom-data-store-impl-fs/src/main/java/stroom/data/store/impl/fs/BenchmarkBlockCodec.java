@@ -0,0 +1,168 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import stroom.util.io.StreamUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Compares the size of block compressed files and the write and read throughput for each {@link BlockCodec} using
+ * XML event data.
+ */
+class BenchmarkBlockCodec {
+    private static final int MB = 1000000;
+    private final Map<BlockCodec, Integer> writeSpeed = new EnumMap<>(BlockCodec.class);
+    private final Map<BlockCodec, Integer> readSpeed = new EnumMap<>(BlockCodec.class);
+
+    BenchmarkBlockCodec() {
+        for (final BlockCodec blockCodec : BlockCodec.values()) {
+            writeSpeed.put(blockCodec, 0);
+            readSpeed.put(blockCodec, 0);
+        }
+    }
+
+    static void main(final String[] args) throws IOException {
+        new BenchmarkBlockCodec().run(args);
+    }
+
+    private void run(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("You must specify the file path where the test should be performed");
+            System.out.println("Usage = <PATH> <RECORDS> <RUNS>");
+        } else {
+            final String path = args[0];
+            final Path dir = Paths.get(path);
+            if (!Files.isDirectory(dir)) {
+                System.out.println("Specified directory \"" + path + "\" does not exist.");
+            } else {
+                int recordCount = 500000;
+                if (args.length > 1) {
+                    recordCount = Integer.parseInt(args[1]);
+                }
+
+                int runs = 1;
+                if (args.length > 2) {
+                    runs = Integer.parseInt(args[2]);
+                }
+
+                final byte[] data = createData(recordCount);
+
+                for (int i = 0; i < runs; i++) {
+                    for (final BlockCodec blockCodec : BlockCodec.values()) {
+                        doTest(dir.resolve("test." + blockCodec.name().toLowerCase()), data, blockCodec);
+                    }
+
+                    final int run = i + 1;
+                    for (final BlockCodec blockCodec : BlockCodec.values()) {
+                        System.out.println("Average " + blockCodec + " write = " + (writeSpeed.get(blockCodec) / run)
+                                + "Mb/s, read = " + (readSpeed.get(blockCodec) / run) + "Mb/s");
+                    }
+                    System.out.println();
+                }
+            }
+        }
+    }
+
+    private void doTest(final Path file, final byte[] data, final BlockCodec blockCodec) throws IOException {
+        final double mb = ((double) data.length) / MB;
+
+        // Write the data.
+        long startTime = System.currentTimeMillis();
+        try (final OutputStream os = new BlockGZIPOutputFile(
+                file, BlockGZIPConstants.DEFAULT_BLOCK_SIZE, null, 1, blockCodec)) {
+            int startPos = 0;
+            int blockSize = 100;
+            while (startPos < data.length) {
+                if ((startPos + blockSize) > data.length) {
+                    blockSize = data.length - startPos;
+                }
+                os.write(data, startPos, blockSize);
+                startPos += blockSize;
+            }
+        }
+        double elapsed = System.currentTimeMillis() - startTime;
+        int mbps = (int) (mb / (elapsed / 1000));
+        final long fileLength = Files.size(file);
+
+        System.out.println("Writing " + blockCodec + " " + (int) mb + "Mb took " + (int) elapsed + "ms = "
+                + mbps + "Mb/s");
+        System.out.println("Output file is " + (int) (fileLength / MB) + "Mb, compression ratio = "
+                + (int) (100 - ((100D / data.length) * fileLength)) + "%");
+        writeSpeed.put(blockCodec, writeSpeed.get(blockCodec) + mbps);
+
+        // Read the data back, as the pipeline would, in small chunks.
+        final byte[] buffer = new byte[4096];
+        long total = 0;
+        startTime = System.currentTimeMillis();
+        try (final InputStream is = new BlockGZIPInputFile(file)) {
+            int len;
+            while ((len = is.read(buffer)) != -1) {
+                total += len;
+            }
+        }
+        elapsed = System.currentTimeMillis() - startTime;
+        mbps = (int) (mb / (elapsed / 1000));
+
+        System.out.println("Reading " + blockCodec + " " + (int) mb + "Mb took " + (int) elapsed + "ms = "
+                + mbps + "Mb/s");
+        readSpeed.put(blockCodec, readSpeed.get(blockCodec) + mbps);
+
+        if (total != data.length) {
+            System.out.println("Read " + total + " bytes but expected " + data.length);
+            System.exit(1);
+        }
+
+        Files.delete(file);
+        System.out.println();
+    }
+
+    private byte[] createData(final int recordCount) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<Events xmlns=\"event-logging:3\" Version=\"3.2.3\">\n");
+
+        for (int i = 0; i < recordCount; i++) {
+            sb.append("<Event><EventTime><TimeCreated>2010-01-01T00:00:");
+            sb.append(i % 60 < 10 ? "0" : "");
+            sb.append(i % 60);
+            sb.append(".000Z</TimeCreated></EventTime><EventSource><System><Name>Test</Name>");
+            sb.append("<Environment>Test</Environment></System><Generator>Benchmark</Generator><Device>");
+            sb.append("<IPAddress>192.168.");
+            sb.append((i / 256) % 256);
+            sb.append(".");
+            sb.append(i % 256);
+            sb.append("</IPAddress></Device><User><Id>user");
+            sb.append(i % 100);
+            sb.append("</Id></User></EventSource><EventDetail><TypeId>");
+            sb.append(i);
+            sb.append("</TypeId><Description>Some message ");
+            sb.append(i);
+            sb.append("</Description></EventDetail></Event>\n");
+        }
+        sb.append("</Events>");
+
+        return sb.toString().getBytes(StreamUtil.DEFAULT_CHARSET);
+    }
+}
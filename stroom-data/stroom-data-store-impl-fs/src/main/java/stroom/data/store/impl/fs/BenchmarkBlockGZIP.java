@@ -0,0 +1,139 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import stroom.util.io.StreamUtil;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compares the write throughput of block GZIP files when blocks are compressed on the writing thread and
+ * when they are compressed on an increasing number of worker threads.
+ */
+class BenchmarkBlockGZIP {
+    private static final int MB = 1000000;
+    private final Map<Integer, Integer> writeSpeed = new LinkedHashMap<>();
+
+    static void main(final String[] args) throws IOException {
+        new BenchmarkBlockGZIP().run(args);
+    }
+
+    private void run(final String[] args) throws IOException {
+        if (args.length == 0) {
+            System.out.println("You must specify the file path where the test should be performed");
+            System.out.println("Usage = <PATH> <RECORDS> <RUNS>");
+        } else {
+            final String path = args[0];
+            final Path dir = Paths.get(path);
+            if (!Files.isDirectory(dir)) {
+                System.out.println("Specified directory \"" + path + "\" does not exist.");
+            } else {
+                int recordCount = 2000000;
+                if (args.length > 1) {
+                    recordCount = Integer.parseInt(args[1]);
+                }
+
+                int runs = 1;
+                if (args.length > 2) {
+                    runs = Integer.parseInt(args[2]);
+                }
+
+                final byte[] data = createData(recordCount);
+                final List<Integer> threadCounts = getThreadCounts();
+                threadCounts.forEach(threads -> writeSpeed.put(threads, 0));
+
+                for (int i = 0; i < runs; i++) {
+                    for (final int threads : threadCounts) {
+                        doTest(dir.resolve("test" + threads + ".bgz"), data, threads);
+                    }
+
+                    final int run = i + 1;
+                    writeSpeed.forEach((threads, speed) ->
+                            System.out.println("Average threads=" + threads + " write = " + (speed / run) + "Mb/s"));
+                    System.out.println();
+                }
+            }
+        }
+    }
+
+    private List<Integer> getThreadCounts() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        final List<Integer> threadCounts = new ArrayList<>();
+        for (int threads = 1; threads < processors; threads *= 2) {
+            threadCounts.add(threads);
+        }
+        threadCounts.add(processors);
+        return threadCounts;
+    }
+
+    private void doTest(final Path file, final byte[] data, final int threads) throws IOException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(threads);
+        final long startTime = System.currentTimeMillis();
+
+        try (final OutputStream os = new BlockGZIPOutputFile(
+                file, BlockGZIPConstants.DEFAULT_BLOCK_SIZE, executorService, threads)) {
+            int startPos = 0;
+            int blockSize = 100;
+            while (startPos < data.length) {
+                if ((startPos + blockSize) > data.length) {
+                    blockSize = data.length - startPos;
+                }
+                os.write(data, startPos, blockSize);
+                startPos += blockSize;
+            }
+        } finally {
+            executorService.shutdown();
+        }
+
+        final double elapsed = System.currentTimeMillis() - startTime;
+        final double mb = ((double) data.length) / MB;
+        final double sec = elapsed / 1000;
+        final int mbps = (int) (mb / sec);
+
+        System.out.println("Writing " + (int) mb + "Mb with threads=" + threads + " took "
+                + (int) elapsed + "ms = " + mbps + "Mb/s, output file is " + (int) (Files.size(file) / MB) + "Mb");
+
+        writeSpeed.put(threads, writeSpeed.get(threads) + mbps);
+
+        Files.delete(file);
+    }
+
+    private byte[] createData(final int recordCount) {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<records>\n");
+
+        for (int i = 0; i < recordCount; i++) {
+            sb.append("<record>01/01/2010,00:00:00,");
+            sb.append(i);
+            sb.append(",1,user1,Some message 1</record>\n");
+        }
+        sb.append("</records>");
+
+        return sb.toString().getBytes(StreamUtil.DEFAULT_CHARSET);
+    }
+}
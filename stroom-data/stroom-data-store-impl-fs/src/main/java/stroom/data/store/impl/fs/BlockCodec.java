@@ -0,0 +1,137 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import com.github.luben.zstd.ZstdInputStream;
+import com.github.luben.zstd.ZstdOutputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The compression used for the blocks of a block compressed file. The codec is identified by the version marker
+ * at the start of the file so files written with any codec can be read without knowing in advance how they were
+ * written.
+ *
+ * @see BlockGZIPConstants
+ */
+enum BlockCodec {
+    /**
+     * The original format, good compression but relatively slow to decompress.
+     */
+    GZIP(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER) {
+        @Override
+        OutputStream createCompressor(final OutputStream outputStream) throws IOException {
+            return new GZIPOutputStream(outputStream);
+        }
+
+        @Override
+        InputStream createDecompressor(final InputStream inputStream) throws IOException {
+            return new GZIPInputStream(inputStream);
+        }
+    },
+    /**
+     * Each block is an LZ4 frame. Files are larger than GZIP but are much quicker to decompress which suits data
+     * that is read many times, e.g. by reprocessing, stepping and search extraction.
+     */
+    LZ4(BlockGZIPConstants.BLOCK_LZ4_V1_IDENTIFIER) {
+        @Override
+        OutputStream createCompressor(final OutputStream outputStream) throws IOException {
+            // The default 4MB frame buffer would be allocated for every block so use a size closer to our blocks.
+            return new LZ4FrameOutputStream(outputStream, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+        }
+
+        @Override
+        InputStream createDecompressor(final InputStream inputStream) throws IOException {
+            return new LZ4FrameInputStream(inputStream, true);
+        }
+    },
+    /**
+     * Each block is a Zstandard frame. Compresses nearly as well as GZIP but is several times quicker to
+     * decompress.
+     */
+    ZSTD(BlockGZIPConstants.BLOCK_ZSTD_V1_IDENTIFIER) {
+        @Override
+        OutputStream createCompressor(final OutputStream outputStream) throws IOException {
+            return new ZstdOutputStream(outputStream, ZSTD_LEVEL);
+        }
+
+        @Override
+        InputStream createDecompressor(final InputStream inputStream) throws IOException {
+            return new ZstdInputStream(inputStream);
+        }
+    };
+
+    // The Zstandard default, a good balance of ratio and speed.
+    private static final int ZSTD_LEVEL = 3;
+
+    private final byte[] identifier;
+
+    BlockCodec(final byte[] identifier) {
+        this.identifier = identifier;
+    }
+
+    /**
+     * @return A stream that compresses a single block. Closing it completes the block but does not close the
+     * underlying stream if it is a {@link BlockByteArrayOutputStream}.
+     */
+    abstract OutputStream createCompressor(OutputStream outputStream) throws IOException;
+
+    /**
+     * @return A stream that decompresses a single block and returns -1 at the end of the block.
+     */
+    abstract InputStream createDecompressor(InputStream inputStream) throws IOException;
+
+    /**
+     * @return The version marker written at the start of files using this codec.
+     */
+    byte[] getIdentifier() {
+        return identifier;
+    }
+
+    static BlockCodec fromIdentifier(final byte[] identifier) throws IOException {
+        for (final BlockCodec blockCodec : values()) {
+            if (Arrays.equals(blockCodec.identifier, identifier)) {
+                return blockCodec;
+            }
+        }
+        throw new IOException("Does not look like a block compressed stream");
+    }
+
+    /**
+     * @param name The name of a codec, case insensitive. If null or empty the default codec, {@link #GZIP}, is
+     *             returned.
+     */
+    static BlockCodec fromName(final String name) {
+        if (name == null || name.trim().isEmpty()) {
+            return GZIP;
+        }
+        for (final BlockCodec blockCodec : values()) {
+            if (blockCodec.name().equalsIgnoreCase(name.trim())) {
+                return blockCodec;
+            }
+        }
+        throw new IllegalArgumentException("Unknown block codec '" + name + "', expected one of " +
+                Arrays.toString(values()));
+    }
+}
@@ -25,6 +25,9 @@ import stroom.util.io.StreamUtil;
  * Data Length] [Index Position] [EOF Position] [Magic Marker] [Block Size]
  * [Block Data] [Magic Marker] [Block Size] [Block Data] ... [Magic Marker] <-
  * (Index Position) [Un-Compressed Index Data] [EOF] <- (EOF)
+ * <p>
+ * The version marker also identifies the {@link BlockCodec} used to compress the blocks, 'BGZ1' for GZIP, 'BLZ4'
+ * for LZ4 and 'BZS1' for Zstandard. The rest of the layout is the same for every codec.
  */
 final class BlockGZIPConstants {
     /**
@@ -51,6 +54,18 @@ final class BlockGZIPConstants {
      * Written at the start to identify .
      */
     static final byte[] BLOCK_GZIP_V1_IDENTIFIER = "BGZ1".getBytes(StreamUtil.DEFAULT_CHARSET);
+    /**
+     * Written at the start to identify a file whose blocks are LZ4 frames.
+     */
+    static final byte[] BLOCK_LZ4_V1_IDENTIFIER = "BLZ4".getBytes(StreamUtil.DEFAULT_CHARSET);
+    /**
+     * Written at the start to identify a file whose blocks are Zstandard frames.
+     */
+    static final byte[] BLOCK_ZSTD_V1_IDENTIFIER = "BZS1".getBytes(StreamUtil.DEFAULT_CHARSET);
+    /**
+     * All version markers are the same length.
+     */
+    static final int IDENTIFIER_LENGTH = 4;
     private static final byte MAGIC_HIGH = 127;
     private static final byte MAGIC_LOW = -128;
     /**
@@ -25,7 +25,6 @@ import java.nio.LongBuffer;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.zip.GZIPInputStream;
 
 /**
  * Class used to check a Block GZIP file.
@@ -39,7 +38,7 @@ class BlockGZIPFileVerifier {
     private byte[] longRawBuffer = new byte[BlockGZIPConstants.LONG_BYTES];
     private LongBuffer longBuffer = ByteBuffer.wrap(longRawBuffer).asLongBuffer();
     private byte[] magicMarkerRawBufffer = new byte[BlockGZIPConstants.MAGIC_MARKER.length];
-    private byte[] headerMarkerRawBuffer = new byte[BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER.length];
+    private byte[] headerMarkerRawBuffer = new byte[BlockGZIPConstants.IDENTIFIER_LENGTH];
 
     /**
      * Constructor to open a Block GZIP File.
@@ -63,7 +62,7 @@ class BlockGZIPFileVerifier {
     void verify() throws IOException {
         raFile.seek(0);
 
-        readHeaderMarker();
+        final BlockCodec blockCodec = readHeaderMarker();
 
         // Read Header
         final int blockSize = (int) readLong();
@@ -75,6 +74,7 @@ class BlockGZIPFileVerifier {
 
         System.out.println("Header Info");
         System.out.println("===========");
+        System.out.println("blockCodec=" + blockCodec);
         System.out.println("blockSize=" + blockSize);
         System.out.println("dataLength=" + dataLength);
         System.out.println("idxStart=" + idxStart);
@@ -126,10 +126,10 @@ class BlockGZIPFileVerifier {
 
             fillBuffer(stream, buffer, gzipSize);
 
-            System.out.println("Checking Block " + i + " GZIP Format");
+            System.out.println("Checking Block " + i + " " + blockCodec + " Format");
 
             ByteArrayInputStream is = new ByteArrayInputStream(buffer.getRawBuffer(), 0, buffer.size());
-            GZIPInputStream gzip = new GZIPInputStream(is);
+            InputStream gzip = blockCodec.createDecompressor(is);
             int byteRead;
             while ((byteRead = gzip.read()) != -1) {
                 // Do something to get around check style
@@ -209,11 +209,9 @@ class BlockGZIPFileVerifier {
         }
     }
 
-    private void readHeaderMarker() throws IOException {
+    private BlockCodec readHeaderMarker() throws IOException {
         fillBuffer(stream, headerMarkerRawBuffer, 0, headerMarkerRawBuffer.length);
-        if (!checkEqualBuffer(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER, headerMarkerRawBuffer)) {
-            throw new IOException("Does not look like a Block GZIP V1 Stream");
-        }
+        return BlockCodec.fromIdentifier(headerMarkerRawBuffer);
     }
 
     /**
@@ -25,7 +25,6 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.nio.LongBuffer;
-import java.util.zip.GZIPInputStream;
 
 /**
  * @see BlockGZIPConstants
@@ -36,7 +35,7 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
     /**
      * Pointer to the current GZIPstream
      */
-    GZIPInputStream currentStream;
+    InputStream currentStream;
     /**
      * We read data into a buffer (rather than hit the RA file)
      */
@@ -49,6 +48,7 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
      * Header info
      */
     int blockSize;
+    private BlockCodec blockCodec;
     private int blockCount = 0;
     long idxStart;
     long dataLength;
@@ -63,7 +63,7 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
     private byte[] longRawBuffer = new byte[BlockGZIPConstants.LONG_BYTES];
     private LongBuffer longBuffer = ByteBuffer.wrap(longRawBuffer).asLongBuffer();
     private byte[] magicMarkerRawBufffer = new byte[BlockGZIPConstants.MAGIC_MARKER.length];
-    private byte[] headerMarkerRawBuffer = new byte[BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER.length];
+    private byte[] headerMarkerRawBuffer = new byte[BlockGZIPConstants.IDENTIFIER_LENGTH];
     protected long position = 0;
     long lastMarkPosition = 0;
     /**
@@ -195,13 +195,11 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
     }
 
     /**
-     * Read a header marker from the stream.
+     * Read a header marker from the stream and find out which codec the blocks were written with.
      */
     private void readHeaderMarker() throws IOException {
         fillFromRawStreamBuffer(headerMarkerRawBuffer);
-        if (!checkEqualBuffer(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER, headerMarkerRawBuffer)) {
-            throw new IOException("Does not look like a Block GZIP V1 Stream");
-        }
+        blockCodec = BlockCodec.fromIdentifier(headerMarkerRawBuffer);
     }
 
     /**
@@ -256,7 +254,7 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
         readMagicMarker();
         currentBlockRawGzipSize = readLong();
 
-        currentStream = new GZIPInputStream(new GzipInputStreamAdaptor());
+        currentStream = blockCodec.createDecompressor(new GzipInputStreamAdaptor());
         streamCloser.add(currentStream);
     }
 
@@ -376,6 +374,10 @@ abstract class BlockGZIPInput extends InputStream implements SeekableInputStream
         return blockCount;
     }
 
+    BlockCodec getBlockCodec() {
+        return blockCodec;
+    }
+
     /**
      * Adaptor to create a stream over the raw buffer and ensures that we don't
      * read more than we are allowed to (for the gzip stream)
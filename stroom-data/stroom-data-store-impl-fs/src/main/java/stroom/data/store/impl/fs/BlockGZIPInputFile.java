@@ -19,6 +19,7 @@ package stroom.data.store.impl.fs;
 import stroom.util.io.BasicStreamCloser;
 import stroom.util.io.StreamCloser;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.Channels;
@@ -39,12 +40,28 @@ class BlockGZIPInputFile extends BlockGZIPInput {
 
     private final StreamCloser streamCloser = new BasicStreamCloser();
 
+    // Shares decompressed blocks with other readers if not null
+    private final DecompressedBlockCache blockCache;
+    // Blocks are only added to the cache once we have started to move around the file
+    private boolean randomAccess;
+
     /**
      * Constructor to open a Block GZIP File.
      */
     BlockGZIPInputFile(final Path bgz) throws IOException {
+        this(bgz, (DecompressedBlockCache) null);
+    }
+
+    /**
+     * Constructor to open a Block GZIP File that shares decompressed blocks with other readers.
+     *
+     * @param blockCache Used to look up blocks before decompressing them. Blocks decompressed after this reader
+     *                   first skips or seeks are added to the cache. May be null.
+     */
+    BlockGZIPInputFile(final Path bgz, final DecompressedBlockCache blockCache) throws IOException {
         this.raFile = FileChannel.open(bgz, StandardOpenOption.READ);
         this.file = bgz;
+        this.blockCache = blockCache;
 
         raFile.position(0);
         init();
@@ -60,6 +77,7 @@ class BlockGZIPInputFile extends BlockGZIPInput {
         super(rawBufferSize);
         this.raFile = FileChannel.open(bgz, StandardOpenOption.READ);
         this.file = bgz;
+        this.blockCache = null;
 
         raFile.position(0);
         init();
@@ -86,6 +104,8 @@ class BlockGZIPInputFile extends BlockGZIPInput {
      */
     @Override
     public long skip(final long n) throws IOException {
+        randomAccess = true;
+
         // The first seek we do we check the index
         if (!checkedIndex) {
             // Record the current position in case we don't switch blocks
@@ -193,6 +213,8 @@ class BlockGZIPInputFile extends BlockGZIPInput {
         }
         // Going back
         if (offset < 0) {
+            randomAccess = true;
+
             // Force a reload
 
             // Then figure out block and offset
@@ -205,11 +227,71 @@ class BlockGZIPInputFile extends BlockGZIPInput {
             final long seekPos = readLong();
             raFile.position(seekPos);
             currentRawStreamBuffer = createBufferedInputStream(true);
+            position = newPosition;
             startGzipBlock();
             currentStream.skip(blockOffset);
+        }
+    }
 
-            position = newPosition;
+    /**
+     * Start the block that contains the current position, using the block cache if we have one.
+     */
+    @Override
+    void startGzipBlock() throws IOException {
+        if (blockCache == null) {
+            super.startGzipBlock();
+            return;
         }
+
+        final long blockNumber = position / blockSize;
+        final byte[] block;
+        if (randomAccess) {
+            block = blockCache.getBlock(file, eof, blockNumber, () -> decompressBlock(blockNumber));
+        } else {
+            block = blockCache.getBlock(file, eof, blockNumber).orElse(null);
+        }
+
+        if (block != null) {
+            currentStream = new ByteArrayInputStream(block);
+        } else {
+            // Just reading through the file so decompress as we go rather than filling the cache.
+            positionAtBlock(blockNumber);
+            super.startGzipBlock();
+        }
+    }
+
+    /**
+     * Decompress a whole block so it can be cached.
+     */
+    private byte[] decompressBlock(final long blockNumber) throws IOException {
+        positionAtBlock(blockNumber);
+        super.startGzipBlock();
+
+        final byte[] block = new byte[(int) Math.min(blockSize, dataLength - (blockNumber * blockSize))];
+        int offset = 0;
+        while (offset < block.length) {
+            final int len = currentStream.read(block, offset, block.length - offset);
+            if (len == -1) {
+                throw new IOException("Block " + blockNumber + " of " + file + " is shorter than expected");
+            }
+            offset += len;
+        }
+        currentStream.close();
+        currentStream = null;
+
+        return block;
+    }
+
+    /**
+     * Use the index to move the raw stream to the start of a block as blocks served from the cache leave it
+     * wherever it was.
+     */
+    private void positionAtBlock(final long blockNumber) throws IOException {
+        raFile.position(idxStart + BlockGZIPConstants.LONG_BYTES + (blockNumber * BlockGZIPConstants.LONG_BYTES));
+        currentRawStreamBuffer = createBufferedInputStream(true);
+        final long seekPos = readLong();
+        raFile.position(seekPos);
+        currentRawStreamBuffer = createBufferedInputStream(true);
     }
 
     /**
@@ -29,7 +29,7 @@ import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Executor;
 
 /**
  * @see BlockGZIPConstants
@@ -52,7 +52,13 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
     private final StreamCloser streamCloser = new BasicStreamCloser();
     // The stream - we hold a buffer onto it as well
     private BufferedOutputStream currentStreamBuffer;
-    private GZIPOutputStream currentStreamGzip;
+    private OutputStream currentStreamGzip;
+    // The codec used to compress each block
+    private final BlockCodec blockCodec;
+    // Compresses blocks on other threads if we are using more than one compression thread
+    private final ParallelBlockGZIPCompressor compressor;
+    // The uncompressed data for the current block when using the compressor
+    private BlockByteArrayOutputStream uncompressedBlock;
     // The block size we are using
     private int blockSize;
     // The current 'logical' uncompressed data item we have written
@@ -74,7 +80,37 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
      * @see BlockGZIPConstants
      */
     BlockGZIPOutputFile(final Path file, final int blockSize) throws IOException {
+        this(file, blockSize, null, 1);
+    }
+
+    /**
+     * @param compressionExecutor The executor to compress blocks on if compressing on more than one thread.
+     * @param compressionThreads  If greater than 1 blocks are compressed on the compression executor, this many at
+     *                            a time, rather than on the writing thread. The file that is written is the same.
+     * @see BlockGZIPConstants
+     */
+    BlockGZIPOutputFile(final Path file,
+                        final int blockSize,
+                        final Executor compressionExecutor,
+                        final int compressionThreads) throws IOException {
+        this(file, blockSize, compressionExecutor, compressionThreads, BlockCodec.GZIP);
+    }
+
+    /**
+     * @param blockCodec The codec used to compress each block, recorded in the header so the file can be read
+     *                   without knowing how it was written.
+     * @see BlockGZIPConstants
+     */
+    BlockGZIPOutputFile(final Path file,
+                        final int blockSize,
+                        final Executor compressionExecutor,
+                        final int compressionThreads,
+                        final BlockCodec blockCodec) throws IOException {
         this.blockSize = blockSize;
+        this.blockCodec = blockCodec;
+        this.compressor = compressionExecutor != null && compressionThreads > 1
+                ? new ParallelBlockGZIPCompressor(compressionExecutor, compressionThreads, blockCodec, this::writeCompressedBlock)
+                : null;
         this.mainBuffer = new BlockByteArrayOutputStream();
         this.indexBuffer = new BlockByteArrayOutputStream();
 
@@ -90,7 +126,7 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
         this.raFile = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
 
         // Write a marker
-        mainBuffer.write(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER);
+        mainBuffer.write(blockCodec.getIdentifier());
         // At the start of the block file write the block size an empty place
         // for the index offset and the marker
         // we
@@ -116,6 +152,16 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
         mainBuffer.reset();
     }
 
+    /**
+     * Index and write a block that has been compressed by the compressor.
+     */
+    private void writeCompressedBlock(final BlockByteArrayOutputStream compressedBlock) throws IOException {
+        // Record the index
+        indexBuffer.writeLong(raFile.position());
+
+        raFile.write(ByteBuffer.wrap(compressedBlock.getRawBuffer(), 0, compressedBlock.size()));
+    }
+
     /**
      * @return Our current position (in uncompressed bytes)
      */
@@ -134,9 +180,19 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
     private void endGzipBlock() throws IOException {
         blockCount++;
 
+        if (compressor != null) {
+            // Hand the block over to be compressed, it will be indexed and written when it is ready.
+            currentStreamBuffer.flush();
+            compressor.compress(uncompressedBlock);
+
+            uncompressedBlock = null;
+            currentStreamBuffer = null;
+            return;
+        }
+
         currentStreamBuffer.flush();
-        currentStreamGzip.flush();
-        currentStreamGzip.finish();
+        // Completes the block and releases any native resources, the main buffer is not affected by the close.
+        currentStreamGzip.close();
 
         // Block Compressed size is size of stream less magic marker less block
         // size header (2 longs)
@@ -153,6 +209,13 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
         // At what point to we start a new block
         currentBlockEndPos = (blockCount + 1) * blockSize;
 
+        if (compressor != null) {
+            // Just collect the uncompressed data for this block
+            uncompressedBlock = new BlockByteArrayOutputStream(blockSize);
+            currentStreamBuffer = new BufferedOutputStream(uncompressedBlock, FileSystemUtil.STREAM_BUFFER_SIZE);
+            return;
+        }
+
         // Record the start Pos
         final long currentRawBlockStartPos = raFile.position();
 
@@ -166,7 +229,7 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
         mainBuffer.writeLong(0);
 
         // Connect a new GZIP stream
-        currentStreamGzip = new GZIPOutputStream(mainBuffer);
+        currentStreamGzip = blockCodec.createCompressor(mainBuffer);
         currentStreamBuffer = new BufferedOutputStream(currentStreamGzip, FileSystemUtil.STREAM_BUFFER_SIZE);
     }
 
@@ -233,6 +296,11 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
                     endGzipBlock();
                 }
 
+                if (compressor != null) {
+                    // Write any blocks that are still being compressed
+                    compressor.finish();
+                }
+
                 // Record where we are going to start writing the index
                 final long idxStart = raFile.position();
 
@@ -244,7 +312,7 @@ class BlockGZIPOutputFile extends OutputStream implements SeekableOutputStream {
 
                 // Seek back to the start to write the above stats.
                 // Write the Index Post back in the header
-                raFile.position(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER.length + BlockGZIPConstants.LONG_BYTES);
+                raFile.position(BlockGZIPConstants.IDENTIFIER_LENGTH + BlockGZIPConstants.LONG_BYTES);
                 // Write the uncompressed stream size
 
                 mainBuffer.reset();
@@ -25,7 +25,7 @@ import stroom.util.io.StreamCloser;
 import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.zip.GZIPOutputStream;
+import java.util.concurrent.Executor;
 
 class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream {
     private static final Logger LOGGER = LoggerFactory.getLogger(BlockGZipOutputStream.class);
@@ -41,7 +41,13 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
     private final SeekableOutputStream mainStream;
     // The stream - we hold a buffer onto it as well
     private BufferedOutputStream currentStreamBuffer;
-    private GZIPOutputStream currentStreamGzip;
+    private OutputStream currentStreamGzip;
+    // The codec used to compress each block
+    private final BlockCodec blockCodec;
+    // Compresses blocks on other threads if we are using more than one compression thread
+    private final ParallelBlockGZIPCompressor compressor;
+    // The uncompressed data for the current block when using the compressor
+    private BlockByteArrayOutputStream uncompressedBlock;
     // The block size we are using
     private int blockSize;
     // The current 'logical' uncompressed data item we have written
@@ -57,8 +63,36 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
     }
 
     BlockGZipOutputStream(final SeekableOutputStream mainStream, final int blockSize) throws IOException {
+        this(mainStream, blockSize, null, 1);
+    }
+
+    /**
+     * @param compressionExecutor The executor to compress blocks on if compressing on more than one thread.
+     * @param compressionThreads  If greater than 1 blocks are compressed on the compression executor, this many at
+     *                            a time, rather than on the writing thread. The stream that is written is the same.
+     */
+    BlockGZipOutputStream(final SeekableOutputStream mainStream,
+                          final int blockSize,
+                          final Executor compressionExecutor,
+                          final int compressionThreads) throws IOException {
+        this(mainStream, blockSize, compressionExecutor, compressionThreads, BlockCodec.GZIP);
+    }
+
+    /**
+     * @param blockCodec The codec used to compress each block, recorded in the header so the stream can be read
+     *                   without knowing how it was written.
+     */
+    BlockGZipOutputStream(final SeekableOutputStream mainStream,
+                          final int blockSize,
+                          final Executor compressionExecutor,
+                          final int compressionThreads,
+                          final BlockCodec blockCodec) throws IOException {
         this.mainStream = mainStream;
         this.blockSize = blockSize;
+        this.blockCodec = blockCodec;
+        this.compressor = compressionExecutor != null && compressionThreads > 1
+                ? new ParallelBlockGZIPCompressor(compressionExecutor, compressionThreads, blockCodec, this::writeCompressedBlock)
+                : null;
         this.mainBuffer = new BlockByteArrayOutputStream();
         this.indexBuffer = new BlockByteArrayOutputStream();
 
@@ -66,7 +100,7 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         indexBuffer.write(BlockGZIPConstants.MAGIC_MARKER);
 
         // Write a marker
-        mainBuffer.write(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER);
+        mainBuffer.write(blockCodec.getIdentifier());
         // At the start of the block file write the block size an empty place
         // for the index offset and the marker
         // we
@@ -92,6 +126,16 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         mainBuffer.reset();
     }
 
+    /**
+     * Index and write a block that has been compressed by the compressor.
+     */
+    private void writeCompressedBlock(final BlockByteArrayOutputStream compressedBlock) throws IOException {
+        // Record the index
+        indexBuffer.writeLong(mainStream.getPosition());
+
+        mainStream.write(compressedBlock.getRawBuffer(), 0, compressedBlock.size());
+    }
+
     /**
      * @return Our current position (in uncompressed bytes)
      */
@@ -106,9 +150,19 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
     private void endGzipBlock() throws IOException {
         blockCount++;
 
+        if (compressor != null) {
+            // Hand the block over to be compressed, it will be indexed and written when it is ready.
+            currentStreamBuffer.flush();
+            compressor.compress(uncompressedBlock);
+
+            uncompressedBlock = null;
+            currentStreamBuffer = null;
+            return;
+        }
+
         currentStreamBuffer.flush();
-        currentStreamGzip.flush();
-        currentStreamGzip.finish();
+        // Completes the block and releases any native resources, the main buffer is not affected by the close.
+        currentStreamGzip.close();
 
         // Block Compressed size is size of stream less magic marker less block
         // size header (2 longs)
@@ -125,6 +179,13 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         // At what point to we start a new block
         currentBlockEndPos = (blockCount + 1) * blockSize;
 
+        if (compressor != null) {
+            // Just collect the uncompressed data for this block
+            uncompressedBlock = new BlockByteArrayOutputStream(blockSize);
+            currentStreamBuffer = new BufferedOutputStream(uncompressedBlock, FileSystemUtil.STREAM_BUFFER_SIZE);
+            return;
+        }
+
         // Record the start Pos
         final long currentRawBlockStartPos = mainStream.getPosition();
 
@@ -138,7 +199,7 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
         mainBuffer.writeLong(0);
 
         // Connect a new GZIP stream
-        currentStreamGzip = new GZIPOutputStream(mainBuffer);
+        currentStreamGzip = blockCodec.createCompressor(mainBuffer);
         currentStreamBuffer = new BufferedOutputStream(currentStreamGzip, FileSystemUtil.STREAM_BUFFER_SIZE);
     }
 
@@ -205,6 +266,11 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
                     endGzipBlock();
                 }
 
+                if (compressor != null) {
+                    // Write any blocks that are still being compressed
+                    compressor.finish();
+                }
+
                 // Record where we are going to start writing the index
                 final long idxStart = mainStream.getPosition();
 
@@ -216,7 +282,7 @@ class BlockGZipOutputStream extends OutputStream implements SeekableOutputStream
 
                 // Seek back to the start to write the above stats.
                 // Write the Index Post back in the header
-                mainStream.seek(BlockGZIPConstants.BLOCK_GZIP_V1_IDENTIFIER.length + BlockGZIPConstants.LONG_BYTES);
+                mainStream.seek(BlockGZIPConstants.IDENTIFIER_LENGTH + BlockGZIPConstants.LONG_BYTES);
                 // Write the uncompressed stream size
 
                 mainBuffer.reset();
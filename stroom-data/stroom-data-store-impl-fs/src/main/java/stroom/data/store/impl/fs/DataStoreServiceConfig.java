@@ -1,22 +1,38 @@
 package stroom.data.store.impl.fs;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.annotation.JsonPropertyDescription;
 import stroom.config.common.DbConfig;
 import stroom.config.common.HasDbConfig;
+import stroom.util.cache.CacheConfig;
 import stroom.util.shared.AbstractConfig;
 import stroom.util.time.StroomDuration;
 
 import javax.inject.Singleton;
+import javax.validation.constraints.AssertTrue;
+import javax.validation.constraints.Pattern;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
 
 @Singleton
 public class DataStoreServiceConfig extends AbstractConfig implements HasDbConfig {
+    private static final String BLOCK_CODEC_PATTERN = "^(GZIP|LZ4|ZSTD)?$";
+
     private DbConfig dbConfig = new DbConfig();
     private StroomDuration deletePurgeAge = StroomDuration.ofDays(7);
     private int deleteBatchSize = 1000;
     private int fileSystemCleanBatchSize = 20;
     private boolean fileSystemCleanDeleteOut;
     private StroomDuration fileSystemCleanOldAge = StroomDuration.ofDays(1);
+    private int compressionThreads = 1;
+    private String blockCodec = BlockCodec.GZIP.name();
+    private Map<String, String> blockCodecByStreamType = new HashMap<>();
+    private CacheConfig decompressedBlockCache = new CacheConfig.Builder()
+            .maximumSize(100L)
+            .expireAfterAccess(StroomDuration.ofMinutes(10))
+            .build();
 
     @JsonProperty("db")
     public DbConfig getDbConfig() {
@@ -75,4 +91,62 @@ public class DataStoreServiceConfig extends AbstractConfig implements HasDbConfi
     public void setFileSystemCleanOldAge(final StroomDuration fileSystemCleanOldAge) {
         this.fileSystemCleanOldAge = fileSystemCleanOldAge;
     }
+
+    @JsonPropertyDescription("The number of blocks of each block GZIP file being written that can be compressed " +
+            "at the same time on a shared pool of worker threads. If 1, blocks are compressed on the thread " +
+            "writing the data. The file format is the same either way.")
+    public int getCompressionThreads() {
+        return compressionThreads;
+    }
+
+    @SuppressWarnings("unused")
+    public void setCompressionThreads(final int compressionThreads) {
+        this.compressionThreads = compressionThreads;
+    }
+
+    @JsonPropertyDescription("The codec used to compress the blocks of new block compressed files, one of GZIP, " +
+            "LZ4 or ZSTD. LZ4 and ZSTD files are much quicker to read than GZIP, LZ4 files are larger. Existing " +
+            "files can always be read whatever this is set to.")
+    @Pattern(regexp = BLOCK_CODEC_PATTERN,
+            flags = Pattern.Flag.CASE_INSENSITIVE,
+            message = "Value must be one of GZIP, LZ4 or ZSTD")
+    public String getBlockCodec() {
+        return blockCodec;
+    }
+
+    @SuppressWarnings("unused")
+    public void setBlockCodec(final String blockCodec) {
+        this.blockCodec = blockCodec;
+    }
+
+    @JsonPropertyDescription("Overrides blockCodec for particular stream types, e.g. 'Events: LZ4' for stream " +
+            "types that are read much more often than they are written.")
+    public Map<String, String> getBlockCodecByStreamType() {
+        return blockCodecByStreamType;
+    }
+
+    @SuppressWarnings("unused")
+    public void setBlockCodecByStreamType(final Map<String, String> blockCodecByStreamType) {
+        this.blockCodecByStreamType = blockCodecByStreamType;
+    }
+
+    @JsonIgnore
+    @AssertTrue(message = "blockCodecByStreamType values must be one of GZIP, LZ4 or ZSTD")
+    public boolean isBlockCodecByStreamTypeValid() {
+        return blockCodecByStreamType == null || blockCodecByStreamType.values()
+                .stream()
+                .allMatch(value -> value != null && value.toUpperCase(Locale.ROOT).matches(BLOCK_CODEC_PATTERN));
+    }
+
+    @JsonPropertyDescription("The cache of decompressed blocks shared by all readers on this node that jump " +
+            "around streams, e.g. the data viewer, stepping and search extraction. Each entry is one block, " +
+            "1MB by default, so the maximum size bounds the memory used.")
+    public CacheConfig getDecompressedBlockCache() {
+        return decompressedBlockCache;
+    }
+
+    @SuppressWarnings("unused")
+    public void setDecompressedBlockCache(final CacheConfig decompressedBlockCache) {
+        this.decompressedBlockCache = decompressedBlockCache;
+    }
 }
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * A node wide cache of decompressed blocks of block compressed files so that readers that jump around a stream,
+ * e.g. the data viewer, stepping and search extraction, only need to decompress each block once between them.
+ * Each entry holds one block, so the memory used is bounded by the maximum size of the cache multiplied by the block
+ * size, 1MB by default. Hit, miss and eviction counts can be seen on the caches screen.
+ * <p>
+ * Stream files are never modified once written but a path could in theory be reused, so entries are keyed on
+ * the length of the file as well as the path.
+ */
+@Singleton
+class DecompressedBlockCache {
+    private static final String CACHE_NAME = "Decompressed Block Cache";
+
+    private final ICache<Key, byte[]> cache;
+
+    @Inject
+    DecompressedBlockCache(final CacheManager cacheManager,
+                           final DataStoreServiceConfig dataStoreServiceConfig) {
+        cache = cacheManager.create(CACHE_NAME, dataStoreServiceConfig::getDecompressedBlockCache);
+    }
+
+    /**
+     * @return The decompressed block if it is cached.
+     */
+    Optional<byte[]> getBlock(final Path file, final long fileLength, final long blockNumber) {
+        return cache.getOptional(new Key(file, fileLength, blockNumber));
+    }
+
+    /**
+     * Get the decompressed block, decompressing it with the supplied function if it is not cached. If several
+     * threads want the same block at the same time it will only be decompressed once.
+     */
+    byte[] getBlock(final Path file,
+                    final long fileLength,
+                    final long blockNumber,
+                    final SupplierWithIO<byte[]> decompressFunction) throws IOException {
+        try {
+            return cache.asMap().computeIfAbsent(new Key(file, fileLength, blockNumber), k -> {
+                try {
+                    return decompressFunction.getWithIO();
+                } catch (final IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (final UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static class Key {
+        private final Path file;
+        private final long fileLength;
+        private final long blockNumber;
+        private final int hashCode;
+
+        Key(final Path file, final long fileLength, final long blockNumber) {
+            this.file = file;
+            this.fileLength = fileLength;
+            this.blockNumber = blockNumber;
+            this.hashCode = Objects.hash(file, fileLength, blockNumber);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key key = (Key) o;
+            return fileLength == key.fileLength &&
+                    blockNumber == key.blockNumber &&
+                    Objects.equals(file, key.file);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public String toString() {
+            return file + "#" + blockNumber;
+        }
+    }
+}
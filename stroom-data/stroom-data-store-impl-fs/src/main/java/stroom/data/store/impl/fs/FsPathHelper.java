@@ -18,10 +18,13 @@ package stroom.data.store.impl.fs;
 
 import stroom.data.shared.StreamTypeNames;
 import stroom.meta.shared.Meta;
+import stroom.task.api.ExecutorProvider;
 import stroom.util.date.DateUtil;
 import stroom.util.io.FileUtil;
 
 import com.google.inject.Inject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -31,8 +34,12 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
 
 class FsPathHelper {
+    private static final Logger LOGGER = LoggerFactory.getLogger(FsPathHelper.class);
+
     /**
      * We use this rather than the File.separator as we need to be standard
      * across Windows and UNIX.
@@ -50,12 +57,28 @@ class FsPathHelper {
 
     private final FsFeedPathDao fileSystemFeedPaths;
     private final FsTypePathDao fileSystemTypePaths;
+    private final DataStoreServiceConfig dataStoreServiceConfig;
+    private final DecompressedBlockCache decompressedBlockCache;
+    private final Executor compressionExecutor;
 
     @Inject
     FsPathHelper(final FsFeedPathDao fileSystemFeedPaths,
-                 final FsTypePathDao fileSystemTypePaths) {
+                 final FsTypePathDao fileSystemTypePaths,
+                 final DataStoreServiceConfig dataStoreServiceConfig,
+                 final DecompressedBlockCache decompressedBlockCache,
+                 final ExecutorProvider executorProvider) {
         this.fileSystemFeedPaths = fileSystemFeedPaths;
         this.fileSystemTypePaths = fileSystemTypePaths;
+        this.dataStoreServiceConfig = dataStoreServiceConfig;
+        this.decompressedBlockCache = decompressedBlockCache;
+        this.compressionExecutor = executorProvider != null
+                ? executorProvider.get(ParallelBlockGZIPCompressor.THREAD_POOL)
+                : null;
+    }
+
+    FsPathHelper(final FsFeedPathDao fileSystemFeedPaths,
+                 final FsTypePathDao fileSystemTypePaths) {
+        this(fileSystemFeedPaths, fileSystemTypePaths, new DataStoreServiceConfig(), null, null);
     }
 
 //    private String createFilePathBase(final String rootPath, final Meta meta, final String streamTypeName) {
@@ -82,7 +105,7 @@ class FsPathHelper {
             throw new IllegalArgumentException("Must Have a non-null stream type");
         }
         if (FileStoreType.bgz.equals(getFileStoreType(streamTypeName))) {
-            return new BlockGZIPInputFile(file);
+            return new BlockGZIPInputFile(file, decompressedBlockCache);
         }
         return new UncompressedInputStream(file, isStreamTypeLazy(streamTypeName));
     }
@@ -103,6 +126,31 @@ class FsPathHelper {
         return kids;
     }
 
+    /**
+     * Get the codec to compress new files of the given stream type with.
+     */
+    BlockCodec getBlockCodec(final String streamTypeName) {
+        final Map<String, String> blockCodecByStreamType = dataStoreServiceConfig.getBlockCodecByStreamType();
+        if (blockCodecByStreamType != null) {
+            final String blockCodec = blockCodecByStreamType.get(streamTypeName);
+            if (blockCodec != null) {
+                return getBlockCodecByName(blockCodec);
+            }
+        }
+        return getBlockCodecByName(dataStoreServiceConfig.getBlockCodec());
+    }
+
+    private BlockCodec getBlockCodecByName(final String name) {
+        // Codec names are validated with the rest of the config so this should only fail if the config is
+        // invalid and we have been told not to halt on invalid config. Don't stop data being written.
+        try {
+            return BlockCodec.fromName(name);
+        } catch (final IllegalArgumentException e) {
+            LOGGER.error(e.getMessage() + ", using " + BlockCodec.GZIP);
+            return BlockCodec.GZIP;
+        }
+    }
+
     /**
      * Return back a output stream for a given stream type and file.
      */
@@ -115,7 +163,12 @@ class FsPathHelper {
         OutputStream outputStream = null;
         if (FileStoreType.bgz.equals(getFileStoreType(streamTypeName))) {
             try {
-                outputStream = new BlockGZIPOutputFile(file);
+                outputStream = new BlockGZIPOutputFile(
+                        file,
+                        BlockGZIPConstants.DEFAULT_BLOCK_SIZE,
+                        compressionExecutor,
+                        dataStoreServiceConfig.getCompressionThreads(),
+                        getBlockCodec(streamTypeName));
             } catch (IOException e) {
                 ioEx = e;
             }
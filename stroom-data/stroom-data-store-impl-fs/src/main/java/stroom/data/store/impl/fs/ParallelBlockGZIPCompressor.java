@@ -0,0 +1,159 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.data.store.impl.fs;
+
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+
+/**
+ * Compresses the blocks of a block GZIP file on a pool of worker threads so that several blocks of the same
+ * file can be compressed at the same time, pigz style. Compressed blocks are handed back to the {@link BlockWriter}
+ * in the order they were submitted so the file is laid out exactly as if the blocks had been compressed on the
+ * writing thread.
+ * <p>
+ * An instance must only be used by a single writer.
+ *
+ * @see BlockGZIPConstants
+ */
+class ParallelBlockGZIPCompressor {
+    /**
+     * The pool shared by all writers, there is no point having more compression threads than processors.
+     */
+    static final ThreadPool THREAD_POOL = new ThreadPoolImpl(
+            "Block GZIP Compression",
+            5,
+            0,
+            Runtime.getRuntime().availableProcessors());
+
+    private final Executor executor;
+    private final int maxPendingBlocks;
+    private final BlockCodec blockCodec;
+    private final BlockWriter blockWriter;
+    private final Deque<Future<BlockByteArrayOutputStream>> pendingBlocks = new ArrayDeque<>();
+
+    /**
+     * @param executor    The executor to compress blocks on, usually one for {@link #THREAD_POOL}.
+     * @param threads     The number of blocks of this file that can be compressed at the same time.
+     * @param blockCodec  The codec used to compress each block.
+     * @param blockWriter Writes each compressed block to the file, in order.
+     */
+    ParallelBlockGZIPCompressor(final Executor executor,
+                                final int threads,
+                                final BlockCodec blockCodec,
+                                final BlockWriter blockWriter) {
+        this.executor = executor;
+        // Allow a few blocks to queue so workers are not left idle while the writer fills the next block.
+        this.maxPendingBlocks = Math.max(1, threads) * 2;
+        this.blockCodec = blockCodec;
+        this.blockWriter = blockWriter;
+    }
+
+    /**
+     * Queue a block of uncompressed data to be compressed. Any blocks that have finished compressing are
+     * written. If too many blocks are waiting this will wait for the oldest one to be compressed and written.
+     */
+    void compress(final BlockByteArrayOutputStream uncompressedBlock) throws IOException {
+        pendingBlocks.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                return compressBlock(blockCodec, uncompressedBlock);
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, executor));
+
+        while (pendingBlocks.size() >= maxPendingBlocks) {
+            writeNext();
+        }
+        while (!pendingBlocks.isEmpty() && pendingBlocks.peek().isDone()) {
+            writeNext();
+        }
+    }
+
+    /**
+     * Wait for all queued blocks to be compressed and written.
+     */
+    void finish() throws IOException {
+        while (!pendingBlocks.isEmpty()) {
+            writeNext();
+        }
+    }
+
+    private void writeNext() throws IOException {
+        final Future<BlockByteArrayOutputStream> future = pendingBlocks.poll();
+        try {
+            blockWriter.write(future.get());
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel();
+            throw new InterruptedIOException("Interrupted while waiting for a block to be compressed");
+        } catch (final ExecutionException e) {
+            cancel();
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void cancel() {
+        pendingBlocks.forEach(future -> future.cancel(true));
+        pendingBlocks.clear();
+    }
+
+    /**
+     * Produce the same bytes that are written for a block when it is compressed on the writing thread,
+     * i.e. the magic marker, the compressed size and then the GZIP data.
+     */
+    static BlockByteArrayOutputStream compressBlock(final BlockCodec blockCodec,
+                                                    final BlockByteArrayOutputStream uncompressedBlock)
+            throws IOException {
+        final BlockByteArrayOutputStream compressedBlock = new BlockByteArrayOutputStream(
+                (uncompressedBlock.size() / 2) + BlockGZIPConstants.MAGIC_MARKER.length + BlockGZIPConstants.LONG_BYTES);
+
+        // Marker
+        compressedBlock.write(BlockGZIPConstants.MAGIC_MARKER);
+        // Write some bytes for the long we will do later
+        compressedBlock.writeLong(0);
+
+        // Closing the compressor completes the block, closing the byte array stream it wraps has no effect.
+        try (final OutputStream compressorOutputStream = blockCodec.createCompressor(compressedBlock)) {
+            compressorOutputStream.write(uncompressedBlock.getRawBuffer(), 0, uncompressedBlock.size());
+        }
+
+        // Block Compressed size is size of stream less magic marker less block
+        // size header (2 longs)
+        final long rawBlockSize = compressedBlock.size() - BlockGZIPConstants.LONG_BYTES - BlockGZIPConstants.LONG_BYTES;
+        compressedBlock.overwriteLongAtOffset(BlockGZIPConstants.LONG_BYTES, rawBlockSize);
+
+        return compressedBlock;
+    }
+
+    interface BlockWriter {
+        void write(BlockByteArrayOutputStream compressedBlock) throws IOException;
+    }
+}
@@ -38,19 +38,31 @@ import java.util.TreeSet;
  * Also new handles working within a windows on the underlying data. With this
  * mode the segments are logical (i.e. they start at 0 regardless of the
  * window).
+ * <p>
+ * The index is held in memory once the stream is opened so that finding
+ * segments does not need a seek and read of the index stream for every
+ * lookup. Uncompressed index files are memory mapped, other index streams
+ * are read fully if they are small enough, otherwise each offset is read from
+ * the index stream as it is needed.
  */
 public class RASegmentInputStream extends SegmentInputStream {
     private static final Logger LOGGER = LoggerFactory.getLogger(RASegmentInputStream.class);
     private static final int INT8 = 8;
+    // Read compressed indexes of up to 1M segments into memory.
+    private static final long MAX_LOADED_INDEX_SIZE = 1024 * 1024 * INT8;
     private final byte[] eightBytes = new byte[INT8];
     private final byte[] singleByte = new byte[1];
     private final LongBuffer longBuffer = ByteBuffer.wrap(eightBytes).asLongBuffer();
     private InputStream data;
     private InputStream indexInputStream;
+    // The index offsets held in memory, null if the index is read from the stream.
+    private LongBuffer offsets;
     private Set<Long> included;
     private Iterator<Long> includedIterator;
     private Set<Long> excluded;
     private Iterator<Long> excludedIterator;
+    // A segment taken from the include or exclude iterator that did not follow on from the last range.
+    private Long nextRangeSegment;
     private boolean includeAll = true;
     private ByteRange range;
     private long windowPos = 0;
@@ -98,12 +110,39 @@ public class RASegmentInputStream extends SegmentInputStream {
         }
     }
 
+    /**
+     * Map or read the index into memory if we can.
+     *
+     * @return The index offsets or null if the index is to be read from the stream.
+     */
+    private LongBuffer loadOffsets(final long indexSize) throws IOException {
+        if (indexSize > Integer.MAX_VALUE) {
+            return null;
+        }
+
+        if (indexInputStream instanceof UncompressedInputStream) {
+            return ((UncompressedInputStream) indexInputStream).map().asLongBuffer();
+        }
+
+        if (indexSize > MAX_LOADED_INDEX_SIZE) {
+            LOGGER.debug("Not loading index of {} bytes into memory", indexSize);
+            return null;
+        }
+
+        final byte[] bytes = new byte[(int) indexSize];
+        ((SeekableInputStream) indexInputStream).seek(0);
+        StreamUtil.eagerRead(indexInputStream, bytes);
+        return ByteBuffer.wrap(bytes).asLongBuffer();
+    }
+
     private long getDataSize() throws IOException {
         return ((SeekableInputStream) data).getSize();
     }
 
     private void initWindow(final long byteStart, final long byteEnd) throws IOException {
-        totalSegmentCount = (((SeekableInputStream) indexInputStream).getSize() / INT8) + 1;
+        final long indexSize = ((SeekableInputStream) indexInputStream).getSize();
+        totalSegmentCount = (indexSize / INT8) + 1;
+        offsets = loadOffsets(indexSize);
 
         // If the window starts at 0 we start at segment 0 otherwise we need to
         // look at which segment includes byteStart
@@ -374,6 +413,7 @@ public class RASegmentInputStream extends SegmentInputStream {
                 // Get the initial excluded range.
                 if (windowPos == windowByteStart) {
                     excludedIterator = excluded.iterator();
+                    nextRangeSegment = null;
                     range = getNextExcludedRange();
                 }
 
@@ -429,6 +469,7 @@ public class RASegmentInputStream extends SegmentInputStream {
                 // Get the initial included range.
                 if (windowPos == windowByteStart) {
                     includedIterator = included.iterator();
+                    nextRangeSegment = null;
                     range = getNextIncludedRange();
                 }
 
@@ -506,42 +547,60 @@ public class RASegmentInputStream extends SegmentInputStream {
     }
 
     /**
-     * Gets the byte range for the next included segment.
+     * Gets the byte range for the next run of consecutive included segments.
      */
     private ByteRange getNextIncludedRange() throws IOException {
-        if (includedIterator.hasNext()) {
-            final long segment = includedIterator.next();
-            return getSegmentRange(segment);
-        }
-
-        return null;
+        return getNextRange(includedIterator);
     }
 
     /**
-     * Gets the byte range for the next excluded segment.
+     * Gets the byte range for the next run of consecutive excluded segments.
      */
     private ByteRange getNextExcludedRange() throws IOException {
-        while (excludedIterator.hasNext()) {
-            final long segment = excludedIterator.next();
-            return getSegmentRange(segment);
+        return getNextRange(excludedIterator);
+    }
+
+    /**
+     * Gets a single byte range covering the next run of consecutive segments
+     * from the iterator so that they can be read or skipped in one go.
+     */
+    private ByteRange getNextRange(final Iterator<Long> iterator) throws IOException {
+        Long first = nextRangeSegment;
+        nextRangeSegment = null;
+        if (first == null) {
+            if (!iterator.hasNext()) {
+                return null;
+            }
+            first = iterator.next();
         }
 
-        return null;
+        long last = first;
+        while (iterator.hasNext()) {
+            final long segment = iterator.next();
+            if (segment == last + 1) {
+                last = segment;
+            } else {
+                nextRangeSegment = segment;
+                break;
+            }
+        }
+
+        return getSegmentRange(first, last);
     }
 
     /**
-     * This method gets the range of bytes covered by a particualar segment.
+     * This method gets the range of bytes covered by a run of segments.
      */
-    private ByteRange getSegmentRange(final long segment) throws IOException {
+    private ByteRange getSegmentRange(final long firstSegment, final long lastSegment) throws IOException {
         long from = windowByteStart;
         long to = windowByteEnd;
 
-        if (segment > 0) {
-            from = getOffset(segment - 1);
+        if (firstSegment > 0) {
+            from = getOffset(firstSegment - 1);
         }
 
-        if (segment < count() - 1) {
-            to = getOffset(segment);
+        if (lastSegment < count() - 1) {
+            to = getOffset(lastSegment);
         }
 
         return new ByteRange(from, to);
@@ -561,6 +620,10 @@ public class RASegmentInputStream extends SegmentInputStream {
             return 0;
         }
 
+        if (offsets != null && seekPos < offsets.limit()) {
+            return offsets.get((int) seekPos);
+        }
+
         ((SeekableInputStream) indexInputStream).seek((seekPos) * INT8);
 
         StreamUtil.eagerRead(indexInputStream, eightBytes);
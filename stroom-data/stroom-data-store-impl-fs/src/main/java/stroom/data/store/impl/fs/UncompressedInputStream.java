@@ -22,6 +22,7 @@ import stroom.util.io.StreamCloser;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
@@ -132,6 +133,21 @@ class UncompressedInputStream extends InputStream implements SeekableInputStream
         }
     }
 
+    /**
+     * Map the whole file into memory so it can be read without going through the stream. The mapping remains
+     * valid after this stream is closed.
+     *
+     * @return The mapped file or an empty buffer if the file is lazy and missing.
+     */
+    ByteBuffer map() throws IOException {
+        if (raFile == null) {
+            // LAZY empty
+            return ByteBuffer.allocate(0);
+        } else {
+            return raFile.map(FileChannel.MapMode.READ_ONLY, 0, raFile.size());
+        }
+    }
+
     @Override
     public void seek(final long pos) throws IOException {
         position = pos;
@@ -16,8 +16,12 @@
 
 package stroom.data.store.impl.fs;
 
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
 import stroom.util.io.FileUtil;
 import stroom.util.io.StreamUtil;
 
@@ -28,14 +32,35 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class TestBlockGZIPFiles {
 
     @TempDir
     Path tempDir;
 
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setup() {
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
     @Test
     void testSimpleSmallDataInBigBlock() throws IOException {
         testWriteAndRead(10000, 99);
@@ -122,6 +147,79 @@ class TestBlockGZIPFiles {
 
     }
 
+    @Test
+    void testParallelCompressionMatchesSerial() throws IOException {
+        testParallelCompressionMatchesSerial(10, 0);
+        testParallelCompressionMatchesSerial(10, 9);
+        testParallelCompressionMatchesSerial(10, 10);
+        testParallelCompressionMatchesSerial(10, 1001);
+        testParallelCompressionMatchesSerial(1000, 100000);
+    }
+
+    private void testParallelCompressionMatchesSerial(final int blockSize, final int fileSize) throws IOException {
+        final Path serialFile = tempDir.resolve("serial.bgz");
+        final Path parallelFile = tempDir.resolve("parallel.bgz");
+        FileUtil.deleteFile(serialFile);
+        FileUtil.deleteFile(parallelFile);
+
+        try (final OutputStream serialStream = new BlockGZIPOutputFile(serialFile, blockSize, executorService, 1);
+             final OutputStream parallelStream = new BlockGZIPOutputFile(parallelFile, blockSize, executorService, 4)) {
+            for (int i = 0; i < fileSize; i++) {
+                final byte[] bytes = ("line " + i + "\n").getBytes(StreamUtil.DEFAULT_CHARSET);
+                serialStream.write(bytes);
+                parallelStream.write(bytes);
+            }
+        }
+
+        // The block layout and index should be identical whichever way the blocks were compressed.
+        assertThat(Files.readAllBytes(parallelFile)).isEqualTo(Files.readAllBytes(serialFile));
+
+        try (final InputStream serialIn = new BlockGZIPInputFile(serialFile);
+             final InputStream parallelIn = new BlockGZIPInputFile(parallelFile)) {
+            assertThat(StreamUtil.streamToString(parallelIn)).isEqualTo(StreamUtil.streamToString(serialIn));
+        }
+    }
+
+    @Test
+    void testBlockCodecs() throws IOException {
+        for (final BlockCodec blockCodec : BlockCodec.values()) {
+            testBlockCodec(blockCodec, 1);
+            testBlockCodec(blockCodec, 4);
+        }
+    }
+
+    private void testBlockCodec(final BlockCodec blockCodec, final int threads) throws IOException {
+        final Path file = tempDir.resolve("test" + threads + "." + blockCodec);
+        FileUtil.deleteFile(file);
+
+        final StringBuilder expected = new StringBuilder();
+        try (final OutputStream outStream = new BlockGZIPOutputFile(file, 100, executorService, threads, blockCodec)) {
+            for (int i = 0; i < 1001; i++) {
+                final String line = "<Event><Id>" + i + "</Id></Event>\n";
+                expected.append(line);
+                outStream.write(line.getBytes(StreamUtil.DEFAULT_CHARSET));
+            }
+        }
+
+        // The reader should work out the codec from the header.
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file)) {
+            assertThat(inStream.getBlockCodec()).isEqualTo(blockCodec);
+            assertThat(StreamUtil.streamToString(inStream)).isEqualTo(expected.toString());
+        }
+        try (final BlockGZIPInputStream inStream = new BlockGZIPInputStream(Files.newInputStream(file))) {
+            assertThat(StreamUtil.streamToString(inStream)).isEqualTo(expected.toString());
+        }
+
+        // Seek into the middle of a block in both directions.
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file)) {
+            final byte[] bytes = expected.toString().getBytes(StreamUtil.DEFAULT_CHARSET);
+            for (final int pos : new int[]{5000, 150, 99, 100, 20000, 0}) {
+                inStream.seek(pos);
+                assertThat((byte) inStream.read()).isEqualTo(bytes[pos]);
+            }
+        }
+    }
+
     private void testWriteAndRead(final int blockSize, final int fileSize) throws IOException {
         final Path file = Files.createTempFile(tempDir, "test", ".bgz");
         FileUtil.deleteFile(file);
@@ -250,4 +348,54 @@ class TestBlockGZIPFiles {
 
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void testSeekingWithBlockCache() throws IOException {
+        final Map<Object, byte[]> map = new ConcurrentHashMap<>();
+        final ICache<Object, byte[]> cache = mock(ICache.class);
+        when(cache.asMap()).thenReturn(map);
+        when(cache.getOptional(any())).thenAnswer(invocation ->
+                Optional.ofNullable(map.get(invocation.getArgument(0))));
+        final CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.create(anyString(), any())).thenReturn((ICache) cache);
+        final DecompressedBlockCache blockCache = new DecompressedBlockCache(cacheManager, new DataStoreServiceConfig());
+
+        final Path file = tempDir.resolve("test.bgz");
+        FileUtil.deleteFile(file);
+        try (final BlockGZIPOutputFile outStream = new BlockGZIPOutputFile(file, 10)) {
+            for (byte i = 0; i < 105; i++) {
+                outStream.write(i);
+            }
+        }
+
+        // Reading straight through the file should not fill the cache.
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file, blockCache)) {
+            for (byte i = 0; i < 105; i++) {
+                assertThat(inStream.read()).isEqualTo(i);
+            }
+            assertThat(inStream.read()).isEqualTo(-1);
+        }
+        assertThat(map).isEmpty();
+
+        // Jumping around should.
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file, blockCache)) {
+            for (byte i = 94; i >= 0; i -= 3) {
+                inStream.seek(i);
+                assertThat(inStream.read()).isEqualTo(i);
+                inStream.skip(9);
+                assertThat(inStream.read()).isEqualTo(i + 10);
+            }
+        }
+        assertThat(map).hasSize(11);
+
+        // Another reader should get the same data from the cached blocks, including reading on from a cached block.
+        try (final BlockGZIPInputFile inStream = new BlockGZIPInputFile(file, blockCache)) {
+            inStream.seek(37);
+            for (byte i = 37; i < 105; i++) {
+                assertThat(inStream.read()).isEqualTo(i);
+            }
+            assertThat(inStream.read()).isEqualTo(-1);
+        }
+        assertThat(map).hasSize(11);
+    }
 }
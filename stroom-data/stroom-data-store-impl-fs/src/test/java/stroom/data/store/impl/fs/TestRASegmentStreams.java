@@ -136,6 +136,45 @@ class TestRASegmentStreams {
         assertThat(testStr.endsWith("TEST STRING LINE 96\n" + "TEST STRING LINE 97\n")).isTrue();
     }
 
+    @Test
+    void testSegmentRunsWithCompressedIndex() throws IOException {
+        final RASegmentOutputStream outputStream = new RASegmentOutputStream(
+                new BlockGZIPOutputFile(dir.resolve("main.dat")),
+                () -> new BlockGZIPOutputFile(dir.resolve("main.idx")));
+
+        for (int i = 0; i < 100; i++) {
+            outputStream.write(("TEST STRING LINE " + i + "\n").getBytes(StreamUtil.DEFAULT_CHARSET));
+            outputStream.addSegment();
+        }
+
+        outputStream.close();
+
+        RASegmentInputStream inputStream = new RASegmentInputStream(
+                new BlockGZIPInputFile(dir.resolve("main.dat")), new BlockGZIPInputFile(dir.resolve("main.idx")));
+
+        inputStream.include(10);
+        inputStream.include(11);
+        inputStream.include(12);
+        inputStream.include(50);
+        inputStream.include(99);
+
+        assertThat(streamToString(inputStream, 7)).isEqualTo("TEST STRING LINE 10\n" +
+                "TEST STRING LINE 11\n" +
+                "TEST STRING LINE 12\n" +
+                "TEST STRING LINE 50\n" +
+                "TEST STRING LINE 99\n");
+
+        inputStream = new RASegmentInputStream(
+                new BlockGZIPInputFile(dir.resolve("main.dat")), new BlockGZIPInputFile(dir.resolve("main.idx")));
+
+        for (int i = 1; i < 99; i++) {
+            inputStream.exclude(i);
+        }
+
+        assertThat(streamToString(inputStream, 7)).isEqualTo("TEST STRING LINE 0\n" +
+                "TEST STRING LINE 99\n");
+    }
+
     @Test
     void testDelete() {
         FileUtil.deleteFile(dir.resolve("test.dat"));
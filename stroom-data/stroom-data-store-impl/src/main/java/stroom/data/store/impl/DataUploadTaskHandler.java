@@ -34,6 +34,7 @@ import stroom.meta.statistics.api.MetaStatistics;
 import stroom.receive.common.StreamTargetStroomStreamHandler;
 import stroom.receive.common.StroomStreamProcessor;
 import stroom.security.api.SecurityContext;
+import stroom.task.api.ExecutorProvider;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskContextFactory;
 import stroom.util.date.DateUtil;
@@ -63,6 +64,7 @@ public class DataUploadTaskHandler {
     private final MetaStatistics metaStatistics;
     private final SecurityContext securityContext;
     private final BufferFactory bufferFactory;
+    private final ExecutorProvider executorProvider;
 
     @Inject
     DataUploadTaskHandler(final TaskContextFactory taskContextFactory,
@@ -70,13 +72,15 @@ public class DataUploadTaskHandler {
                           final FeedProperties feedProperties,
                           final MetaStatistics metaStatistics,
                           final SecurityContext securityContext,
-                          final BufferFactory bufferFactory) {
+                          final BufferFactory bufferFactory,
+                          final ExecutorProvider executorProvider) {
         this.taskContextFactory = taskContextFactory;
         this.streamStore = streamStore;
         this.feedProperties = feedProperties;
         this.metaStatistics = metaStatistics;
         this.securityContext = securityContext;
         this.bufferFactory = bufferFactory;
+        this.executorProvider = executorProvider;
     }
 
     public void uploadData(final String fileName,
@@ -181,7 +185,7 @@ public class DataUploadTaskHandler {
                     .buildSingleHandlerList(streamStore, feedProperties, metaStatistics, feedName, streamTypeName);
             final byte[] buffer = bufferFactory.create();
             final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, handlerList,
-                    buffer, "Upload");
+                    buffer, "Upload", executorProvider.get(StroomStreamProcessor.READ_AHEAD_THREAD_POOL));
             try (final InputStream inputStream = Files.newInputStream(file)) {
                 stroomStreamProcessor.process(inputStream, "Upload");
                 stroomStreamProcessor.closeHandlers();
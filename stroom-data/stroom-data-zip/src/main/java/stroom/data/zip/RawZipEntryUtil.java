@@ -0,0 +1,23 @@
+package stroom.data.zip;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+
+public final class RawZipEntryUtil {
+    private RawZipEntryUtil() {
+        // Utility class.
+    }
+
+    /**
+     * Create an entry with a new name that describes the raw bytes of an entry in another zip, i.e. with the same
+     * compression method, CRC and sizes, so that the bytes can be written as they are.
+     */
+    public static ZipArchiveEntry createRawEntry(final String name, final ZipArchiveEntry sourceEntry) {
+        final ZipArchiveEntry entry = new ZipArchiveEntry(name);
+        entry.setMethod(sourceEntry.getMethod());
+        entry.setCrc(sourceEntry.getCrc());
+        entry.setSize(sourceEntry.getSize());
+        entry.setCompressedSize(sourceEntry.getCompressedSize());
+        entry.setTime(sourceEntry.getTime());
+        return entry;
+    }
+}
@@ -94,6 +94,25 @@ public class StroomZipFile implements Closeable {
         return null;
     }
 
+    /**
+     * Get the still compressed bytes of an entry so that it can be copied into another zip with
+     * {@link StroomZipOutputStream#addRawEntry} without being inflated and deflated again.
+     */
+    public InputStream getRawInputStream(String baseName, StroomZipFileType fileType) throws IOException {
+        final ZipArchiveEntry entry = getEntry(baseName, fileType);
+        if (entry != null) {
+            return getZipFile().getRawInputStream(entry);
+        }
+        return null;
+    }
+
+    /**
+     * @return The zip entry, including the compression method, CRC and sizes needed to copy the raw entry.
+     */
+    public ZipArchiveEntry getZipArchiveEntry(String baseName, StroomZipFileType fileType) throws IOException {
+        return getEntry(baseName, fileType);
+    }
+
     public long getSize(String baseName, StroomZipFileType fileType) throws IOException {
         final ZipArchiveEntry entry = getEntry(baseName, fileType);
         if (entry != null) {
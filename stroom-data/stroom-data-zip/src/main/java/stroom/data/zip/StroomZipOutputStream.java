@@ -1,9 +1,11 @@
 package stroom.data.zip;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import stroom.meta.api.AttributeMap;
 
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 
 public interface StroomZipOutputStream extends Closeable, AutoCloseable {
@@ -11,6 +13,16 @@ public interface StroomZipOutputStream extends Closeable, AutoCloseable {
 
     OutputStream addEntry(String name) throws IOException;
 
+    /**
+     * Add an entry by copying the still compressed bytes of an entry from another zip, e.g. as provided by
+     * {@link StroomZipFile#getRawInputStream}, so the data is not inflated and deflated again.
+     *
+     * @param name           The name of the new entry.
+     * @param sourceEntry    The entry being copied which provides the compression method, CRC and sizes.
+     * @param rawInputStream The raw bytes of the entry being copied.
+     */
+    void addRawEntry(String name, ZipArchiveEntry sourceEntry, InputStream rawInputStream) throws IOException;
+
     long getEntryCount();
 
     void addMissingAttributeMap(AttributeMap attributeMap) throws IOException;
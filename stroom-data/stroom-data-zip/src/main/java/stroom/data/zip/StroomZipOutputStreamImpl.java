@@ -1,5 +1,7 @@
 package stroom.data.zip;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import stroom.meta.api.AttributeMapUtil;
@@ -9,6 +11,7 @@ import stroom.util.io.WrappedOutputStream;
 
 import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -20,7 +23,12 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
     private static Logger LOGGER = LoggerFactory.getLogger(StroomZipOutputStreamImpl.class);
     private final Path file;
     private final Path lockFile;
-    private final ZipOutputStream zipOutputStream;
+    private final OutputStream outputStream;
+    // The zip stream is created when the first entry is added. Entries that we compress ourselves are written with
+    // java.util.zip as it copes with entries over 4GB whose size isn't known up front. Raw entries copied from
+    // another zip need the commons compress stream, which can then be used for any entries that follow.
+    private ZipOutputStream zipOutputStream;
+    private ZipArchiveOutputStream rawZipOutputStream;
     private final StreamProgressMonitor streamProgressMonitor;
     private StroomZipNameSet stroomZipNameSet;
     private boolean inEntry = false;
@@ -53,8 +61,7 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
         streamProgressMonitor = new StreamProgressMonitor(taskContext, "Write");
         final OutputStream rawOutputStream = Files.newOutputStream(lockFile);
         final OutputStream bufferedOutputStream = new BufferedOutputStream(rawOutputStream, BufferSizeUtil.get());
-        final OutputStream progressOutputStream = new FilterOutputStreamProgressMonitor(bufferedOutputStream, streamProgressMonitor);
-        zipOutputStream = new ZipOutputStream(progressOutputStream);
+        outputStream = new FilterOutputStreamProgressMonitor(bufferedOutputStream, streamProgressMonitor);
         if (monitorEntries) {
             stroomZipNameSet = new StroomZipNameSet(false);
         }
@@ -85,6 +92,50 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
 
     @Override
     public OutputStream addEntry(final String name) throws IOException {
+        startEntry(name);
+        final OutputStream entryOutputStream;
+        if (rawZipOutputStream != null) {
+            rawZipOutputStream.putArchiveEntry(new ZipArchiveEntry(name));
+            entryOutputStream = rawZipOutputStream;
+        } else {
+            getZipOutputStream().putNextEntry(new ZipEntry(name));
+            entryOutputStream = zipOutputStream;
+        }
+        return new WrappedOutputStream(entryOutputStream) {
+            @Override
+            public void close() throws IOException {
+                if (rawZipOutputStream != null) {
+                    rawZipOutputStream.closeArchiveEntry();
+                } else {
+                    zipOutputStream.closeEntry();
+                }
+                inEntry = false;
+                if (LOGGER.isTraceEnabled()) {
+                    LOGGER.trace("addEntry() - " + file + " - " + name + " - closed");
+                }
+            }
+        };
+    }
+
+    @Override
+    public void addRawEntry(final String name,
+                            final ZipArchiveEntry sourceEntry,
+                            final InputStream rawInputStream) throws IOException {
+        startEntry(name);
+        if (rawZipOutputStream == null) {
+            if (zipOutputStream != null) {
+                throw new IOException("Raw entries must be added before any other entries");
+            }
+            rawZipOutputStream = new ZipArchiveOutputStream(outputStream);
+        }
+        rawZipOutputStream.addRawArchiveEntry(RawZipEntryUtil.createRawEntry(name, sourceEntry), rawInputStream);
+        inEntry = false;
+        if (LOGGER.isTraceEnabled()) {
+            LOGGER.trace("addRawEntry() - " + file + " - " + name + " - closed");
+        }
+    }
+
+    private void startEntry(final String name) throws IOException {
         if (inEntry) {
             throw new RuntimeException("Failed to close last entry");
         }
@@ -99,17 +150,21 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
         if (stroomZipNameSet != null) {
             stroomZipNameSet.add(name);
         }
-        zipOutputStream.putNextEntry(new ZipEntry(name));
-        return new WrappedOutputStream(zipOutputStream) {
-            @Override
-            public void close() throws IOException {
-                zipOutputStream.closeEntry();
-                inEntry = false;
-                if (LOGGER.isTraceEnabled()) {
-                    LOGGER.trace("addEntry() - " + file + " - " + name + " - closed");
-                }
-            }
-        };
+    }
+
+    private ZipOutputStream getZipOutputStream() {
+        if (zipOutputStream == null) {
+            zipOutputStream = new ZipOutputStream(outputStream);
+        }
+        return zipOutputStream;
+    }
+
+    private void closeZipOutputStream() throws IOException {
+        if (rawZipOutputStream != null) {
+            rawZipOutputStream.close();
+        } else {
+            getZipOutputStream().close();
+        }
     }
 
     public long getEntryCount() {
@@ -124,9 +179,16 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
         }
         for (final String baseName : stroomZipNameSet.getBaseNameList()) {
             if (stroomZipNameSet.getName(baseName, StroomZipFileType.Meta) == null) {
-                zipOutputStream.putNextEntry(new ZipEntry(baseName + StroomZipFileType.Meta.getExtension()));
-                AttributeMapUtil.write(attributeMap, zipOutputStream);
-                zipOutputStream.closeEntry();
+                final String name = baseName + StroomZipFileType.Meta.getExtension();
+                if (rawZipOutputStream != null) {
+                    rawZipOutputStream.putArchiveEntry(new ZipArchiveEntry(name));
+                    AttributeMapUtil.write(attributeMap, rawZipOutputStream);
+                    rawZipOutputStream.closeArchiveEntry();
+                } else {
+                    getZipOutputStream().putNextEntry(new ZipEntry(name));
+                    AttributeMapUtil.write(attributeMap, zipOutputStream);
+                    zipOutputStream.closeEntry();
+                }
             }
         }
     }
@@ -137,7 +199,7 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
         if (entryCount == 0) {
             closeDelete();
         } else {
-            zipOutputStream.close();
+            closeZipOutputStream();
             if (lockFile != null) {
                 try {
                     Files.move(lockFile, file);
@@ -157,7 +219,7 @@ public class StroomZipOutputStreamImpl implements StroomZipOutputStream {
             os.close();
         }
 
-        zipOutputStream.close();
+        closeZipOutputStream();
         if (lockFile != null) {
             try {
                 Files.delete(lockFile);
@@ -1,9 +1,12 @@
 package stroom.data.zip;
 
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.junit.jupiter.api.Test;
+import stroom.util.io.StreamUtil;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -54,4 +57,40 @@ class TestStroomZipOutputStream {
         stroomZipOutputStream.close();
         assertThat(Files.isRegularFile(testFile)).as("Not expecting to write a file").isFalse();
     }
-}
\ No newline at end of file
+
+    @Test
+    void testRawEntry() throws IOException {
+        final Path dir = Files.createTempDirectory("stroom");
+        final Path sourceFile = dir.resolve("source.zip");
+        final Path targetFile = dir.resolve("target.zip");
+
+        final String data = "Data ".repeat(1000);
+        final StroomZipOutputStream sourceZipOutputStream = new StroomZipOutputStreamImpl(sourceFile);
+        try (final OutputStream stream = sourceZipOutputStream.addEntry(
+                new StroomZipEntry(null, "source", StroomZipFileType.Data).getFullName())) {
+            stream.write(data.getBytes(CharsetConstants.DEFAULT_CHARSET));
+        }
+        sourceZipOutputStream.close();
+
+        try (final StroomZipFile sourceZipFile = new StroomZipFile(sourceFile)) {
+            final ZipArchiveEntry sourceEntry = sourceZipFile.getZipArchiveEntry("source", StroomZipFileType.Data);
+            assertThat(sourceEntry.getCompressedSize()).isLessThan(sourceEntry.getSize());
+
+            final StroomZipOutputStream targetZipOutputStream = new StroomZipOutputStreamImpl(targetFile);
+            try (final InputStream rawInputStream = sourceZipFile.getRawInputStream("source", StroomZipFileType.Data)) {
+                targetZipOutputStream.addRawEntry(
+                        new StroomZipEntry(null, "target", StroomZipFileType.Data).getFullName(),
+                        sourceEntry,
+                        rawInputStream);
+            }
+            targetZipOutputStream.close();
+        }
+
+        try (final StroomZipFile targetZipFile = new StroomZipFile(targetFile)) {
+            assertThat(targetZipFile.getStroomZipNameSet().getBaseNameSet()).containsExactly("target");
+            try (final InputStream inputStream = targetZipFile.getInputStream("target", StroomZipFileType.Data)) {
+                assertThat(StreamUtil.streamToString(inputStream)).isEqualTo(data);
+            }
+        }
+    }
+}
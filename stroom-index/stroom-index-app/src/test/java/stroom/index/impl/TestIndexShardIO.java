@@ -33,11 +33,13 @@ import stroom.util.io.FileUtil;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.UUID;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 class TestIndexShardIO {
 
@@ -400,4 +402,59 @@ class TestIndexShardIO {
         // assertThat(// flushSet.toString()).as("Expected to flush every 2048 docs...").isEqualTo("[2048,
         // 6144, 4096, 8192]");
     }
+
+    @Test
+    void testAddDocuments() throws IOException {
+        final IndexDoc index = new IndexDoc();
+        index.setUuid(UUID.randomUUID().toString());
+        index.setName("Test");
+        index.setMaxDocsPerShard(10);
+        final IndexStructure indexStructure = new IndexStructure(index, INDEX_FIELDS, new IndexFieldsMap(INDEX_FIELDS));
+
+        final IndexVolume volume = new IndexVolume();
+        volume.setPath(FileUtil.getCanonicalPath(Files.createTempDirectory("stroom")));
+        final IndexShard idx1 = new IndexShard();
+        idx1.setIndexUuid(index.getUuid());
+        idx1.setPartition("all");
+        idx1.setId(1L);
+        idx1.setVolume(volume);
+        idx1.setIndexVersion(LuceneVersionUtil.getCurrentVersion());
+
+        final IndexShardKey indexShardKey = IndexShardKeyUtil.createTestKey(index);
+
+        // Clean up from previous tests.
+        final Path dir = IndexShardUtil.getIndexPath(idx1);
+        FileUtil.deleteDir(dir);
+
+        final IndexShardWriter writer = new IndexShardWriterImpl(null, indexStructure, indexShardKey, idx1);
+        writer.addDocuments(buildDocuments(1, 6));
+        assertThat(writer.getDocumentCount()).isEqualTo(6);
+
+        // A batch that doesn't fit in the shard is not added at all.
+        assertThatThrownBy(() -> writer.addDocuments(buildDocuments(7, 5))).isInstanceOf(ShardFullException.class);
+        assertThat(writer.getDocumentCount()).isEqualTo(6);
+
+        writer.addDocuments(buildDocuments(7, 4));
+        assertThat(writer.getDocumentCount()).isEqualTo(10);
+        assertThat(writer.getAddedDocumentCount()).isEqualTo(10);
+        writer.close();
+
+        final IndexShardSearcher indexShardSearcher = new IndexShardSearcher(idx1);
+        final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
+        final IndexSearcher searcher = searcherManager.acquire();
+        try {
+            assertThat(searcher.getIndexReader().maxDoc()).isEqualTo(10);
+        } finally {
+            searcherManager.release(searcher);
+        }
+        indexShardSearcher.destroy();
+    }
+
+    private List<Document> buildDocuments(final int firstId, final int count) {
+        final List<Document> documents = new ArrayList<>();
+        for (int i = firstId; i < firstId + count; i++) {
+            documents.add(buildDocument(i));
+        }
+        return documents;
+    }
 }
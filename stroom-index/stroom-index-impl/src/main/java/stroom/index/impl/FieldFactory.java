@@ -16,11 +16,17 @@
 
 package stroom.index.impl;
 
+import org.apache.lucene.document.DoubleDocValuesField;
 import org.apache.lucene.document.DoubleField;
 import org.apache.lucene.document.Field;
+import org.apache.lucene.document.FloatDocValuesField;
 import org.apache.lucene.document.FloatField;
 import org.apache.lucene.document.IntField;
 import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.util.BytesRef;
 import stroom.index.shared.IndexField;
 
 public class FieldFactory {
@@ -43,4 +49,40 @@ public class FieldFactory {
     public static Field create(final IndexField indexField, final String initialValue) {
         return new Field(indexField.getFieldName(), initialValue, FieldTypeFactory.create(indexField));
     }
+
+    /**
+     * The doc values factory methods return null if the index field is not configured to have doc values.
+     */
+    public static Field createDocValues(final IndexField indexField, final long value) {
+        if (!indexField.isDocValues()) {
+            return null;
+        }
+        return new NumericDocValuesField(indexField.getFieldName(), value);
+    }
+
+    public static Field createDoubleDocValues(final IndexField indexField, final double value) {
+        if (!indexField.isDocValues()) {
+            return null;
+        }
+        return new DoubleDocValuesField(indexField.getFieldName(), value);
+    }
+
+    public static Field createFloatDocValues(final IndexField indexField, final float value) {
+        if (!indexField.isDocValues()) {
+            return null;
+        }
+        return new FloatDocValuesField(indexField.getFieldName(), value);
+    }
+
+    public static Field createDocValues(final IndexField indexField, final String value) {
+        if (!indexField.isDocValues()) {
+            return null;
+        }
+        // Values that are too long to be held as sorted doc values can only be read from stored fields.
+        final BytesRef bytesRef = new BytesRef(value);
+        if (bytesRef.length > IndexWriter.MAX_TERM_LENGTH) {
+            return null;
+        }
+        return new SortedDocValuesField(indexField.getFieldName(), bytesRef);
+    }
 }
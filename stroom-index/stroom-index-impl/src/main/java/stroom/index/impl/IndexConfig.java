@@ -19,6 +19,7 @@ public class IndexConfig extends AbstractConfig implements HasDbConfig {
             .maximumSize(100L)
             .expireAfterWrite(StroomDuration.ofSeconds(10))
             .build();
+    private IndexMergeConfig indexMergeConfig = new IndexMergeConfig();
 
     @JsonProperty("db")
     public DbConfig getDbConfig() {
@@ -47,6 +48,15 @@ public class IndexConfig extends AbstractConfig implements HasDbConfig {
         this.indexWriterConfig = indexWriterConfig;
     }
 
+    @JsonProperty("merge")
+    public IndexMergeConfig getIndexMergeConfig() {
+        return indexMergeConfig;
+    }
+
+    public void setIndexMergeConfig(final IndexMergeConfig indexMergeConfig) {
+        this.indexMergeConfig = indexMergeConfig;
+    }
+
     public CacheConfig getIndexStructureCache() {
         return indexStructureCache;
     }
@@ -62,6 +72,7 @@ public class IndexConfig extends AbstractConfig implements HasDbConfig {
                 ", ramBufferSizeMB=" + ramBufferSizeMB +
                 ", indexWriterConfig=" + indexWriterConfig +
                 ", indexStructureCache=" + indexStructureCache +
+                ", indexMergeConfig=" + indexMergeConfig +
                 '}';
     }
 }
@@ -0,0 +1,59 @@
+package stroom.index.impl;
+
+import stroom.util.shared.AbstractConfig;
+import stroom.util.time.StroomDuration;
+
+import com.fasterxml.jackson.annotation.JsonPropertyDescription;
+
+import javax.inject.Singleton;
+import javax.validation.constraints.NotNull;
+
+@Singleton
+public class IndexMergeConfig extends AbstractConfig {
+    private int maxSegments = 1;
+    private int maxMergeMBPerSec = 20;
+    private StroomDuration minIdleTime = StroomDuration.ofDays(1);
+
+    @JsonPropertyDescription("The number of segments that the Index Shard Merge job will merge a closed index shard " +
+            "down to. Shards with no more than this number of segments are left alone.")
+    public int getMaxSegments() {
+        return maxSegments;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMaxSegments(final int maxSegments) {
+        this.maxSegments = maxSegments;
+    }
+
+    @JsonPropertyDescription("The rate in Mb per second that each merge of an index shard is limited to so that " +
+            "merging doesn't starve indexing and search of disk IO.")
+    public int getMaxMergeMBPerSec() {
+        return maxMergeMBPerSec;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMaxMergeMBPerSec(final int maxMergeMBPerSec) {
+        this.maxMergeMBPerSec = maxMergeMBPerSec;
+    }
+
+    @NotNull
+    @JsonPropertyDescription("How long a closed index shard must have gone without being written to before it is " +
+            "merged. Shards that are full or whose partition has ended are merged as soon as they are closed.")
+    public StroomDuration getMinIdleTime() {
+        return minIdleTime;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMinIdleTime(final StroomDuration minIdleTime) {
+        this.minIdleTime = minIdleTime;
+    }
+
+    @Override
+    public String toString() {
+        return "IndexMergeConfig{" +
+                "maxSegments=" + maxSegments +
+                ", maxMergeMBPerSec=" + maxMergeMBPerSec +
+                ", minIdleTime=" + minIdleTime +
+                '}';
+    }
+}
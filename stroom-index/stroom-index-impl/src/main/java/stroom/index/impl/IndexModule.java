@@ -25,6 +25,7 @@ import stroom.lifecycle.api.LifecycleBinder;
 import stroom.util.RunnableWrapper;
 import stroom.util.entityevent.EntityEvent;
 import stroom.util.guice.GuiceUtil;
+import stroom.util.guice.HasSystemInfoBinder;
 import stroom.util.guice.RestResourcesBinder;
 import stroom.util.shared.Clearable;
 
@@ -52,6 +53,9 @@ public class IndexModule extends AbstractModule {
                 .addBinding(IndexStructureCacheImpl.class)
                 .addBinding(IndexVolumeServiceImpl.class);
 
+        // Listeners are bound by the modules that hold shard readers open.
+        GuiceUtil.buildMultiBinder(binder(), IndexShardChangeListener.class);
+
         GuiceUtil.buildMultiBinder(binder(), EntityEvent.Handler.class)
                 .addBinding(IndexConfigCacheEntityEventHandler.class);
 
@@ -69,6 +73,9 @@ public class IndexModule extends AbstractModule {
                 .bind(IndexVolumeGroupResourceImpl.class)
                 .bind(IndexVolumeResourceImpl.class);
 
+        HasSystemInfoBinder.create(binder())
+                .bind(IndexShardWriterCacheImpl.class);
+
         DocumentActionHandlerBinder.create(binder())
                 .bind(IndexDoc.DOCUMENT_TYPE, IndexStoreImpl.class);
 
@@ -81,6 +88,10 @@ public class IndexModule extends AbstractModule {
                         .withName("Index Shard Retention")
                         .withDescription("Job to set index shards to have a status of deleted that have past their retention period")
                         .withSchedule(PERIODIC, "10m"))
+                .bindJobTo(IndexShardMerge.class, builder -> builder
+                        .withName("Index Shard Merge")
+                        .withDescription("Job to merge the segments of closed index shards that are no longer being written to")
+                        .withSchedule(PERIODIC, "1h"))
                 .bindJobTo(IndexWriterCacheSweep.class, builder -> builder
                         .withName("Index Writer Cache Sweep")
                         .withDescription("Job to remove old index shard writers from the cache")
@@ -113,6 +124,13 @@ public class IndexModule extends AbstractModule {
         }
     }
 
+    private static class IndexShardMerge extends RunnableWrapper {
+        @Inject
+        IndexShardMerge(final IndexShardMerger indexShardMerger) {
+            super(indexShardMerger::merge);
+        }
+    }
+
     private static class IndexWriterCacheSweep extends RunnableWrapper {
         @Inject
         IndexWriterCacheSweep(final IndexShardWriterCache indexShardWriterCache) {
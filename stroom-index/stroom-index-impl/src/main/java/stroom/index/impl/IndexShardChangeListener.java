@@ -0,0 +1,25 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.index.impl;
+
+/**
+ * Told when the files of a closed index shard have been changed on disk outside of an index shard writer, e.g. when
+ * the shard's segments have been merged, so that anything holding a reader open on the old files can replace it.
+ */
+public interface IndexShardChangeListener {
+    void onChange(Long indexShardId);
+}
@@ -311,6 +311,34 @@ public class IndexShardManager {
         }
     }
 
+    /**
+     * Change the status of a shard only if it currently has the expected status.
+     *
+     * @return True if the status was changed.
+     */
+    public boolean setStatus(final long indexShardId, final IndexShardStatus expected, final IndexShardStatus status) {
+        // Allow the thing to run without a service (e.g. benchmark mode)
+        if (indexShardService != null) {
+            final Lock lock = shardUpdateLocks.getLockForKey(indexShardId);
+            lock.lock();
+            try {
+                final IndexShard indexShard = indexShardService.loadById(indexShardId);
+                if (indexShard != null && expected.equals(indexShard.getStatus())) {
+                    final Set<IndexShardStatus> allowed = allowedStateTransitions.get(indexShard.getStatus());
+                    if (allowed != null && allowed.contains(status)) {
+                        indexShardService.setStatus(indexShard.getId(), status);
+                        return true;
+                    }
+                }
+            } catch (final RuntimeException e) {
+                LOGGER.error(e::getMessage, e);
+            } finally {
+                lock.unlock();
+            }
+        }
+        return false;
+    }
+
     public void update(final long indexShardId,
                        final Integer documentCount,
                        final Long commitDurationMs,
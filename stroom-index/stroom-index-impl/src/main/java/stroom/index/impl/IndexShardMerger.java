@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.index.impl;
+
+import stroom.docref.DocRef;
+import stroom.index.impl.analyzer.AnalyzerFactory;
+import stroom.index.shared.AnalyzerType;
+import stroom.index.shared.FindIndexShardCriteria;
+import stroom.index.shared.IndexDoc;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.node.api.NodeInfo;
+import stroom.security.api.SecurityContext;
+import stroom.security.shared.PermissionNames;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+import stroom.util.logging.LogExecutionTime;
+
+import org.apache.lucene.index.ConcurrentMergeScheduler;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.SegmentInfos;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.LockObtainFailedException;
+import org.apache.lucene.store.NIOFSDirectory;
+
+import javax.inject.Inject;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Merges the segments of closed index shards that are no longer being written to. Shards that have been written to
+ * over a long period end up with many segments and every search has to visit each of them so merging them down
+ * makes searching the shard cheaper.
+ * <p>
+ * A shard is claimed by moving it from closed to opening so that it can't be opened for writing while it is merged.
+ * Lucene's write lock stops a merge from ever running at the same time as a writer if a writer gets in first.
+ */
+@Singleton
+public class IndexShardMerger {
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardMerger.class);
+
+    private final IndexShardService indexShardService;
+    private final IndexShardManager indexShardManager;
+    private final IndexShardWriterCache indexShardWriterCache;
+    private final IndexStructureCache indexStructureCache;
+    private final IndexConfig indexConfig;
+    private final NodeInfo nodeInfo;
+    private final SecurityContext securityContext;
+    private final Set<IndexShardChangeListener> indexShardChangeListeners;
+
+    private final AtomicBoolean merging = new AtomicBoolean();
+
+    @Inject
+    IndexShardMerger(final IndexShardService indexShardService,
+                     final IndexShardManager indexShardManager,
+                     final IndexShardWriterCache indexShardWriterCache,
+                     final IndexStructureCache indexStructureCache,
+                     final IndexConfig indexConfig,
+                     final NodeInfo nodeInfo,
+                     final SecurityContext securityContext,
+                     final Set<IndexShardChangeListener> indexShardChangeListeners) {
+        this.indexShardService = indexShardService;
+        this.indexShardManager = indexShardManager;
+        this.indexShardWriterCache = indexShardWriterCache;
+        this.indexStructureCache = indexStructureCache;
+        this.indexConfig = indexConfig;
+        this.nodeInfo = nodeInfo;
+        this.securityContext = securityContext;
+        this.indexShardChangeListeners = indexShardChangeListeners;
+    }
+
+    /**
+     * Merge all closed shards on this node that are no longer being written to.
+     */
+    public void merge() {
+        securityContext.secure(PermissionNames.MANAGE_INDEX_SHARDS_PERMISSION, () -> {
+            if (merging.compareAndSet(false, true)) {
+                try {
+                    final IndexMergeConfig mergeConfig = indexConfig.getIndexMergeConfig();
+                    final long now = System.currentTimeMillis();
+                    final long idleTime = now - mergeConfig.getMinIdleTime().toMillis();
+
+                    final FindIndexShardCriteria criteria = FindIndexShardCriteria.matchAll();
+                    criteria.getNodeNameSet().add(nodeInfo.getThisNodeName());
+                    criteria.getIndexShardStatusSet().add(IndexShardStatus.CLOSED);
+                    final List<IndexShard> shards = indexShardService.find(criteria).getValues();
+
+                    final LogExecutionTime logExecutionTime = new LogExecutionTime();
+                    final Iterator<IndexShard> iter = shards.iterator();
+                    while (!Thread.currentThread().isInterrupted() && iter.hasNext()) {
+                        final IndexShard shard = iter.next();
+                        try {
+                            if (indexShardWriterCache.getWriterByShardId(shard.getId()) == null
+                                    && isInactive(shard, now, idleTime)) {
+                                merge(shard, mergeConfig);
+                            }
+                        } catch (final RuntimeException e) {
+                            LOGGER.error(e::getMessage, e);
+                        }
+                    }
+                    LOGGER.debug(() -> "merge() - Completed in " + logExecutionTime);
+                } finally {
+                    merging.set(false);
+                }
+            }
+        });
+    }
+
+    private boolean isInactive(final IndexShard shard, final long now, final long idleTime) {
+        // Nothing more will be written to a shard once its partition has ended.
+        if (shard.getPartitionToTime() != null && shard.getPartitionToTime() < now) {
+            return true;
+        }
+        if (shard.getCommitMs() != null && shard.getCommitMs() < idleTime) {
+            return true;
+        }
+
+        // Nothing more will be written to a full shard.
+        final IndexStructure indexStructure = indexStructureCache.get(new DocRef(IndexDoc.DOCUMENT_TYPE, shard.getIndexUuid()));
+        return indexStructure != null && shard.getDocumentCount() >= indexStructure.getIndex().getMaxDocsPerShard();
+    }
+
+    private void merge(final IndexShard shard, final IndexMergeConfig mergeConfig) {
+        final Path dir = IndexShardUtil.getIndexPath(shard);
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+
+        final int maxSegments = Math.max(1, mergeConfig.getMaxSegments());
+        try (final Directory directory = new NIOFSDirectory(dir, LockFactoryFactory.get())) {
+            // Don't claim the shard unless there is something to do.
+            if (!DirectoryReader.indexExists(directory) || SegmentInfos.readLatestCommit(directory).size() <= maxSegments) {
+                return;
+            }
+
+            // Stop the shard being opened for writing while we merge it.
+            if (!indexShardManager.setStatus(shard.getId(), IndexShardStatus.CLOSED, IndexShardStatus.OPENING)) {
+                return;
+            }
+
+            try {
+                final LogExecutionTime logExecutionTime = new LogExecutionTime();
+                final int documentCount = forceMerge(directory, maxSegments, mergeConfig.getMaxMergeMBPerSec());
+                final long durationMs = logExecutionTime.getDuration();
+                indexShardManager.update(shard.getId(),
+                        documentCount,
+                        durationMs,
+                        System.currentTimeMillis(),
+                        IndexShardUtil.calcFileSize(dir));
+                LOGGER.info(() -> "Merged index shard " + shard.getId() + " to " + maxSegments +
+                        " segment(s) in " + logExecutionTime);
+
+                // The merge has been committed so readers opened on the old segments are now stale.
+                fireChange(shard.getId());
+            } finally {
+                indexShardManager.setStatus(shard.getId(), IndexShardStatus.OPENING, IndexShardStatus.CLOSED);
+            }
+        } catch (final LockObtainFailedException e) {
+            LOGGER.debug(() -> "Unable to merge index shard " + shard.getId() + " as it is currently in use", e);
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error(() -> "Unable to merge index shard " + shard.getId() + " - " + e.getMessage(), e);
+        }
+    }
+
+    private void fireChange(final Long indexShardId) {
+        for (final IndexShardChangeListener listener : indexShardChangeListeners) {
+            try {
+                listener.onChange(indexShardId);
+            } catch (final RuntimeException e) {
+                LOGGER.error(() -> "Unable to notify listener of change to index shard " + indexShardId +
+                        " - " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private int forceMerge(final Directory directory,
+                           final int maxSegments,
+                           final int maxMergeMBPerSec) throws IOException {
+        // Use a single merge thread and limit its IO so that merging doesn't starve indexing and search.
+        final ConcurrentMergeScheduler mergeScheduler = new ConcurrentMergeScheduler();
+        mergeScheduler.setMaxMergesAndThreads(1, 1);
+        mergeScheduler.setForceMergeMBPerSec(Math.max(1, maxMergeMBPerSec));
+
+        final IndexWriterConfig indexWriterConfig = new IndexWriterConfig(AnalyzerFactory.create(AnalyzerType.ALPHA_NUMERIC, false));
+        indexWriterConfig.setOpenMode(OpenMode.APPEND);
+        indexWriterConfig.setUseCompoundFile(false);
+        indexWriterConfig.setMergeScheduler(mergeScheduler);
+
+        // Closing the writer commits the merged segments.
+        try (final IndexWriter indexWriter = new IndexWriter(directory, indexWriterConfig)) {
+            indexWriter.forceMerge(maxSegments);
+            return indexWriter.numDocs();
+        }
+    }
+}
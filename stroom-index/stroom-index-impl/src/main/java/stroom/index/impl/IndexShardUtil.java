@@ -17,15 +17,23 @@
 package stroom.index.impl;
 
 import stroom.index.shared.IndexShard;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Not very OO but added here for GWT reasons.
  */
 public class IndexShardUtil {
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardUtil.class);
+
     public static Path getIndexPath(IndexShard indexShard) {
         StringBuilder builder = new StringBuilder();
         builder.append(indexShard.getVolume().getPath());
@@ -39,4 +47,31 @@ public class IndexShardUtil {
         builder.append(indexShard.getId());
         return Paths.get(builder.toString());
     }
+
+    /**
+     * @return The total size of the files in an index shard directory or null if it can't be calculated.
+     */
+    static Long calcFileSize(final Path dir) {
+        Long fileSize = null;
+        try {
+            if (dir != null) {
+                final AtomicLong totalSize = new AtomicLong();
+                try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                    stream.forEach(file -> {
+                        try {
+                            totalSize.getAndAdd(Files.size(file));
+                        } catch (final IOException e) {
+                            LOGGER.trace(e::getMessage, e);
+                        }
+                    });
+                } catch (final IOException e) {
+                    LOGGER.trace(e::getMessage, e);
+                }
+                fileSize = totalSize.get();
+            }
+        } catch (final RuntimeException e) {
+            LOGGER.debug(e::getMessage, e);
+        }
+        return fileSize;
+    }
 }
@@ -23,6 +23,7 @@ import stroom.index.shared.IndexException;
 import stroom.index.shared.IndexShardKey;
 
 import java.io.IOException;
+import java.util.List;
 
 public interface IndexShardWriter {
     IndexShardKey getIndexShardKey();
@@ -31,6 +32,12 @@ public interface IndexShardWriter {
 
     void addDocument(Document document) throws IOException, IndexException, AlreadyClosedException;
 
+    /**
+     * Add a batch of documents to the shard. Either all of the documents are added or none of them are, e.g. if the
+     * shard does not have room for them all.
+     */
+    void addDocuments(List<Document> documents) throws IOException, IndexException, AlreadyClosedException;
+
     void flush();
 
     void close();
@@ -44,4 +51,14 @@ public interface IndexShardWriter {
     long getCreationTime();
 
     long getLastUsedTime();
+
+    /**
+     * @return The number of documents added since the writer was opened.
+     */
+    long getAddedDocumentCount();
+
+    /**
+     * @return The total time in milliseconds that adding documents has spent waiting on the Lucene writer.
+     */
+    long getAddDurationMs();
 }
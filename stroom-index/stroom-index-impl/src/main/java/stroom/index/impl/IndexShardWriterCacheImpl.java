@@ -33,6 +33,8 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogExecutionTime;
 import stroom.util.shared.ResultPage;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
 
 import org.apache.lucene.store.LockObtainFailedException;
 
@@ -43,6 +45,7 @@ import java.nio.file.Path;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -60,7 +63,7 @@ import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Singleton
-public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
+public class IndexShardWriterCacheImpl implements IndexShardWriterCache, HasSystemInfo {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardWriterCacheImpl.class);
 
     private final NodeInfo nodeInfo;
@@ -156,7 +159,7 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
                     // Get the index fields.
                     final IndexStructure indexStructure = indexStructureCache.get(new DocRef(IndexDoc.DOCUMENT_TYPE, indexShardKey.getIndexUuid()));
                     if (indexStructure != null && indexShard.getDocumentCount() < indexStructure.getIndex().getMaxDocsPerShard()) {
-                        final IndexShardWriter indexShardWriter = openWriter(indexShardKey, indexShard);
+                        final IndexShardWriter indexShardWriter = openWriter(indexShardKey, indexShard, IndexShardStatus.CLOSED);
                         if (indexShardWriter != null) {
                             return indexShardWriter;
                         }
@@ -175,7 +178,7 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
      */
     private IndexShardWriter openNewShard(final IndexShardKey indexShardKey) {
         final IndexShard indexShard = indexShardService.createIndexShard(indexShardKey, nodeInfo.getThisNodeName());
-        return openWriter(indexShardKey, indexShard);
+        return openWriter(indexShardKey, indexShard, indexShard.getStatus());
     }
 
     /**
@@ -185,9 +188,12 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
      *
      * @param indexShardKey
      * @param indexShard
+     * @param expectedStatus The status the shard must still have for it to be opened.
      * @return
      */
-    private IndexShardWriter openWriter(final IndexShardKey indexShardKey, final IndexShard indexShard) {
+    private IndexShardWriter openWriter(final IndexShardKey indexShardKey,
+                                        final IndexShard indexShard,
+                                        final IndexShardStatus expectedStatus) {
         final long indexShardId = indexShard.getId();
 
         // Get the index fields.
@@ -196,10 +202,14 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
         // Create the writer.
         final int ramBufferSizeMB = getRamBufferSize();
 
-        // Mark the index shard as opening.
+        // Mark the index shard as opening. The status may have changed since the shard was read, e.g. the shard
+        // merger may have claimed it, in which case we can't open it.
         LOGGER.debug(() -> "Opening " + indexShardId);
         LOGGER.trace(() -> "Opening " + indexShardId + " - " + indexShardKey.toString());
-        indexShardManager.setStatus(indexShardId, IndexShardStatus.OPENING);
+        if (!indexShardManager.setStatus(indexShardId, expectedStatus, IndexShardStatus.OPENING)) {
+            LOGGER.debug(() -> "Unable to open " + indexShardId + " as it is no longer " + expectedStatus);
+            return null;
+        }
 
         try {
             final IndexShardWriter indexShardWriter = new IndexShardWriterImpl(indexShardManager, indexStructure, indexShardKey, indexShard, ramBufferSizeMB);
@@ -503,6 +513,28 @@ public class IndexShardWriterCacheImpl implements IndexShardWriterCache {
         });
     }
 
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final SystemInfoResult.Builder builder = SystemInfoResult.builder(getSystemInfoName())
+                .withDetail("openWriters", openWritersByShardId.size());
+
+        // Report the indexing rate of each open shard and how long adding documents has spent waiting on Lucene.
+        final long now = System.currentTimeMillis();
+        openWritersByShardId.forEach((indexShardId, indexShardWriter) -> {
+            final long addedDocumentCount = indexShardWriter.getAddedDocumentCount();
+            final long ageMs = Math.max(1, now - indexShardWriter.getCreationTime());
+            final Map<String, Object> detail = new HashMap<>();
+            detail.put("partition", indexShardWriter.getIndexShardKey().getPartition());
+            detail.put("documentCount", indexShardWriter.getDocumentCount());
+            detail.put("addedDocumentCount", addedDocumentCount);
+            detail.put("documentsPerSecond", addedDocumentCount * 1000 / ageMs);
+            detail.put("addDurationMs", indexShardWriter.getAddDurationMs());
+            builder.withDetail(String.valueOf(indexShardId), detail);
+        });
+
+        return builder.build();
+    }
+
     private void clean(final IndexShard indexShard) {
         try {
             LOGGER.info(() -> "Changing shard status to closed (" + indexShard + ")");
@@ -40,9 +40,9 @@ import stroom.util.logging.LoggerPrintStream;
 import stroom.util.shared.ModelStringUtil;
 
 import java.io.IOException;
-import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -95,6 +95,8 @@ public class IndexShardWriterImpl implements IndexShardWriter {
     private final AtomicBoolean open = new AtomicBoolean();
     private final AtomicInteger adding = new AtomicInteger();
     private volatile long lastUsedTime;
+    private final AtomicLong addedDocumentCount = new AtomicLong();
+    private final AtomicLong addDurationMs = new AtomicLong();
 
     /**
      * Convenience constructor used in tests.
@@ -199,6 +201,16 @@ public class IndexShardWriterImpl implements IndexShardWriter {
 
     @Override
     public void addDocument(final Document document) throws IOException, IndexException, AlreadyClosedException {
+        add(1, () -> indexWriter.addDocument(document));
+    }
+
+    @Override
+    public void addDocuments(final List<Document> documents) throws IOException, IndexException, AlreadyClosedException {
+        // Lucene adds the whole batch under a single acquisition of its per thread writer state.
+        add(documents.size(), () -> indexWriter.addDocuments(documents));
+    }
+
+    private void add(final int count, final LuceneAdd luceneAdd) throws IOException {
         adding.incrementAndGet();
         try {
             // An Exception might be thrown here if the index
@@ -206,20 +218,22 @@ public class IndexShardWriterImpl implements IndexShardWriter {
             // and return false so that the pool can return a
             // new index to add documents to.
             try {
-                if (documentCount.getAndIncrement() >= maxDocumentCount) {
+                if (documentCount.getAndAdd(count) + count > maxDocumentCount) {
                     throw new ShardFullException("Shard is full");
                 }
 
                 final long now = System.currentTimeMillis();
                 this.lastUsedTime = now;
-                indexWriter.addDocument(document);
+                luceneAdd.add();
                 final long duration = System.currentTimeMillis() - now;
+                addedDocumentCount.addAndGet(count);
+                addDurationMs.addAndGet(duration);
                 if (duration > 1000) {
-                    LAMBDA_LOGGER.warn(() -> "addDocument() - took " + ModelStringUtil.formatDurationString(duration) + " " + toString());
+                    LAMBDA_LOGGER.warn(() -> "addDocument() - took " + ModelStringUtil.formatDurationString(duration) + " to add " + count + " documents " + toString());
                 }
 
             } catch (final RuntimeException e) {
-                documentCount.decrementAndGet();
+                documentCount.addAndGet(-count);
                 throw e;
             }
 
@@ -327,7 +341,7 @@ public class IndexShardWriterImpl implements IndexShardWriter {
             final Long lastCommitDurationMs = (timeNow - startTime);
 
             // Update the size of the index.
-            final Long fileSize = calcFileSize();
+            final Long fileSize = IndexShardUtil.calcFileSize(dir);
 
             update(indexShardId, lastDocumentCount, lastCommitDurationMs, lastCommitMs, fileSize);
         } catch (final RuntimeException e) {
@@ -335,30 +349,6 @@ public class IndexShardWriterImpl implements IndexShardWriter {
         }
     }
 
-    private Long calcFileSize() {
-        Long fileSize = null;
-        try {
-            if (dir != null) {
-                final AtomicLong totalSize = new AtomicLong();
-                try (final DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
-                    stream.forEach(file -> {
-                        try {
-                            totalSize.getAndAdd(Files.size(file));
-                        } catch (final IOException e) {
-                            LOGGER.trace(e.getMessage(), e);
-                        }
-                    });
-                } catch (final IOException e) {
-                    LOGGER.trace(e.getMessage(), e);
-                }
-                fileSize = totalSize.get();
-            }
-        } catch (final RuntimeException e) {
-            LAMBDA_LOGGER.debug(e::getMessage, e);
-        }
-        return fileSize;
-    }
-
     @Override
     public IndexWriter getWriter() {
         return indexWriter;
@@ -398,8 +388,22 @@ public class IndexShardWriterImpl implements IndexShardWriter {
         return lastUsedTime;
     }
 
+    @Override
+    public long getAddedDocumentCount() {
+        return addedDocumentCount.get();
+    }
+
+    @Override
+    public long getAddDurationMs() {
+        return addDurationMs.get();
+    }
+
     @Override
     public String toString() {
         return "(id=" + indexShardId + ")";
     }
+
+    private interface LuceneAdd {
+        void add() throws IOException;
+    }
 }
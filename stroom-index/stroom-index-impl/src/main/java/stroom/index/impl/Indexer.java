@@ -19,7 +19,14 @@ package stroom.index.impl;
 import org.apache.lucene.document.Document;
 import stroom.index.shared.IndexShardKey;
 
+import java.util.List;
 
 public interface Indexer {
     void addDocument(IndexShardKey key, Document document);
+
+    /**
+     * Add a batch of documents to a shard with the supplied key. The batch is added to a single shard so a shard that
+     * can't hold the whole batch is treated as full.
+     */
+    void addDocuments(IndexShardKey key, List<Document> documents);
 }
@@ -27,6 +27,7 @@ import stroom.util.logging.LambdaLoggerFactory;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
+import java.util.List;
 import java.util.concurrent.locks.Lock;
 
 /**
@@ -52,63 +53,76 @@ public class IndexerImpl implements Indexer {
     @Override
     public void addDocument(final IndexShardKey indexShardKey, final Document document) {
         if (document != null) {
-            // Try and add the document silently without locking.
-            boolean success = false;
+            add(indexShardKey, indexShardWriter -> indexShardWriter.addDocument(document));
+        }
+    }
+
+    @Override
+    public void addDocuments(final IndexShardKey indexShardKey, final List<Document> documents) {
+        if (documents != null && documents.size() > 0) {
+            // The writer lookup, any locking and rolling to a new shard when the current one is full all happen once
+            // for the whole batch.
+            add(indexShardKey, indexShardWriter -> indexShardWriter.addDocuments(documents));
+        }
+    }
+
+    private void add(final IndexShardKey indexShardKey, final WriterAdd writerAdd) {
+        // Try and add the documents silently without locking.
+        boolean success = false;
+        try {
+            final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardKey(indexShardKey);
+            writerAdd.add(indexShardWriter);
+            success = true;
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.trace(e::getMessage, e);
+        }
+
+        // Attempt a few more times under lock.
+        for (int attempt = 0; !success && attempt < MAX_ATTEMPTS; attempt++) {
+            // If we failed then try under lock to make sure we get a new writer.
+            final Lock lock = keyLocks.getLockForKey(indexShardKey);
+            lock.lock();
             try {
+                // Ask the cache for the current one (it might have been changed by another thread) and try again.
                 final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardKey(indexShardKey);
-                indexShardWriter.addDocument(document);
-                success = true;
-            } catch (final IOException | RuntimeException e) {
-                LOGGER.trace(e::getMessage, e);
-            }
+                success = add(indexShardWriter, writerAdd);
 
-            // Attempt a few more times under lock.
-            for (int attempt = 0; !success && attempt < MAX_ATTEMPTS; attempt++) {
-                // If we failed then try under lock to make sure we get a new writer.
-                final Lock lock = keyLocks.getLockForKey(indexShardKey);
-                lock.lock();
-                try {
-                    // Ask the cache for the current one (it might have been changed by another thread) and try again.
-                    final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardKey(indexShardKey);
-                    success = addDocument(indexShardWriter, document);
-
-                    if (!success) {
-                        LOGGER.info(() -> "Closing key{" + indexShardKey + "} writer{" + indexShardWriter + "}");
-
-                        // Close the writer.
-                        indexShardWriterCache.close(indexShardWriter);
-                    }
-
-                } catch (final RuntimeException e) {
-                    LOGGER.trace(e::getMessage, e);
-
-                    // If we've already tried once already then give up.
-                    if (attempt > 0) {
-                        throw e;
-                    }
-                } finally {
-                    lock.unlock();
+                if (!success) {
+                    LOGGER.info(() -> "Closing key{" + indexShardKey + "} writer{" + indexShardWriter + "}");
+
+                    // Close the writer.
+                    indexShardWriterCache.close(indexShardWriter);
                 }
-            }
 
-            // One final try that will throw an index exception if needed.
-            if (!success) {
-                try {
-                    final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardKey(indexShardKey);
-                    indexShardWriter.addDocument(document);
-                } catch (final IndexException e) {
+            } catch (final RuntimeException e) {
+                LOGGER.trace(e::getMessage, e);
+
+                // If we've already tried once already then give up.
+                if (attempt > 0) {
                     throw e;
-                } catch (final IOException | RuntimeException e) {
-                    throw new IndexException(e.getMessage(), e);
                 }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        // One final try that will throw an index exception if needed.
+        if (!success) {
+            try {
+                final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardKey(indexShardKey);
+                writerAdd.add(indexShardWriter);
+            } catch (final IndexException e) {
+                throw e;
+            } catch (final IOException | RuntimeException e) {
+                throw new IndexException(e.getMessage(), e);
             }
         }
     }
 
-    private boolean addDocument(final IndexShardWriter indexShardWriter, final Document document) {
+    private boolean add(final IndexShardWriter indexShardWriter, final WriterAdd writerAdd) {
         boolean success = false;
         try {
-            indexShardWriter.addDocument(document);
+            writerAdd.add(indexShardWriter);
             success = true;
         } catch (final ShardFullException e) {
             LOGGER.debug(e::getMessage, e);
@@ -129,4 +143,8 @@ public class IndexerImpl implements Indexer {
 
         return success;
     }
-}
\ No newline at end of file
+
+    private interface WriterAdd {
+        void add(IndexShardWriter indexShardWriter) throws IOException;
+    }
+}
@@ -43,9 +43,14 @@ import stroom.pipeline.shared.data.PipelineElementType.Category;
 import stroom.pipeline.state.MetaHolder;
 import stroom.util.CharBuffer;
 import stroom.util.date.DateUtil;
+import stroom.util.shared.Location;
 import stroom.util.shared.Severity;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * The index filter... takes the index XML and builds the LUCENE documents
@@ -70,6 +75,11 @@ class IndexingFilter extends AbstractXMLFilter {
     private DocRef indexRef;
     private IndexShardKey indexShardKey;
     private Document document;
+    private final Set<String> docValuesFields = new HashSet<>();
+    private final List<Document> documents = new ArrayList<>();
+    // The location of the record each buffered document came from so errors can be reported against it.
+    private final List<Location> documentLocations = new ArrayList<>();
+    private int batchSize = 100;
 
     private int fieldsIndexed = 0;
 
@@ -109,6 +119,9 @@ class IndexingFilter extends AbstractXMLFilter {
             final IndexDoc index = indexStructure.getIndex();
             indexFieldsMap = indexStructure.getIndexFieldsMap();
 
+            // A batch is always added to a single shard so it can't be bigger than a shard.
+            batchSize = Math.max(1, Math.min(batchSize, index.getMaxDocsPerShard()));
+
             // Create a key to create shards with.
             if (metaHolder == null || metaHolder.getMeta() == null) {
                 // Many tests don't use streams so where this is the case just
@@ -123,6 +136,15 @@ class IndexingFilter extends AbstractXMLFilter {
         }
     }
 
+    @Override
+    public void endProcessing() {
+        try {
+            addDocuments();
+        } finally {
+            super.endProcessing();
+        }
+    }
+
     /**
      * Sets the locator to use when reporting errors.
      *
@@ -150,7 +172,7 @@ class IndexingFilter extends AbstractXMLFilter {
                     if (indexField != null) {
                         // Index the current content if we are to store or index
                         // this field.
-                        if (indexField.isIndexed() || indexField.isStored()) {
+                        if (indexField.isIndexed() || indexField.isStored() || indexField.isDocValues()) {
                             processIndexContent(indexField, value);
                         }
                     } else {
@@ -161,6 +183,7 @@ class IndexingFilter extends AbstractXMLFilter {
         } else if (RECORD.equals(localName)) {
             // Create a document to store fields in.
             document = new Document();
+            docValuesFields.clear();
         }
 
         super.startElement(uri, localName, qName, atts);
@@ -189,86 +212,156 @@ class IndexingFilter extends AbstractXMLFilter {
         // Write the document if we have dropped out of the record element and
         // have indexed some fields.
         if (fieldsIndexed > 0) {
+            documents.add(document);
+            documentLocations.add(locationFactory.create(locator));
+            if (documents.size() >= batchSize) {
+                addDocuments();
+            }
+        }
+    }
+
+    private void addDocuments() {
+        if (documents.size() > 0) {
             try {
-                indexer.addDocument(indexShardKey, document);
+                if (documents.size() == 1) {
+                    addDocumentsSeparately();
+                } else {
+                    try {
+                        indexer.addDocuments(indexShardKey, documents);
+                    } catch (final RuntimeException e) {
+                        // None of a batch is added if any document in it fails so add the documents one at a time to
+                        // index the good ones and report the error against the record that caused it.
+                        LOGGER.debug(e.getMessage(), e);
+                        addDocumentsSeparately();
+                    }
+                }
+            } finally {
+                documents.clear();
+                documentLocations.clear();
+            }
+        }
+    }
+
+    private void addDocumentsSeparately() {
+        RuntimeException exception = null;
+        for (int i = 0; i < documents.size(); i++) {
+            try {
+                indexer.addDocument(indexShardKey, documents.get(i));
             } catch (final RuntimeException e) {
-                log(Severity.FATAL_ERROR, e.getMessage(), e);
-                // Terminate processing as this is a fatal error.
-                throw new LoggedException(e.getMessage(), e);
+                log(Severity.FATAL_ERROR, documentLocations.get(i), e.getMessage(), e);
+                if (exception == null) {
+                    exception = e;
+                }
             }
         }
+
+        if (exception != null) {
+            // Terminate processing as this is a fatal error.
+            throw new LoggedException(exception.getMessage(), exception);
+        }
     }
 
     private void processIndexContent(final IndexField indexField, final String value) {
         try {
+            // Lucene will not accept a field that is neither indexed nor stored so only create one if we need it. A
+            // field may only want doc values.
+            final boolean indexedOrStored = indexField.isIndexed() || indexField.isStored();
             Field field = null;
+            Field docValuesField = null;
 
             if (IndexFieldType.INTEGER_FIELD.equals(indexField.getFieldType())) {
                 try {
                     final int val = Integer.parseInt(value);
-                    field = FieldFactory.createInt(indexField, val);
+                    if (indexedOrStored) {
+                        field = FieldFactory.createInt(indexField, val);
+                    }
+                    docValuesField = FieldFactory.createDocValues(indexField, val);
                 } catch (final Exception e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
             } else if (IndexFieldType.LONG_FIELD.equals(indexField.getFieldType())) {
                 try {
                     final long val = Long.parseLong(value);
-                    field = FieldFactory.create(indexField, val);
+                    if (indexedOrStored) {
+                        field = FieldFactory.create(indexField, val);
+                    }
+                    docValuesField = FieldFactory.createDocValues(indexField, val);
                 } catch (final Exception e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
             } else if (IndexFieldType.FLOAT_FIELD.equals(indexField.getFieldType())) {
                 try {
                     final float val = Float.parseFloat(value);
-                    field = FieldFactory.createFloat(indexField, val);
+                    if (indexedOrStored) {
+                        field = FieldFactory.createFloat(indexField, val);
+                    }
+                    docValuesField = FieldFactory.createFloatDocValues(indexField, val);
                 } catch (final Exception e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
             } else if (IndexFieldType.DOUBLE_FIELD.equals(indexField.getFieldType())) {
                 try {
                     final double val = Double.parseDouble(value);
-                    field = FieldFactory.createDouble(indexField, val);
+                    if (indexedOrStored) {
+                        field = FieldFactory.createDouble(indexField, val);
+                    }
+                    docValuesField = FieldFactory.createDoubleDocValues(indexField, val);
                 } catch (final Exception e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
             } else if (IndexFieldType.DATE_FIELD.equals(indexField.getFieldType())) {
                 try {
                     final long val = DateUtil.parseUnknownString(value);
-                    field = FieldFactory.create(indexField, val);
+                    if (indexedOrStored) {
+                        field = FieldFactory.create(indexField, val);
+                    }
+                    docValuesField = FieldFactory.createDocValues(indexField, val);
                 } catch (final RuntimeException e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
             } else if (indexField.getFieldType().isNumeric()) {
                 try {
                     final long val = Long.parseLong(value);
-                    field = FieldFactory.create(indexField, val);
+                    if (indexedOrStored) {
+                        field = FieldFactory.create(indexField, val);
+                    }
+                    docValuesField = FieldFactory.createDocValues(indexField, val);
                 } catch (final Exception e) {
                     LOGGER.trace(e.getMessage(), e);
                 }
             } else {
-                field = FieldFactory.create(indexField, value);
+                if (indexedOrStored) {
+                    field = FieldFactory.create(indexField, value);
+                }
+                docValuesField = FieldFactory.createDocValues(indexField, value);
+            }
+
+            // Output some debug.
+            if (LOGGER.isDebugEnabled() && (field != null || docValuesField != null)) {
+                debugBuffer.append("processIndexContent() - Adding to index indexName=");
+                debugBuffer.append(indexRef.getName());
+                debugBuffer.append(" name=");
+                debugBuffer.append(indexField.getFieldName());
+                debugBuffer.append(" value=");
+                debugBuffer.append(value);
+
+                final String debug = debugBuffer.toString();
+                debugBuffer.clear();
+
+                LOGGER.debug(debug);
             }
 
             // Add the current field to the document if it is not null.
             if (field != null) {
-                // Output some debug.
-                if (LOGGER.isDebugEnabled()) {
-                    debugBuffer.append("processIndexContent() - Adding to index indexName=");
-                    debugBuffer.append(indexRef.getName());
-                    debugBuffer.append(" name=");
-                    debugBuffer.append(indexField.getFieldName());
-                    debugBuffer.append(" value=");
-                    debugBuffer.append(value);
-
-                    final String debug = debugBuffer.toString();
-                    debugBuffer.clear();
-
-                    LOGGER.debug(debug);
-                }
-
                 fieldsIndexed++;
                 document.add(field);
             }
+
+            // Lucene only allows a single doc value per field for each document so keep the first value.
+            if (docValuesField != null && docValuesFields.add(indexField.getFieldName())) {
+                fieldsIndexed++;
+                document.add(docValuesField);
+            }
         } catch (final RuntimeException e) {
             log(Severity.ERROR, e.getMessage(), e);
         }
@@ -280,7 +373,18 @@ class IndexingFilter extends AbstractXMLFilter {
         this.indexRef = indexRef;
     }
 
+    @PipelineProperty(description = "How many documents to add to the index in a single batch.",
+            defaultValue = "100",
+            displayPriority = 2)
+    public void setBatchSize(final int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     private void log(final Severity severity, final String message, final Exception e) {
-        errorReceiverProxy.log(severity, locationFactory.create(locator), getElementId(), message, e);
+        log(severity, locationFactory.create(locator), message, e);
+    }
+
+    private void log(final Severity severity, final Location location, final String message, final Exception e) {
+        errorReceiverProxy.log(severity, location, getElementId(), message, e);
     }
 }
@@ -17,6 +17,7 @@
 package stroom.index.mock;
 
 import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexOptions;
 import org.apache.lucene.index.IndexWriter;
 import org.apache.lucene.index.IndexableField;
 import stroom.index.impl.IndexShardWriter;
@@ -25,6 +26,7 @@ import stroom.index.shared.IndexException;
 import stroom.index.shared.IndexShard;
 import stroom.index.shared.IndexShardKey;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -58,6 +60,7 @@ public class MockIndexShardWriter implements IndexShardWriter {
             if (documentCount.getAndIncrement() >= maxDocumentCount) {
                 throw new IndexException("Shard is full");
             }
+            validate(document);
 
             // Create a new document and copy the fields.
             final Document doc = new Document();
@@ -72,6 +75,34 @@ public class MockIndexShardWriter implements IndexShardWriter {
         }
     }
 
+    @Override
+    public void addDocuments(final List<Document> documents) {
+        if (documentCount.get() + documents.size() > maxDocumentCount) {
+            throw new IndexException("Shard is full");
+        }
+        // Like Lucene, add none of the documents if any of them is bad.
+        documents.forEach(this::validate);
+        for (final Document document : documents) {
+            addDocument(document);
+        }
+    }
+
+    /**
+     * Reject documents that Lucene would reject because a value would be indexed as a single term that is too long.
+     */
+    private void validate(final Document document) {
+        for (final IndexableField field : document.getFields()) {
+            final String value = field.stringValue();
+            if (value != null
+                    && !IndexOptions.NONE.equals(field.fieldType().indexOptions())
+                    && value.chars().noneMatch(Character::isWhitespace)
+                    && value.getBytes(StandardCharsets.UTF_8).length > IndexWriter.MAX_TERM_LENGTH) {
+                throw new IllegalArgumentException("Document contains at least one immense term in field=\"" +
+                        field.name() + "\"");
+            }
+        }
+    }
+
     public List<Document> getDocuments() {
         return documents;
     }
@@ -117,4 +148,14 @@ public class MockIndexShardWriter implements IndexShardWriter {
     public long getLastUsedTime() {
         return lastUsedTime;
     }
+
+    @Override
+    public long getAddedDocumentCount() {
+        return documents.size();
+    }
+
+    @Override
+    public long getAddDurationMs() {
+        return 0;
+    }
 }
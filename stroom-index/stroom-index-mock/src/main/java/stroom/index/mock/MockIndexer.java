@@ -25,6 +25,7 @@ import stroom.index.shared.IndexShardKey;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.UncheckedIOException;
+import java.util.List;
 
 public class MockIndexer implements Indexer {
     private final IndexShardWriterCache indexShardWriterCache;
@@ -47,4 +48,14 @@ public class MockIndexer implements Indexer {
             throw new UncheckedIOException(e);
         }
     }
+
+    @Override
+    public void addDocuments(final IndexShardKey key, final List<Document> documents) {
+        try {
+            final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardKey(key);
+            indexShardWriter.addDocuments(documents);
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
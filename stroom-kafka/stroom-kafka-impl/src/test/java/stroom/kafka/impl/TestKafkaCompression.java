@@ -0,0 +1,58 @@
+package stroom.kafka.impl;
+
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MemoryRecordsBuilder;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.TimestampType;
+import org.apache.kafka.common.utils.Utils;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * The versions of lz4-java and zstd-jni are forced to newer versions than the kafka client asks for so check
+ * the kafka client can still compress and decompress record batches with them.
+ */
+class TestKafkaCompression {
+    @Test
+    void testLz4() {
+        testCompression(CompressionType.LZ4);
+    }
+
+    @Test
+    void testZstd() {
+        testCompression(CompressionType.ZSTD);
+    }
+
+    private void testCompression(final CompressionType compressionType) {
+        final List<String> expected = new ArrayList<>();
+        final MemoryRecordsBuilder builder = MemoryRecords.builder(
+                ByteBuffer.allocate(1024),
+                RecordBatch.CURRENT_MAGIC_VALUE,
+                compressionType,
+                TimestampType.CREATE_TIME,
+                0L);
+        for (int i = 0; i < 1000; i++) {
+            final String value = "<Event><Id>" + i + "</Id></Event>";
+            expected.add(value);
+            builder.append(System.currentTimeMillis(), null, value.getBytes(StandardCharsets.UTF_8));
+        }
+        final MemoryRecords records = builder.build();
+
+        final List<String> actual = new ArrayList<>();
+        for (final RecordBatch batch : records.batches()) {
+            assertThat(batch.compressionType()).isEqualTo(compressionType);
+        }
+        for (final Record record : records.records()) {
+            actual.add(new String(Utils.toArray(record.value()), StandardCharsets.UTF_8));
+        }
+        assertThat(actual).isEqualTo(expected);
+    }
+}
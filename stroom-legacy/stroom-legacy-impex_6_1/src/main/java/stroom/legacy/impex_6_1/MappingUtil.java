@@ -609,7 +609,8 @@ public final class MappingUtil {
                 indexed,
                 stored,
                 termPositions,
-                caseSensitive);
+                caseSensitive,
+                false);
     }
 
     public static stroom.processor.shared.QueryData map(stroom.legacy.model_6_1.QueryData value) {
@@ -13,6 +13,7 @@ import stroom.meta.impl.MetaTypeDao;
 import stroom.meta.impl.MetaValueDao;
 import stroom.util.RunnableWrapper;
 import stroom.util.guice.GuiceUtil;
+import stroom.util.guice.HasSystemInfoBinder;
 import stroom.util.shared.Clearable;
 
 import javax.inject.Inject;
@@ -40,6 +41,9 @@ public class MetaDbModule extends AbstractFlyWayDbModule<MetaServiceConfig, Meta
         GuiceUtil.buildMultiBinder(binder(), Clearable.class)
                 .addBinding(Cleanup.class);
 
+        HasSystemInfoBinder.create(binder())
+                .bind(MetaValueDaoImpl.class);
+
         LifecycleBinder.create(binder())
                 .bindShutdownTaskTo(MetaValueServiceFlush.class);
     }
@@ -78,7 +82,7 @@ public class MetaDbModule extends AbstractFlyWayDbModule<MetaServiceConfig, Meta
     private static class MetaValueServiceFlush extends RunnableWrapper {
         @Inject
         MetaValueServiceFlush(final MetaValueDaoImpl metaValueService) {
-            super(metaValueService::flush);
+            super(metaValueService::flushAndWait);
         }
     }
 }
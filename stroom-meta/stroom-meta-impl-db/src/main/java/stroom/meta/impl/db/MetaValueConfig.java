@@ -25,9 +25,17 @@ public class MetaValueConfig extends AbstractConfig {
 
     @JsonProperty
     @JsonPropertyDescription("The number of stream attributes to queue before flushing to the database. " +
+            "This is also the maximum number of rows written by a single insert statement. " +
             "Only applicable if property 'addAsync' is true.")
     private int flushBatchSize = 500;
 
+    @JsonProperty
+    @JsonPropertyDescription("The maximum number of stream attributes to hold in memory waiting to be flushed " +
+            "to the database. If this is reached, threads adding attributes will write the queued attributes " +
+            "to the database themselves until the queue is below this size. " +
+            "Only applicable if property 'addAsync' is true.")
+    private int maxQueuedRows = 100000;
+
     @JsonProperty
     @JsonPropertyDescription("If true, stream attributes will be queued in memory until the queue " +
             "reaches 'flushBatchSize'. If false, stream attributes will be written to the database " +
@@ -62,6 +70,15 @@ public class MetaValueConfig extends AbstractConfig {
         this.flushBatchSize = flushBatchSize;
     }
 
+    public int getMaxQueuedRows() {
+        return maxQueuedRows;
+    }
+
+    @SuppressWarnings("unused")
+    public void setMaxQueuedRows(final int maxQueuedRows) {
+        this.maxQueuedRows = maxQueuedRows;
+    }
+
     public boolean isAddAsync() {
         return addAsync;
     }
@@ -77,6 +94,7 @@ public class MetaValueConfig extends AbstractConfig {
                 "deleteAge=" + deleteAge +
                 ", deleteBatchSize=" + deleteBatchSize +
                 ", flushBatchSize=" + flushBatchSize +
+                ", maxQueuedRows=" + maxQueuedRows +
                 ", addAsync=" + addAsync +
                 '}';
     }
@@ -88,12 +106,13 @@ public class MetaValueConfig extends AbstractConfig {
         final MetaValueConfig that = (MetaValueConfig) o;
         return deleteBatchSize == that.deleteBatchSize &&
                 flushBatchSize == that.flushBatchSize &&
+                maxQueuedRows == that.maxQueuedRows &&
                 addAsync == that.addAsync &&
                 Objects.equals(deleteAge, that.deleteAge);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(deleteAge, deleteBatchSize, flushBatchSize, addAsync);
+        return Objects.hash(deleteAge, deleteBatchSize, flushBatchSize, maxQueuedRows, addAsync);
     }
 }
@@ -21,49 +21,83 @@ import stroom.db.util.JooqUtil;
 import stroom.meta.api.AttributeMap;
 import stroom.meta.impl.MetaKeyDao;
 import stroom.meta.impl.MetaValueDao;
+import stroom.meta.impl.db.jooq.tables.records.MetaValRecord;
 import stroom.meta.shared.Meta;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
 import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogExecutionTime;
+import stroom.util.sysinfo.HasSystemInfo;
+import stroom.util.sysinfo.SystemInfoResult;
 
-import org.jooq.BatchBindStep;
+import org.jooq.InsertValuesStep4;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.time.Duration;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static stroom.meta.impl.db.jooq.tables.MetaVal.META_VAL;
 
 @Singleton
-class MetaValueDaoImpl implements MetaValueDao {
+class MetaValueDaoImpl implements MetaValueDao, HasSystemInfo {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(MetaValueDaoImpl.class);
 
     private static final String LOCK_NAME = "MetaDeleteExecutor";
+    private static final ThreadPool FLUSH_THREAD_POOL = new ThreadPoolImpl("Meta Value Flush", 3, 0, 1);
 
     private final MetaDbConnProvider metaDbConnProvider;
     private final MetaKeyDao metaKeyService;
     private final MetaValueConfig metaValueConfig;
     private final ClusterLockService clusterLockService;
 
-    private volatile List<Row> queue = new ArrayList<>();
+    // Rows are queued in one of several stripes, chosen by thread, so that pipeline threads
+    // adding attributes at the same time rarely contend with each other or with a flush.
+    private final Stripe[] stripes;
+    private final AtomicLong queuedRows = new AtomicLong();
+
+    // A single background thread writes queued rows to the database once a batch is ready.
+    private final Executor flushExecutor;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private volatile CompletableFuture<Void> lastFlush = CompletableFuture.completedFuture(null);
+
+    private final AtomicLong maxQueuedRows = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong backPressureFlushCount = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+    private final AtomicLong flushNanos = new AtomicLong();
+    private volatile long lastFlushMs;
 
     @Inject
     MetaValueDaoImpl(final MetaDbConnProvider metaDbConnProvider,
                      final MetaKeyDao metaKeyService,
                      final MetaValueConfig metaValueConfig,
-                     final ClusterLockService clusterLockService) {
+                     final ClusterLockService clusterLockService,
+                     final ExecutorProvider executorProvider) {
         this.metaDbConnProvider = metaDbConnProvider;
         this.metaKeyService = metaKeyService;
         this.metaValueConfig = metaValueConfig;
         this.clusterLockService = clusterLockService;
+
+        stripes = new Stripe[Math.max(1, Runtime.getRuntime().availableProcessors())];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new Stripe();
+        }
+
+        flushExecutor = executorProvider.get(FLUSH_THREAD_POOL);
     }
 
     @Override
@@ -89,46 +123,133 @@ class MetaValueDaoImpl implements MetaValueDao {
 
         final List<Row> records = stream.collect(Collectors.toList());
         if (metaValueConfig.isAddAsync()) {
-            final Optional<List<Row>> optional = add(records, metaValueConfig.getFlushBatchSize());
-            optional.ifPresent(this::insertRecords);
+            add(records);
         } else {
             insertRecords(records);
         }
     }
 
-    private synchronized Optional<List<Row>> add(final List<Row> records, final int batchSize) {
-        List<Row> readyForFlush = null;
-        queue.addAll(records);
-        if (queue.size() >= batchSize) {
-            // Switch out the current queue.
-            readyForFlush = queue;
-            queue = new ArrayList<>();
+    private void add(final List<Row> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+
+        final Stripe stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+        stripe.add(records);
+        final long queued = queuedRows.addAndGet(records.size());
+        maxQueuedRows.accumulateAndGet(queued, Math::max);
+
+        if (queued >= metaValueConfig.getMaxQueuedRows()) {
+            // The flush thread isn't keeping up so make this thread write rows too. This bounds the
+            // memory used by the queue and slows down the threads that are producing the rows.
+            LOGGER.debug(() -> "Queue is full (" + queued + " rows), flushing on the adding thread");
+            backPressureFlushCount.incrementAndGet();
+            flush();
+        } else if (queued >= metaValueConfig.getFlushBatchSize()) {
+            requestFlush();
+        }
+    }
+
+    private void requestFlush() {
+        // Only ever have one flush waiting to run as it will take all the rows queued by the time it runs.
+        if (flushRequested.compareAndSet(false, true)) {
+            try {
+                lastFlush = CompletableFuture.runAsync(() -> {
+                    flushRequested.set(false);
+                    try {
+                        flush();
+                    } catch (final RuntimeException e) {
+                        // The rows have been put back on the queue so will be written by a later flush.
+                        LOGGER.error(() -> "Error flushing meta values, " + queuedRows.get() +
+                                " rows remain queued - " + e.getMessage(), e);
+                    }
+                }, flushExecutor);
+            } catch (final RuntimeException e) {
+                // The executor will reject the flush if we are shutting down so write the rows now.
+                LOGGER.debug(e::getMessage, e);
+                flushRequested.set(false);
+                flush();
+            }
         }
-        // Return the old queue for flushing if it was switched.
-        return Optional.ofNullable(readyForFlush);
     }
 
+    /**
+     * Write all queued rows to the database. If the rows can't be written then any that were not written are put
+     * back on the queue and the exception is rethrown.
+     */
     @Override
     public void flush() {
-        final Optional<List<Row>> optional = add(Collections.emptyList(), 1);
-        optional.ifPresent(this::insertRecords);
+        final List<Row> rows = drain();
+        if (!rows.isEmpty()) {
+            final AtomicInteger written = new AtomicInteger();
+            try {
+                insertRecords(rows, written);
+            } catch (final RuntimeException e) {
+                requeue(rows.subList(written.get(), rows.size()));
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Wait for any background flush to complete and then write all remaining queued rows to the database. This
+     * is used on shutdown so that no queued rows are lost.
+     */
+    void flushAndWait() {
+        lastFlush.join();
+        flush();
+    }
+
+    private List<Row> drain() {
+        final List<Row> rows = new ArrayList<>();
+        for (final Stripe stripe : stripes) {
+            stripe.drainTo(rows);
+        }
+        queuedRows.addAndGet(-rows.size());
+        return rows;
+    }
+
+    private void requeue(final List<Row> rows) {
+        if (!rows.isEmpty()) {
+            final Stripe stripe = stripes[(int) (Thread.currentThread().getId() % stripes.length)];
+            stripe.add(rows);
+            queuedRows.addAndGet(rows.size());
+        }
     }
 
     private void insertRecords(final List<Row> rows) {
+        insertRecords(rows, new AtomicInteger());
+    }
+
+    /**
+     * @param written Updated with the number of rows written so far so that the caller knows which rows have not
+     *                been written if an insert fails.
+     */
+    private void insertRecords(final List<Row> rows, final AtomicInteger written) {
         final LogExecutionTime logExecutionTime = new LogExecutionTime();
         LOGGER.debug(() -> "Processing batch of " + rows.size());
 
+        // Write the rows using multi row inserts rather than a statement per row.
+        final int batchSize = Math.max(1, metaValueConfig.getFlushBatchSize());
+        final long startTime = System.nanoTime();
         JooqUtil.context(metaDbConnProvider, context -> {
-            BatchBindStep batchBindStep = context
-                    .batch(context
-                            .insertInto(META_VAL, META_VAL.CREATE_TIME, META_VAL.META_ID, META_VAL.META_KEY_ID, META_VAL.VAL)
-                            .values((Long) null, (Long) null, (Integer) null, (Long) null));
-            for (final Row row : rows) {
-                batchBindStep = batchBindStep.bind(row.getCreateMs(), row.getMetaId(), row.getKeyId(), row.getValue());
+            for (int from = 0; from < rows.size(); from += batchSize) {
+                final List<Row> batch = rows.subList(from, Math.min(rows.size(), from + batchSize));
+                InsertValuesStep4<MetaValRecord, Long, Long, Integer, Long> insert = context
+                        .insertInto(META_VAL, META_VAL.CREATE_TIME, META_VAL.META_ID, META_VAL.META_KEY_ID, META_VAL.VAL);
+                for (final Row row : batch) {
+                    insert = insert.values(row.getCreateMs(), row.getMetaId(), row.getKeyId(), row.getValue());
+                }
+                insert.execute();
+                written.addAndGet(batch.size());
             }
-            batchBindStep.execute();
         });
 
+        flushNanos.addAndGet(System.nanoTime() - startTime);
+        flushedRows.addAndGet(rows.size());
+        flushCount.incrementAndGet();
+        lastFlushMs = logExecutionTime.getDuration();
+
         if (logExecutionTime.getDuration() > 1000) {
             LOGGER.warn(() -> "Saved " + rows.size() + " updates, completed in " + logExecutionTime);
         } else {
@@ -295,8 +416,50 @@ class MetaValueDaoImpl implements MetaValueDao {
         deleteAll();
     }
 
-    private synchronized void clearQueue() {
-        queue.clear();
+    private void clearQueue() {
+        drain();
+    }
+
+    @Override
+    public SystemInfoResult getSystemInfo() {
+        final long rows = flushedRows.get();
+        final long nanos = flushNanos.get();
+        final long rowsPerSecond = nanos > 0
+                ? (long) (rows / (nanos / 1000000000D))
+                : 0;
+
+        return SystemInfoResult.builder(getSystemInfoName())
+                .withDetail("queuedRows", queuedRows.get())
+                .withDetail("maxQueuedRows", maxQueuedRows.get())
+                .withDetail("flushCount", flushCount.get())
+                .withDetail("backPressureFlushCount", backPressureFlushCount.get())
+                .withDetail("flushedRows", rows)
+                .withDetail("lastFlushMs", lastFlushMs)
+                .withDetail("averageFlushMs", flushCount.get() > 0
+                        ? (nanos / 1000000) / flushCount.get()
+                        : 0)
+                .withDetail("insertRowsPerSecond", rowsPerSecond)
+                .build();
+    }
+
+    private static final class Stripe {
+        private List<Row> rows = new ArrayList<>();
+
+        synchronized void add(final List<Row> records) {
+            rows.addAll(records);
+        }
+
+        void drainTo(final List<Row> list) {
+            final List<Row> taken;
+            synchronized (this) {
+                if (rows.isEmpty()) {
+                    return;
+                }
+                taken = rows;
+                rows = new ArrayList<>();
+            }
+            list.addAll(taken);
+        }
     }
 
     private void deleteAll() {
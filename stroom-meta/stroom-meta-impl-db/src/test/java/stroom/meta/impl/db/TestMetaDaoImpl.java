@@ -35,6 +35,7 @@ import stroom.query.api.v2.ExpressionOperator;
 import stroom.query.api.v2.ExpressionOperator.Op;
 import stroom.query.api.v2.ExpressionTerm.Condition;
 import stroom.security.mock.MockSecurityContextModule;
+import stroom.task.mock.MockTaskModule;
 import stroom.test.common.util.db.DbTestModule;
 import stroom.util.shared.ResultPage;
 
@@ -72,7 +73,8 @@ class TestMetaDaoImpl {
                 new MockDocRefInfoModule(),
                 new MockWordListProviderModule(),
                 new CacheModule(),
-                new DbTestModule())
+                new DbTestModule(),
+                new MockTaskModule())
                 .injectMembers(this);
         // Delete everything`
         cleanup.clear();
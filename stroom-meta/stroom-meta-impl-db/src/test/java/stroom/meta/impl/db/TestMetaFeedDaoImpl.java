@@ -22,6 +22,7 @@ import stroom.collection.mock.MockCollectionModule;
 import stroom.dictionary.mock.MockWordListProviderModule;
 import stroom.docrefinfo.mock.MockDocRefInfoModule;
 import stroom.security.mock.MockSecurityContextModule;
+import stroom.task.mock.MockTaskModule;
 import stroom.test.common.util.db.DbTestModule;
 
 import com.google.inject.Guice;
@@ -50,7 +51,8 @@ class TestMetaFeedDaoImpl {
                 new MockDocRefInfoModule(),
                 new MockWordListProviderModule(),
                 new CacheModule(),
-                new DbTestModule())
+                new DbTestModule(),
+                new MockTaskModule())
                 .injectMembers(this);
         // Delete everything
         cleanup.clear();
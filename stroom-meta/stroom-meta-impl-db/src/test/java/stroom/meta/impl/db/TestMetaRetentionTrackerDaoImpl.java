@@ -23,6 +23,7 @@ import stroom.data.retention.api.DataRetentionTracker;
 import stroom.dictionary.mock.MockWordListProviderModule;
 import stroom.docrefinfo.mock.MockDocRefInfoModule;
 import stroom.security.mock.MockSecurityContextModule;
+import stroom.task.mock.MockTaskModule;
 import stroom.test.common.util.db.DbTestModule;
 
 import com.google.inject.Guice;
@@ -53,7 +54,8 @@ class TestMetaRetentionTrackerDaoImpl {
                 new MockDocRefInfoModule(),
                 new MockWordListProviderModule(),
                 new CacheModule(),
-                new DbTestModule())
+                new DbTestModule(),
+                new MockTaskModule())
                 .injectMembers(this);
 
         // Delete everything
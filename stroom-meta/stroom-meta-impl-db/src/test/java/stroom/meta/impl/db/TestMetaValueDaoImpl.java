@@ -42,6 +42,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -78,6 +80,70 @@ class TestMetaValueDaoImpl {
     @AfterEach
     void unsetProperties() {
         metaValueConfig.setAddAsync(true);
+        metaValueConfig.setFlushBatchSize(500);
+        metaValueConfig.setMaxQueuedRows(100000);
+    }
+
+    @Test
+    void testAddAsync() {
+        metaValueConfig.setAddAsync(true);
+        metaValueConfig.setFlushBatchSize(1000);
+
+        final Meta meta = metaService.create(createProperties("FEED1"));
+        metaService.addAttributes(meta, createAttributes());
+
+        // The row is queued until a batch is ready.
+        assertThat(countWithFileSize(meta)).isEqualTo(0);
+        assertThat(metaValueDao.getSystemInfo().getDetails().get("queuedRows")).isEqualTo(1L);
+
+        // Shutdown must write everything that is queued.
+        metaValueDao.flushAndWait();
+        assertThat(countWithFileSize(meta)).isEqualTo(1);
+        assertThat(metaValueDao.getSystemInfo().getDetails().get("queuedRows")).isEqualTo(0L);
+    }
+
+    @Test
+    void testAddAsyncBackgroundFlush() {
+        metaValueConfig.setAddAsync(true);
+        metaValueConfig.setFlushBatchSize(2);
+
+        final List<Meta> metaList = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            final Meta meta = metaService.create(createProperties("FEED1"));
+            metaService.addAttributes(meta, createAttributes());
+            metaList.add(meta);
+        }
+
+        // Wait for the background flushes to finish and write anything left over.
+        metaValueDao.flushAndWait();
+
+        for (final Meta meta : metaList) {
+            assertThat(countWithFileSize(meta)).isEqualTo(1);
+        }
+        assertThat(metaValueDao.getSystemInfo().getDetails().get("queuedRows")).isEqualTo(0L);
+        assertThat((Long) metaValueDao.getSystemInfo().getDetails().get("flushedRows")).isEqualTo(10L);
+    }
+
+    @Test
+    void testAddAsyncBackPressure() {
+        metaValueConfig.setAddAsync(true);
+        metaValueConfig.setFlushBatchSize(1000);
+        metaValueConfig.setMaxQueuedRows(1);
+
+        // Reaching the max queue size makes the adding thread write the rows itself.
+        final Meta meta = metaService.create(createProperties("FEED1"));
+        metaService.addAttributes(meta, createAttributes());
+
+        assertThat(countWithFileSize(meta)).isEqualTo(1);
+        assertThat(metaValueDao.getSystemInfo().getDetails().get("queuedRows")).isEqualTo(0L);
+    }
+
+    private int countWithFileSize(final Meta meta) {
+        final ExpressionOperator expression = new ExpressionOperator.Builder()
+                .addTerm(MetaFields.ID, Condition.EQUALS, meta.getId())
+                .addTerm(MetaFields.FILE_SIZE, Condition.GREATER_THAN, 0)
+                .build();
+        return metaService.find(new FindMetaCriteria(expression)).size();
     }
 
     @Test
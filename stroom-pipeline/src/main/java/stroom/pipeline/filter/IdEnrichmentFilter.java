@@ -192,5 +192,7 @@ public class IdEnrichmentFilter extends AbstractXMLFilter {
     public void setup(final String streamId, final long[] eventIds) {
         this.streamId = streamId;
         this.eventIds = eventIds;
+        // Reset the count as search result extraction may reuse this filter for several streams.
+        this.count = 0;
     }
 }
@@ -0,0 +1,525 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.filter;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.jaxp.TemplatesImpl;
+import net.sf.saxon.jaxp.TransformerImpl;
+import net.sf.saxon.s9api.XsltExecutable;
+import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import stroom.pipeline.LocationFactory;
+import stroom.pipeline.cache.PoolItem;
+import stroom.pipeline.cache.StoredXsltExecutable;
+import stroom.pipeline.cache.XsltPool;
+import stroom.pipeline.errorhandler.ErrorListenerAdaptor;
+import stroom.pipeline.errorhandler.ErrorReceiver;
+import stroom.pipeline.errorhandler.ErrorReceiverIdDecorator;
+import stroom.pipeline.errorhandler.ProcessException;
+import stroom.pipeline.errorhandler.TerminatedException;
+import stroom.pipeline.shared.XsltDoc;
+import stroom.pipeline.shared.data.PipelineReference;
+import stroom.pipeline.xml.event.BaseEvent;
+import stroom.pipeline.xml.event.Event;
+import stroom.pipeline.xml.event.simple.SimpleEventList;
+import stroom.pipeline.xml.event.simple.SimpleEventListBuilder;
+import stroom.task.api.TaskContext;
+import stroom.task.api.TaskContextFactory;
+import stroom.util.shared.Location;
+import stroom.util.shared.Severity;
+
+import javax.xml.transform.ErrorListener;
+import javax.xml.transform.sax.SAXResult;
+import javax.xml.transform.sax.TransformerHandler;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Supplier;
+
+/**
+ * Transforms the records of a stream that have been split by a split filter on several threads at once while keeping
+ * the transformed output in record order.
+ * <p>
+ * Each record is buffered as SAX events on the pipeline thread and then transformed by a worker that has its own
+ * pooled XSLT executable. Workers buffer their output and any errors they report, and these are only passed on from
+ * the pipeline thread in the order the records were read so nothing downstream ever sees more than one thread.
+ * <p>
+ * Output is buffered with the source location each event was produced at. When it is replayed a
+ * {@link ReplayLocator} reports these locations to downstream filters in place of the current location of the source
+ * which will have moved on to later records.
+ * <p>
+ * XSLT function calls are created on the pipeline thread when each worker's XSLT is configured so every worker
+ * shares the same pipeline scoped objects but calls them from its own thread. Functions that read pipeline state,
+ * e.g. stroom:meta and stroom:feed-name, only read holders that are set before a stream starts and every record of a
+ * stream is output before the stream ends. stroom:lookup also writes to the reference data holders so these are
+ * thread safe.
+ */
+class ParallelXsltTransformer {
+    // The number of transformed records per worker that may be held waiting for an earlier record to finish.
+    private static final int MAX_PENDING_PER_WORKER = 2;
+
+    private final XsltPool xsltPool;
+    private final boolean usePool;
+    private final Executor executor;
+    private final TaskContextFactory taskContextFactory;
+    private final TaskContext parentContext;
+    private final RecordOutput recordOutput;
+    private final int maxPending;
+
+    private final List<Worker> workers = new ArrayList<>();
+    private final BlockingQueue<Worker> idleWorkers = new LinkedBlockingQueue<>();
+    private final Deque<CompletableFuture<TransformedRecord>> pending = new ArrayDeque<>();
+    private boolean failed;
+
+    ParallelXsltTransformer(final XsltPool xsltPool,
+                            final XsltDoc xslt,
+                            final String elementId,
+                            final LocationFactory locationFactory,
+                            final List<PipelineReference> pipelineReferences,
+                            final boolean usePool,
+                            final int threads,
+                            final Executor executor,
+                            final TaskContextFactory taskContextFactory,
+                            final RecordOutput recordOutput) {
+        this.xsltPool = xsltPool;
+        this.usePool = usePool;
+        this.executor = executor;
+        this.taskContextFactory = taskContextFactory;
+        this.parentContext = taskContextFactory.currentContext();
+        this.recordOutput = recordOutput;
+        this.maxPending = threads * MAX_PENDING_PER_WORKER;
+
+        try {
+            for (int i = 0; i < threads; i++) {
+                final Worker worker = new Worker(elementId, locationFactory);
+                worker.poolItem = xsltPool.borrowConfiguredTemplate(xslt, new ErrorReceiverIdDecorator(elementId,
+                        worker.errorReceiver), locationFactory, pipelineReferences, usePool);
+                workers.add(worker);
+
+                worker.xsltExecutable = worker.poolItem.getValue().getXsltExecutable();
+                if (worker.xsltExecutable == null) {
+                    throw new ProcessException("There is a problem with the XSLT \"" + xslt.getName() + "\"");
+                }
+
+                // Make sure the executable points at the worker's error handler.
+                final Configuration configuration = worker.xsltExecutable.getUnderlyingCompiledStylesheet()
+                        .getConfiguration();
+                configuration.setErrorListener(worker.errorListener);
+                configuration.setLineNumbering(true);
+
+                idleWorkers.add(worker);
+            }
+        } catch (final RuntimeException e) {
+            returnWorkers();
+            throw e;
+        }
+    }
+
+    /**
+     * @return A content handler to buffer the SAX events of a single record.
+     */
+    RecordBuffer createRecordBuffer(final Locator locator) {
+        return new RecordBuffer(locator);
+    }
+
+    /**
+     * Transform a buffered record. Any earlier records that have finished being transformed are output first.
+     */
+    void transform(final RecordBuffer recordBuffer) throws SAXException {
+        // Don't let too many transformed records build up behind a slow one.
+        while (pending.size() >= maxPending) {
+            outputNext();
+        }
+
+        Worker idleWorker = idleWorkers.poll();
+        while (idleWorker == null) {
+            if (pending.isEmpty()) {
+                idleWorker = takeIdleWorker();
+            } else {
+                outputNext();
+                idleWorker = idleWorkers.poll();
+            }
+        }
+
+        final Worker worker = idleWorker;
+        final SimpleEventList input = (SimpleEventList) recordBuffer.getEventList();
+        final Supplier<TransformedRecord> supplier = taskContextFactory.contextResult(parentContext,
+                "XSLT Transform",
+                taskContext -> worker.transform(input));
+        // Only complete once the worker is free again so that it can always be found once a record has been output.
+        pending.add(CompletableFuture.supplyAsync(supplier, executor)
+                .whenComplete((result, throwable) -> idleWorkers.add(worker)));
+
+        while (!pending.isEmpty() && pending.peek().isDone()) {
+            outputNext();
+        }
+    }
+
+    /**
+     * Output every record that has been passed to this transformer unless outputting an earlier record has failed.
+     */
+    void flush() throws SAXException {
+        while (!failed && !pending.isEmpty()) {
+            outputNext();
+        }
+    }
+
+    /**
+     * Wait for any records that are still being transformed and return the workers' XSLT to the pool. Records that
+     * have not been output are discarded.
+     */
+    void close() {
+        try {
+            while (!pending.isEmpty()) {
+                await(pending.poll());
+            }
+        } finally {
+            returnWorkers();
+        }
+    }
+
+    private void outputNext() throws SAXException {
+        try {
+            final TransformedRecord transformedRecord = await(pending.poll());
+            recordOutput.output(transformedRecord);
+        } catch (final SAXException | RuntimeException e) {
+            // Records that follow a failed record would never have been output if they had been transformed in turn.
+            failed = true;
+            throw e;
+        }
+    }
+
+    private TransformedRecord await(final CompletableFuture<TransformedRecord> future) {
+        try {
+            return future.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TerminatedException();
+        } catch (final ExecutionException e) {
+            final Throwable cause = e.getCause() == null ? e : e.getCause();
+            throw new ProcessException(cause.getMessage(), cause);
+        }
+    }
+
+    private Worker takeIdleWorker() {
+        try {
+            return idleWorkers.take();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TerminatedException();
+        }
+    }
+
+    private void returnWorkers() {
+        for (final Worker worker : workers) {
+            if (worker.poolItem != null) {
+                xsltPool.returnObject(worker.poolItem, usePool);
+                worker.poolItem = null;
+            }
+        }
+        workers.clear();
+        idleWorkers.clear();
+    }
+
+    interface RecordOutput {
+        void output(TransformedRecord transformedRecord) throws SAXException;
+    }
+
+    /**
+     * Buffers SAX events along with the source location of each element. Records are buffered with the location
+     * of the source so that errors are reported against the right location when the record is transformed on another
+     * thread. Transformed output is buffered with the location of the worker so that the same location can be
+     * reported downstream when the output is replayed.
+     */
+    static class RecordBuffer extends SimpleEventListBuilder {
+        private final Locator locator;
+        private int lineNo = -1;
+        private int colNo = -1;
+
+        RecordBuffer(final Locator locator) {
+            this.locator = locator;
+        }
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            // The worker supplies its own locator.
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+                throws SAXException {
+            addLocation();
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            addLocation();
+            super.endElement(uri, localName, qName);
+        }
+
+        private void addLocation() {
+            if (locator != null && (locator.getLineNumber() != lineNo || locator.getColumnNumber() != colNo)) {
+                lineNo = locator.getLineNumber();
+                colNo = locator.getColumnNumber();
+                ((SimpleEventList) getEventList()).add(new SourceLocation(lineNo, colNo));
+            }
+        }
+    }
+
+    /**
+     * The output and errors produced by transforming a record.
+     */
+    static class TransformedRecord {
+        private final SimpleEventList output;
+        private final List<RecordedError> errors;
+        private final RuntimeException exception;
+
+        TransformedRecord(final SimpleEventList output,
+                          final List<RecordedError> errors,
+                          final RuntimeException exception) {
+            this.output = output;
+            this.errors = errors;
+            this.exception = exception;
+        }
+
+        /**
+         * Pass any errors that were reported while transforming the record to an error receiver.
+         */
+        void replayErrors(final ErrorReceiver errorReceiver) {
+            for (final RecordedError error : errors) {
+                errorReceiver.log(error.severity, error.location, error.elementId, error.message, error.throwable);
+            }
+        }
+
+        /**
+         * Fire the transformed SAX events at a content handler.
+         *
+         * @param replayLocator The locator given to downstream filters, may be null.
+         */
+        void replayOutput(final ContentHandler handler, final ReplayLocator replayLocator) throws SAXException {
+            if (replayLocator != null) {
+                replayLocator.replaying = true;
+            }
+            try {
+                for (final Event event : output.getEvents()) {
+                    if (event instanceof SourceLocation) {
+                        if (replayLocator != null) {
+                            replayLocator.lineNo = ((SourceLocation) event).lineNo;
+                            replayLocator.colNo = ((SourceLocation) event).colNo;
+                        }
+                    } else if (!event.isSetDocumentLocator()) {
+                        // Downstream filters keep the replay locator rather than one belonging to a worker.
+                        event.fire(handler);
+                    }
+                }
+            } finally {
+                if (replayLocator != null) {
+                    replayLocator.replaying = false;
+                }
+            }
+        }
+
+        /**
+         * @return The exception that stopped the record being transformed or null if it was transformed.
+         */
+        RuntimeException getException() {
+            return exception;
+        }
+    }
+
+    private static class Worker {
+        private final RecordingErrorReceiver errorReceiver = new RecordingErrorReceiver();
+        private final ErrorListener errorListener;
+        private final RecordLocator locator = new RecordLocator();
+        private PoolItem<StoredXsltExecutable> poolItem;
+        private XsltExecutable xsltExecutable;
+
+        Worker(final String elementId, final LocationFactory locationFactory) {
+            errorListener = new ErrorListenerAdaptor(elementId, locationFactory, errorReceiver);
+        }
+
+        TransformedRecord transform(final SimpleEventList input) {
+            errorReceiver.errors = new ArrayList<>();
+            locator.lineNo = -1;
+            locator.colNo = -1;
+            final RecordBuffer output = new RecordBuffer(locator);
+
+            RuntimeException exception = null;
+            try {
+                final TemplatesImpl templates = new TemplatesImpl(xsltExecutable);
+                final TransformerImpl transformer = (TransformerImpl) templates.newTransformer();
+                transformer.setErrorListener(errorListener);
+
+                final TransformerHandler handler = transformer.newTransformerHandler();
+                handler.setResult(new SAXResult(output));
+                handler.setDocumentLocator(locator);
+
+                for (final Event event : input.getEvents()) {
+                    if (event instanceof SourceLocation) {
+                        locator.lineNo = ((SourceLocation) event).lineNo;
+                        locator.colNo = ((SourceLocation) event).colNo;
+                    } else {
+                        event.fire(handler);
+                    }
+                }
+            } catch (final SAXException e) {
+                exception = new ProcessException(e.getMessage(), e);
+            } catch (final RuntimeException e) {
+                exception = e;
+            } catch (final Exception e) {
+                exception = new ProcessException(e.getMessage(), e);
+            }
+
+            final List<RecordedError> errors = errorReceiver.errors;
+            errorReceiver.errors = null;
+            return new TransformedRecord((SimpleEventList) output.getEventList(), errors, exception);
+        }
+    }
+
+    private static class RecordingErrorReceiver implements ErrorReceiver {
+        private List<RecordedError> errors;
+
+        @Override
+        public void log(final Severity severity,
+                        final Location location,
+                        final String elementId,
+                        final String message,
+                        final Throwable e) {
+            if (errors != null) {
+                errors.add(new RecordedError(severity, location, elementId, message, e));
+            }
+        }
+    }
+
+    private static class RecordedError {
+        private final Severity severity;
+        private final Location location;
+        private final String elementId;
+        private final String message;
+        private final Throwable throwable;
+
+        RecordedError(final Severity severity,
+                      final Location location,
+                      final String elementId,
+                      final String message,
+                      final Throwable throwable) {
+            this.severity = severity;
+            this.location = location;
+            this.elementId = elementId;
+            this.message = message;
+            this.throwable = throwable;
+        }
+    }
+
+    /**
+     * Reports the source location of the record event that a worker is currently transforming.
+     */
+    private static class RecordLocator implements Locator {
+        private int lineNo = -1;
+        private int colNo = -1;
+
+        @Override
+        public String getPublicId() {
+            return null;
+        }
+
+        @Override
+        public String getSystemId() {
+            return null;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return lineNo;
+        }
+
+        @Override
+        public int getColumnNumber() {
+            return colNo;
+        }
+    }
+
+    /**
+     * The locator given to the filters downstream of a parallel transform. While the output of a record is being
+     * replayed it reports the source location that the output was produced at, otherwise it reports the current
+     * location of the source.
+     */
+    static class ReplayLocator implements Locator {
+        private final Locator sourceLocator;
+        private boolean replaying;
+        private int lineNo = -1;
+        private int colNo = -1;
+
+        ReplayLocator(final Locator sourceLocator) {
+            this.sourceLocator = sourceLocator;
+        }
+
+        @Override
+        public String getPublicId() {
+            return sourceLocator == null ? null : sourceLocator.getPublicId();
+        }
+
+        @Override
+        public String getSystemId() {
+            return sourceLocator == null ? null : sourceLocator.getSystemId();
+        }
+
+        @Override
+        public int getLineNumber() {
+            if (replaying) {
+                return lineNo;
+            }
+            return sourceLocator == null ? -1 : sourceLocator.getLineNumber();
+        }
+
+        @Override
+        public int getColumnNumber() {
+            if (replaying) {
+                return colNo;
+            }
+            return sourceLocator == null ? -1 : sourceLocator.getColumnNumber();
+        }
+    }
+
+    /**
+     * Not a SAX event but the source location of the events that follow it.
+     */
+    private static final class SourceLocation extends BaseEvent {
+        private final int lineNo;
+        private final int colNo;
+
+        SourceLocation(final int lineNo, final int colNo) {
+            this.lineNo = lineNo;
+            this.colNo = colNo;
+        }
+
+        @Override
+        public void fire(final ContentHandler handler) {
+            // Nothing to fire.
+        }
+    }
+}
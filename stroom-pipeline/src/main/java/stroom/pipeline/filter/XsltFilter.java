@@ -24,6 +24,7 @@ import net.sf.saxon.s9api.XsltExecutable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xml.sax.Attributes;
+import org.xml.sax.ContentHandler;
 import org.xml.sax.Locator;
 import org.xml.sax.SAXException;
 import stroom.docref.DocRef;
@@ -42,6 +43,9 @@ import stroom.pipeline.errorhandler.StoredErrorReceiver;
 import stroom.pipeline.factory.ConfigurableElement;
 import stroom.pipeline.factory.PipelineProperty;
 import stroom.pipeline.factory.PipelinePropertyDocRef;
+import stroom.pipeline.filter.ParallelXsltTransformer.RecordBuffer;
+import stroom.pipeline.filter.ParallelXsltTransformer.ReplayLocator;
+import stroom.pipeline.filter.ParallelXsltTransformer.TransformedRecord;
 import stroom.pipeline.shared.ElementIcons;
 import stroom.pipeline.shared.XsltDoc;
 import stroom.pipeline.shared.data.PipelineElementType;
@@ -50,6 +54,10 @@ import stroom.pipeline.shared.data.PipelineReference;
 import stroom.pipeline.state.PipelineContext;
 import stroom.pipeline.writer.PathCreator;
 import stroom.pipeline.xslt.XsltStore;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.TaskContextFactory;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
 import stroom.util.CharBuffer;
 import stroom.util.shared.Location;
 import stroom.util.shared.Severity;
@@ -73,6 +81,17 @@ import java.util.List;
 public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjection {
     private static final Logger LOGGER = LoggerFactory.getLogger(XsltFilter.class);
 
+    /**
+     * There is no point transforming the records of a stream on more threads than there are processors.
+     */
+    static final int MAX_TRANSFORM_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final ThreadPool THREAD_POOL = new ThreadPoolImpl(
+            "XSLT Transform",
+            5,
+            0,
+            MAX_TRANSFORM_THREADS);
+
     private final XsltPool xsltPool;
     private final ErrorReceiverProxy errorReceiverProxy;
     private final XsltStore xsltStore;
@@ -80,6 +99,8 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
     private final LocationFactoryProxy locationFactory;
     private final PipelineContext pipelineContext;
     private final PathCreator pathCreator;
+    private final ExecutorProvider executorProvider;
+    private final TaskContextFactory taskContextFactory;
 
     private ErrorListener errorListener;
 
@@ -93,13 +114,17 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
      */
     private PoolItem<StoredXsltExecutable> poolItem;
     private XsltExecutable xsltExecutable;
-    private TransformerHandler handler;
+    private ContentHandler handler;
     private Locator locator;
     private boolean xsltRequired = false;
     private boolean passThrough = true;
     private String injectedCode;
     private boolean usePool = true;
     private List<PipelineReference> pipelineReferences;
+    private int transformThreads = 1;
+    private ParallelXsltTransformer parallelTransformer;
+    private RecordBuffer recordBuffer;
+    private ReplayLocator replayLocator;
 
     private int elementCount;
     private int maxElementCount;
@@ -111,7 +136,9 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
                       final XsltConfig xsltConfig,
                       final LocationFactoryProxy locationFactory,
                       final PipelineContext pipelineContext,
-                      final PathCreator pathCreator) {
+                      final PathCreator pathCreator,
+                      final ExecutorProvider executorProvider,
+                      final TaskContextFactory taskContextFactory) {
         this.xsltPool = xsltPool;
         this.errorReceiverProxy = errorReceiverProxy;
         this.xsltStore = xsltStore;
@@ -119,6 +146,8 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
         this.locationFactory = locationFactory;
         this.pipelineContext = pipelineContext;
         this.pathCreator = pathCreator;
+        this.executorProvider = executorProvider;
+        this.taskContextFactory = taskContextFactory;
     }
 
     @Override
@@ -238,6 +267,13 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
                         final String msg = sb.toString();
                         throw new ProcessException(msg);
                     }
+
+                    // Records are always transformed one at a time when stepping so that each can be inspected.
+                    if (transformThreads > 1 && !pipelineContext.isStepping()) {
+                        parallelTransformer = new ParallelXsltTransformer(xsltPool, xslt, getElementId(),
+                                locationFactory, pipelineReferences, usePool, transformThreads,
+                                executorProvider.get(THREAD_POOL), taskContextFactory, this::output);
+                    }
                 }
             }
 
@@ -260,12 +296,35 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
     @Override
     public void endProcessing() {
         try {
-            if (poolItem != null) {
-                xsltPool.returnObject(poolItem, usePool);
-                poolItem = null;
+            if (parallelTransformer != null) {
+                parallelTransformer.close();
+                parallelTransformer = null;
+            }
+        } finally {
+            try {
+                if (poolItem != null) {
+                    xsltPool.returnObject(poolItem, usePool);
+                    poolItem = null;
+                }
+            } finally {
+                super.endProcessing();
+            }
+        }
+    }
+
+    /**
+     * Output any records that are still being transformed before the end of the stream is passed on.
+     */
+    @Override
+    public void endStream() {
+        try {
+            if (parallelTransformer != null) {
+                parallelTransformer.flush();
             }
+        } catch (final SAXException e) {
+            throw new ProcessException(e.getMessage(), e);
         } finally {
-            super.endProcessing();
+            super.endStream();
         }
     }
 
@@ -279,7 +338,13 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
     public void setDocumentLocator(final Locator locator) {
         if (this.locator == null) {
             this.locator = locator;
-            super.setDocumentLocator(locator);
+            if (parallelTransformer != null) {
+                // Output is replayed after the source has moved on so downstream filters need their own locator.
+                replayLocator = new ReplayLocator(locator);
+                super.setDocumentLocator(replayLocator);
+            } else {
+                super.setDocumentLocator(locator);
+            }
         }
     }
 
@@ -291,7 +356,13 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
     @Override
     public void startDocument() throws SAXException {
         try {
-            if (xsltExecutable != null) {
+            if (parallelTransformer != null) {
+                // Buffer the record so that it can be transformed on another thread.
+                recordBuffer = parallelTransformer.createRecordBuffer(locator);
+                handler = recordBuffer;
+                handler.startDocument();
+
+            } else if (xsltExecutable != null) {
                 // Make sure the executable points at the local error handler.
                 final Configuration configuration = xsltExecutable.getUnderlyingCompiledStylesheet().getConfiguration();
                 configuration.setErrorListener(errorListener);
@@ -302,11 +373,12 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
                 final TransformerImpl transformer = (TransformerImpl) templates.newTransformer();
                 transformer.setErrorListener(errorListener);
 
-                handler = transformer.newTransformerHandler();
-                handler.setResult(new SAXResult(getFilter()));
+                final TransformerHandler transformerHandler = transformer.newTransformerHandler();
+                transformerHandler.setResult(new SAXResult(getFilter()));
                 if (locator != null) {
-                    handler.setDocumentLocator(locator);
+                    transformerHandler.setDocumentLocator(locator);
                 }
+                handler = transformerHandler;
                 handler.startDocument();
 
             } else if (passThrough) {
@@ -331,7 +403,16 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
      */
     @Override
     public void endDocument() throws SAXException {
-        if (handler != null) {
+        if (recordBuffer != null) {
+            try {
+                handler.endDocument();
+                parallelTransformer.transform(recordBuffer);
+            } finally {
+                recordBuffer = null;
+                handler = null;
+                elementCount = 0;
+            }
+        } else if (handler != null) {
             try {
                 handler.endDocument();
             } catch (final RuntimeException e) {
@@ -358,6 +439,30 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
         }
     }
 
+    /**
+     * Pass on the errors and output of a record that has been transformed on another thread in the same way as they
+     * would have been if the record had been transformed here.
+     */
+    private void output(final TransformedRecord transformedRecord) throws SAXException {
+        transformedRecord.replayErrors(errorReceiverProxy);
+        transformedRecord.replayOutput(getFilter(), replayLocator);
+
+        final RuntimeException exception = transformedRecord.getException();
+        if (exception != null) {
+            try {
+                final Throwable throwable = unwrapException(exception);
+
+                errorReceiverProxy.log(Severity.FATAL_ERROR, getLocation(throwable), getElementId(), throwable.toString(), throwable);
+                // Records are never transformed in parallel when stepping so terminate early.
+                throw new LoggedException(throwable.getMessage(), throwable);
+
+            } finally {
+                // Finish the document that the failed transform started.
+                super.endDocument();
+            }
+        }
+    }
+
     private Location getLocation(final Throwable e) {
         if (e instanceof TransformerException) {
             return locationFactory.create(((TransformerException) e).getLocator());
@@ -609,6 +714,18 @@ public class XsltFilter extends AbstractXMLFilter implements SupportsCodeInjecti
         this.usePool = usePool;
     }
 
+    @PipelineProperty(
+            description = "Advanced: The number of threads to transform the records of a stream with. Records are " +
+                    "still output in order. Only use more than one thread if each record can be transformed on its " +
+                    "own, e.g. the XSLT doesn't use stroom:put/stroom:get or location functions such as " +
+                    "stroom:line-from. Records are always transformed on a single thread when stepping. The number " +
+                    "of threads is limited to the number of processors.",
+            defaultValue = "1",
+            displayPriority = 6)
+    public void setTransformThreads(final int transformThreads) {
+        this.transformThreads = Math.max(1, Math.min(transformThreads, MAX_TRANSFORM_THREADS));
+    }
+
     @Override
     public void setInjectedCode(final String injectedCode) {
         this.injectedCode = injectedCode;
@@ -26,29 +26,31 @@ import stroom.pipeline.shared.data.PipelineReference;
 import stroom.util.logging.LogUtil;
 import stroom.util.pipeline.scope.PipelineScoped;
 
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * A pipeline scoped holder for a {@link RefDataLoader} and a place to store transient state relating to
  * the loading of reference data using a reference data pipeline.
+ * <p>
+ * Lookups can be made from several threads at once when an XSLT filter transforms records on more than one
+ * thread so the state held here must be thread safe.
  */
 @PipelineScoped
 public class RefDataLoaderHolder {
 
-    private RefDataLoader refDataLoader;
+    private volatile RefDataLoader refDataLoader;
 
     // Set to keep track of which ref streams have been loaded, re-loaded or confirmed
     // to be already loaded within this pipeline processing instance
-    private Set<RefStreamDefinition> availableRefStreamDefinitions = new HashSet<>();
+    private final Set<RefStreamDefinition> availableRefStreamDefinitions = ConcurrentHashMap.newKeySet();
 
-    private Map<MapDefinition, Boolean> availableMapDefinitions = new HashMap<>();
+    private final Map<MapDefinition, Boolean> availableMapDefinitions = new ConcurrentHashMap<>();
 
     // Used to cache the pipeline versions for the life of the pipeline to prevent
     // repeated DB hits during lookups
-    private final Map<DocRef, String> pipelineDocRefToVersionCache = new HashMap<>();
+    private final Map<DocRef, String> pipelineDocRefToVersionCache = new ConcurrentHashMap<>();
 
     public RefDataLoader getRefDataLoader() {
         return refDataLoader;
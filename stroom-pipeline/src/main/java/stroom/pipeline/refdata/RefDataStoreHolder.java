@@ -23,6 +23,10 @@ import stroom.util.pipeline.scope.PipelineScoped;
 
 import javax.inject.Inject;
 
+/**
+ * Lookups can be made from several threads at once when an XSLT filter transforms records on more than one
+ * thread so the on-heap store is created under a lock.
+ */
 @PipelineScoped
 class RefDataStoreHolder {
 
@@ -48,7 +52,7 @@ class RefDataStoreHolder {
      * Gets a pipeline scoped on-heap store for storing transient context data for the life
      * of the pipeline process.
      */
-    RefDataStore getOnHeapRefDataStore() {
+    synchronized RefDataStore getOnHeapRefDataStore() {
 
         // on demand creation of a RefDataStore for this pipeline scope
         if (onHeapRefDataStore == null) {
@@ -235,21 +235,26 @@ public class ReferenceData {
 
         // Establish if we have the data for the context stream in the store
         final RefDataStore onHeapRefDataStore = refDataStoreHolder.getOnHeapRefDataStore();
-        final boolean isEffectiveStreamDataLoaded = onHeapRefDataStore.isDataLoaded(refStreamDefinition);
-
-        if (!isEffectiveStreamDataLoaded) {
-            // data is not in the store so load it
-            final InputStreamProvider provider = metaHolder.getInputStreamProvider();
-            // There may not be a provider for this stream type if we do not
-            // have any context data stream.
-            if (provider != null) {
-                final SizeAwareInputStream inputStream = provider.get(pipelineReference.getStreamType());
-                loadContextData(
-                        metaHolder.getMeta(),
-                        inputStream,
-                        pipelineReference.getPipeline(),
-                        refStreamDefinition,
-                        onHeapRefDataStore);
+
+        // Records may be transformed on several threads at once so make sure only one of them loads the context
+        // data and that the others wait until it is loaded before they read it.
+        synchronized (onHeapRefDataStore) {
+            final boolean isEffectiveStreamDataLoaded = onHeapRefDataStore.isDataLoaded(refStreamDefinition);
+
+            if (!isEffectiveStreamDataLoaded) {
+                // data is not in the store so load it
+                final InputStreamProvider provider = metaHolder.getInputStreamProvider();
+                // There may not be a provider for this stream type if we do not
+                // have any context data stream.
+                if (provider != null) {
+                    final SizeAwareInputStream inputStream = provider.get(pipelineReference.getStreamType());
+                    loadContextData(
+                            metaHolder.getMeta(),
+                            inputStream,
+                            pipelineReference.getPipeline(),
+                            refStreamDefinition,
+                            onHeapRefDataStore);
+                }
             }
         }
 
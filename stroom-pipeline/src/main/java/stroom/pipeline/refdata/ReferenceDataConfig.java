@@ -25,6 +25,14 @@ public class ReferenceDataConfig extends AbstractConfig {
             .maximumSize(1000L)
             .expireAfterAccess(StroomDuration.ofMinutes(10))
             .build();
+    private CacheConfig mapUidNearCache = new CacheConfig.Builder()
+            .maximumSize(1000L)
+            .expireAfterAccess(StroomDuration.ofMinutes(10))
+            .build();
+    private CacheConfig valueNearCache = new CacheConfig.Builder()
+            .maximumSize(10000L)
+            .expireAfterAccess(StroomDuration.ofMinutes(10))
+            .build();
 
     @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
     @JsonPropertyDescription("The full directory path to use for storing the reference data store. It MUST be on " +
@@ -109,6 +117,29 @@ public class ReferenceDataConfig extends AbstractConfig {
         this.effectiveStreamCache = effectiveStreamCache;
     }
 
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("The on-heap cache of map UIDs that sits in front of the off heap store so that " +
+            "lookups against the same map do not need to resolve the map from the store each time.")
+    public CacheConfig getMapUidNearCache() {
+        return mapUidNearCache;
+    }
+
+    public void setMapUidNearCache(final CacheConfig mapUidNearCache) {
+        this.mapUidNearCache = mapUidNearCache;
+    }
+
+    @RequiresRestart(RequiresRestart.RestartScope.SYSTEM)
+    @JsonPropertyDescription("The on-heap cache of recently looked up values that sits in front of the off heap " +
+            "store so that repeated lookups of the same key do not need to read from the store. Values larger " +
+            "than 4KiB are not cached so the heap used is at most roughly maximumSize multiplied by 4KiB.")
+    public CacheConfig getValueNearCache() {
+        return valueNearCache;
+    }
+
+    public void setValueNearCache(final CacheConfig valueNearCache) {
+        this.valueNearCache = valueNearCache;
+    }
+
     @Override
     public String toString() {
         return "RefDataStoreConfig{" +
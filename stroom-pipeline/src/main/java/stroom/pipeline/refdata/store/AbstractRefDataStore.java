@@ -25,6 +25,9 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 import stroom.util.logging.LogUtil;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.locks.Lock;
 import java.util.function.Consumer;
 
@@ -39,6 +42,18 @@ public abstract class AbstractRefDataStore implements RefDataStore {
         return new SingleRefDataValueProxy(this, mapDefinition, key);
     }
 
+    @Override
+    public Map<String, RefDataValue> getValues(final MapDefinition mapDefinition, final Collection<String> keys) {
+        LOGGER.trace("getValues([{}], [{}])", mapDefinition, keys);
+        final Map<String, RefDataValue> values = new HashMap<>();
+        for (final String key : keys) {
+            if (!values.containsKey(key)) {
+                getValue(mapDefinition, key).ifPresent(refDataValue -> values.put(key, refDataValue));
+            }
+        }
+        return values;
+    }
+
     /**
      * Get an instance of a {@link RefDataLoader} for bulk loading multiple entries for a given
      * {@link RefStreamDefinition} and its associated effectiveTimeMs. The {@link RefDataLoader}
@@ -21,7 +21,11 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -56,6 +60,34 @@ public class MultiRefDataValueProxy implements RefDataValueProxy {
         return optResult;
     }
 
+    @Override
+    public Map<String, RefDataValue> supplyValues(final Collection<String> keys) {
+        // try each of our proxies in turn, only passing on the keys that have not yet been found
+        // so that the first proxy to find a value for a key wins, as with supplyValue()
+        final Map<String, RefDataValue> results = new HashMap<>();
+        List<String> remainingKeys = new ArrayList<>(keys);
+        for (RefDataValueProxy refDataValueProxy : refDataValueProxies) {
+            if (remainingKeys.isEmpty()) {
+                break;
+            }
+
+            LOGGER.trace("Attempting to supplyValues for {} keys with sub-proxy {}",
+                    remainingKeys.size(), refDataValueProxy);
+            final Map<String, RefDataValue> subResults = refDataValueProxy.supplyValues(remainingKeys);
+            if (!subResults.isEmpty()) {
+                results.putAll(subResults);
+                final List<String> stillRemaining = new ArrayList<>();
+                for (final String key : remainingKeys) {
+                    if (!results.containsKey(key)) {
+                        stillRemaining.add(key);
+                    }
+                }
+                remainingKeys = stillRemaining;
+            }
+        }
+        return results;
+    }
+
     @Override
     public RefDataStore.StorageType getStorageType() {
         throw new UnsupportedOperationException("Not valid for this implementation");
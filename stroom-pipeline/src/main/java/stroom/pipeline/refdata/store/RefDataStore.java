@@ -19,6 +19,8 @@ package stroom.pipeline.refdata.store;
 
 import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -49,6 +51,15 @@ public interface RefDataStore {
     Optional<RefDataValue> getValue(final MapDefinition mapDefinition,
                                     final String key);
 
+    /**
+     * Gets the values from the store for each of the passed keys against the passed mapDefinition.
+     * Keys with no value are not included in the returned map. This is preferable to calling
+     * {@link RefDataStore#getValue(MapDefinition, String)} for each key as implementations can resolve
+     * all the keys in a single pass over the store.
+     */
+    Map<String, RefDataValue> getValues(final MapDefinition mapDefinition,
+                                        final Collection<String> keys);
+
     /**
      * Looks up the passed key and mapDefinition in the store and if found returns a proxy to the
      * actual value. The proxy allows the value to be read/processed/mapped inside a transaction
@@ -19,6 +19,8 @@ package stroom.pipeline.refdata.store;
 
 import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -31,6 +33,12 @@ public interface RefDataValueProxy {
      */
     Optional<RefDataValue> supplyValue();
 
+    /**
+     * Materialise the values for each of the passed keys using the map(s) that this is proxying, in place
+     * of the key this proxy was created for. Keys with no value are not included in the returned map.
+     */
+    Map<String, RefDataValue> supplyValues(Collection<String> keys);
+
     /**
      * If a reference data entry exists for this {@link RefDataValueProxy} pass its value to the consumer
      * as a {@link TypedByteBuffer}.
@@ -24,6 +24,8 @@ import stroom.pipeline.refdata.store.offheapstore.RefDataValueProxyConsumer;
 import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
 import stroom.util.logging.LogUtil;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
@@ -61,6 +63,12 @@ public class SingleRefDataValueProxy implements RefDataValueProxy {
         return refDataStore.getValue(mapDefinition, key);
     }
 
+    @Override
+    public Map<String, RefDataValue> supplyValues(final Collection<String> keys) {
+        LOGGER.trace("supplyValues()");
+        return refDataStore.getValues(mapDefinition, keys);
+    }
+
     @Override
     public RefDataStore.StorageType getStorageType() {
         return refDataStore.getStorageType();
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store;
+
+import net.sf.saxon.trans.XPathException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stroom.pipeline.refdata.store.offheapstore.TypedByteBuffer;
+import stroom.util.logging.LogUtil;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A {@link RefDataValueProxy} for the value of a key that has already been materialised, e.g. by
+ * {@link RefDataValueProxy#supplyValues(Collection)}. As the value is a heap object it is always
+ * consumed in the same way as values from the on-heap store, regardless of which store it came from.
+ * The proxy only knows about its own key so any other key will not be found.
+ */
+public class SuppliedRefDataValueProxy implements RefDataValueProxy {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(SuppliedRefDataValueProxy.class);
+
+    private final String key;
+    private final RefDataValue refDataValue;
+
+    public SuppliedRefDataValueProxy(final String key, final RefDataValue refDataValue) {
+        this.key = Objects.requireNonNull(key);
+        this.refDataValue = Objects.requireNonNull(refDataValue);
+    }
+
+    @Override
+    public Optional<RefDataValue> supplyValue() {
+        LOGGER.trace("supplyValue()");
+        return Optional.of(refDataValue);
+    }
+
+    @Override
+    public Map<String, RefDataValue> supplyValues(final Collection<String> keys) {
+        LOGGER.trace("supplyValues({})", keys);
+        if (keys.contains(key)) {
+            return Map.of(key, refDataValue);
+        }
+        return Collections.emptyMap();
+    }
+
+    @Override
+    public boolean consumeBytes(final Consumer<TypedByteBuffer> typedByteBufferConsumer) {
+        LOGGER.trace("consumeBytes(...)");
+        // Provide the bytes in the same form as the off-heap store holds them.
+        final ByteBuffer byteBuffer;
+        if (refDataValue instanceof FastInfosetValue) {
+            // Duplicate the buffer so the consumer can't move the position of the value's own buffer.
+            byteBuffer = ((FastInfosetValue) refDataValue).getByteBuffer().duplicate();
+        } else if (refDataValue instanceof StringValue) {
+            byteBuffer = ByteBuffer.wrap(((StringValue) refDataValue).getValue().getBytes(StandardCharsets.UTF_8));
+        } else {
+            throw new RuntimeException(LogUtil.message("Unexpected value type {}",
+                    refDataValue.getClass().getCanonicalName()));
+        }
+        typedByteBufferConsumer.accept(new TypedByteBuffer(refDataValue.getTypeId(), byteBuffer));
+        return true;
+    }
+
+    @Override
+    public RefDataStore.StorageType getStorageType() {
+        return RefDataStore.StorageType.ON_HEAP;
+    }
+
+    @Override
+    public boolean consumeValue(final RefDataValueProxyConsumerFactory refDataValueProxyConsumerFactory) {
+        LOGGER.trace("consume(...)");
+        try {
+            return refDataValueProxyConsumerFactory
+                    .getConsumer(getStorageType())
+                    .consume(this);
+        } catch (XPathException e) {
+            throw new RuntimeException(LogUtil.message(
+                    "Error handing reference data value: {}", e.getMessage()), e);
+        }
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        final SuppliedRefDataValueProxy that = (SuppliedRefDataValueProxy) o;
+        return Objects.equals(key, that.key) &&
+                Objects.equals(refDataValue, that.refDataValue);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(key, refDataValue);
+    }
+
+    @Override
+    public String toString() {
+        return "SuppliedRefDataValueProxy{" +
+                "key='" + key + '\'' +
+                ", refDataValue=" + refDataValue +
+                '}';
+    }
+}
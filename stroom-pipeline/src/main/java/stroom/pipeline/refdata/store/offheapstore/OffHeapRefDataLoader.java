@@ -171,6 +171,9 @@ public class OffHeapRefDataLoader implements RefDataLoader {
         boolean didPutSucceed = processingInfoDb.put(
                 refStreamDefinition, refDataProcessingInfo, overwriteExisting);
 
+        // the data for this stream is about to change so don't serve any of it from the near cache
+        refDataOffHeapStore.invalidateNearCache(refStreamDefinition);
+
         currentLoaderState = LoaderState.INITIALISED;
         return didPutSucceed;
     }
@@ -388,6 +391,9 @@ public class OffHeapRefDataLoader implements RefDataLoader {
             writeTxn.commit();
             writeTxn.close();
         }
+        // entries may have been cached while the load was in progress so clear them now it is committed
+        refDataOffHeapStore.invalidateNearCache(refStreamDefinition);
+
         // release our pooled buffers back to the pool
         keyValuePooledKeyBuffer.release();
         rangeValuePooledKeyBuffer.release();
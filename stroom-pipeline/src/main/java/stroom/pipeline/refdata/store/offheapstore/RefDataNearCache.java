@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store.offheapstore;
+
+import stroom.cache.api.CacheManager;
+import stroom.cache.api.ICache;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.util.cache.CacheConfig;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * A bounded on-heap cache that sits in front of the LMDB databases of the {@link RefDataOffHeapStore}
+ * so that repeated lookups of the same map/key do not need to open a read txn each time.
+ * It holds the {@link MapDefinition} to {@link UID} mappings and copies of the typed value
+ * bytes for recently looked up keys. Entries for a {@link RefStreamDefinition} must be invalidated
+ * whenever the data for that stream is loaded or purged as UIDs are re-used.
+ * <p>
+ * Only values found in the store are cached, a key that is not found will be looked up again next time.
+ * <p>
+ * A reader may still hold a read txn that was opened before an invalidation so each put is made against
+ * the generation that was current before the txn was opened. If the cache has been invalidated since
+ * then the entry is not kept.
+ */
+class RefDataNearCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RefDataNearCache.class);
+
+    private static final String MAP_UID_CACHE_NAME = "Reference Data - Near Cache Map UIDs";
+    private static final String VALUE_CACHE_NAME = "Reference Data - Near Cache Values";
+
+    // Large values are not worth holding on heap as the cost of the txn is small compared to
+    // the cost of consuming the value. This also bounds the heap used by the value cache to
+    // roughly its maximum size multiplied by this.
+    static final int MAX_CACHED_VALUE_BYTES = 4 * 1024;
+
+    private final ICache<MapDefinition, UID> mapUidCache;
+    private final ICache<Key, CachedValue> valueCache;
+    private final AtomicLong generation = new AtomicLong();
+
+    RefDataNearCache(final CacheManager cacheManager,
+                     final Supplier<CacheConfig> mapUidCacheConfigSupplier,
+                     final Supplier<CacheConfig> valueCacheConfigSupplier) {
+        this.mapUidCache = cacheManager.create(MAP_UID_CACHE_NAME, mapUidCacheConfigSupplier);
+        this.valueCache = cacheManager.create(VALUE_CACHE_NAME, valueCacheConfigSupplier);
+    }
+
+    /**
+     * @return The current generation of the cache. This must be obtained before opening the read txn
+     * that the values to be put were read with.
+     */
+    long getGeneration() {
+        return generation.get();
+    }
+
+    Optional<UID> getMapUid(final MapDefinition mapDefinition) {
+        return mapUidCache.getOptional(mapDefinition);
+    }
+
+    /**
+     * @param generation The generation obtained before the txn that the UID was read with was opened.
+     * @param mapUid     A UID that may be owned by LMDB, it will be copied before being cached.
+     */
+    void putMapUid(final long generation, final MapDefinition mapDefinition, final UID mapUid) {
+        mapUidCache.put(mapDefinition, mapUid.clone());
+
+        // Check after the put so that we either see an invalidation or it sees our entry.
+        if (isStale(generation)) {
+            mapUidCache.remove(mapDefinition);
+        }
+    }
+
+    /**
+     * @return A {@link TypedByteBuffer} wrapping a duplicate of the cached value bytes
+     * if the value is cached.
+     */
+    Optional<TypedByteBuffer> getValue(final MapDefinition mapDefinition, final String key) {
+        final CachedValue cachedValue = valueCache.get(new Key(mapDefinition, key));
+        if (cachedValue == null) {
+            return Optional.empty();
+        }
+        return Optional.of(new TypedByteBuffer(cachedValue.typeId, cachedValue.byteBuffer.duplicate()));
+    }
+
+    /**
+     * @param generation      The generation obtained before the txn that the value was read with was opened.
+     * @param typedByteBuffer A value that may be owned by LMDB, it will be copied before being cached.
+     *                        The position of the passed buffer is not changed.
+     */
+    void putValue(final long generation,
+                  final MapDefinition mapDefinition,
+                  final String key,
+                  final TypedByteBuffer typedByteBuffer) {
+        final ByteBuffer source = typedByteBuffer.getByteBuffer().duplicate();
+        if (source.remaining() <= MAX_CACHED_VALUE_BYTES) {
+            final ByteBuffer copy = ByteBuffer.allocate(source.remaining());
+            copy.put(source);
+            copy.flip();
+            final Key cacheKey = new Key(mapDefinition, key);
+            valueCache.put(cacheKey, new CachedValue(typedByteBuffer.getTypeId(), copy));
+
+            // Check after the put so that we either see an invalidation or it sees our entry.
+            if (isStale(generation)) {
+                valueCache.remove(cacheKey);
+            }
+        }
+    }
+
+    private boolean isStale(final long generation) {
+        final boolean isStale = this.generation.get() != generation;
+        if (isStale) {
+            LOGGER.debug("Not caching entry read before the near cache was invalidated");
+        }
+        return isStale;
+    }
+
+    /**
+     * Remove all cached entries relating to the passed {@link RefStreamDefinition}
+     */
+    void invalidate(final RefStreamDefinition refStreamDefinition) {
+        LOGGER.debug("Invalidating near cache entries for {}", refStreamDefinition);
+        // Move to the next generation first so that any put from a txn opened before now is discarded.
+        generation.incrementAndGet();
+        mapUidCache.asMap().keySet().removeIf(mapDefinition ->
+                refStreamDefinition.equals(mapDefinition.getRefStreamDefinition()));
+        valueCache.asMap().keySet().removeIf(key ->
+                refStreamDefinition.equals(key.mapDefinition.getRefStreamDefinition()));
+    }
+
+    void invalidateAll() {
+        LOGGER.debug("Invalidating all near cache entries");
+        generation.incrementAndGet();
+        mapUidCache.clear();
+        valueCache.clear();
+    }
+
+    long getMapUidEntryCount() {
+        return mapUidCache.size();
+    }
+
+    long getValueEntryCount() {
+        return valueCache.size();
+    }
+
+    private static class Key {
+        private final MapDefinition mapDefinition;
+        private final String key;
+        private final int hashCode;
+
+        Key(final MapDefinition mapDefinition, final String key) {
+            this.mapDefinition = mapDefinition;
+            this.key = key;
+            this.hashCode = Objects.hash(mapDefinition, key);
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            final Key that = (Key) o;
+            return Objects.equals(mapDefinition, that.mapDefinition) &&
+                    Objects.equals(key, that.key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    private static class CachedValue {
+        private final int typeId;
+        private final ByteBuffer byteBuffer;
+
+        CachedValue(final int typeId, final ByteBuffer byteBuffer) {
+            this.typeId = typeId;
+            this.byteBuffer = byteBuffer;
+        }
+    }
+}
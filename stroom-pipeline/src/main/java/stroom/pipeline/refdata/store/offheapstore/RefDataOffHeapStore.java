@@ -17,6 +17,7 @@
 
 package stroom.pipeline.refdata.store.offheapstore;
 
+import stroom.cache.api.CacheManager;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.store.AbstractRefDataStore;
 import stroom.pipeline.refdata.store.MapDefinition;
@@ -36,6 +37,7 @@ import stroom.pipeline.refdata.store.offheapstore.databases.ValueStoreMetaDb;
 import stroom.pipeline.refdata.store.offheapstore.lmdb.LmdbDb;
 import stroom.pipeline.refdata.store.offheapstore.lmdb.LmdbUtils;
 import stroom.pipeline.refdata.store.offheapstore.serdes.RefDataProcessingInfoSerde;
+import stroom.pipeline.refdata.store.offheapstore.serdes.RefDataValueSerdeFactory;
 import stroom.pipeline.refdata.util.ByteBufferPool;
 import stroom.pipeline.refdata.util.ByteBufferUtils;
 import stroom.pipeline.refdata.util.PooledByteBuffer;
@@ -76,11 +78,15 @@ import java.nio.file.Paths;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.TreeSet;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
@@ -123,9 +129,14 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
 
     private final ByteBufferPool byteBufferPool;
 
+    // On-heap cache of map UIDs and values to save opening a read txn for every lookup
+    private final RefDataNearCache nearCache;
+    private final RefDataValueSerdeFactory refDataValueSerdeFactory = new RefDataValueSerdeFactory();
+
     @Inject
     RefDataOffHeapStore(
             final ReferenceDataConfig referenceDataConfig,
+            final CacheManager cacheManager,
             final ByteBufferPool byteBufferPool,
             final KeyValueStoreDb.Factory keyValueStoreDbFactory,
             final ValueStoreDb.Factory valueStoreDbFactory,
@@ -168,6 +179,10 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         this.byteBufferPool = byteBufferPool;
 
         this.refStreamDefStripedReentrantLock = Striped.lazyWeakLock(100);
+
+        this.nearCache = new RefDataNearCache(cacheManager,
+                referenceDataConfig::getMapUidNearCache,
+                referenceDataConfig::getValueNearCache);
     }
 
     private Env<ByteBuffer> createEnvironment(final ReferenceDataConfig referenceDataConfig) {
@@ -268,14 +283,23 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
     public Optional<RefDataValue> getValue(final MapDefinition mapDefinition,
                                            final String key) {
 
+        // See if we have recently looked up this value so we can avoid a txn
+        final Optional<TypedByteBuffer> optCachedValue = nearCache.getValue(mapDefinition, key);
+        if (optCachedValue.isPresent()) {
+            LOGGER.trace("getValue({}, {}) - found in near cache", mapDefinition, key);
+            return optCachedValue.map(typedByteBuffer ->
+                    refDataValueSerdeFactory.deserialize(typedByteBuffer.getByteBuffer(), typedByteBuffer.getTypeId()));
+        }
+
         // Use the mapDef to get a mapUid, then use the mapUid and key
         // to do a lookup in the keyValue or rangeValue stores. The resulting
         // value store key buffer can then be used to get the actual value.
         // The value is then deserialised while still inside the txn.
         try (PooledByteBuffer valueStoreKeyPooledBufferClone = valueStore.getPooledKeyBuffer()) {
+            final long nearCacheGeneration = nearCache.getGeneration();
             Optional<RefDataValue> optionalRefDataValue =
                     LmdbUtils.getWithReadTxn(lmdbEnvironment, readTxn ->
-                            getValueStoreKey(readTxn, mapDefinition, key)
+                            getValueStoreKey(readTxn, nearCacheGeneration, mapDefinition, key)
                                     .flatMap(valueStoreKeyBuffer -> {
                                         // we are going to use the valueStoreKeyBuffer as a key in multiple
                                         // get() calls so need to clone it first.
@@ -284,13 +308,82 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                                         return Optional.of(valueStoreKeyBufferClone);
                                     })
                                     .flatMap(valueStoreKeyBuffer ->
-                                            valueStore.get(readTxn, valueStoreKeyBuffer)));
+                                            valueStore.getTypedValueBuffer(readTxn, valueStoreKeyBuffer))
+                                    .map(typedByteBuffer -> {
+                                        nearCache.putValue(nearCacheGeneration, mapDefinition, key, typedByteBuffer);
+                                        return refDataValueSerdeFactory.deserialize(
+                                                typedByteBuffer.getByteBuffer(), typedByteBuffer.getTypeId());
+                                    }));
 
             LOGGER.trace("getValue({}, {}) - {}", mapDefinition, key, optionalRefDataValue);
             return optionalRefDataValue;
         }
     }
 
+    @Override
+    public Map<String, RefDataValue> getValues(final MapDefinition mapDefinition,
+                                               final Collection<String> keys) {
+        final Map<String, RefDataValue> values = new HashMap<>();
+
+        // Serve what we can from the near cache. The remaining keys are sorted (and de-duplicated) so that
+        // we walk the key/value store in key order, all entries for a map share the same map UID prefix.
+        final List<String> uncachedKeys = new ArrayList<>();
+        for (final String key : new TreeSet<>(keys)) {
+            final Optional<TypedByteBuffer> optCachedValue = nearCache.getValue(mapDefinition, key);
+            if (optCachedValue.isPresent()) {
+                final TypedByteBuffer typedByteBuffer = optCachedValue.get();
+                values.put(key, refDataValueSerdeFactory.deserialize(
+                        typedByteBuffer.getByteBuffer(), typedByteBuffer.getTypeId()));
+            } else {
+                uncachedKeys.add(key);
+            }
+        }
+
+        if (!uncachedKeys.isEmpty()) {
+            // Resolve all the remaining keys inside a single read txn rather than one txn per key.
+            try (PooledByteBuffer valueStoreKeyPooledBufferClone = valueStore.getPooledKeyBuffer()) {
+                final long nearCacheGeneration = nearCache.getGeneration();
+                LmdbUtils.doWithReadTxn(lmdbEnvironment, readTxn -> {
+                    for (final String key : uncachedKeys) {
+                        getValueStoreKey(readTxn, nearCacheGeneration, mapDefinition, key)
+                                .flatMap(valueStoreKeyBuffer -> {
+                                    // we are going to use the valueStoreKeyBuffer as a key in multiple
+                                    // get() calls so need to clone it first.
+                                    final ByteBuffer valueStoreKeyBufferClone =
+                                            valueStoreKeyPooledBufferClone.getByteBuffer();
+                                    valueStoreKeyBufferClone.clear();
+                                    ByteBufferUtils.copy(valueStoreKeyBuffer, valueStoreKeyBufferClone);
+                                    return valueStore.getTypedValueBuffer(readTxn, valueStoreKeyBufferClone);
+                                })
+                                .ifPresent(typedByteBuffer -> {
+                                    nearCache.putValue(nearCacheGeneration, mapDefinition, key, typedByteBuffer);
+
+                                    // The value buffer is owned by LMDB and the deserialised value may just
+                                    // wrap it, so copy it as the values are used outside of the txn.
+                                    final ByteBuffer valueBuffer = typedByteBuffer.getByteBuffer().duplicate();
+                                    final ByteBuffer valueBufferCopy = ByteBuffer.allocate(valueBuffer.remaining());
+                                    valueBufferCopy.put(valueBuffer);
+                                    valueBufferCopy.flip();
+                                    values.put(key, refDataValueSerdeFactory.deserialize(
+                                            valueBufferCopy, typedByteBuffer.getTypeId()));
+                                });
+                    }
+                });
+            }
+        }
+
+        LOGGER.trace("getValues({}, {} keys) - {} found", mapDefinition, keys.size(), values.size());
+        return values;
+    }
+
+    /**
+     * Remove any entries from the on-heap near cache that relate to the passed {@link RefStreamDefinition}.
+     * This must be called whenever data for the {@link RefStreamDefinition} is loaded or purged.
+     */
+    void invalidateNearCache(final RefStreamDefinition refStreamDefinition) {
+        nearCache.invalidate(refStreamDefinition);
+    }
+
     /**
      * Intended only for testing use.
      */
@@ -299,13 +392,13 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
     }
 
     private Optional<ByteBuffer> getValueStoreKey(final Txn<ByteBuffer> readTxn,
+                                                  final long nearCacheGeneration,
                                                   final MapDefinition mapDefinition,
                                                   final String key) {
         LOGGER.trace("getValueStoreKey({}, {})", mapDefinition, key);
 
-        // TODO we could could consider a short lived on-heap cache for this as it
-        // will be hit MANY times for the same entry
-        final Optional<UID> optMapUid = mapDefinitionUIDStore.get(readTxn, mapDefinition);
+        // This will be hit MANY times for the same entry so use the near cache
+        final Optional<UID> optMapUid = getMapUid(readTxn, nearCacheGeneration, mapDefinition);
 
         Optional<ByteBuffer> optValueStoreKeyBuffer;
         if (optMapUid.isPresent()) {
@@ -351,6 +444,20 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         return optValueStoreKeyBuffer;
     }
 
+    /**
+     * @param nearCacheGeneration The near cache generation obtained before readTxn was opened.
+     */
+    private Optional<UID> getMapUid(final Txn<ByteBuffer> readTxn,
+                                    final long nearCacheGeneration,
+                                    final MapDefinition mapDefinition) {
+        Optional<UID> optMapUid = nearCache.getMapUid(mapDefinition);
+        if (!optMapUid.isPresent()) {
+            optMapUid = mapDefinitionUIDStore.get(readTxn, mapDefinition);
+            // Only cache UIDs that exist as the map may be loaded later
+            optMapUid.ifPresent(mapUid -> nearCache.putMapUid(nearCacheGeneration, mapDefinition, mapUid));
+        }
+        return optMapUid;
+    }
 
     @Override
     public boolean consumeValueBytes(final MapDefinition mapDefinition,
@@ -362,9 +469,18 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
         // The consumer gets only the value, not the type or ref count and has to understand how
         // to interpret the bytes in the buffer
 
+        // See if we have recently looked up this value so we can avoid a txn
+        final Optional<TypedByteBuffer> optCachedValue = nearCache.getValue(mapDefinition, key);
+        if (optCachedValue.isPresent()) {
+            LOGGER.trace("consumeValueBytes({}, {}) - found in near cache", mapDefinition, key);
+            valueBytesConsumer.accept(optCachedValue.get());
+            return true;
+        }
+
         try (PooledByteBuffer valueStoreKeyPooledBufferClone = valueStore.getPooledKeyBuffer()) {
+            final long nearCacheGeneration = nearCache.getGeneration();
             boolean wasValueFound = LmdbUtils.getWithReadTxn(lmdbEnvironment, txn ->
-                    getValueStoreKey(txn, mapDefinition, key)
+                    getValueStoreKey(txn, nearCacheGeneration, mapDefinition, key)
                             .flatMap(valueStoreKeyBuffer -> {
                                 // we are going to use the valueStoreKeyBuffer as a key in multiple
                                 // get() calls so need to clone it first.
@@ -375,6 +491,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                             .flatMap(valueStoreKeyBuf ->
                                     valueStore.getTypedValueBuffer(txn, valueStoreKeyBuf))
                             .map(valueBuf -> {
+                                nearCache.putValue(nearCacheGeneration, mapDefinition, key, valueBuf);
                                 valueBytesConsumer.accept(valueBuf);
                                 return true;
                             })
@@ -476,6 +593,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
 
                     // now acquire a lock for the this ref stream def so we don't conflict with any load operations
                     doWithRefStreamDefinitionLock(refStreamDefStripedReentrantLock, optRefStreamDef.get(), () -> {
+                        final AtomicReference<RefStreamDefinition> purgedRefStreamDefRef = new AtomicReference<>();
                         // start a write txn and re-fetch the next entry for purge (should be the same one as above)
                         // TODO we currently purge a whole refStreamDef in one txn, may be better to do it in smaller
                         // chunks
@@ -507,6 +625,7 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
 
                                 LOGGER.info("Purging refStreamDefinition {} {}",
                                         refStreamDefinition, refDataProcessingInfo);
+                                purgedRefStreamDefRef.set(refStreamDefinition);
 
                                 // mark it is purge in progress
                                 processingInfoDb.updateProcessingState(writeTxn,
@@ -541,6 +660,11 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                             }
                         });
                         wasMatchFound.set(wasFound);
+
+                        // Now the purge is committed make sure we don't serve any of its data from the near cache
+                        if (purgedRefStreamDefRef.get() != null) {
+                            invalidateNearCache(purgedRefStreamDefRef.get());
+                        }
                     });
                 } else {
                     wasMatchFound.set(false);
@@ -778,6 +902,8 @@ public class RefDataOffHeapStore extends AbstractRefDataStore implements RefData
                     .withDetail("Max readers", maxReaders)
                     .withDetail("Read-ahead enabled", referenceDataConfig.isReadAheadEnabled())
                     .withDetail("Current buffer pool size", byteBufferPool.getCurrentPoolSize())
+                    .withDetail("Near cache map UID entries", nearCache.getMapUidEntryCount())
+                    .withDetail("Near cache value entries", nearCache.getValueEntryCount())
                     .withDetail("Earliest lastAccessedTime", lastAccessedTimeRange._1()
                             .map(Instant::toString)
                             .orElse(null))
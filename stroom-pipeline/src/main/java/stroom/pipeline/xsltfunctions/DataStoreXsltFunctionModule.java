@@ -10,6 +10,7 @@ public class DataStoreXsltFunctionModule extends AbstractXsltFunctionModule {
     protected void configureFunctions() {
         bindFunction(BitmapLookupFunction.class);
         bindFunction(LookupFunction.class);
+        bindFunction(LookupAllFunction.class);
         bindFunction(PartNoFunction.class);
         bindFunction(SourceIdFunction.class);
         bindFunction(StreamIdFunction.class);
@@ -41,6 +42,19 @@ public class DataStoreXsltFunctionModule extends AbstractXsltFunctionModule {
         }
     }
 
+    private static class LookupAllFunction extends StroomExtensionFunctionDefinition<LookupAll> {
+        @Inject
+        LookupAllFunction(final Provider<LookupAll> functionCallProvider) {
+            super("lookup-all", 2, 5, new SequenceType[]{
+                    SequenceType.SINGLE_STRING,
+                    SequenceType.ATOMIC_SEQUENCE,
+                    SequenceType.OPTIONAL_STRING,
+                    SequenceType.OPTIONAL_BOOLEAN,
+                    SequenceType.OPTIONAL_BOOLEAN
+            }, SequenceType.NODE_SEQUENCE, functionCallProvider);
+        }
+    }
+
     private static class PartNoFunction extends StroomExtensionFunctionDefinition<PartNo> {
         @Inject
         PartNoFunction(final Provider<PartNo> functionCallProvider) {
@@ -0,0 +1,197 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.xsltfunctions;
+
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.om.EmptyAtomicSequence;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.Sequence;
+import net.sf.saxon.om.SequenceIterator;
+import net.sf.saxon.trans.XPathException;
+import stroom.pipeline.refdata.LookupIdentifier;
+import stroom.pipeline.refdata.ReferenceData;
+import stroom.pipeline.refdata.ReferenceDataResult;
+import stroom.pipeline.refdata.store.RefDataValue;
+import stroom.pipeline.refdata.store.RefDataValueProxy;
+import stroom.pipeline.refdata.store.RefDataValueProxyConsumerFactory;
+import stroom.pipeline.refdata.store.SuppliedRefDataValueProxy;
+import stroom.pipeline.state.MetaHolder;
+import stroom.util.date.DateUtil;
+import stroom.util.shared.Severity;
+
+import javax.inject.Inject;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Looks up a sequence of keys against one map, returning the values of all the keys that are found, in key order,
+ * in a single document. Unlike calling lookup() for each key, the reference data is only resolved once for the map
+ * and all the keys are then looked up in one pass over the store.
+ */
+class LookupAll extends AbstractLookup {
+    private List<String> keys = Collections.emptyList();
+
+    @Inject
+    LookupAll(final ReferenceData referenceData,
+              final MetaHolder metaHolder,
+              final RefDataValueProxyConsumerFactory.Factory consumerFactoryFactory) {
+        super(referenceData, metaHolder, consumerFactoryFactory);
+    }
+
+    @Override
+    protected Sequence call(final String functionName, final XPathContext context, final Sequence[] arguments) {
+        try {
+            keys = getKeys(arguments[1]);
+        } catch (final XPathException | RuntimeException e) {
+            log(context, Severity.ERROR, e.getMessage(), e);
+            return EmptyAtomicSequence.getInstance();
+        }
+
+        if (keys.isEmpty()) {
+            return EmptyAtomicSequence.getInstance();
+        }
+
+        // The lookup identifier that is created will be for the first key.
+        return super.call(functionName, context, arguments);
+    }
+
+    private List<String> getKeys(final Sequence sequence) throws XPathException {
+        final List<String> keys = new ArrayList<>();
+        if (sequence != null) {
+            final SequenceIterator iterator = sequence.iterate();
+            Item item = iterator.next();
+            while (item != null) {
+                final String key = item.getStringValue();
+                if (key != null && !key.isEmpty()) {
+                    keys.add(key);
+                }
+                item = iterator.next();
+            }
+        }
+        return keys;
+    }
+
+    @Override
+    protected Sequence doLookup(final XPathContext context,
+                                final boolean ignoreWarnings,
+                                final boolean trace,
+                                final LookupIdentifier lookupIdentifier) throws XPathException {
+        final List<KeyResult> keyResults = new ArrayList<>(keys.size());
+
+        if (lookupIdentifier.isMapNested()) {
+            // Each key can lead to a different key in the nested map so they must be resolved one at a time.
+            for (final String key : keys) {
+                final ReferenceDataResult result = getReferenceData(lookupIdentifier.cloneWithNewKey(key));
+                keyResults.add(new KeyResult(key, result, result.getRefDataValueProxy()));
+            }
+        } else {
+            // Ensure the reference data is available and get a proxy for the map(s) using the first key,
+            // then use the proxy to get the values for all the keys at once.
+            final ReferenceDataResult result = getReferenceData(lookupIdentifier);
+            final RefDataValueProxy refDataValueProxy = result.getRefDataValueProxy();
+            final Map<String, RefDataValue> values = refDataValueProxy != null
+                    ? refDataValueProxy.supplyValues(keys)
+                    : Collections.emptyMap();
+
+            for (final String key : keys) {
+                final RefDataValue refDataValue = values.get(key);
+                keyResults.add(new KeyResult(
+                        key,
+                        result,
+                        refDataValue != null ? new SuppliedRefDataValueProxy(key, refDataValue) : null));
+            }
+        }
+
+        SequenceMaker sequenceMaker = null;
+        StringBuilder failedKeys = null;
+
+        for (final KeyResult keyResult : keyResults) {
+            final LookupIdentifier keyIdentifier = lookupIdentifier.cloneWithNewKey(keyResult.key);
+            boolean wasFound = false;
+
+            try {
+                if (keyResult.refDataValueProxy != null) {
+                    if (sequenceMaker == null) {
+                        sequenceMaker = new SequenceMaker(context, getRefDataValueProxyConsumerFactoryFactory());
+                        sequenceMaker.open();
+                    }
+                    wasFound = sequenceMaker.consume(keyResult.refDataValueProxy);
+                }
+
+                if (trace && wasFound) {
+                    outputInfo(Severity.INFO, "Lookup success ", keyIdentifier, trace, keyResult.result, context);
+                }
+
+                if (!wasFound && !ignoreWarnings) {
+                    if (trace) {
+                        outputInfo(Severity.WARNING, "Lookup failed ", keyIdentifier, trace, keyResult.result, context);
+                    }
+
+                    if (failedKeys == null) {
+                        failedKeys = new StringBuilder();
+                    }
+                    failedKeys.append(keyResult.key);
+                    failedKeys.append(",");
+                }
+
+            } catch (XPathException e) {
+                outputInfo(Severity.ERROR, "Lookup errored: " + e.getMessage(), keyIdentifier, trace, keyResult.result, context);
+            }
+        }
+
+        if (failedKeys != null) {
+            failedKeys.setLength(failedKeys.length() - 1);
+            failedKeys.insert(0, "{");
+            failedKeys.append("}");
+
+            // Create the message.
+            final StringBuilder sb = new StringBuilder();
+            sb.append("Lookup failed ");
+            sb.append("(map = ");
+            sb.append(lookupIdentifier.getPrimaryMapName());
+            sb.append(", key = ");
+            sb.append(failedKeys.toString());
+            sb.append(", eventTime = ");
+            sb.append(DateUtil.createNormalDateTimeString(lookupIdentifier.getEventTime()));
+            sb.append(")");
+            outputWarning(context, sb, null);
+        }
+
+        if (sequenceMaker != null) {
+            sequenceMaker.close();
+            return sequenceMaker.toSequence();
+        }
+
+        return EmptyAtomicSequence.getInstance();
+    }
+
+    private static class KeyResult {
+        private final String key;
+        private final ReferenceDataResult result;
+        private final RefDataValueProxy refDataValueProxy;
+
+        KeyResult(final String key,
+                  final ReferenceDataResult result,
+                  final RefDataValueProxy refDataValueProxy) {
+            this.key = key;
+            this.result = result;
+            this.refDataValueProxy = refDataValueProxy;
+        }
+    }
+}
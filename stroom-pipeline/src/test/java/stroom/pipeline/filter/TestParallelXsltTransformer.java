@@ -0,0 +1,441 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.filter;
+
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.lib.ExtensionFunctionCall;
+import net.sf.saxon.lib.ExtensionFunctionDefinition;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.NodeInfo;
+import net.sf.saxon.om.Sequence;
+import net.sf.saxon.om.StructuredQName;
+import net.sf.saxon.s9api.SaxonApiException;
+import net.sf.saxon.s9api.XsltExecutable;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.value.EmptySequence;
+import net.sf.saxon.value.SequenceType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import stroom.docref.DocRef;
+import stroom.pipeline.DefaultLocationFactory;
+import stroom.pipeline.LocationFactory;
+import stroom.pipeline.LocationFactoryProxy;
+import stroom.pipeline.cache.PoolItem;
+import stroom.pipeline.cache.StoredXsltExecutable;
+import stroom.pipeline.cache.XsltPool;
+import stroom.pipeline.errorhandler.ErrorReceiver;
+import stroom.pipeline.errorhandler.ErrorReceiverProxy;
+import stroom.pipeline.errorhandler.ProcessException;
+import stroom.pipeline.errorhandler.StoredErrorReceiver;
+import stroom.pipeline.factory.Processor;
+import stroom.pipeline.factory.SimpleProcessorFactory;
+import stroom.pipeline.parser.XMLParser;
+import stroom.pipeline.shared.XsltDoc;
+import stroom.pipeline.shared.data.PipelineReference;
+import stroom.pipeline.state.PipelineContext;
+import stroom.pipeline.xslt.XsltStore;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.shared.ThreadPool;
+import stroom.test.common.util.test.StroomUnitTest;
+import stroom.util.io.StreamUtil;
+import stroom.util.shared.Location;
+import stroom.util.shared.Severity;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestParallelXsltTransformer extends StroomUnitTest {
+    private static final String TEST_NAMESPACE = "test";
+    private static final DocRef XSLT_REF = new DocRef(XsltDoc.DOCUMENT_TYPE, "TEST_XSLT_UUID", "TEST_XSLT");
+    private static final int RECORD_COUNT = 1000;
+    private static final int THREADS = Math.min(4, XsltFilter.MAX_TRANSFORM_THREADS);
+    // Every seventh record logs a warning so the failing record does too.
+    private static final int WARN_EVERY = 7;
+    private static final int FAIL_ID = 497;
+    private static final int NO_FAIL_ID = -1;
+
+    private static final String XSLT = "" +
+            "<xsl:stylesheet version=\"2.0\" xmlns:xsl=\"http://www.w3.org/1999/XSL/Transform\" " +
+            "xmlns:test=\"" + TEST_NAMESPACE + "\">\n" +
+            "<xsl:template match=\"records\">\n" +
+            "<events><xsl:apply-templates/></events>\n" +
+            "</xsl:template>\n" +
+            "<xsl:template match=\"record\">\n" +
+            "<xsl:if test=\"@id mod " + WARN_EVERY + " = 0\">\n" +
+            "<xsl:sequence select=\"test:log('WARN', concat('Record ', @id))\"/>\n" +
+            "</xsl:if>\n" +
+            "<xsl:if test=\"@id = %s\">\n" +
+            "<xsl:sequence select=\"error(QName('" + TEST_NAMESPACE + "', 'FAIL'), concat('Record ', @id, ' failed'))\"/>\n" +
+            "</xsl:if>\n" +
+            "<event id=\"{@id}\"><xsl:value-of select=\"upper-case(.)\"/></event>\n" +
+            "</xsl:template>\n" +
+            "</xsl:stylesheet>";
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setup() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testOutputMatchesSingleThread() {
+        final Result expected = transform(1, NO_FAIL_ID);
+        final Result actual = transform(THREADS, NO_FAIL_ID);
+
+        // Make sure the records really were transformed in parallel.
+        assertThat(expected.xsltPool.borrowed.get()).isEqualTo(1);
+        assertThat(actual.xsltPool.borrowed.get()).isEqualTo(getBorrowed(THREADS));
+
+        assertThat(getRecordOutputs(expected.outputs)).hasSize(RECORD_COUNT);
+        assertThat(getBytes(actual.outputs)).isEqualTo(getBytes(expected.outputs));
+
+        // Warnings are reported against the source location of each record in record order.
+        assertThat(expected.errors).hasSize(RECORD_COUNT / WARN_EVERY);
+        assertThat(actual.errors).containsExactlyElementsOf(expected.errors);
+
+        // Filters after the transform see the same locations on the pipeline thread.
+        assertThat(actual.locationFilter.locations).containsExactlyElementsOf(expected.locationFilter.locations);
+        assertThat(actual.locationFilter.threads).containsExactly(Thread.currentThread());
+
+        assertReturned(expected.xsltPool);
+        assertReturned(actual.xsltPool);
+    }
+
+    @Test
+    void testFailingRecordEndsProcessing() {
+        final Result expected = transform(1, FAIL_ID);
+        final Result actual = transform(THREADS, FAIL_ID);
+
+        assertThat(expected.exception).isNotNull();
+        assertThat(actual.exception).isNotNull();
+
+        // Every record before the failing one is output and nothing after it.
+        final List<String> expectedRecords = getRecordOutputs(expected.outputs);
+        assertThat(expectedRecords).hasSize(FAIL_ID - 1);
+        assertThat(getRecordOutputs(actual.outputs)).containsExactlyElementsOf(expectedRecords);
+        final String output = String.join("", actual.outputs);
+        for (int id = FAIL_ID; id <= RECORD_COUNT; id++) {
+            assertThat(output).doesNotContain("id=\"" + id + "\"");
+        }
+
+        // Warnings of records transformed ahead of the failing record are never reported.
+        final List<String> expectedWarnings = getWarnings(expected.errors);
+        assertThat(expectedWarnings).hasSize(FAIL_ID / WARN_EVERY);
+        assertThat(expectedWarnings.get(expectedWarnings.size() - 1)).endsWith("Record " + FAIL_ID);
+        assertThat(getWarnings(actual.errors)).containsExactlyElementsOf(expectedWarnings);
+        assertThat(actual.errors).anyMatch(error -> error.startsWith(Severity.FATAL_ERROR.getDisplayValue()));
+
+        // Workers are returned to the pool even though processing failed.
+        assertThat(actual.xsltPool.borrowed.get()).isEqualTo(getBorrowed(THREADS));
+        assertReturned(expected.xsltPool);
+        assertReturned(actual.xsltPool);
+    }
+
+    @Test
+    void testTransformThreadsLimitedToProcessors() {
+        final Result result = transform(XsltFilter.MAX_TRANSFORM_THREADS * 2, NO_FAIL_ID);
+
+        assertThat(result.exception).isNull();
+        assertThat(result.xsltPool.borrowed.get()).isEqualTo(getBorrowed(XsltFilter.MAX_TRANSFORM_THREADS));
+        assertReturned(result.xsltPool);
+    }
+
+    private int getBorrowed(final int transformThreads) {
+        // The filter borrows a template for itself and each worker borrows one when records are transformed on
+        // more than one thread.
+        return transformThreads > 1
+                ? transformThreads + 1
+                : 1;
+    }
+
+    private Result transform(final int transformThreads, final int failId) {
+        final XsltDoc xsltDoc = new XsltDoc();
+        xsltDoc.setName(XSLT_REF.getName());
+        xsltDoc.setData(String.format(XSLT, failId));
+        final XsltStore xsltStore = mock(XsltStore.class);
+        when(xsltStore.readDocument(XSLT_REF)).thenReturn(xsltDoc);
+
+        final Result result = new Result();
+        final ErrorReceiverProxy errorReceiverProxy = new ErrorReceiverProxy((severity, location, elementId, message, e) ->
+                result.errors.add(severity.getDisplayValue() + " " + location + " " + elementId + " " + message));
+        final LocationFactoryProxy locationFactory = new LocationFactoryProxy();
+        locationFactory.setLocationFactory(new DefaultLocationFactory());
+
+        final ExecutorProvider executorProvider = new ExecutorProvider() {
+            @Override
+            public Executor get(final ThreadPool threadPool) {
+                return executorService;
+            }
+
+            @Override
+            public Executor get() {
+                return executorService;
+            }
+        };
+
+        final SplitFilter splitFilter = new SplitFilter();
+        splitFilter.setSplitDepth(1);
+        splitFilter.setSplitCount(1);
+
+        final XsltFilter xsltFilter = new XsltFilter(result.xsltPool,
+                errorReceiverProxy,
+                xsltStore,
+                new XsltConfig(),
+                locationFactory,
+                new PipelineContext(),
+                null,
+                executorProvider,
+                new SimpleTaskContextFactory());
+        xsltFilter.setElementId("xsltFilter");
+        xsltFilter.setXslt(XSLT_REF);
+        xsltFilter.setTransformThreads(transformThreads);
+
+        final TestFilter testFilter = new TestFilter(null, null);
+
+        splitFilter.setTarget(xsltFilter);
+        xsltFilter.setTarget(result.locationFilter);
+        result.locationFilter.setTarget(testFilter);
+
+        final XMLParser parser = new XMLParser(errorReceiverProxy, locationFactory);
+        parser.setTarget(splitFilter);
+        parser.setInputStream(new ByteArrayInputStream(createInput().getBytes(StreamUtil.DEFAULT_CHARSET)), null);
+
+        try {
+            process(parser, errorReceiverProxy);
+        } catch (final RuntimeException e) {
+            result.exception = e;
+        }
+
+        result.outputs = testFilter.getOutputs();
+        return result;
+    }
+
+    /**
+     * Process in the same way as a pipeline so that processing is ended even if it fails.
+     */
+    private void process(final XMLParser parser, final ErrorReceiverProxy errorReceiverProxy) {
+        try {
+            parser.startProcessing();
+            try {
+                parser.startStream();
+                final List<Processor> processors = parser.createProcessors();
+                new SimpleProcessorFactory(errorReceiverProxy).create(processors).process();
+            } finally {
+                parser.endStream();
+            }
+        } finally {
+            parser.endProcessing();
+        }
+    }
+
+    private String createInput() {
+        final StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+        sb.append("<records>\n");
+        for (int id = 1; id <= RECORD_COUNT; id++) {
+            sb.append("<record id=\"");
+            sb.append(id);
+            sb.append("\">value ");
+            sb.append(id);
+            sb.append("</record>\n");
+        }
+        sb.append("</records>\n");
+        return sb.toString();
+    }
+
+    private byte[] getBytes(final List<String> outputs) {
+        return String.join("", outputs).getBytes(StreamUtil.DEFAULT_CHARSET);
+    }
+
+    private List<String> getRecordOutputs(final List<String> outputs) {
+        // A failed record may output a document without any events.
+        return outputs.stream()
+                .filter(output -> output.contains("<event "))
+                .collect(Collectors.toList());
+    }
+
+    private void assertReturned(final CountingXsltPool xsltPool) {
+        assertThat(xsltPool.borrowedItems).isEmpty();
+        assertThat(xsltPool.returned.get()).isEqualTo(xsltPool.borrowed.get());
+    }
+
+    private List<String> getWarnings(final List<String> errors) {
+        return errors.stream()
+                .filter(error -> error.startsWith(Severity.WARNING.getDisplayValue()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The output, errors and pool usage of a single run.
+     */
+    private static class Result {
+        private final CountingXsltPool xsltPool = new CountingXsltPool();
+        private final LocationFilter locationFilter = new LocationFilter();
+        private final List<String> errors = new ArrayList<>();
+        private List<String> outputs;
+        private RuntimeException exception;
+    }
+
+    /**
+     * Records the location and thread of each element seen by the filters that follow the transform.
+     */
+    private static class LocationFilter extends AbstractXMLFilter {
+        private final List<String> locations = new ArrayList<>();
+        private final Set<Thread> threads = new HashSet<>();
+        private Locator locator;
+
+        @Override
+        public void setDocumentLocator(final Locator locator) {
+            if (this.locator == null) {
+                this.locator = locator;
+            }
+            super.setDocumentLocator(locator);
+        }
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+                throws SAXException {
+            locations.add(localName + " " + locator.getLineNumber() + ":" + locator.getColumnNumber());
+            threads.add(Thread.currentThread());
+            super.startElement(uri, localName, qName, atts);
+        }
+    }
+
+    /**
+     * Compiles XSLT each time it is borrowed and keeps track of the items that have not been returned.
+     */
+    private static class CountingXsltPool implements XsltPool {
+        private final AtomicInteger borrowed = new AtomicInteger();
+        private final AtomicInteger returned = new AtomicInteger();
+        private final Set<PoolItem<StoredXsltExecutable>> borrowedItems = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public PoolItem<StoredXsltExecutable> borrowConfiguredTemplate(final XsltDoc k,
+                                                                       final ErrorReceiver errorReceiver,
+                                                                       final LocationFactory locationFactory,
+                                                                       final List<PipelineReference> pipelineReferences,
+                                                                       final boolean usePool) {
+            try {
+                // Each item has its own processor and log function in the same way as the real pool.
+                final net.sf.saxon.s9api.Processor processor = new net.sf.saxon.s9api.Processor(false);
+                processor.registerExtensionFunction(new LogFunction(errorReceiver, locationFactory));
+                final XsltExecutable xsltExecutable = processor.newXsltCompiler()
+                        .compile(new StreamSource(new StringReader(k.getData())));
+
+                final PoolItem<StoredXsltExecutable> poolItem = new PoolItem<>(null,
+                        new StoredXsltExecutable(xsltExecutable, null, new StoredErrorReceiver()));
+                borrowed.incrementAndGet();
+                borrowedItems.add(poolItem);
+                return poolItem;
+            } catch (final SaxonApiException e) {
+                throw new ProcessException(e.getMessage(), e);
+            }
+        }
+
+        @Override
+        public PoolItem<StoredXsltExecutable> borrowObject(final XsltDoc key, final boolean usePool) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void returnObject(final PoolItem<StoredXsltExecutable> poolItem, final boolean usePool) {
+            returned.incrementAndGet();
+            borrowedItems.remove(poolItem);
+        }
+    }
+
+    /**
+     * Logs a message against the location of the context node in the same way as stroom:log.
+     */
+    private static class LogFunction extends ExtensionFunctionDefinition {
+        private final ErrorReceiver errorReceiver;
+        private final LocationFactory locationFactory;
+
+        LogFunction(final ErrorReceiver errorReceiver, final LocationFactory locationFactory) {
+            this.errorReceiver = errorReceiver;
+            this.locationFactory = locationFactory;
+        }
+
+        @Override
+        public StructuredQName getFunctionQName() {
+            return new StructuredQName("", TEST_NAMESPACE, "log");
+        }
+
+        @Override
+        public SequenceType[] getArgumentTypes() {
+            return new SequenceType[]{SequenceType.SINGLE_STRING, SequenceType.SINGLE_STRING};
+        }
+
+        @Override
+        public SequenceType getResultType(final SequenceType[] suppliedArgumentTypes) {
+            return SequenceType.EMPTY_SEQUENCE;
+        }
+
+        @Override
+        public boolean hasSideEffects() {
+            return true;
+        }
+
+        @Override
+        public ExtensionFunctionCall makeCallExpression() {
+            return new ExtensionFunctionCall() {
+                @Override
+                public Sequence call(final XPathContext context, final Sequence[] arguments) throws XPathException {
+                    final Severity severity = Severity.getSeverity(arguments[0].head().getStringValue());
+                    final String message = arguments[1].head().getStringValue();
+
+                    Location location = locationFactory.create();
+                    final Item item = context.getContextItem();
+                    if (item instanceof NodeInfo) {
+                        final NodeInfo nodeInfo = (NodeInfo) item;
+                        location = locationFactory.create(nodeInfo.getLineNumber(), nodeInfo.getColumnNumber());
+                    }
+
+                    errorReceiver.log(severity, location, "LogFunction", message, null);
+                    return EmptySequence.getInstance();
+                }
+            };
+        }
+    }
+}
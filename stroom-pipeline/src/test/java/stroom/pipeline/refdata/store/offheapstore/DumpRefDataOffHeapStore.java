@@ -5,6 +5,8 @@ import com.google.inject.Guice;
 import com.google.inject.Injector;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
 import stroom.pipeline.refdata.store.RefDataStore;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.store.RefDataStoreFactory;
@@ -56,6 +58,7 @@ public class DumpRefDataOffHeapStore {
                     @Override
                     protected void configure() {
                         bind(ReferenceDataConfig.class).toInstance(referenceDataConfig);
+                        bind(CacheManager.class).to(CacheManagerImpl.class);
                         install(new RefDataStoreModule());
                         install(new PipelineScopeModule());
                     }
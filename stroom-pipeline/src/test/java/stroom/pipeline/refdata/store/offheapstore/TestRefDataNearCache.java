@@ -0,0 +1,120 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package stroom.pipeline.refdata.store.offheapstore;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.pipeline.refdata.ReferenceDataConfig;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestRefDataNearCache {
+    private static final int TYPE_ID = 1;
+
+    private final RefStreamDefinition refStreamDefinition1 = new RefStreamDefinition(
+            UUID.randomUUID().toString(), UUID.randomUUID().toString(), 1L);
+    private final RefStreamDefinition refStreamDefinition2 = new RefStreamDefinition(
+            UUID.randomUUID().toString(), UUID.randomUUID().toString(), 2L);
+    private final MapDefinition mapDefinition1 = new MapDefinition(refStreamDefinition1, "map1");
+    private final MapDefinition mapDefinition2 = new MapDefinition(refStreamDefinition2, "map1");
+
+    private CacheManagerImpl cacheManager;
+    private RefDataNearCache nearCache;
+
+    @BeforeEach
+    void setup() {
+        final ReferenceDataConfig referenceDataConfig = new ReferenceDataConfig();
+        cacheManager = new CacheManagerImpl();
+        nearCache = new RefDataNearCache(cacheManager,
+                referenceDataConfig::getMapUidNearCache,
+                referenceDataConfig::getValueNearCache);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.close();
+    }
+
+    @Test
+    void testPutAndGet() {
+        final long generation = nearCache.getGeneration();
+        nearCache.putMapUid(generation, mapDefinition1, UID.of(0, 0, 0, 1));
+        nearCache.putValue(generation, mapDefinition1, "key1", createValue("value1"));
+
+        assertThat(nearCache.getMapUid(mapDefinition1)).contains(UID.of(0, 0, 0, 1));
+        assertThat(nearCache.getValue(mapDefinition1, "key1").map(this::getString)).contains("value1");
+        assertThat(nearCache.getValue(mapDefinition1, "key2")).isEmpty();
+    }
+
+    @Test
+    void testPutAfterInvalidate() {
+        // Simulate a reader that opened its txn before a load was committed.
+        final long generation = nearCache.getGeneration();
+        nearCache.invalidate(refStreamDefinition1);
+
+        nearCache.putMapUid(generation, mapDefinition1, UID.of(0, 0, 0, 1));
+        nearCache.putValue(generation, mapDefinition1, "key1", createValue("stale"));
+
+        assertThat(nearCache.getMapUid(mapDefinition1)).isEmpty();
+        assertThat(nearCache.getValue(mapDefinition1, "key1")).isEmpty();
+
+        // A reader that started after the invalidation can cache values again.
+        final long newGeneration = nearCache.getGeneration();
+        nearCache.putValue(newGeneration, mapDefinition1, "key1", createValue("fresh"));
+        assertThat(nearCache.getValue(mapDefinition1, "key1").map(this::getString)).contains("fresh");
+    }
+
+    @Test
+    void testInvalidateOnlyRemovesStream() {
+        final long generation = nearCache.getGeneration();
+        nearCache.putValue(generation, mapDefinition1, "key1", createValue("value1"));
+        nearCache.putValue(generation, mapDefinition2, "key1", createValue("value2"));
+
+        nearCache.invalidate(refStreamDefinition1);
+
+        assertThat(nearCache.getValue(mapDefinition1, "key1")).isEmpty();
+        assertThat(nearCache.getValue(mapDefinition2, "key1").map(this::getString)).contains("value2");
+    }
+
+    @Test
+    void testLargeValueNotCached() {
+        final long generation = nearCache.getGeneration();
+        final TypedByteBuffer largeValue = new TypedByteBuffer(TYPE_ID,
+                ByteBuffer.allocate(RefDataNearCache.MAX_CACHED_VALUE_BYTES + 1));
+        nearCache.putValue(generation, mapDefinition1, "key1", largeValue);
+
+        assertThat(nearCache.getValue(mapDefinition1, "key1")).isEmpty();
+        assertThat(nearCache.getValueEntryCount()).isZero();
+    }
+
+    private TypedByteBuffer createValue(final String value) {
+        return new TypedByteBuffer(TYPE_ID, ByteBuffer.wrap(value.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private String getString(final TypedByteBuffer typedByteBuffer) {
+        return StandardCharsets.UTF_8.decode(typedByteBuffer.getByteBuffer()).toString();
+    }
+}
@@ -27,6 +27,8 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import stroom.cache.api.CacheManager;
+import stroom.cache.impl.CacheManagerImpl;
 import stroom.pipeline.refdata.ReferenceDataConfig;
 import stroom.pipeline.refdata.store.MapDefinition;
 import stroom.pipeline.refdata.store.ProcessingState;
@@ -65,6 +67,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Random;
 import java.util.UUID;
@@ -122,6 +125,7 @@ class TestRefDataOffHeapStore extends AbstractLmdbDbTest {
                     @Override
                     protected void configure() {
                         bind(ReferenceDataConfig.class).toInstance(referenceDataConfig);
+                        bind(CacheManager.class).to(CacheManagerImpl.class);
                         install(new RefDataStoreModule());
                         install(new PipelineScopeModule());
                     }
@@ -505,6 +509,69 @@ class TestRefDataOffHeapStore extends AbstractLmdbDbTest {
     }
 
 
+    @Test
+    void testNearCache_invalidatedOnPurge() throws Exception {
+        final RefStreamDefinition refStreamDefinition = buildUniqueRefStreamDefinition();
+        final MapDefinition mapDefinition = new MapDefinition(refStreamDefinition, "map1");
+        final String key = "myKey";
+        final StringValue value = StringValue.of("myValue");
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, System.currentTimeMillis(), loader -> {
+            loader.initialise(false);
+            loader.put(mapDefinition, key, value);
+            loader.completeProcessing();
+        });
+
+        // the second lookup of each type will come from the near cache
+        for (int i = 0; i < 2; i++) {
+            assertThat((StringValue) refDataStore.getValue(mapDefinition, key).get()).isEqualTo(value);
+
+            final AtomicReference<String> consumedValue = new AtomicReference<>();
+            final boolean wasFound = refDataStore.consumeValueBytes(mapDefinition, key, typedByteBuffer ->
+                    consumedValue.set(StandardCharsets.UTF_8.decode(typedByteBuffer.getByteBuffer()).toString()));
+            assertThat(wasFound).isTrue();
+            assertThat(consumedValue.get()).isEqualTo(value.getValue());
+        }
+
+        getReferenceDataConfig().setPurgeAge(StroomDuration.ZERO);
+        refDataStore.purgeOldData();
+
+        assertThat(refDataStore.getValue(mapDefinition, key)).isEmpty();
+        assertThat(refDataStore.consumeValueBytes(mapDefinition, key, typedByteBuffer -> {
+        })).isFalse();
+    }
+
+
+    @Test
+    void testGetValues() {
+        final RefStreamDefinition refStreamDefinition = buildUniqueRefStreamDefinition();
+        final MapDefinition mapDefinition = new MapDefinition(refStreamDefinition, "map1");
+
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, System.currentTimeMillis(), loader -> {
+            loader.initialise(false);
+            loader.put(mapDefinition, "key1", StringValue.of("value1"));
+            loader.put(mapDefinition, "key2", StringValue.of("value2"));
+            loader.put(mapDefinition, "key3", StringValue.of("value3"));
+            loader.completeProcessing();
+        });
+
+        // get one value first so it is served from the near cache
+        assertThat(refDataStore.getValue(mapDefinition, "key2")).isPresent();
+
+        final Map<String, RefDataValue> values = refDataStore.getValues(
+                mapDefinition, Arrays.asList("key3", "missingKey", "key2", "key1", "key3"));
+
+        assertThat(values).hasSize(3);
+        assertThat(((StringValue) values.get("key1")).getValue()).isEqualTo("value1");
+        assertThat(((StringValue) values.get("key2")).getValue()).isEqualTo("value2");
+        assertThat(((StringValue) values.get("key3")).getValue()).isEqualTo("value3");
+        assertThat(values).doesNotContainKey("missingKey");
+
+        final MapDefinition missingMapDefinition = new MapDefinition(refStreamDefinition, "missingMap");
+        assertThat(refDataStore.getValues(missingMapDefinition, Arrays.asList("key1", "key2"))).isEmpty();
+    }
+
+
     @Test
     void testPurgeOldData_partial() {
 
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.pipeline.xsltfunctions;
+
+import net.sf.saxon.Configuration;
+import net.sf.saxon.Controller;
+import net.sf.saxon.expr.XPathContext;
+import net.sf.saxon.om.Item;
+import net.sf.saxon.om.Sequence;
+import net.sf.saxon.trans.XPathException;
+import net.sf.saxon.value.BooleanValue;
+import net.sf.saxon.value.SequenceExtent;
+import net.sf.saxon.value.StringValue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import stroom.pipeline.DefaultLocationFactory;
+import stroom.pipeline.refdata.LookupIdentifier;
+import stroom.pipeline.refdata.ReferenceDataResult;
+import stroom.pipeline.refdata.store.AbstractRefDataOffHeapStoreTest;
+import stroom.pipeline.refdata.store.MapDefinition;
+import stroom.pipeline.refdata.store.RefDataValueProxy;
+import stroom.pipeline.refdata.store.RefDataValueProxyConsumerFactory;
+import stroom.pipeline.refdata.store.RefStreamDefinition;
+import stroom.pipeline.refdata.store.SingleRefDataValueProxy;
+import stroom.pipeline.state.MetaHolder;
+import stroom.util.date.DateUtil;
+import stroom.util.shared.Severity;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestLookupAll extends AbstractRefDataOffHeapStoreTest {
+    private static final String MAP_NAME = "USER_TO_LOCATION";
+    private static final String TIME_2009 = "2009-06-01T00:00:00.000Z";
+    private static final String TIME_2011 = "2011-06-01T00:00:00.000Z";
+
+    // The reference streams keyed by the time they become effective.
+    private final NavigableMap<Long, RefStreamDefinition> effectiveStreams = new TreeMap<>();
+    private final List<Long> lookupTimes = new ArrayList<>();
+    private final List<String> warnings = new ArrayList<>();
+
+    private LookupAll lookupAll;
+    private XPathContext context;
+
+    @BeforeEach
+    void setupLookup() throws IOException {
+        final String pipelineUuid = UUID.randomUUID().toString();
+        final String pipelineVersion = UUID.randomUUID().toString();
+        load(new RefStreamDefinition(pipelineUuid, pipelineVersion, 1L),
+                "2008-01-01T00:00:00.000Z",
+                Map.of("user1", "1:user1;", "user2", "1:user2;", "user3", "1:user3;"));
+        // user2 is no longer present in the second stream.
+        load(new RefStreamDefinition(pipelineUuid, pipelineVersion, 2L),
+                "2010-01-01T00:00:00.000Z",
+                Map.of("user1", "2:user1;", "user3", "2:user3;"));
+
+        lookupAll = new LookupAll(null,
+                new MetaHolder(),
+                injector.getInstance(RefDataValueProxyConsumerFactory.Factory.class)) {
+            @Override
+            ReferenceDataResult getReferenceData(final LookupIdentifier lookupIdentifier) {
+                // Find the stream that is effective at the time of the lookup as ReferenceData would.
+                lookupTimes.add(lookupIdentifier.getEventTime());
+                final Map.Entry<Long, RefStreamDefinition> entry =
+                        effectiveStreams.floorEntry(lookupIdentifier.getEventTime());
+                final RefDataValueProxy refDataValueProxy = entry != null
+                        ? new SingleRefDataValueProxy(refDataStore,
+                        new MapDefinition(entry.getValue(), lookupIdentifier.getMap()),
+                        lookupIdentifier.getKey())
+                        : null;
+
+                return new ReferenceDataResult() {
+                    @Override
+                    public RefDataValueProxy getRefDataValueProxy() {
+                        return refDataValueProxy;
+                    }
+                };
+            }
+        };
+        lookupAll.configure((severity, location, elementId, message, e) -> {
+            if (Severity.WARNING.equals(severity)) {
+                warnings.add(message);
+            }
+        }, new DefaultLocationFactory(), Collections.emptyList());
+
+        context = new Controller(new Configuration()).newXPathContext();
+    }
+
+    @Test
+    void testMultipleKeys() throws XPathException {
+        // Values are returned in the order of the keys rather than the order they were loaded.
+        assertThat(lookup(TIME_2009, "user3", "user1", "user2")).isEqualTo("1:user3;1:user1;1:user2;");
+        assertThat(warnings).isEmpty();
+
+        // All the keys are looked up together so the map is only resolved once.
+        assertThat(lookupTimes).hasSize(1);
+    }
+
+    @Test
+    void testMissingKeys() throws XPathException {
+        assertThat(lookup(TIME_2011, "user1", "user2", "user4", "user3")).isEqualTo("2:user1;2:user3;");
+
+        // A single warning lists all the keys that were not found.
+        assertThat(warnings).hasSize(1);
+        assertThat(warnings.get(0)).contains("map = " + MAP_NAME);
+        assertThat(warnings.get(0)).contains("key = {user2,user4}");
+    }
+
+    @Test
+    void testNoKeysFound() throws XPathException {
+        assertThat(lookup(TIME_2011, "user2", "user4")).isNull();
+        assertThat(warnings).hasSize(1);
+        assertThat(warnings.get(0)).contains("key = {user2,user4}");
+    }
+
+    @Test
+    void testTime() throws XPathException {
+        assertThat(lookup(TIME_2009, "user1", "user3")).isEqualTo("1:user1;1:user3;");
+        assertThat(lookup(TIME_2011, "user1", "user3")).isEqualTo("2:user1;2:user3;");
+        assertThat(lookupTimes).containsExactly(
+                DateUtil.parseNormalDateTimeString(TIME_2009),
+                DateUtil.parseNormalDateTimeString(TIME_2011));
+        assertThat(warnings).isEmpty();
+
+        // There is no reference data before the first stream is effective.
+        assertThat(lookup("2007-06-01T00:00:00.000Z", "user1", "user3")).isNull();
+        assertThat(warnings).hasSize(1);
+        assertThat(warnings.get(0)).contains("key = {user1,user3}");
+    }
+
+    @Test
+    void testInvalidTime() throws XPathException {
+        assertThat(lookup("not a date", "user1")).isNull();
+        assertThat(lookupTimes).isEmpty();
+        assertThat(warnings).hasSize(1);
+        assertThat(warnings.get(0)).contains("Lookup failed to parse date: not a date");
+    }
+
+    @Test
+    void testDefaultTime() throws XPathException {
+        // Without a time argument the lookup is done for now as there is no current stream.
+        final Sequence result = lookupAll.call("lookup-all", context, new Sequence[]{
+                new StringValue(MAP_NAME),
+                createKeys("user1", "user3")});
+        assertThat(getString(result)).isEqualTo("2:user1;2:user3;");
+    }
+
+    private void load(final RefStreamDefinition refStreamDefinition,
+                      final String effectiveTime,
+                      final Map<String, String> values) {
+        final long effectiveMs = DateUtil.parseNormalDateTimeString(effectiveTime);
+        effectiveStreams.put(effectiveMs, refStreamDefinition);
+        refDataStore.doWithLoaderUnlessComplete(refStreamDefinition, effectiveMs, refDataLoader -> {
+            refDataLoader.initialise(false);
+            final MapDefinition mapDefinition = new MapDefinition(refStreamDefinition, MAP_NAME);
+            values.forEach((key, value) -> refDataLoader.put(mapDefinition,
+                    key,
+                    stroom.pipeline.refdata.store.StringValue.of(value)));
+            refDataLoader.completeProcessing();
+        });
+    }
+
+    private String lookup(final String time, final String... keys) throws XPathException {
+        final Sequence result = lookupAll.call("lookup-all", context, new Sequence[]{
+                new StringValue(MAP_NAME),
+                createKeys(keys),
+                new StringValue(time),
+                BooleanValue.FALSE});
+        return getString(result);
+    }
+
+    private Sequence createKeys(final String... keys) {
+        return new SequenceExtent(Arrays.stream(keys)
+                .map(StringValue::new)
+                .toArray(Item[]::new));
+    }
+
+    private String getString(final Sequence sequence) throws XPathException {
+        // All the values are added to a single document.
+        final Item item = sequence.iterate().next();
+        if (item == null) {
+            return null;
+        }
+        return item.getStringValue();
+    }
+}
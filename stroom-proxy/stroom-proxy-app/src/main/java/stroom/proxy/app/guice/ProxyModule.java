@@ -43,6 +43,8 @@ import stroom.receive.rules.impl.ReceiveDataRuleSetService;
 import stroom.receive.rules.impl.ReceiveDataRuleSetServiceImpl;
 import stroom.security.api.SecurityContext;
 import stroom.security.mock.MockSecurityContext;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.impl.ExecutorProviderImpl;
 import stroom.task.impl.TaskContextModule;
 import stroom.util.BuildInfoProvider;
 import stroom.util.entityevent.EntityEventBus;
@@ -55,6 +57,7 @@ import stroom.util.guice.ServletBinder;
 import stroom.util.io.BufferFactory;
 import stroom.util.shared.BuildInfo;
 
+import com.codahale.metrics.MetricRegistry;
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 import com.google.inject.Singleton;
@@ -106,6 +109,7 @@ public class ProxyModule extends AbstractModule {
         bind(BufferFactory.class).to(BufferFactoryImpl.class);
         bind(DataReceiptPolicyAttributeMapFilterFactory.class).to(DataReceiptPolicyAttributeMapFilterFactoryImpl.class);
         bind(DocumentResourceHelper.class).to(DocumentResourceHelperImpl.class);
+        bind(ExecutorProvider.class).to(ExecutorProviderImpl.class);
         bind(FeedStatusService.class).to(RemoteFeedStatusService.class);
         bind(ProxyRepositoryManager.class).asEagerSingleton();
         bind(ProxyRepositoryReader.class).asEagerSingleton();
@@ -142,6 +146,7 @@ public class ProxyModule extends AbstractModule {
 
         GuiceUtil.buildMultiBinder(binder(), Managed.class)
                 .addBinding(ContentSyncService.class)
+                .addBinding(ForwardStreamHandlerFactory.class)
                 .addBinding(ProxyLifecycle.class);
 
         GuiceUtil.buildMultiBinder(binder(), ExceptionMapper.class)
@@ -158,6 +163,11 @@ public class ProxyModule extends AbstractModule {
         return new FSPersistence(Paths.get(configuration.getProxyConfig().getProxyContentDir()));
     }
 
+    @Provides
+    MetricRegistry provideMetricRegistry() {
+        return environment.metrics();
+    }
+
     @Provides
     @Singleton
     Client provideJerseyClient(final JerseyClientConfiguration jerseyClientConfiguration,
@@ -0,0 +1,170 @@
+package stroom.proxy.app.handler;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stroom.meta.api.AttributeMap;
+import stroom.meta.api.AttributeMapUtil;
+import stroom.util.io.FileUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A durable backlog of file sets that could not be sent to a forward destination. Each file set is held in a numbered
+ * directory containing links to, or copies of, the zip files and the header to send them with. File sets are sent in
+ * the order they were added and are deleted once they have been sent.
+ */
+class ForwardBacklog {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForwardBacklog.class);
+
+    private static final String HEADER_FILE_NAME = "header.meta";
+    private static final String ZIP_EXTENSION = ".zip";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final Path dir;
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger size = new AtomicInteger();
+
+    ForwardBacklog(final Path dir) {
+        this.dir = dir;
+        try {
+            Files.createDirectories(dir);
+            try (final Stream<Path> stream = Files.list(dir)) {
+                stream.forEach(path -> {
+                    final long id = getId(path);
+                    if (id > 0) {
+                        sequence.set(Math.max(sequence.get(), id));
+                        size.incrementAndGet();
+                    } else if (path.getFileName().toString().endsWith(TEMP_EXTENSION)) {
+                        // A file set that was being added when we stopped.
+                        FileUtil.deleteDir(path);
+                    }
+                });
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (size.get() > 0) {
+            LOGGER.info("Found {} file sets in backlog {}", size.get(), FileUtil.getCanonicalPath(dir));
+        }
+    }
+
+    /**
+     * Add a file set to the backlog.
+     *
+     * @return True if the file set has been added.
+     */
+    boolean add(final AttributeMap attributeMap, final List<Path> files) {
+        final long id = sequence.incrementAndGet();
+        final Path tempDir = dir.resolve(id + TEMP_EXTENSION);
+        try {
+            Files.createDirectory(tempDir);
+            int i = 0;
+            for (final Path file : files) {
+                final Path target = tempDir.resolve(++i + ZIP_EXTENSION);
+                try {
+                    // Linking is much quicker than copying but needs the backlog on the same file system as the repo.
+                    Files.createLink(target, file);
+                } catch (final IOException | UnsupportedOperationException e) {
+                    Files.copy(file, target);
+                }
+            }
+            try (final OutputStream outputStream = Files.newOutputStream(tempDir.resolve(HEADER_FILE_NAME))) {
+                AttributeMapUtil.write(attributeMap, outputStream);
+            }
+            Files.move(tempDir, dir.resolve(String.valueOf(id)), StandardCopyOption.ATOMIC_MOVE);
+            size.incrementAndGet();
+            return true;
+        } catch (final IOException | RuntimeException e) {
+            LOGGER.error("Unable to add files to backlog {} - {}", FileUtil.getCanonicalPath(dir), e.getMessage(), e);
+            FileUtil.deleteDir(tempDir);
+            return false;
+        }
+    }
+
+    /**
+     * Send the file sets in the backlog in order until it is empty or a file set fails to send.
+     */
+    void send(final Sender sender) {
+        List<Path> fileSetDirs = list(dir);
+        while (fileSetDirs.size() > 0) {
+            for (final Path fileSetDir : fileSetDirs) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+
+                try {
+                    final AttributeMap attributeMap = new AttributeMap();
+                    try (final InputStream inputStream = Files.newInputStream(fileSetDir.resolve(HEADER_FILE_NAME))) {
+                        AttributeMapUtil.read(inputStream, attributeMap);
+                    }
+                    final List<Path> files = list(fileSetDir);
+                    if (!sender.send(attributeMap, files)) {
+                        return;
+                    }
+                } catch (final IOException | RuntimeException e) {
+                    LOGGER.warn("Failed to send backlog {} ({})", FileUtil.getCanonicalPath(fileSetDir), e.getMessage());
+                    LOGGER.debug(e.getMessage(), e);
+                    return;
+                }
+
+                FileUtil.deleteDir(fileSetDir);
+                size.decrementAndGet();
+            }
+
+            // More file sets may have been added while we were sending.
+            fileSetDirs = list(dir);
+        }
+    }
+
+    /**
+     * @return The number of file sets in the backlog.
+     */
+    int size() {
+        return size.get();
+    }
+
+    /**
+     * @return The numbered paths in a directory in number order.
+     */
+    private static List<Path> list(final Path dir) {
+        try (final Stream<Path> stream = Files.list(dir)) {
+            return stream
+                    .filter(path -> getId(path) > 0)
+                    .sorted(Comparator.comparingLong(ForwardBacklog::getId))
+                    .collect(Collectors.toList());
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long getId(final Path path) {
+        String name = path.getFileName().toString();
+        if (name.endsWith(ZIP_EXTENSION)) {
+            name = name.substring(0, name.length() - ZIP_EXTENSION.length());
+        }
+        try {
+            return Long.parseLong(name);
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    interface Sender {
+        /**
+         * @return False if we were told to stop before the files were all sent.
+         */
+        boolean send(AttributeMap attributeMap, List<Path> files) throws IOException;
+    }
+}
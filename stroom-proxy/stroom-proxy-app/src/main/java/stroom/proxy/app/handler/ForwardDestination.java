@@ -0,0 +1,135 @@
+package stroom.proxy.app.handler;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stroom.util.thread.CustomThreadFactory;
+
+import javax.net.ssl.SSLSocketFactory;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * A destination that data is forwarded to. Each destination has its own pool of threads to send with, an optional
+ * backlog of data that could not be sent to it and metrics for the requests sent to it.
+ * <p>
+ * The pool only exists between {@link #start()} and {@link #shutdown()} which are called as the proxy starts and
+ * stops.
+ */
+class ForwardDestination {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ForwardDestination.class);
+
+    private static final String METRIC_PREFIX = "forward";
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 30;
+
+    private final ForwardDestinationConfig config;
+    private final SSLSocketFactory sslSocketFactory;
+    private final ForwardBacklog backlog;
+    private volatile ExecutorService executor;
+    private final AtomicBoolean sendingBacklog = new AtomicBoolean();
+
+    private final Timer requestTimer;
+    private final Meter bytesMeter;
+    private final Meter errorMeter;
+
+    ForwardDestination(final ForwardDestinationConfig config,
+                       final SSLSocketFactory sslSocketFactory,
+                       final ForwardBacklog backlog,
+                       final MetricRegistry metricRegistry) {
+        this.config = config;
+        this.sslSocketFactory = sslSocketFactory;
+        this.backlog = backlog;
+
+        final String url = config.getForwardUrl();
+        requestTimer = metricRegistry.timer(MetricRegistry.name(METRIC_PREFIX, url, "requests"));
+        bytesMeter = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, url, "bytes"));
+        errorMeter = metricRegistry.meter(MetricRegistry.name(METRIC_PREFIX, url, "errors"));
+        if (backlog != null) {
+            metricRegistry.gauge(MetricRegistry.name(METRIC_PREFIX, url, "backlog"), () -> (Gauge<Integer>) backlog::size);
+        }
+    }
+
+    ForwardDestinationConfig getConfig() {
+        return config;
+    }
+
+    SSLSocketFactory getSslSocketFactory() {
+        return sslSocketFactory;
+    }
+
+    ExecutorService getExecutor() {
+        final ExecutorService executor = this.executor;
+        if (executor == null) {
+            throw new IllegalStateException("Forwarding to " + config.getForwardUrl() + " has not been started");
+        }
+        return executor;
+    }
+
+    /**
+     * @return The backlog for this destination or null if we are not keeping backlogs.
+     */
+    ForwardBacklog getBacklog() {
+        return backlog;
+    }
+
+    void recordRequest(final long bytes, final long durationMs) {
+        requestTimer.update(durationMs, TimeUnit.MILLISECONDS);
+        bytesMeter.mark(bytes);
+    }
+
+    void recordError() {
+        errorMeter.mark();
+    }
+
+    /**
+     * Send any backlog on one of this destination's threads unless it is already being sent.
+     */
+    void sendBacklog(final ForwardBacklog.Sender sender) {
+        final ExecutorService executor = this.executor;
+        if (executor != null && backlog != null && backlog.size() > 0 && sendingBacklog.compareAndSet(false, true)) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        backlog.send(sender);
+                    } catch (final RuntimeException e) {
+                        LOGGER.error(e.getMessage(), e);
+                    } finally {
+                        sendingBacklog.set(false);
+                    }
+                });
+            } catch (final RuntimeException e) {
+                // The executor has been shut down.
+                sendingBacklog.set(false);
+                LOGGER.debug(e.getMessage(), e);
+            }
+        }
+    }
+
+    synchronized void start() {
+        if (executor == null) {
+            executor = Executors.newFixedThreadPool(
+                    Math.max(1, config.getForwardThreadCount()),
+                    new CustomThreadFactory("Forward " + config.getForwardUrl()));
+        }
+    }
+
+    synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+            try {
+                // Give sends that have been interrupted a chance to clean up before we carry on stopping.
+                if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOGGER.warn("Timed out waiting for sends to {} to stop", config.getForwardUrl());
+                }
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            executor = null;
+        }
+    }
+}
@@ -8,6 +8,7 @@ public class ForwardDestinationConfig {
     private Integer forwardTimeoutMs = 30000;
     private Integer forwardDelayMs;
     private Integer forwardChunkSize;
+    private int forwardThreadCount = 3;
     private SSLConfig sslConfig;
 
     /**
@@ -62,6 +63,19 @@ public class ForwardDestinationConfig {
         this.forwardChunkSize = forwardChunkSize;
     }
 
+    /**
+     * The number of requests that can be sent to this destination at the same time
+     */
+    @JsonProperty
+    public int getForwardThreadCount() {
+        return forwardThreadCount;
+    }
+
+    @JsonProperty
+    public void setForwardThreadCount(final int forwardThreadCount) {
+        this.forwardThreadCount = forwardThreadCount;
+    }
+
     @JsonProperty
     public SSLConfig getSslConfig() {
         return sslConfig;
@@ -9,6 +9,8 @@ public class ForwardStreamConfig {
     private boolean isForwardingEnabled = false;
     private String userAgent;
     private List<ForwardDestinationConfig> forwardDestinations = new ArrayList<>();
+    private String backlogDir;
+    private long backlogRetryFrequencyMs = 10000;
 
     /**
      * True if received streams should be forwarded to another stroom(-proxy) instance.
@@ -48,4 +50,32 @@ public class ForwardStreamConfig {
     public void setForwardDestinations(final List<ForwardDestinationConfig> forwardDestinations) {
         this.forwardDestinations = forwardDestinations;
     }
+
+    /**
+     * The directory to keep a backlog in, for each destination, of data that could not be sent to it. A failing
+     * destination then does not stop data being sent to the others. If not set data is only deleted once it has been
+     * sent to every destination.
+     */
+    @JsonProperty
+    public String getBacklogDir() {
+        return backlogDir;
+    }
+
+    @JsonProperty
+    public void setBacklogDir(final String backlogDir) {
+        this.backlogDir = backlogDir;
+    }
+
+    /**
+     * How often to try sending the backlog to a destination
+     */
+    @JsonProperty
+    public long getBacklogRetryFrequencyMs() {
+        return backlogRetryFrequencyMs;
+    }
+
+    @JsonProperty
+    public void setBacklogRetryFrequencyMs(final long backlogRetryFrequencyMs) {
+        this.backlogRetryFrequencyMs = backlogRetryFrequencyMs;
+    }
 }
@@ -1,32 +1,41 @@
 package stroom.proxy.app.handler;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import stroom.data.zip.RawZipEntryUtil;
 import stroom.data.zip.StroomZipEntry;
 import stroom.meta.api.AttributeMapUtil;
 import stroom.meta.api.AttributeMap;
 import stroom.meta.api.StandardHeaderArguments;
-import stroom.proxy.repo.StreamHandler;
+import stroom.proxy.repo.DestinationStreamHandler;
 import stroom.receive.common.StroomStreamException;
 import stroom.util.cert.SSLUtil;
 
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Path;
+import java.util.List;
 import java.util.Map.Entry;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 /**
  * Handler class that forwards the request to a URL.
  */
-class ForwardStreamHandler implements StreamHandler {
+class ForwardStreamHandler implements DestinationStreamHandler {
     private static Logger LOGGER = LoggerFactory.getLogger(ForwardStreamHandler.class);
     private static final Logger SEND_LOG = LoggerFactory.getLogger("send");
 
     private final LogStream logStream;
+    private final ForwardDestination forwardDestination;
     private final SSLSocketFactory sslSocketFactory;
     private final ForwardDestinationConfig forwardDestinationConfig;
     private final String userAgent;
@@ -36,19 +45,23 @@ class ForwardStreamHandler implements StreamHandler {
     private final Integer forwardChunkSize;
 
     private HttpURLConnection connection = null;
+    private OutputStream outputStream;
+    // Created for the first entry. Raw entries copied from stored zips need the commons compress stream, otherwise
+    // we use java.util.zip as it copes with entries over 4GB whose size isn't known up front.
     private ZipOutputStream zipOutputStream;
+    private ZipArchiveOutputStream rawZipOutputStream;
     private long startTimeMs;
     private long bytesSent = 0;
 
     private AttributeMap attributeMap;
 
     ForwardStreamHandler(final LogStream logStream,
-                         final ForwardDestinationConfig forwardDestinationConfig,
-                         final SSLSocketFactory sslSocketFactory,
+                         final ForwardDestination forwardDestination,
                          final String userAgent) {
         this.logStream = logStream;
-        this.sslSocketFactory = sslSocketFactory;
-        this.forwardDestinationConfig = forwardDestinationConfig;
+        this.forwardDestination = forwardDestination;
+        this.sslSocketFactory = forwardDestination.getSslSocketFactory();
+        this.forwardDestinationConfig = forwardDestination.getConfig();
         this.forwardUrl = forwardDestinationConfig.getForwardUrl();
         this.forwardTimeoutMs = forwardDestinationConfig.getForwardTimeoutMs();
         this.forwardDelayMs = forwardDestinationConfig.getForwardDelayMs();
@@ -101,12 +114,18 @@ class ForwardStreamHandler implements StreamHandler {
             connection.setChunkedStreamingMode(forwardChunkSize);
         }
         connection.connect();
-        zipOutputStream = new ZipOutputStream(connection.getOutputStream());
+        outputStream = connection.getOutputStream();
+        zipOutputStream = null;
+        rawZipOutputStream = null;
     }
 
     @Override
     public void handleFooter() throws IOException {
-        zipOutputStream.close();
+        if (rawZipOutputStream != null) {
+            rawZipOutputStream.close();
+        } else {
+            getZipOutputStream().close();
+        }
 
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("handleFooter() - header fields " + connection.getHeaderFields());
@@ -114,13 +133,21 @@ class ForwardStreamHandler implements StreamHandler {
         int responseCode = -1;
 
         if (connection != null) {
+            boolean success = false;
             try {
                 responseCode = StroomStreamException.checkConnectionResponse(connection);
+                success = true;
             } finally {
                 final long duration = System.currentTimeMillis() - startTimeMs;
                 logStream.log(SEND_LOG, attributeMap, "SEND", forwardUrl, responseCode, bytesSent, duration);
 
-                connection.disconnect();
+                if (success) {
+                    forwardDestination.recordRequest(bytesSent, duration);
+                    // The response has been read so the connection is left open to be reused by the next request to
+                    // this destination.
+                } else {
+                    connection.disconnect();
+                }
                 connection = null;
             }
         }
@@ -128,8 +155,11 @@ class ForwardStreamHandler implements StreamHandler {
 
     @Override
     public void handleEntryStart(final StroomZipEntry stroomZipEntry) throws IOException {
+        if (rawZipOutputStream != null) {
+            throw new IOException("Cannot forward a mix of raw and inflated entries");
+        }
         // First call we set up if we are going to do chunked streaming
-        zipOutputStream.putNextEntry(new ZipEntry(stroomZipEntry.getFullName()));
+        getZipOutputStream().putNextEntry(new ZipEntry(stroomZipEntry.getFullName()));
     }
 
     @Override
@@ -137,6 +167,30 @@ class ForwardStreamHandler implements StreamHandler {
         zipOutputStream.closeEntry();
     }
 
+    @Override
+    public boolean isRawEntrySupported() {
+        return true;
+    }
+
+    /**
+     * Write the still compressed bytes of an entry from a stored zip straight to the connection.
+     */
+    @Override
+    public void handleRawEntry(final StroomZipEntry stroomZipEntry,
+                               final ZipArchiveEntry sourceEntry,
+                               final InputStream rawInputStream) throws IOException {
+        if (rawZipOutputStream == null) {
+            if (zipOutputStream != null) {
+                throw new IOException("Cannot forward a mix of raw and inflated entries");
+            }
+            rawZipOutputStream = new ZipArchiveOutputStream(outputStream);
+        }
+        rawZipOutputStream.addRawArchiveEntry(
+                RawZipEntryUtil.createRawEntry(stroomZipEntry.getFullName(), sourceEntry), rawInputStream);
+        bytesSent += sourceEntry.getSize();
+        delay();
+    }
+
     /**
      * Handle some pay load.
      */
@@ -144,9 +198,13 @@ class ForwardStreamHandler implements StreamHandler {
     public void handleEntryData(final byte[] buffer, final int off, final int length) throws IOException {
         bytesSent += length;
         zipOutputStream.write(buffer, off, length);
+        delay();
+    }
+
+    private void delay() {
         if (forwardDelayMs != null) {
             try {
-                LOGGER.debug("handleEntryData() - adding delay {}", forwardDelayMs);
+                LOGGER.debug("delay() - adding delay {}", forwardDelayMs);
                 Thread.sleep(forwardDelayMs);
             } catch (final InterruptedException e) {
                 LOGGER.error(e.getMessage(), e);
@@ -160,6 +218,7 @@ class ForwardStreamHandler implements StreamHandler {
     @Override
     public void handleError() {
         LOGGER.info("handleError() - " + forwardUrl);
+        forwardDestination.recordError();
         if (connection != null) {
             connection.disconnect();
         }
@@ -176,6 +235,39 @@ class ForwardStreamHandler implements StreamHandler {
         }
     }
 
+    @Override
+    public Executor getExecutor() {
+        return forwardDestination.getExecutor();
+    }
+
+    @Override
+    public boolean isBacklogEnabled() {
+        return forwardDestination.getBacklog() != null;
+    }
+
+    @Override
+    public boolean hasBacklog() {
+        final ForwardBacklog backlog = forwardDestination.getBacklog();
+        return backlog != null && backlog.size() > 0;
+    }
+
+    @Override
+    public boolean addToBacklog(final AttributeMap attributeMap, final List<Path> files) {
+        final ForwardBacklog backlog = forwardDestination.getBacklog();
+        if (backlog == null) {
+            return false;
+        }
+        LOGGER.info("addToBacklog() - {} adding {} files", forwardUrl, files.size());
+        return backlog.add(attributeMap, files);
+    }
+
+    private ZipOutputStream getZipOutputStream() {
+        if (zipOutputStream == null) {
+            zipOutputStream = new ZipOutputStream(outputStream);
+        }
+        return zipOutputStream;
+    }
+
     String getForwardUrl() {
         return forwardUrl;
     }
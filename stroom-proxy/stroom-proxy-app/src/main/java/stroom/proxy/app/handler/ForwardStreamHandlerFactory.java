@@ -1,26 +1,37 @@
 package stroom.proxy.app.handler;
 
+import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.health.HealthCheck;
 import com.google.common.base.Strings;
+import io.dropwizard.lifecycle.Managed;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import stroom.data.zip.StreamProgressMonitor;
+import stroom.proxy.repo.ProxyFileHandler;
 import stroom.proxy.repo.ProxyRepositoryConfig;
 import stroom.proxy.repo.StreamHandler;
 import stroom.proxy.repo.StreamHandlerFactory;
 import stroom.util.HasHealthCheck;
 import stroom.util.cert.SSLUtil;
+import stroom.util.io.BufferFactory;
 import stroom.util.logging.LogUtil;
 import stroom.util.shared.BuildInfo;
+import stroom.util.thread.CustomThreadFactory;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.net.ssl.SSLSocketFactory;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Collectors;
 
@@ -28,7 +39,7 @@ import java.util.stream.Collectors;
  * Handler class that forwards the request to a URL.
  */
 @Singleton
-public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHealthCheck {
+public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHealthCheck, Managed {
     private static final Logger LOGGER = LoggerFactory.getLogger(ForwardStreamHandlerFactory.class);
 
     private static final String USER_AGENT_FORMAT = "stroom-proxy/{} java/{}";
@@ -37,15 +48,21 @@ public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHea
     private final ForwardStreamConfig forwardStreamConfig;
     private final ProxyRepositoryConfig proxyRepositoryConfig;
     private final Provider<BuildInfo> buildInfoProvider;
+    private final ProxyFileHandler proxyFileHandler;
     private final List<ForwardDestination> destinations;
     private final String userAgentString;
 
+    private ScheduledExecutorService backlogExecutor;
+
     @Inject
     ForwardStreamHandlerFactory(final LogStream logStream,
                                 final ForwardStreamConfig forwardStreamConfig,
                                 final ProxyRepositoryConfig proxyRepositoryConfig,
-                                final Provider<BuildInfo> buildInfoProvider) {
+                                final Provider<BuildInfo> buildInfoProvider,
+                                final BufferFactory bufferFactory,
+                                final MetricRegistry metricRegistry) {
         this.logStream = logStream;
+        this.proxyFileHandler = new ProxyFileHandler(bufferFactory);
         this.forwardStreamConfig = forwardStreamConfig;
         this.proxyRepositoryConfig = proxyRepositoryConfig;
         this.buildInfoProvider = buildInfoProvider;
@@ -68,7 +85,13 @@ public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHea
                         if (config.getSslConfig() != null) {
                             sslSocketFactory = SSLUtil.createSslSocketFactory(config.getSslConfig());
                         }
-                        return new ForwardDestination(config, sslSocketFactory);
+                        ForwardBacklog backlog = null;
+                        if (!Strings.isNullOrEmpty(forwardStreamConfig.getBacklogDir())) {
+                            final Path backlogDir = Paths.get(forwardStreamConfig.getBacklogDir())
+                                    .resolve(getBacklogDirName(config.getForwardUrl()));
+                            backlog = new ForwardBacklog(backlogDir);
+                        }
+                        return new ForwardDestination(config, sslSocketFactory, backlog, metricRegistry);
                     })
                     .collect(Collectors.toList());
         } else {
@@ -103,11 +126,48 @@ public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHea
     }
 
     private void add(final List<StreamHandler> handlers) {
-        destinations.forEach(destination -> handlers.add(new ForwardStreamHandler(
-                logStream,
-                destination.config,
-                destination.sslSocketFactory,
-                userAgentString)));
+        destinations.forEach(destination -> handlers.add(createHandler(destination)));
+    }
+
+    private ForwardStreamHandler createHandler(final ForwardDestination destination) {
+        return new ForwardStreamHandler(logStream, destination, userAgentString);
+    }
+
+    @Override
+    public synchronized void start() {
+        destinations.forEach(ForwardDestination::start);
+
+        final boolean hasBacklogs = destinations.stream().anyMatch(destination -> destination.getBacklog() != null);
+        if (hasBacklogs && backlogExecutor == null) {
+            backlogExecutor = Executors.newSingleThreadScheduledExecutor(new CustomThreadFactory("Forward Backlog"));
+            final long frequencyMs = forwardStreamConfig.getBacklogRetryFrequencyMs();
+            backlogExecutor.scheduleWithFixedDelay(this::sendBacklogs, frequencyMs, frequencyMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (backlogExecutor != null) {
+            backlogExecutor.shutdownNow();
+            backlogExecutor = null;
+        }
+        destinations.forEach(ForwardDestination::shutdown);
+    }
+
+    /**
+     * Try to send the backlog of each destination. Each destination sends its backlog on one of its own threads so
+     * one destination that is still failing doesn't stop the others catching up.
+     */
+    private void sendBacklogs() {
+        destinations.forEach(destination -> destination.sendBacklog((attributeMap, files) -> {
+            final StreamProgressMonitor streamProgress = new StreamProgressMonitor(
+                    "Forward backlog " + destination.getConfig().getForwardUrl());
+            return proxyFileHandler.sendFileSet(List.of(createHandler(destination)), attributeMap, files, streamProgress);
+        }));
+    }
+
+    private static String getBacklogDirName(final String forwardUrl) {
+        return forwardUrl.replaceAll("[^A-Za-z0-9.-]", "_");
     }
 
     @Override
@@ -123,9 +183,9 @@ public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHea
             final Map<String, String> postResults = new ConcurrentHashMap<>();
             // parallelStream so we can hit multiple URLs concurrently
             destinations.forEach(destination -> {
-                final String url = destination.config.getForwardUrl();
+                final String url = destination.getConfig().getForwardUrl();
                 final Optional<String> errorMsg = SSLUtil.checkUrlHealth(
-                        url, destination.sslSocketFactory, destination.config.getSslConfig(), "POST");
+                        url, destination.getSslSocketFactory(), destination.getConfig().getSslConfig(), "POST");
 
                 if (errorMsg.isPresent()) {
                     allHealthy.set(false);
@@ -154,14 +214,4 @@ public class ForwardStreamHandlerFactory implements StreamHandlerFactory, HasHea
                     buildInfoProvider.get().getBuildVersion(), System.getProperty("java.version"));
         }
     }
-
-    private static class ForwardDestination {
-        private final ForwardDestinationConfig config;
-        private final SSLSocketFactory sslSocketFactory;
-
-        private ForwardDestination(final ForwardDestinationConfig config, final SSLSocketFactory sslSocketFactory) {
-            this.config = config;
-            this.sslSocketFactory = sslSocketFactory;
-        }
-    }
 }
@@ -11,6 +11,7 @@ import stroom.receive.common.AttributeMapFilter;
 import stroom.receive.common.RequestHandler;
 import stroom.receive.common.StroomStreamException;
 import stroom.receive.common.StroomStreamProcessor;
+import stroom.task.api.ExecutorProvider;
 import stroom.util.io.BufferFactory;
 import stroom.util.io.ByteCountInputStream;
 
@@ -37,15 +38,18 @@ public class ProxyRequestHandler implements RequestHandler {
     private final AttributeMapFilter attributeMapFilter;
     private final LogStream logStream;
     private final BufferFactory bufferFactory;
+    private final ExecutorProvider executorProvider;
 
     @Inject
     public ProxyRequestHandler(final MasterStreamHandlerFactory streamHandlerFactory,
                                final AttributeMapFilterFactory attributeMapFilterFactory,
                                final LogStream logStream,
-                               final BufferFactory bufferFactory) {
+                               final BufferFactory bufferFactory,
+                               final ExecutorProvider executorProvider) {
         this.streamHandlerFactory = streamHandlerFactory;
         this.logStream = logStream;
         this.bufferFactory = bufferFactory;
+        this.executorProvider = executorProvider;
         attributeMapFilter = attributeMapFilterFactory.create();
     }
 
@@ -84,7 +88,8 @@ public class ProxyRequestHandler implements RequestHandler {
                         }
 
                         final byte[] buffer = bufferFactory.create();
-                        final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, handlers, buffer, "DataFeedServlet");
+                        final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, handlers, buffer, "DataFeedServlet",
+                                executorProvider.get(StroomStreamProcessor.READ_AHEAD_THREAD_POOL));
 
                         stroomStreamProcessor.processRequestHeader(request);
 
@@ -0,0 +1,54 @@
+package stroom.proxy.app.handler;
+
+import org.junit.jupiter.api.Test;
+import stroom.meta.api.AttributeMap;
+import stroom.meta.api.StandardHeaderArguments;
+import stroom.test.common.util.test.StroomUnitTest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestForwardBacklog extends StroomUnitTest {
+    @Test
+    void testSendInOrder() throws IOException {
+        final Path repoDir = Files.createDirectories(getCurrentTestDir().resolve("repo"));
+        final Path backlogDir = getCurrentTestDir().resolve("backlog");
+
+        final ForwardBacklog backlog = new ForwardBacklog(backlogDir);
+        for (int i = 1; i <= 3; i++) {
+            final Path file = repoDir.resolve(i + ".zip");
+            Files.writeString(file, "file" + i);
+            final AttributeMap attributeMap = new AttributeMap();
+            attributeMap.put(StandardHeaderArguments.FEED, "FEED" + i);
+            assertThat(backlog.add(attributeMap, List.of(file))).isTrue();
+            // The backlog must not depend on the original file.
+            Files.delete(file);
+        }
+        assertThat(backlog.size()).isEqualTo(3);
+
+        // A failed send stops the backlog being sent and leaves it in place.
+        final List<String> sent = new ArrayList<>();
+        backlog.send((attributeMap, files) -> {
+            throw new IOException("Destination is down");
+        });
+        assertThat(backlog.size()).isEqualTo(3);
+
+        // The backlog is found again after a restart.
+        final ForwardBacklog reopened = new ForwardBacklog(backlogDir);
+        assertThat(reopened.size()).isEqualTo(3);
+
+        reopened.send((attributeMap, files) -> {
+            assertThat(files).hasSize(1);
+            sent.add(attributeMap.get(StandardHeaderArguments.FEED) + ":" + Files.readString(files.get(0)));
+            return true;
+        });
+        assertThat(sent).containsExactly("FEED1:file1", "FEED2:file2", "FEED3:file3");
+        assertThat(reopened.size()).isZero();
+        assertThat(new ForwardBacklog(backlogDir).size()).isZero();
+    }
+}
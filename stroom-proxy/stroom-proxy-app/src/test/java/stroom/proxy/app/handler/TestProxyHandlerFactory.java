@@ -1,5 +1,6 @@
 package stroom.proxy.app.handler;
 
+import com.codahale.metrics.MetricRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.junit.jupiter.MockitoExtension;
@@ -91,7 +92,8 @@ class TestProxyHandlerFactory extends StroomUnitTest {
 
         final BuildInfo buildInfo = new BuildInfo("now", "test version", "now");
         final ForwardStreamHandlerFactory forwardStreamHandlerFactory = new ForwardStreamHandlerFactory(
-                logStream, forwardRequestConfig, proxyRepositoryConfig, () -> buildInfo);
+                logStream, forwardRequestConfig, proxyRepositoryConfig, () -> buildInfo, () -> new byte[8192],
+                new MetricRegistry());
 
         return new MasterStreamHandlerFactory(proxyRepositoryStreamHandlerFactory, forwardStreamHandlerFactory);
     }
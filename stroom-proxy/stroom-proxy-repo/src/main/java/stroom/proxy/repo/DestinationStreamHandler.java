@@ -0,0 +1,42 @@
+package stroom.proxy.repo;
+
+import stroom.meta.api.AttributeMap;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * A handler that sends to a single destination. File sets are sent to each destination independently, on the
+ * destination's own executor, so that a slow or failing destination does not hold up the others. File sets that
+ * can't be sent to a destination are added to a backlog for that destination alone.
+ */
+public interface DestinationStreamHandler extends StreamHandler {
+    /**
+     * @return The executor to send to the destination with. The number of threads it has limits the number of
+     * requests in flight to the destination.
+     */
+    Executor getExecutor();
+
+    /**
+     * @return True if this destination keeps a backlog of data that could not be sent to it. If it doesn't then
+     * data that fails to send has to be resent to every destination so this destination can't be sent to
+     * separately.
+     */
+    boolean isBacklogEnabled();
+
+    /**
+     * @return True if there are file sets waiting to be retried for this destination. New file sets are added to the
+     * backlog while there is one so that the destination receives data in order and isn't tried for every file set
+     * while it is failing.
+     */
+    boolean hasBacklog();
+
+    /**
+     * Keep a copy of the files so that they can be sent to this destination later.
+     *
+     * @return True if the files have been safely added to the backlog, false if this destination doesn't have a
+     * backlog or the files could not be added to it.
+     */
+    boolean addToBacklog(AttributeMap attributeMap, List<Path> files);
+}
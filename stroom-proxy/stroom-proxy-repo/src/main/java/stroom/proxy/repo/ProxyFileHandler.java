@@ -16,6 +16,7 @@
 
 package stroom.proxy.repo;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import stroom.data.zip.StreamProgressMonitor;
@@ -23,6 +24,7 @@ import stroom.data.zip.StroomFileNameUtil;
 import stroom.data.zip.StroomZipEntry;
 import stroom.data.zip.StroomZipFile;
 import stroom.data.zip.StroomZipFileType;
+import stroom.meta.api.AttributeMap;
 import stroom.receive.common.StroomStreamHandler;
 import stroom.util.io.BufferFactory;
 import stroom.util.io.CloseableUtil;
@@ -36,12 +38,72 @@ import java.util.List;
 public final class ProxyFileHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(ProxyFileHandler.class);
 
+    private static final StroomZipFileType[] ENTRY_TYPES = {
+            StroomZipFileType.Meta,
+            StroomZipFileType.Context,
+            StroomZipFileType.Data};
+
     private final BufferFactory bufferFactory;
 
     public ProxyFileHandler(final BufferFactory bufferFactory) {
         this.bufferFactory = bufferFactory;
     }
 
+    /**
+     * Send a set of files to each of the handlers as a single request. If anything fails the handlers are told about
+     * the error before the exception is thrown. If we are told to stop part way through the handlers are also told
+     * about the error so that the files that have been sent are not taken as a complete request.
+     *
+     * @return False if we were told to stop before all of the files were sent.
+     */
+    public boolean sendFileSet(final List<? extends StreamHandler> handlers,
+                               final AttributeMap attributeMap,
+                               final List<Path> files,
+                               final StreamProgressMonitor streamProgress) throws IOException {
+        boolean complete = true;
+        try {
+            // Start the post
+            for (final StreamHandler streamHandler : handlers) {
+                streamHandler.setAttributeMap(attributeMap);
+                streamHandler.handleHeader();
+            }
+
+            long sequenceId = 1;
+            for (final Path file : files) {
+                // Send no more if told to finish
+                if (Thread.currentThread().isInterrupted()) {
+                    LOGGER.info("sendFileSet() - Quitting early as we have been told to stop");
+                    complete = false;
+                    break;
+                }
+
+                sequenceId = processFeedFile(handlers, file, streamProgress, sequenceId);
+            }
+
+            if (complete) {
+                for (final StreamHandler streamHandler : handlers) {
+                    streamHandler.handleFooter();
+                }
+            } else {
+                handleError(handlers);
+            }
+        } catch (final IOException | RuntimeException e) {
+            handleError(handlers);
+            throw e;
+        }
+        return complete;
+    }
+
+    private void handleError(final List<? extends StreamHandler> handlers) {
+        for (final StreamHandler streamHandler : handlers) {
+            try {
+                streamHandler.handleError();
+            } catch (final IOException ioEx) {
+                LOGGER.error("sendFileSet()", ioEx);
+            }
+        }
+    }
+
     public Long processFeedFile(final List<? extends StroomStreamHandler> stroomStreamHandlerList,
                                 final Path file,
                                 final StreamProgressMonitor streamProgress,
@@ -54,6 +116,9 @@ public final class ProxyFileHandler {
             LOGGER.debug("processFeedFile() - " + file);
         }
 
+        // If every handler can take raw entries we can pass the compressed bytes straight through.
+        final boolean raw = isRawEntrySupported(stroomStreamHandlerList);
+
         IOException exception = null;
         try {
             stroomZipFile = new StroomZipFile(file);
@@ -63,12 +128,14 @@ public final class ProxyFileHandler {
 
                 final String targetName = StroomFileNameUtil.getIdPath(entrySequence++);
 
-                sendEntry(stroomStreamHandlerList, stroomZipFile, sourceName, streamProgress,
-                        new StroomZipEntry(null, targetName, StroomZipFileType.Meta));
-                sendEntry(stroomStreamHandlerList, stroomZipFile, sourceName, streamProgress,
-                        new StroomZipEntry(null, targetName, StroomZipFileType.Context));
-                sendEntry(stroomStreamHandlerList, stroomZipFile, sourceName, streamProgress,
-                        new StroomZipEntry(null, targetName, StroomZipFileType.Data));
+                for (final StroomZipFileType type : ENTRY_TYPES) {
+                    final StroomZipEntry targetEntry = new StroomZipEntry(null, targetName, type);
+                    if (raw) {
+                        sendRawEntry(stroomStreamHandlerList, stroomZipFile, sourceName, streamProgress, targetEntry);
+                    } else {
+                        sendEntry(stroomStreamHandlerList, stroomZipFile, sourceName, streamProgress, targetEntry);
+                    }
+                }
             }
         } catch (final IOException io) {
             exception = io;
@@ -118,6 +185,45 @@ public final class ProxyFileHandler {
 //        return size;
 //    }
 
+    private boolean isRawEntrySupported(final List<? extends StroomStreamHandler> stroomStreamHandlerList) {
+        if (stroomStreamHandlerList.isEmpty()) {
+            return false;
+        }
+        for (final StroomStreamHandler stroomStreamHandler : stroomStreamHandlerList) {
+            if (!(stroomStreamHandler instanceof StreamHandler) ||
+                    !((StreamHandler) stroomStreamHandler).isRawEntrySupported()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void sendRawEntry(final List<? extends StroomStreamHandler> stroomStreamHandlerList,
+                              final StroomZipFile stroomZipFile,
+                              final String sourceName,
+                              final StreamProgressMonitor streamProgress,
+                              final StroomZipEntry targetEntry)
+            throws IOException {
+        final ZipArchiveEntry sourceEntry = stroomZipFile.getZipArchiveEntry(sourceName, targetEntry.getStroomZipFileType());
+        if (sourceEntry != null) {
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("sendRawEntry() - " + targetEntry);
+            }
+            // Each handler reads its own copy of the raw bytes from the file.
+            for (final StroomStreamHandler stroomStreamHandler : stroomStreamHandlerList) {
+                try (final InputStream inputStream = stroomZipFile.getRawInputStream(sourceName, targetEntry.getStroomZipFileType())) {
+                    ((StreamHandler) stroomStreamHandler).handleRawEntry(targetEntry, sourceEntry, inputStream);
+                }
+            }
+            streamProgress.progress(sourceEntry.getCompressedSize());
+
+            if (sourceEntry.getSize() == 0) {
+                LOGGER.warn("sendRawEntry() - " + targetEntry + " IS BLANK");
+            }
+            LOGGER.debug("sendRawEntry() - {} size is {}", targetEntry, sourceEntry.getSize());
+        }
+    }
+
     private void sendEntry(final List<? extends StroomStreamHandler> requestHandlerList, final StroomZipFile stroomZipFile,
                            final String sourceName, final StreamProgressMonitor streamProgress,
                            final StroomZipEntry targetEntry)
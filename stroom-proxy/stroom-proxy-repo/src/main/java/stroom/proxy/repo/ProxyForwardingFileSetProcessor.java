@@ -31,6 +31,9 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Collectors;
 
@@ -86,48 +89,97 @@ public final class ProxyForwardingFileSetProcessor implements FileSetProcessor {
                 attributeMap.put(PROXY_FORWARD_ID, String.valueOf(thisPostId));
             }
 
+            // Destinations can only be sent to separately if they can all keep a backlog, otherwise a failure would
+            // cause every destination to be sent the files again, including the ones that had already received them.
             final List<StreamHandler> handlers = handlerFactory.addSendHandlers(new ArrayList<>());
+            if (handlers.size() > 0 && handlers.stream().allMatch(h -> h instanceof DestinationStreamHandler
+                    && ((DestinationStreamHandler) h).isBacklogEnabled())) {
+                sendToEachDestination(handlers, feedName, attributeMap, fileSet.getFiles());
+            } else {
+                sendToAll(handlers, feedName, attributeMap, fileSet.getFiles());
+            }
+        }
+    }
 
-            try {
-                // Start the post
-                for (final StreamHandler streamHandler : handlers) {
-                    streamHandler.setAttributeMap(attributeMap);
-                    streamHandler.handleHeader();
-                }
-
-                long sequenceId = 1;
-                final StreamProgressMonitor streamProgress = new StreamProgressMonitor("ProxyRepositoryReader " + feedName);
+    /**
+     * Send to all of the handlers at once, each buffer read from the files is passed to every handler in turn.
+     */
+    private void sendToAll(final List<StreamHandler> handlers,
+                           final String feedName,
+                           final AttributeMap attributeMap,
+                           final List<Path> files) {
+        try {
+            final StreamProgressMonitor streamProgress = new StreamProgressMonitor("ProxyRepositoryReader " + feedName);
+            if (proxyFileHandler.sendFileSet(handlers, attributeMap, files, streamProgress)) {
+                // Delete all of the files we have processed and their parent directories if possible.
+                cleanup(files);
+            }
+        } catch (final IOException | RuntimeException ex) {
+            LOGGER.warn("processFeedFiles() - Failed to send to feed " + feedName + " ( " + ex + ")");
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("processFeedFiles() - Debug trace " + feedName, ex);
+            }
+        }
+    }
 
-                for (final Path file : fileSet.getFiles()) {
-                    // Send no more if told to finish
-                    if (Thread.currentThread().isInterrupted()) {
-                        LOGGER.info("processFeedFiles() - Quitting early as we have been told to stop");
-                        break;
-                    }
+    /**
+     * Send to each destination separately and at the same time. Destinations that fail, or that already have a
+     * backlog, get the files added to their backlog so the files can be deleted once every destination has either
+     * been sent them or has them in its backlog.
+     */
+    private void sendToEachDestination(final List<StreamHandler> handlers,
+                                       final String feedName,
+                                       final AttributeMap attributeMap,
+                                       final List<Path> files) {
+        // Send every destination the same GUID as happens when sending to all of them at once.
+        attributeMap.computeIfAbsent(StandardHeaderArguments.GUID, k -> UUID.randomUUID().toString());
+
+        final List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (final StreamHandler streamHandler : handlers) {
+            final DestinationStreamHandler handler = (DestinationStreamHandler) streamHandler;
+            if (handler.hasBacklog()) {
+                futures.add(CompletableFuture.completedFuture(handler.addToBacklog(attributeMap, files)));
+            } else {
+                futures.add(CompletableFuture.supplyAsync(() ->
+                        send(handler, feedName, attributeMap, files), handler.getExecutor()));
+            }
+        }
 
-                    sequenceId = proxyFileHandler.processFeedFile(handlers, file, streamProgress, sequenceId);
-                }
+        try {
+            boolean done = true;
+            for (final CompletableFuture<Boolean> future : futures) {
+                done &= future.get();
+            }
+            if (done) {
+                // Delete all of the files we have processed and their parent directories if possible.
+                cleanup(files);
+            }
+        } catch (final InterruptedException e) {
+            LOGGER.info("processFeedFiles() - Quitting early as we have been told to stop");
 
-                for (final StreamHandler streamHandler : handlers) {
-                    streamHandler.handleFooter();
-                }
+            // Continue to interrupt this thread.
+            Thread.currentThread().interrupt();
+        } catch (final ExecutionException e) {
+            LOGGER.error(e.getMessage(), e);
+        }
+    }
 
-                // Delete all of the files we have processed and their parent directories if possible.
-                cleanup(fileSet.getFiles());
-
-            } catch (final IOException ex) {
-                LOGGER.warn("processFeedFiles() - Failed to send to feed " + feedName + " ( " + ex + ")");
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("processFeedFiles() - Debug trace " + feedName, ex);
-                }
-                for (final StreamHandler streamHandler : handlers) {
-                    try {
-                        streamHandler.handleError();
-                    } catch (final IOException ioEx) {
-                        LOGGER.error("fileSend()", ioEx);
-                    }
-                }
+    private boolean send(final DestinationStreamHandler handler,
+                         final String feedName,
+                         final AttributeMap attributeMap,
+                         final List<Path> files) {
+        try {
+            final StreamProgressMonitor streamProgress = new StreamProgressMonitor("ProxyRepositoryReader " + feedName);
+            // Each destination gets its own copy of the attributes as handlers may add to them.
+            final AttributeMap destinationAttributeMap = new AttributeMap();
+            destinationAttributeMap.putAll(attributeMap);
+            return proxyFileHandler.sendFileSet(List.of(handler), destinationAttributeMap, files, streamProgress);
+        } catch (final IOException | RuntimeException ex) {
+            LOGGER.warn("processFeedFiles() - Failed to send to feed " + feedName + " ( " + ex + ")");
+            if (LOGGER.isDebugEnabled()) {
+                LOGGER.debug("processFeedFiles() - Debug trace " + feedName, ex);
             }
+            return handler.addToBacklog(attributeMap, files);
         }
     }
 
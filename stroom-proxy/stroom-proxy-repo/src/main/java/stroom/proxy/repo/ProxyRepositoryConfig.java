@@ -10,6 +10,7 @@ public class ProxyRepositoryConfig {
     private String repoDir;
     private String format = "${pathId}/${id}";
     private String rollCron;
+    private boolean useJournal;
 
     @JsonProperty
     public boolean isStoringEnabled() {
@@ -68,4 +69,18 @@ public class ProxyRepositoryConfig {
     public void setRollCron(final String rollCron) {
         this.rollCron = rollCron;
     }
+
+    /**
+     * Record the files that are ready to forward in a journal in each repository so they can be found without
+     * scanning the whole repository. The repository is still scanned once on startup.
+     */
+    @JsonProperty
+    public boolean isUseJournal() {
+        return useJournal;
+    }
+
+    @JsonProperty
+    public void setUseJournal(final boolean useJournal) {
+        this.useJournal = useJournal;
+    }
 }
@@ -37,20 +37,32 @@ public class ProxyRepositoryManager implements HasHealthCheck {
     private final Path rootRepoDir;
     private final String repositoryFormat;
     private final Scheduler scheduler;
+    private final boolean useJournal;
     private final int lockDeleteAgeMs = 1000 * 60 * 60;
     private volatile boolean finish = false;
 
     @Inject
     public ProxyRepositoryManager(final ProxyRepositoryConfig proxyRepositoryConfig) {
-        this(getPath(proxyRepositoryConfig.getDir()), getFormat(proxyRepositoryConfig.getFormat()), createScheduler(proxyRepositoryConfig.getRollCron()));
+        this(getPath(proxyRepositoryConfig.getDir()),
+                getFormat(proxyRepositoryConfig.getFormat()),
+                createScheduler(proxyRepositoryConfig.getRollCron()),
+                proxyRepositoryConfig.isUseJournal());
     }
 
     ProxyRepositoryManager(final Path repoDir,
                            final String repositoryFormat,
                            final Scheduler scheduler) {
+        this(repoDir, repositoryFormat, scheduler, false);
+    }
+
+    ProxyRepositoryManager(final Path repoDir,
+                           final String repositoryFormat,
+                           final Scheduler scheduler,
+                           final boolean useJournal) {
         this.rootRepoDir = repoDir;
         this.repositoryFormat = repositoryFormat;
         this.scheduler = scheduler;
+        this.useJournal = useJournal;
     }
 
     private static Path getPath(final String repoDir) {
@@ -167,7 +179,8 @@ public class ProxyRepositoryManager implements HasHealthCheck {
                                                     false,
                                                     lockDeleteAgeMs,
                                                     true,
-                                                    rolledRepositoryQueue)
+                                                    rolledRepositoryQueue,
+                                                    useJournal)
                                                     .roll();
                                         } catch (final IOException e) {
                                             LOGGER.warn("Failed to rename locked repository: " + file);
@@ -179,7 +192,8 @@ public class ProxyRepositoryManager implements HasHealthCheck {
                                                 false,
                                                 lockDeleteAgeMs,
                                                 true,
-                                                rolledRepositoryQueue)
+                                                rolledRepositoryQueue,
+                                                useJournal)
                                                 .roll();
                                     }
                                 }
@@ -227,7 +241,8 @@ public class ProxyRepositoryManager implements HasHealthCheck {
                         false,
                         lockDeleteAgeMs,
                         false,
-                        rolledRepositoryQueue);
+                        rolledRepositoryQueue,
+                        useJournal);
             } else {
                 final String dir = FileUtil.getCanonicalPath(rootRepoDir) + "/"
                         + DateUtil.createFileDateTimeString(System.currentTimeMillis());
@@ -238,7 +253,8 @@ public class ProxyRepositoryManager implements HasHealthCheck {
                         true,
                         lockDeleteAgeMs,
                         false,
-                        rolledRepositoryQueue);
+                        rolledRepositoryQueue,
+                        useJournal);
             }
             activeRepository.set(stroomZipRepository);
         }
@@ -208,7 +208,8 @@ public final class ProxyRepositoryReader {
                         proxyRepositoryReaderConfig.getMaxFileScan(),
                         proxyRepositoryReaderConfig.getMaxConcurrentMappedFiles(),
                         proxyRepositoryReaderConfig.getMaxAggregation(),
-                        proxyRepositoryReaderConfig.getMaxStreamSize());
+                        proxyRepositoryReaderConfig.getMaxStreamSize(),
+                        readyToProcess.getJournal());
 
                 repositoryProcessor.process();
             }
@@ -0,0 +1,255 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.proxy.repo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stroom.util.io.StreamUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * An append only journal of the zip files in a repository that are ready to be processed. Each line is the path of
+ * a zip file relative to the root of the repository. The journal lets the repository processor find work without
+ * walking the whole repository tree, which is slow on a busy proxy with millions of small files.
+ * <p>
+ * Entries are read in order and the position of the last processed entry is committed once the files have been dealt
+ * with. The journal file is deleted when every entry has been processed. Files that no longer exist when they are
+ * read from the journal are ignored so it does not matter if a file is also found and processed by a walk of the
+ * repository, e.g. the walk used to recover from a restart.
+ */
+class RepositoryJournal {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryJournal.class);
+
+    static final String JOURNAL_FILE_NAME = "ready.journal";
+    private static final String COMPACT_EXTENSION = ".compact";
+
+    // Rewrite the journal once this many bytes of it have been processed.
+    private static final long COMPACT_THRESHOLD = 8 * 1024 * 1024;
+
+    private final Supplier<Path> rootDirSupplier;
+    private final Set<Path> dirsToClean = new HashSet<>();
+
+    private long position;
+    private boolean recoveryRequired = true;
+    private boolean fullCleanRequired = true;
+
+    /**
+     * @param rootDirSupplier Supplies the current root directory of the repository as it can be renamed when a
+     *                        rolling repository is unlocked.
+     */
+    RepositoryJournal(final Supplier<Path> rootDirSupplier) {
+        this.rootDirSupplier = rootDirSupplier;
+    }
+
+    /**
+     * Record that a zip file is ready to be processed.
+     *
+     * @param file The path of the zip file relative to the repository root.
+     */
+    synchronized void add(final String file) {
+        add(List.of(file));
+    }
+
+    private void add(final Collection<String> files) {
+        if (files.size() > 0) {
+            final StringBuilder sb = new StringBuilder();
+            files.forEach(file -> sb.append(file).append('\n'));
+            try (final OutputStream outputStream = Files.newOutputStream(getJournalFile(),
+                    StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND)) {
+                outputStream.write(sb.toString().getBytes(StreamUtil.DEFAULT_CHARSET));
+            } catch (final IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Read the next entries from the journal that are still to be processed.
+     *
+     * @param maxFiles The maximum number of entries to read.
+     * @return A batch of files that must be committed once processed.
+     */
+    synchronized Batch read(final int maxFiles) throws IOException {
+        final Path rootDir = rootDirSupplier.get();
+        final Path journalFile = getJournalFile();
+        final List<Path> files = new ArrayList<>();
+        long endPosition = position;
+        int entryCount = 0;
+
+        if (Files.isRegularFile(journalFile)) {
+            try (final FileChannel channel = FileChannel.open(journalFile, StandardOpenOption.READ)) {
+                channel.position(position);
+                final InputStream inputStream = Channels.newInputStream(channel);
+                final BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream,
+                        StreamUtil.DEFAULT_CHARSET));
+
+                String line;
+                while (entryCount < maxFiles && (line = reader.readLine()) != null) {
+                    endPosition += line.getBytes(StreamUtil.DEFAULT_CHARSET).length + 1;
+                    entryCount++;
+
+                    if (line.length() > 0) {
+                        final Path file = rootDir.resolve(line);
+                        // Files may have been processed by a walk of the repository already.
+                        if (Files.isRegularFile(file)) {
+                            files.add(file);
+                        } else {
+                            LOGGER.debug("Ignoring journal entry for missing file {}", file);
+                        }
+                    }
+                }
+            }
+        }
+
+        return new Batch(files, entryCount, endPosition);
+    }
+
+    /**
+     * Mark the entries in a batch as processed.
+     *
+     * @param batch The batch that has been processed.
+     * @param parts The part files that the batch was fragmented into. Any that still exist, e.g. because they could
+     *              not be forwarded, are added to the end of the journal to be processed again.
+     * @return The number of part files that were added to the journal again.
+     */
+    synchronized int commit(final Batch batch, final Collection<Path> parts) throws IOException {
+        final Path rootDir = rootDirSupplier.get();
+        final Path journalFile = getJournalFile();
+
+        final List<String> requeue = new ArrayList<>();
+        batch.getFiles().forEach(file -> dirsToClean.add(file.getParent()));
+        parts.forEach(file -> {
+            dirsToClean.add(file.getParent());
+            if (Files.isRegularFile(file)) {
+                requeue.add(rootDir.relativize(file).toString());
+            }
+        });
+        add(requeue);
+
+        position = batch.getEndPosition();
+        final long length = Files.isRegularFile(journalFile) ? Files.size(journalFile) : 0;
+        if (position >= length) {
+            // Everything has been processed.
+            Files.deleteIfExists(journalFile);
+            position = 0;
+
+        } else if (position >= COMPACT_THRESHOLD) {
+            // Remove the entries we have processed.
+            final Path compactFile = journalFile.resolveSibling(JOURNAL_FILE_NAME + COMPACT_EXTENSION);
+            try (final FileChannel in = FileChannel.open(journalFile, StandardOpenOption.READ);
+                 final FileChannel out = FileChannel.open(compactFile,
+                         StandardOpenOption.CREATE,
+                         StandardOpenOption.WRITE,
+                         StandardOpenOption.TRUNCATE_EXISTING)) {
+                long transferred = 0;
+                while (position + transferred < length) {
+                    transferred += in.transferTo(position + transferred, length - position - transferred, out);
+                }
+            }
+            Files.move(compactFile, journalFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            position = 0;
+        }
+
+        return requeue.size();
+    }
+
+    /**
+     * @return The directories that contained processed files since this was last called.
+     */
+    synchronized Set<Path> takeDirsToClean() {
+        final Set<Path> dirs = new HashSet<>(dirsToClean);
+        dirsToClean.clear();
+        return dirs;
+    }
+
+    /**
+     * @return True until the repository has been walked once to find any files that are not in the journal, e.g.
+     * files written before a restart.
+     */
+    synchronized boolean isRecoveryRequired() {
+        return recoveryRequired;
+    }
+
+    synchronized void setRecovered() {
+        recoveryRequired = false;
+    }
+
+    /**
+     * @return True until the whole repository has been cleaned once, e.g. to remove lock files left by a restart.
+     */
+    synchronized boolean isFullCleanRequired() {
+        return fullCleanRequired;
+    }
+
+    synchronized void setFullyCleaned() {
+        fullCleanRequired = false;
+    }
+
+    private Path getJournalFile() {
+        return rootDirSupplier.get().resolve(JOURNAL_FILE_NAME);
+    }
+
+    static class Batch {
+        private final List<Path> files;
+        private final int entryCount;
+        private final long endPosition;
+
+        Batch(final List<Path> files, final int entryCount, final long endPosition) {
+            this.files = files;
+            this.entryCount = entryCount;
+            this.endPosition = endPosition;
+        }
+
+        /**
+         * @return The files in this batch that still exist.
+         */
+        List<Path> getFiles() {
+            return files;
+        }
+
+        /**
+         * @return The number of journal entries read including those for files that no longer exist.
+         */
+        int getEntryCount() {
+            return entryCount;
+        }
+
+        long getEndPosition() {
+            return endPosition;
+        }
+    }
+}
@@ -39,6 +39,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -46,6 +47,10 @@ import java.util.stream.Collectors;
 
 /**
  * Class that reads a nested directory tree of stroom zip files.
+ * <p>
+ * If the repository keeps a {@link RepositoryJournal} then the files to process are read from the journal rather than
+ * found by walking the directory tree. The tree is still walked the first time the repository is processed to pick up
+ * any files that are not in the journal, e.g. files written before a restart.
  */
 public final class RepositoryProcessor {
     private static final Logger LOGGER = LoggerFactory.getLogger(RepositoryProcessor.class);
@@ -61,6 +66,7 @@ public final class RepositoryProcessor {
     private final long maxUncompressedFileSize;
     private final Path repoPath;
     private final String repoDir;
+    private final RepositoryJournal journal;
 
     public RepositoryProcessor(final ExecutorProvider executorProvider,
                                final TaskContextFactory taskContextFactory,
@@ -71,6 +77,28 @@ public final class RepositoryProcessor {
                                final int maxConcurrentMappedFiles,
                                final int maxFilesPerAggregate,
                                final long maxUncompressedFileSize) {
+        this(executorProvider,
+                taskContextFactory,
+                fileSetProcessorProvider,
+                proxyDir,
+                threadCount,
+                maxFileScan,
+                maxConcurrentMappedFiles,
+                maxFilesPerAggregate,
+                maxUncompressedFileSize,
+                null);
+    }
+
+    RepositoryProcessor(final ExecutorProvider executorProvider,
+                        final TaskContextFactory taskContextFactory,
+                        final Provider<FileSetProcessor> fileSetProcessorProvider,
+                        final String proxyDir,
+                        final int threadCount,
+                        final int maxFileScan,
+                        final int maxConcurrentMappedFiles,
+                        final int maxFilesPerAggregate,
+                        final long maxUncompressedFileSize,
+                        final RepositoryJournal journal) {
         this.executorProvider = executorProvider;
         this.taskContextFactory = taskContextFactory;
         this.fileSetProcessorProvider = fileSetProcessorProvider;
@@ -81,6 +109,7 @@ public final class RepositoryProcessor {
         this.maxUncompressedFileSize = maxUncompressedFileSize;
         repoPath = Paths.get(proxyDir);
         repoDir = FileUtil.getCanonicalPath(repoPath);
+        this.journal = journal;
     }
 
     /**
@@ -107,18 +136,28 @@ public final class RepositoryProcessor {
                     final ErrorReceiver errorReceiver = (path, message) ->
                             addErrorMessage(path, message, true);
 
-                    // Keep processing until we no longer reach the maximum file scan limit.
-                    boolean reachedFileScanLimit;
-                    do {
-                        // Break down the zip repository so that all zip files only contain a single stream.
-                        // We do this so that we can form new aggregates that contain less files than the
-                        // maximum number or are smaller than the maximum size
-                        reachedFileScanLimit = fragmentZipFiles(executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver);
+                    if (journal != null && !journal.isRecoveryRequired()) {
+                        processJournal(taskContext, errorReceiver);
 
-                        // Aggregate the zip files.
-                        aggregateZipFiles(executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver);
+                    } else {
+                        // Keep processing until we no longer reach the maximum file scan limit.
+                        boolean reachedFileScanLimit;
+                        do {
+                            // Break down the zip repository so that all zip files only contain a single stream.
+                            // We do this so that we can form new aggregates that contain less files than the
+                            // maximum number or are smaller than the maximum size
+                            reachedFileScanLimit = fragmentZipFiles(executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver);
 
-                    } while (reachedFileScanLimit);
+                            // Aggregate the zip files.
+                            aggregateZipFiles(executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver);
+
+                        } while (reachedFileScanLimit);
+
+                        if (journal != null && !Thread.currentThread().isInterrupted()) {
+                            // From now on we can get new files from the journal.
+                            journal.setRecovered();
+                        }
+                    }
 
                     LOGGER.debug("Completed");
 
@@ -142,7 +181,8 @@ public final class RepositoryProcessor {
                                      final ErrorReceiver errorReceiver) {
         final Function<TaskContext, Boolean> function = taskContext -> {
             final ZipFragmenterFileProcessor zipFragmenter = new ZipFragmenterFileProcessor(
-                    executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver);
+                    executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver, parts -> {
+            });
 
             final AtomicInteger fileCount = new AtomicInteger();
             try {
@@ -188,31 +228,88 @@ public final class RepositoryProcessor {
         return supplier.get();
     }
 
+    /**
+     * Process the files in the journal in batches until we have read everything or some files could not be
+     * forwarded, in which case we will try again next time.
+     */
+    private void processJournal(final TaskContext taskContext, final ErrorReceiver errorReceiver) throws IOException {
+        RepositoryJournal.Batch batch;
+        int unfinished;
+        do {
+            batch = journal.read(maxFileScan);
+
+            // Break down the zip files so that they only contain a single stream.
+            final Set<Path> parts = fragmentZipFiles(executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver, batch.getFiles());
+
+            // Aggregate the zip files.
+            aggregateZipFiles(executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver, parts);
+
+            unfinished = journal.commit(batch, parts);
+        } while (batch.getEntryCount() >= maxFileScan && unfinished == 0 && !Thread.currentThread().isInterrupted());
+    }
+
+    private Set<Path> fragmentZipFiles(final ExecutorProvider executorProvider,
+                                       final TaskContext parentContext,
+                                       final TaskContextFactory taskContextFactory,
+                                       final int threadCount,
+                                       final ErrorReceiver errorReceiver,
+                                       final List<Path> files) {
+        final Function<TaskContext, Set<Path>> function = taskContext -> {
+            final Set<Path> parts = ConcurrentHashMap.newKeySet();
+            final ZipFragmenterFileProcessor zipFragmenter = new ZipFragmenterFileProcessor(
+                    executorProvider, taskContext, taskContextFactory, threadCount, errorReceiver, parts::addAll);
+
+            for (final Path file : files) {
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                // Files that could not be forwarded last time have already been fragmented.
+                if (PartsPathUtil.isPart(file)) {
+                    parts.add(file);
+                } else {
+                    zipFragmenter.process(file);
+                }
+            }
+
+            // Wait for the fragmenter to complete.
+            zipFragmenter.await();
+
+            return parts;
+        };
+        final Supplier<Set<Path>> supplier = taskContextFactory.contextResult(parentContext, "Fragmenting Repository - " + repoDir, function);
+        return supplier.get();
+    }
+
     private void aggregateZipFiles(final ExecutorProvider executorProvider,
                                    final TaskContext parentContext,
                                    final TaskContextFactory taskContextFactory,
                                    final int threadCount,
-                                   final ErrorReceiver errorReceiver) {
-        final Consumer<TaskContext> consumer = taskContext -> {
-            final ZipInfoConsumer zipInfoConsumer = new ZipInfoConsumer(
-                    maxFilesPerAggregate,
-                    maxConcurrentMappedFiles,
-                    maxUncompressedFileSize,
-                    errorReceiver,
-                    fileSetProcessorProvider,
-                    executorProvider,
-                    parentContext,
-                    taskContextFactory,
-                    threadCount);
-            final ZipInfoExtractor zipInfoExtractor = new ZipInfoExtractor(errorReceiver);
-            final ZipInfoExtractorFileProcessor fileProcessor = new ZipInfoExtractorFileProcessor(
-                    zipInfoExtractor,
-                    zipInfoConsumer,
-                    executorProvider,
-                    parentContext,
-                    taskContextFactory,
-                    threadCount);
+                                   final ErrorReceiver errorReceiver,
+                                   final Set<Path> parts) {
+        aggregateZipFiles(executorProvider, parentContext, taskContextFactory, threadCount, errorReceiver, (taskContext, fileProcessor) -> {
+            for (final Path file : parts) {
+                taskContext.info(() -> FileUtil.getCanonicalPath(file));
+
+                if (Thread.currentThread().isInterrupted()) {
+                    break;
+                }
+
+                try {
+                    fileProcessor.process(file, Files.readAttributes(file, BasicFileAttributes.class));
+                } catch (final IOException | RuntimeException e) {
+                    LOGGER.error(e.getMessage(), e);
+                }
+            }
+        });
+    }
 
+    private void aggregateZipFiles(final ExecutorProvider executorProvider,
+                                   final TaskContext parentContext,
+                                   final TaskContextFactory taskContextFactory,
+                                   final int threadCount,
+                                   final ErrorReceiver errorReceiver) {
+        aggregateZipFiles(executorProvider, parentContext, taskContextFactory, threadCount, errorReceiver, (taskContext, fileProcessor) -> {
             try {
                 Files.walkFileTree(repoPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new AbstractFileVisitor() {
                     @Override
@@ -247,6 +344,36 @@ public final class RepositoryProcessor {
             } catch (final IOException | RuntimeException e) {
                 LOGGER.error(e.getMessage(), e);
             }
+        });
+    }
+
+    private void aggregateZipFiles(final ExecutorProvider executorProvider,
+                                   final TaskContext parentContext,
+                                   final TaskContextFactory taskContextFactory,
+                                   final int threadCount,
+                                   final ErrorReceiver errorReceiver,
+                                   final BiConsumer<TaskContext, ZipInfoExtractorFileProcessor> fileSource) {
+        final Consumer<TaskContext> consumer = taskContext -> {
+            final ZipInfoConsumer zipInfoConsumer = new ZipInfoConsumer(
+                    maxFilesPerAggregate,
+                    maxConcurrentMappedFiles,
+                    maxUncompressedFileSize,
+                    errorReceiver,
+                    fileSetProcessorProvider,
+                    executorProvider,
+                    parentContext,
+                    taskContextFactory,
+                    threadCount);
+            final ZipInfoExtractor zipInfoExtractor = new ZipInfoExtractor(errorReceiver);
+            final ZipInfoExtractorFileProcessor fileProcessor = new ZipInfoExtractorFileProcessor(
+                    zipInfoExtractor,
+                    zipInfoConsumer,
+                    executorProvider,
+                    parentContext,
+                    taskContextFactory,
+                    threadCount);
+
+            fileSource.accept(taskContext, fileProcessor);
 
             // Wait for the file processor to complete.
             fileProcessor.await();
@@ -392,6 +519,7 @@ public final class RepositoryProcessor {
 
     private static class ZipFragmenterFileProcessor {
         private final ZipFragmenter zipFragmenter;
+        private final Consumer<List<Path>> partsConsumer;
         private final Executor executor;
         private final TaskContext parentContext;
         private final TaskContextFactory taskContextFactory;
@@ -401,7 +529,8 @@ public final class RepositoryProcessor {
                                    final TaskContext parentContext,
                                    final TaskContextFactory taskContextFactory,
                                    final int threadCount,
-                                   final ErrorReceiver errorReceiver) {
+                                   final ErrorReceiver errorReceiver,
+                                   final Consumer<List<Path>> partsConsumer) {
             final ThreadPool fileInspectorThreadPool = new ThreadPoolImpl(
                     "Proxy File Fragmenter",
                     5,
@@ -412,6 +541,7 @@ public final class RepositoryProcessor {
             this.parentContext = parentContext;
             this.taskContextFactory = taskContextFactory;
             zipFragmenter = new ZipFragmenter(errorReceiver);
+            this.partsConsumer = partsConsumer;
         }
 
         public void process(final Path file) {
@@ -421,7 +551,7 @@ public final class RepositoryProcessor {
                     taskContext.info(() -> FileUtil.getCanonicalPath(file));
 
                     if (!Thread.currentThread().isInterrupted()) {
-                        zipFragmenter.fragment(file);
+                        partsConsumer.accept(zipFragmenter.fragment(file));
                     }
                 });
 
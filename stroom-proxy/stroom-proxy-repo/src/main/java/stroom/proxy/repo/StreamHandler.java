@@ -1,9 +1,12 @@
 package stroom.proxy.repo;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import stroom.data.zip.StroomZipEntry;
 import stroom.meta.api.AttributeMap;
 import stroom.receive.common.StroomStreamHandler;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 public interface StreamHandler extends StroomStreamHandler {
     void setAttributeMap(AttributeMap attributeMap);
@@ -15,4 +18,26 @@ public interface StreamHandler extends StroomStreamHandler {
     void handleError() throws IOException;
 
     void validate();
+
+    /**
+     * @return True if this handler can be given entries with {@link #handleRawEntry} instead of
+     * {@link #handleEntryStart}, {@link #handleEntryData} and {@link #handleEntryEnd}.
+     */
+    default boolean isRawEntrySupported() {
+        return false;
+    }
+
+    /**
+     * Handle a whole entry as the still compressed bytes of an entry in a source zip so that it can be passed on
+     * without being inflated and deflated again.
+     *
+     * @param stroomZipEntry The entry to write.
+     * @param sourceEntry    The source entry which provides the compression method, CRC and sizes.
+     * @param rawInputStream The raw bytes of the source entry.
+     */
+    default void handleRawEntry(final StroomZipEntry stroomZipEntry,
+                                final ZipArchiveEntry sourceEntry,
+                                final InputStream rawInputStream) throws IOException {
+        throw new UnsupportedOperationException("Raw entries are not supported by " + getClass().getSimpleName());
+    }
 }
@@ -39,6 +39,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.LinkedBlockingDeque;
 import java.util.concurrent.atomic.AtomicLong;
@@ -76,7 +77,7 @@ public class StroomZipRepository {
     /**
      * Name of the repository while open
      */
-    private Path currentDir;
+    private volatile Path currentDir;
 
     /**
      * Final name once finished (may be null)
@@ -87,6 +88,7 @@ public class StroomZipRepository {
     private final String executionUuid;
 
     private final LinkedBlockingDeque<StroomZipRepository> rolledRepositoryQueue;
+    private final RepositoryJournal journal;
     private int openStreamCount;
     private boolean rolled;
     private boolean finished;
@@ -98,7 +100,8 @@ public class StroomZipRepository {
                 DEFAULT_LOCK_AGE_MS,
                 DEFAULT_CLEAN_DELAY,
                 readOnly,
-                null);
+                null,
+                false);
     }
 
 //    /**
@@ -116,7 +119,7 @@ public class StroomZipRepository {
                         final int lockDeleteAgeMs,
                         final int cleanDelayMs,
                         final boolean readOnly) {
-        this(dir, repositoryFormat, lock, lockDeleteAgeMs, cleanDelayMs, readOnly, null);
+        this(dir, repositoryFormat, lock, lockDeleteAgeMs, cleanDelayMs, readOnly, null, false);
     }
 
     StroomZipRepository(final String dir,
@@ -124,12 +127,16 @@ public class StroomZipRepository {
                         final boolean lock,
                         final int lockDeleteAgeMs,
                         final boolean readOnly,
-                        final LinkedBlockingDeque<StroomZipRepository> rolledRepositoryQueue) {
-        this(dir, repositoryFormat, lock, lockDeleteAgeMs, DEFAULT_CLEAN_DELAY, readOnly, rolledRepositoryQueue);
+                        final LinkedBlockingDeque<StroomZipRepository> rolledRepositoryQueue,
+                        final boolean useJournal) {
+        this(dir, repositoryFormat, lock, lockDeleteAgeMs, DEFAULT_CLEAN_DELAY, readOnly, rolledRepositoryQueue, useJournal);
     }
 
     /**
      * Open a repository (with or without locking).
+     *
+     * @param useJournal Record the files that are ready to process in a {@link RepositoryJournal} so that they
+     *                   can be found without walking the repository.
      */
     StroomZipRepository(final String dir,
                         final String repositoryFormat,
@@ -137,10 +144,14 @@ public class StroomZipRepository {
                         final int lockDeleteAgeMs,
                         final int cleanDelayMs,
                         final boolean readOnly,
-                        final LinkedBlockingDeque<StroomZipRepository> rolledRepositoryQueue) {
+                        final LinkedBlockingDeque<StroomZipRepository> rolledRepositoryQueue,
+                        final boolean useJournal) {
         this.readOnly = readOnly;
         this.executionUuid = UUID.randomUUID().toString();
         this.rolledRepositoryQueue = rolledRepositoryQueue;
+        this.journal = useJournal
+                ? new RepositoryJournal(() -> currentDir)
+                : null;
 
         if (repositoryFormat == null || repositoryFormat.trim().length() == 0) {
             LOGGER.info("Using default repository format: {} in directory {}", DEFAULT_REPOSITORY_FORMAT, dir);
@@ -322,6 +333,13 @@ public class StroomZipRepository {
         return currentDir;
     }
 
+    /**
+     * @return The journal of files ready to process or null if this repository does not keep one.
+     */
+    RepositoryJournal getJournal() {
+        return journal;
+    }
+
     StroomZipOutputStream getStroomZipOutputStream() throws IOException {
         return getStroomZipOutputStream(null);
     }
@@ -342,10 +360,11 @@ public class StroomZipRepository {
 
         // Create directories and files in a synchronized way so that the clean() method will not remove empty
         // directories that we are just about to write to.
-        return createStroomZipOutputStream(file);
+        return createStroomZipOutputStream(file, filename);
     }
 
-    private synchronized StroomZipOutputStreamImpl createStroomZipOutputStream(final Path file) throws IOException {
+    private synchronized StroomZipOutputStreamImpl createStroomZipOutputStream(final Path file,
+                                                                              final String filename) throws IOException {
         StroomZipOutputStreamImpl outputStream;
 
         // If this repo has been marked as rolled then make attempt to finish and return null.
@@ -365,8 +384,19 @@ public class StroomZipRepository {
             public void close() throws IOException {
                 if (!closed) {
                     closed = true;
-                    closeStream();
-                    super.close();
+                    if (journal == null) {
+                        closeStream();
+                        super.close();
+                    } else {
+                        // Record the file while the stream is still open so the repository cannot be rolled and
+                        // renamed before it is in the journal.
+                        try {
+                            super.close();
+                            journal.add(filename);
+                        } finally {
+                            closeStream();
+                        }
+                    }
                 }
             }
 
@@ -412,8 +442,39 @@ public class StroomZipRepository {
     }
 
     void clean(final boolean deleteRootDirectory) {
-        LOGGER.info("clean() " + currentDir);
-        clean(currentDir, deleteRootDirectory);
+        if (journal != null && !journal.isFullCleanRequired()) {
+            // We only need to look at the directories that files have been processed from.
+            cleanJournalledDirs(deleteRootDirectory);
+        } else {
+            LOGGER.info("clean() " + currentDir);
+            clean(currentDir, deleteRootDirectory);
+            if (journal != null) {
+                journal.takeDirsToClean();
+                journal.setFullyCleaned();
+            }
+        }
+    }
+
+    private void cleanJournalledDirs(final boolean deleteRootDirectory) {
+        final Set<Path> dirs = journal.takeDirsToClean();
+        LOGGER.debug("cleanJournalledDirs() - {} dirs in {}", dirs.size(), currentDir);
+
+        final Path rootDir = getRootDir();
+        final long oldestDirMs = System.currentTimeMillis() - cleanDelayMs;
+        for (final Path dir : dirs) {
+            // Remove the directory and any parents that are now empty.
+            Path path = dir;
+            while (path != null && path.startsWith(rootDir) && Files.isDirectory(path)) {
+                if (rootDir.equals(path) && !deleteRootDirectory) {
+                    break;
+                }
+                attemptDirDeletion(path, oldestDirMs);
+                if (Files.isDirectory(path)) {
+                    break;
+                }
+                path = path.getParent();
+            }
+        }
     }
 
     private void clean(final Path path, final boolean deleteRootDirectory) {
@@ -16,6 +16,7 @@
 
 package stroom.proxy.repo;
 
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import stroom.data.zip.BufferSizeUtil;
@@ -26,16 +27,15 @@ import stroom.data.zip.StroomZipFileType;
 import stroom.data.zip.StroomZipOutputStream;
 import stroom.data.zip.StroomZipOutputStreamImpl;
 import stroom.util.io.FileUtil;
-import stroom.util.io.StreamUtil;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
 
 class ZipFragmenter {
@@ -47,12 +47,16 @@ class ZipFragmenter {
         this.errorReceiver = errorReceiver;
     }
 
-    public void fragment(final Path path) {
+    /**
+     * @return The part files that have been written for the zip.
+     */
+    public List<Path> fragment(final Path path) {
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("Getting zip info for  '" + FileUtil.getCanonicalPath(path) + "'");
         }
 
         // Create output dir.
+        final List<Path> parts = new ArrayList<>();
         final Path outputDir = PartsPathUtil.createPartsDir(path);
         if (outputDir != null) {
             if (!Files.isDirectory(outputDir)) {
@@ -101,6 +105,7 @@ class ZipFragmenter {
                                 transferEntry(stroomZipFile, stroomZipOutputStream, baseName, StroomZipFileType.Context);
                                 transferEntry(stroomZipFile, stroomZipOutputStream, baseName, StroomZipFileType.Data);
                             }
+                            parts.add(outputFile);
                             i++;
                         }
 
@@ -121,6 +126,7 @@ class ZipFragmenter {
                                 outputFile,
                                 StandardCopyOption.REPLACE_EXISTING,
                                 StandardCopyOption.ATOMIC_MOVE);
+                        parts.add(outputFile);
                     } catch (final IOException | RuntimeException e) {
                         // Unable to move file ... must be bad.
                         errorReceiver.onError(path, e.getMessage());
@@ -132,25 +138,24 @@ class ZipFragmenter {
                 }
             }
         }
+
+        return parts;
     }
 
+    /**
+     * Copy the entry without inflating it and deflating it again as the compressed bytes are unchanged.
+     */
     private void transferEntry(
             final StroomZipFile stroomZipFile,
             final StroomZipOutputStream stroomZipOutputStream,
             final String baseName,
             final StroomZipFileType type) {
         try {
-            final InputStream inputStream = stroomZipFile.getInputStream(baseName, type);
-            if (inputStream != null) {
-                try (final BufferedInputStream bufferedInputStream = new BufferedInputStream(inputStream, BufferSizeUtil.get())) {
+            final ZipArchiveEntry sourceEntry = stroomZipFile.getZipArchiveEntry(baseName, type);
+            if (sourceEntry != null) {
+                try (final InputStream inputStream = new BufferedInputStream(stroomZipFile.getRawInputStream(baseName, type), BufferSizeUtil.get())) {
                     final String outputEntryName = new StroomZipEntry(null, baseName, type).getFullName();
-                    try (final OutputStream outputStream = new BufferedOutputStream(stroomZipOutputStream.addEntry(outputEntryName), BufferSizeUtil.get())) {
-                        StreamUtil.streamToStream(bufferedInputStream, outputStream);
-                    } catch (final IOException e) {
-                        LOGGER.error(e.getMessage(), e);
-                    }
-                } catch (final IOException e) {
-                    LOGGER.error(e.getMessage(), e);
+                    stroomZipOutputStream.addRawEntry(outputEntryName, sourceEntry, inputStream);
                 }
             }
         } catch (final IOException e) {
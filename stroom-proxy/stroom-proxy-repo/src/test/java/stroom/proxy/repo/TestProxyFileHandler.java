@@ -0,0 +1,126 @@
+package stroom.proxy.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import stroom.data.zip.StreamProgressMonitor;
+import stroom.data.zip.StroomZipEntry;
+import stroom.data.zip.StroomZipFile;
+import stroom.data.zip.StroomZipOutputStream;
+import stroom.data.zip.StroomZipOutputStreamImpl;
+import stroom.meta.api.AttributeMap;
+import stroom.test.common.util.test.StroomUnitTest;
+import stroom.util.io.StreamUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestProxyFileHandler extends StroomUnitTest {
+    @AfterEach
+    void clearInterrupt() {
+        // Make sure the interrupt doesn't leak into other tests run on this thread.
+        Thread.interrupted();
+    }
+
+    @Test
+    void testSendAll() throws IOException {
+        final TestHandler handler = new TestHandler(false);
+
+        final boolean complete = send(handler, createFiles());
+
+        assertThat(complete).isTrue();
+        assertThat(handler.footers).isEqualTo(1);
+        assertThat(handler.errors).isZero();
+        assertThat(handler.received.toString(StreamUtil.DEFAULT_CHARSET)).isEqualTo("data1data2");
+    }
+
+    @Test
+    void testInterruptedPartWayThrough() throws IOException {
+        // The handler is interrupted while receiving the first file so the second file is never sent.
+        final TestHandler handler = new TestHandler(true);
+
+        final boolean complete = send(handler, createFiles());
+
+        assertThat(complete).isFalse();
+        assertThat(handler.received.toString(StreamUtil.DEFAULT_CHARSET)).isEqualTo("data1");
+
+        // The partial request must be abandoned rather than finished as if all the files were sent.
+        assertThat(handler.footers).isZero();
+        assertThat(handler.errors).isEqualTo(1);
+    }
+
+    private boolean send(final TestHandler handler, final List<Path> files) throws IOException {
+        final ProxyFileHandler proxyFileHandler = new ProxyFileHandler(() -> new byte[1024]);
+        return proxyFileHandler.sendFileSet(List.of(handler),
+                new AttributeMap(),
+                files,
+                new StreamProgressMonitor("TestProxyFileHandler"));
+    }
+
+    private List<Path> createFiles() throws IOException {
+        final Path dir = getCurrentTestDir().resolve("repo");
+        Files.createDirectories(dir);
+        return List.of(createFile(dir.resolve("001.zip"), "data1"), createFile(dir.resolve("002.zip"), "data2"));
+    }
+
+    private Path createFile(final Path file, final String data) throws IOException {
+        try (final StroomZipOutputStream stream = new StroomZipOutputStreamImpl(file)) {
+            StroomZipOutputStreamUtil.addSimpleEntry(stream, StroomZipFile.SINGLE_DATA_ENTRY,
+                    data.getBytes(StreamUtil.DEFAULT_CHARSET));
+        }
+        return file;
+    }
+
+    private static class TestHandler implements StreamHandler {
+        private final boolean interrupt;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private int footers;
+        private int errors;
+
+        TestHandler(final boolean interrupt) {
+            this.interrupt = interrupt;
+        }
+
+        @Override
+        public void setAttributeMap(final AttributeMap attributeMap) {
+        }
+
+        @Override
+        public void handleHeader() {
+        }
+
+        @Override
+        public void handleEntryStart(final StroomZipEntry stroomZipEntry) {
+        }
+
+        @Override
+        public void handleEntryData(final byte[] data, final int off, final int len) {
+            received.write(data, off, len);
+        }
+
+        @Override
+        public void handleEntryEnd() {
+            if (interrupt) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public void handleFooter() {
+            footers++;
+        }
+
+        @Override
+        public void handleError() {
+            errors++;
+        }
+
+        @Override
+        public void validate() {
+        }
+    }
+}
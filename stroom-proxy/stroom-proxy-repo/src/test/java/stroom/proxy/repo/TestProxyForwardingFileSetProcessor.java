@@ -0,0 +1,200 @@
+package stroom.proxy.repo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import stroom.data.zip.StroomZipEntry;
+import stroom.data.zip.StroomZipFile;
+import stroom.data.zip.StroomZipOutputStream;
+import stroom.data.zip.StroomZipOutputStreamImpl;
+import stroom.meta.api.AttributeMap;
+import stroom.test.common.util.test.StroomUnitTest;
+import stroom.util.io.StreamUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestProxyForwardingFileSetProcessor extends StroomUnitTest {
+    private static final String FEED_NAME = "TEST_FEED";
+    private static final String DATA = "dummy";
+
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setupExecutor() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testOneDestinationFailsWithoutBacklog() throws IOException {
+        final TestDestination good = new TestDestination(false, false);
+        final TestDestination bad = new TestDestination(true, false);
+        final FileSet fileSet = createFileSet();
+        final List<Path> files = new ArrayList<>(fileSet.getFiles());
+
+        createProcessor(good, bad).process(fileSet);
+
+        // Without backlogs the destinations are sent to together so the good destination's post is abandoned and
+        // the files are kept to be sent to both destinations again.
+        assertThat(good.completed).isZero();
+        assertThat(good.errors).isEqualTo(1);
+        assertThat(bad.errors).isEqualTo(1);
+        assertThat(good.backlog).isEmpty();
+        assertThat(bad.backlog).isEmpty();
+        assertThat(files).allMatch(Files::isRegularFile);
+
+        // The next attempt succeeds for both and each destination receives the data once.
+        bad.fail = false;
+        createProcessor(good, bad).process(createFileSet(files));
+        assertThat(good.completed).isEqualTo(1);
+        assertThat(bad.completed).isEqualTo(1);
+        assertThat(good.received.toString(StreamUtil.DEFAULT_CHARSET)).isEqualTo(DATA);
+        assertThat(bad.received.toString(StreamUtil.DEFAULT_CHARSET)).isEqualTo(DATA);
+        assertThat(files).noneMatch(Files::exists);
+    }
+
+    @Test
+    void testOneDestinationFailsWithBacklog() throws IOException {
+        final TestDestination good = new TestDestination(false, true);
+        final TestDestination bad = new TestDestination(true, true);
+        final FileSet fileSet = createFileSet();
+        final List<Path> files = new ArrayList<>(fileSet.getFiles());
+
+        createProcessor(good, bad).process(fileSet);
+
+        // Each destination is sent to separately, the failed one keeps the files in its backlog so the good one
+        // is not sent them again.
+        assertThat(good.completed).isEqualTo(1);
+        assertThat(good.errors).isZero();
+        assertThat(good.received.toString(StreamUtil.DEFAULT_CHARSET)).isEqualTo(DATA);
+        assertThat(good.backlog).isEmpty();
+        assertThat(bad.completed).isZero();
+        assertThat(bad.errors).isEqualTo(1);
+        assertThat(bad.backlog).containsExactlyElementsOf(files);
+        assertThat(files).noneMatch(Files::exists);
+    }
+
+    private ProxyForwardingFileSetProcessor createProcessor(final StreamHandler... handlers) {
+        final StreamHandlerFactory streamHandlerFactory = new StreamHandlerFactory() {
+            @Override
+            public List<StreamHandler> addReceiveHandlers(final List<StreamHandler> list) {
+                return list;
+            }
+
+            @Override
+            public List<StreamHandler> addSendHandlers(final List<StreamHandler> list) {
+                list.addAll(List.of(handlers));
+                return list;
+            }
+        };
+        return new ProxyForwardingFileSetProcessor(streamHandlerFactory, () -> new byte[1024]);
+    }
+
+    private FileSet createFileSet() throws IOException {
+        final Path dir = getCurrentTestDir().resolve("repo");
+        Files.createDirectories(dir);
+        final Path file = dir.resolve("001.zip");
+        try (final StroomZipOutputStream stream = new StroomZipOutputStreamImpl(file)) {
+            StroomZipOutputStreamUtil.addSimpleEntry(stream, StroomZipFile.SINGLE_DATA_ENTRY,
+                    DATA.getBytes(StreamUtil.DEFAULT_CHARSET));
+        }
+        return createFileSet(List.of(file));
+    }
+
+    private FileSet createFileSet(final List<Path> files) {
+        final FileSet fileSet = new FileSet(FEED_NAME);
+        files.forEach(file -> fileSet.add(new ZipInfo(file, FEED_NAME, null, null, null, null)));
+        return fileSet;
+    }
+
+    private class TestDestination implements DestinationStreamHandler {
+        private final boolean backlogEnabled;
+        private final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        private final List<Path> backlog = new ArrayList<>();
+        private volatile boolean fail;
+        private volatile int completed;
+        private volatile int errors;
+
+        TestDestination(final boolean fail, final boolean backlogEnabled) {
+            this.fail = fail;
+            this.backlogEnabled = backlogEnabled;
+        }
+
+        @Override
+        public Executor getExecutor() {
+            return executorService;
+        }
+
+        @Override
+        public boolean isBacklogEnabled() {
+            return backlogEnabled;
+        }
+
+        @Override
+        public boolean hasBacklog() {
+            return !backlog.isEmpty();
+        }
+
+        @Override
+        public boolean addToBacklog(final AttributeMap attributeMap, final List<Path> files) {
+            if (!backlogEnabled) {
+                return false;
+            }
+            backlog.addAll(files);
+            return true;
+        }
+
+        @Override
+        public void setAttributeMap(final AttributeMap attributeMap) {
+        }
+
+        @Override
+        public void handleHeader() {
+            received.reset();
+        }
+
+        @Override
+        public void handleEntryStart(final StroomZipEntry stroomZipEntry) throws IOException {
+            if (fail) {
+                throw new IOException("Destination is down");
+            }
+        }
+
+        @Override
+        public void handleEntryData(final byte[] data, final int off, final int len) {
+            received.write(data, off, len);
+        }
+
+        @Override
+        public void handleEntryEnd() {
+        }
+
+        @Override
+        public void handleFooter() {
+            completed++;
+        }
+
+        @Override
+        public void handleError() {
+            errors++;
+        }
+
+        @Override
+        public void validate() {
+        }
+    }
+}
@@ -21,6 +21,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.zip.GZIPOutputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -56,6 +59,59 @@ class TestStroomStreamProcessor {
         stroomZipFile.close();
     }
 
+    @Test
+    void testGZIPLarge() throws IOException {
+        final ExecutorService executorService = Executors.newFixedThreadPool(1);
+        try {
+            doTestGZIPLarge(executorService);
+        } finally {
+            executorService.shutdownNow();
+        }
+    }
+
+    @Test
+    void testGZIPLargeWithoutReadAhead() throws IOException {
+        doTestGZIPLarge(null);
+    }
+
+    private void doTestGZIPLarge(final Executor readAheadExecutor) throws IOException {
+        // Make the data much bigger than the buffer so that it is read ahead.
+        final StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            sb.append("Sample Data ").append(i).append("\n");
+        }
+        final String data = sb.toString();
+
+        final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
+        final GZIPOutputStream gzipOutputStream = new GZIPOutputStream(byteArrayOutputStream);
+        gzipOutputStream.write(data.getBytes(StreamUtil.DEFAULT_CHARSET));
+        gzipOutputStream.close();
+
+        final AttributeMap attributeMap = new AttributeMap();
+        attributeMap.put("TEST", "VALUE");
+        attributeMap.put("Compression", "GZIP");
+
+        final byte[] buffer = new byte[1000];
+
+        final Path zipFile = Files.createTempFile("test", "zip");
+
+        final StroomZipOutputStream stroomZipOutputStream = new StroomZipOutputStreamImpl(zipFile);
+        final List<StroomStreamHandler> list = new ArrayList<>();
+        list.add(StroomStreamHandlerUtil.createStroomStreamHandler(stroomZipOutputStream));
+        final StroomStreamProcessor stroomStreamProcessor = new StroomStreamProcessor(attributeMap, list, buffer,
+                "test", readAheadExecutor);
+
+        stroomStreamProcessor.process(new ByteArrayInputStream(byteArrayOutputStream.toByteArray()), "");
+
+        stroomZipOutputStream.close();
+
+        final StroomZipFile stroomZipFile = new StroomZipFile(zipFile);
+        assertThat(StreamUtil.streamToString(stroomZipFile.getInputStream("001", StroomZipFileType.Meta)))
+                .isEqualTo("StreamSize:" + data.length() + "\nTEST:VALUE\n");
+        assertThat(StreamUtil.streamToString(stroomZipFile.getInputStream("001", StroomZipFileType.Data))).isEqualTo(data);
+        stroomZipFile.close();
+    }
+
     @Test
     void testGZIPErrorSimple() throws IOException {
         final ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
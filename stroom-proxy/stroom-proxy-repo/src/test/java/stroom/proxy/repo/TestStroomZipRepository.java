@@ -16,6 +16,8 @@ import java.nio.file.Paths;
 import java.nio.file.attribute.FileTime;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Stream;
@@ -233,4 +235,51 @@ class TestStroomZipRepository {
         final String expectedFilename = "__id__001_myFeed_myKey1.zip";
         assertThat(zipFile.getFileName().toString()).isEqualTo(expectedFilename);
     }
+
+    @Test
+    void testJournal() throws IOException {
+        final String repoDir = FileUtil.getCanonicalPath(Files.createTempDirectory("stroom").resolve("repo4"));
+
+        final StroomZipRepository stroomZipRepository = new StroomZipRepository(
+                repoDir, null, true, 10000, false, null, true);
+        final RepositoryJournal journal = stroomZipRepository.getJournal();
+
+        final List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            try (final StroomZipOutputStreamImpl out = (StroomZipOutputStreamImpl) stroomZipRepository.getStroomZipOutputStream()) {
+                StroomZipOutputStreamUtil.addSimpleEntry(out, new StroomZipEntry(null, "file", StroomZipFileType.Data),
+                        "SOME_DATA".getBytes(CharsetConstants.DEFAULT_CHARSET));
+                files.add(out.getFile());
+            }
+        }
+
+        // Files are journalled in the locked repository and the journal moves with it when it is rolled.
+        stroomZipRepository.roll();
+        final Path rootDir = stroomZipRepository.getRootDir();
+        assertThat(Files.isRegularFile(rootDir.resolve(RepositoryJournal.JOURNAL_FILE_NAME))).isTrue();
+
+        // A file that has already gone is ignored.
+        Files.delete(rootDir.resolve(Paths.get(repoDir + ".lock").relativize(files.get(1))));
+
+        RepositoryJournal.Batch batch = journal.read(2);
+        assertThat(batch.getEntryCount()).isEqualTo(2);
+        assertThat(batch.getFiles()).hasSize(1);
+        assertThat(batch.getFiles().get(0).getFileName()).isEqualTo(files.get(0).getFileName());
+        assertThat(journal.commit(batch, Collections.emptyList())).isZero();
+
+        // Parts that still exist are added back on to the journal.
+        batch = journal.read(2);
+        assertThat(batch.getEntryCount()).isEqualTo(1);
+        assertThat(batch.getFiles()).hasSize(1);
+        assertThat(journal.commit(batch, batch.getFiles())).isEqualTo(1);
+
+        batch = journal.read(2);
+        assertThat(batch.getFiles()).hasSize(1);
+        Files.delete(batch.getFiles().get(0));
+        assertThat(journal.commit(batch, batch.getFiles())).isZero();
+
+        // Everything is processed so the journal is removed.
+        assertThat(Files.exists(rootDir.resolve(RepositoryJournal.JOURNAL_FILE_NAME))).isFalse();
+        assertThat(journal.read(2).getEntryCount()).isZero();
+    }
 }
@@ -0,0 +1,240 @@
+package stroom.receive.common;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import stroom.util.io.StreamUtil;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reads the data of a stream on another thread ahead of the thread that handles it. Reading a large stream, e.g.
+ * inflating gzip or zip data as it arrives from a client, then overlaps with the handlers writing out the data that
+ * has already been read. Only a small fixed number of buffers are used so reading waits when the handlers fall
+ * behind.
+ * <p>
+ * Data that fits in a single buffer is read and handled on the calling thread so that small posts don't pay for
+ * handing data between threads. Handlers are only ever called on the calling thread.
+ * <p>
+ * Data is also read on the calling thread if there is no executor or if every read ahead thread of
+ * {@link StroomStreamProcessor#READ_AHEAD_THREAD_POOL} is busy, so a read never waits for a thread.
+ */
+class ReadAheadReader {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadAheadReader.class);
+
+    // The number of buffers that can be read ahead of the handlers.
+    private static final int READ_AHEAD_BUFFERS = 3;
+
+    private static final int MAX_ACTIVE_READS = StroomStreamProcessor.READ_AHEAD_THREAD_POOL.getMaxPoolSize();
+    private static final AtomicInteger ACTIVE_READS = new AtomicInteger();
+
+    private final byte[] buffer;
+    private final Executor executor;
+    private byte[][] readAheadBuffers;
+
+    /**
+     * @param buffer   The buffer to read into.
+     * @param executor The executor to read ahead on, usually one for
+     *                 {@link StroomStreamProcessor#READ_AHEAD_THREAD_POOL}. If null all data is read on the calling
+     *                 thread.
+     */
+    ReadAheadReader(final byte[] buffer, final Executor executor) {
+        this.buffer = buffer;
+        this.executor = executor;
+    }
+
+    /**
+     * Read all of the data in a stream and pass it to a handler.
+     *
+     * @return The number of bytes read.
+     * @throws ReadException If the stream could not be read.
+     * @throws IOException   If the handler failed.
+     */
+    long read(final InputStream inputStream, final DataHandler handler) throws IOException {
+        final int read = eagerRead(inputStream, buffer);
+        if (read == -1) {
+            return 0;
+        }
+        handler.handle(buffer, 0, read);
+
+        // An eager read only fills part of the buffer at the end of the stream.
+        if (read < buffer.length) {
+            return read;
+        }
+
+        if (executor != null && tryAcquire()) {
+            try {
+                return read + readAhead(inputStream, handler);
+            } catch (final RejectedExecutionException e) {
+                // The executor is shutting down so carry on reading on this thread.
+                LOGGER.debug(e.getMessage(), e);
+            } finally {
+                ACTIVE_READS.decrementAndGet();
+            }
+        }
+        return read + readInline(inputStream, handler);
+    }
+
+    private static boolean tryAcquire() {
+        int active;
+        do {
+            active = ACTIVE_READS.get();
+            if (active >= MAX_ACTIVE_READS) {
+                return false;
+            }
+        } while (!ACTIVE_READS.compareAndSet(active, active + 1));
+        return true;
+    }
+
+    private long readInline(final InputStream inputStream, final DataHandler handler) throws IOException {
+        long totalRead = 0;
+        int read;
+        while ((read = eagerRead(inputStream, buffer)) != -1) {
+            handler.handle(buffer, 0, read);
+            totalRead += read;
+        }
+        return totalRead;
+    }
+
+    private long readAhead(final InputStream inputStream, final DataHandler handler) throws IOException {
+        if (readAheadBuffers == null) {
+            readAheadBuffers = new byte[READ_AHEAD_BUFFERS][buffer.length];
+        }
+
+        final BlockingQueue<byte[]> freeBuffers = new ArrayBlockingQueue<>(READ_AHEAD_BUFFERS + 1);
+        freeBuffers.add(buffer);
+        for (final byte[] readAheadBuffer : readAheadBuffers) {
+            freeBuffers.add(readAheadBuffer);
+        }
+        // Big enough for every buffer and the end of stream marker so the reader never waits to add to it.
+        final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(READ_AHEAD_BUFFERS + 2);
+        final AtomicBoolean stop = new AtomicBoolean();
+
+        // Nothing has been read from the stream yet if this is rejected so the caller can read it instead.
+        final Future<?> future = CompletableFuture.runAsync(() -> fill(inputStream, freeBuffers, chunks, stop),
+                executor);
+        try {
+            long totalRead = 0;
+            while (true) {
+                final Chunk chunk = chunks.take();
+                if (chunk.error != null) {
+                    if (chunk.error instanceof ReadException) {
+                        throw (ReadException) chunk.error;
+                    }
+                    if (chunk.error instanceof IOException) {
+                        throw new ReadException((IOException) chunk.error);
+                    }
+                    if (chunk.error instanceof RuntimeException) {
+                        throw (RuntimeException) chunk.error;
+                    }
+                    throw (Error) chunk.error;
+                }
+                if (chunk.length == -1) {
+                    return totalRead;
+                }
+
+                handler.handle(chunk.buffer, 0, chunk.length);
+                totalRead += chunk.length;
+                freeBuffers.add(chunk.buffer);
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException(e.getMessage());
+        } finally {
+            stop.set(true);
+            // Wait for the reader to finish as the stream will be used again when we return, e.g. to read the next
+            // zip entry.
+            awaitCompletion(future);
+        }
+    }
+
+    private void fill(final InputStream inputStream,
+                      final BlockingQueue<byte[]> freeBuffers,
+                      final BlockingQueue<Chunk> chunks,
+                      final AtomicBoolean stop) {
+        try {
+            while (!stop.get()) {
+                final byte[] freeBuffer = freeBuffers.poll(100, TimeUnit.MILLISECONDS);
+                if (freeBuffer != null) {
+                    final int read = eagerRead(inputStream, freeBuffer);
+                    chunks.add(new Chunk(freeBuffer, read, null));
+                    if (read == -1) {
+                        return;
+                    }
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            chunks.add(new Chunk(null, -1, new InterruptedIOException(e.getMessage())));
+        } catch (final IOException | RuntimeException | Error e) {
+            chunks.add(new Chunk(null, -1, e));
+        }
+    }
+
+    private void awaitCompletion(final Future<?> future) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                future.get();
+                break;
+            } catch (final InterruptedException e) {
+                interrupted = true;
+            } catch (final ExecutionException e) {
+                LOGGER.debug(e.getMessage(), e);
+                break;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static int eagerRead(final InputStream inputStream, final byte[] buffer) throws ReadException {
+        try {
+            return StreamUtil.eagerRead(inputStream, buffer);
+        } catch (final IOException e) {
+            throw new ReadException(e);
+        }
+    }
+
+    interface DataHandler {
+        void handle(byte[] buffer, int off, int len) throws IOException;
+    }
+
+    /**
+     * Thrown when the stream being read fails rather than the handler.
+     */
+    static class ReadException extends IOException {
+        ReadException(final IOException cause) {
+            super(cause.getMessage(), cause);
+        }
+
+        @Override
+        public synchronized IOException getCause() {
+            return (IOException) super.getCause();
+        }
+    }
+
+    private static class Chunk {
+        private final byte[] buffer;
+        private final int length;
+        private final Throwable error;
+
+        Chunk(final byte[] buffer, final int length, final Throwable error) {
+            this.buffer = buffer;
+            this.length = length;
+            this.error = error;
+        }
+    }
+}
@@ -30,6 +30,8 @@ import stroom.meta.api.AttributeMapUtil;
 import stroom.meta.api.AttributeMap;
 import stroom.meta.api.StandardHeaderArguments;
 import stroom.proxy.StroomStatusCode;
+import stroom.task.api.ThreadPoolImpl;
+import stroom.task.shared.ThreadPool;
 import stroom.util.date.DateUtil;
 import stroom.util.io.ByteCountInputStream;
 import stroom.util.io.CloseableUtil;
@@ -48,8 +50,15 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Executor;
 
 public class StroomStreamProcessor {
+    public static final ThreadPool READ_AHEAD_THREAD_POOL = new ThreadPoolImpl(
+            "Receive Read Ahead",
+            5,
+            0,
+            Runtime.getRuntime().availableProcessors());
+
     private static final String ZERO_CONTENT = "0";
     private static final Logger LOGGER = LoggerFactory.getLogger(StroomStreamProcessor.class);
     private static String hostName;
@@ -57,15 +66,27 @@ public class StroomStreamProcessor {
     private final AttributeMap globalAttributeMap;
     private final List<? extends StroomStreamHandler> stroomStreamHandlerList;
     private final byte[] buffer;
+    private final ReadAheadReader readAheadReader;
     private StreamProgressMonitor streamProgressMonitor = new StreamProgressMonitor("StroomStreamProcessor ");
     private boolean appendReceivedPath = true;
 
     @SuppressWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
     public StroomStreamProcessor(final AttributeMap attributeMap, final List<? extends StroomStreamHandler> stroomStreamHandlerList,
                                  final byte[] buffer, final String logPrefix) {
+        this(attributeMap, stroomStreamHandlerList, buffer, logPrefix, null);
+    }
+
+    /**
+     * @param readAheadExecutor The executor to read large streams ahead of the handlers on, usually one for
+     *                          {@link #READ_AHEAD_THREAD_POOL}. If null streams are read on the calling thread.
+     */
+    @SuppressWarnings({"EI_EXPOSE_REP", "EI_EXPOSE_REP2"})
+    public StroomStreamProcessor(final AttributeMap attributeMap, final List<? extends StroomStreamHandler> stroomStreamHandlerList,
+                                 final byte[] buffer, final String logPrefix, final Executor readAheadExecutor) {
         this.globalAttributeMap = attributeMap;
         this.buffer = buffer;
         this.stroomStreamHandlerList = stroomStreamHandlerList;
+        this.readAheadReader = new ReadAheadReader(buffer, readAheadExecutor);
     }
 
     public String getHostName() {
@@ -161,29 +182,7 @@ public class StroomStreamProcessor {
                 }
 
                 handleEntryStart(StroomZipFile.SINGLE_DATA_ENTRY);
-                int read = 0;
-                long totalRead = 0;
-
-                while (true) {
-                    // We have to wrap our stream reading code in a individual
-                    // try/catch so we can return to the client an error in the
-                    // case of a corrupt stream.
-                    try {
-                        read = StreamUtil.eagerRead(inputStream, buffer);
-                    } catch (final IOException ioEx) {
-                        if (compressed == true) {
-                            throw new StroomStreamException(StroomStatusCode.COMPRESSED_STREAM_INVALID, ioEx.getMessage());
-                        } else {
-                            throw ioEx;
-                        }
-                    }
-                    if (read == -1) {
-                        break;
-                    }
-                    streamProgressMonitor.progress(read);
-                    handleEntryData(buffer, 0, read);
-                    totalRead += read;
-                }
+                final long totalRead = readEntryData(inputStream, compressed);
                 handleEntryEnd();
                 final AttributeMap entryAttributeMap = AttributeMapUtil.cloneAllowable(globalAttributeMap);
                 entryAttributeMap.put(StandardHeaderArguments.STREAM_SIZE, String.valueOf(totalRead));
@@ -284,24 +283,7 @@ public class StroomStreamProcessor {
                 }
             } else {
                 handleEntryStart(stroomZipEntry);
-                long totalRead = 0;
-                int read;
-                while (true) {
-                    // We have to wrap our stream reading code in a individual
-                    // try/catch so we can return to the client an error in the
-                    // case of a corrupt stream.
-                    try {
-                        read = StreamUtil.eagerRead(zipArchiveInputStream, buffer);
-                    } catch (final IOException ioEx) {
-                        throw new StroomStreamException(StroomStatusCode.COMPRESSED_STREAM_INVALID, ioEx.getMessage());
-                    }
-                    if (read == -1) {
-                        break;
-                    }
-                    streamProgressMonitor.progress(read);
-                    handleEntryData(buffer, 0, read);
-                    totalRead += read;
-                }
+                final long totalRead = readEntryData(zipArchiveInputStream, true);
                 handleEntryEnd();
 
                 if (StroomZipFileType.Data.equals(stroomZipEntry.getStroomZipFileType())) {
@@ -347,6 +329,30 @@ public class StroomStreamProcessor {
         }
     }
 
+    /**
+     * Pass the data of an entry to the handlers. The data is read ahead on another thread when it is too big for the
+     * buffer so that reading, and inflating compressed data, overlaps with the handlers writing it.
+     *
+     * @param compressed True if the data is being inflated, in which case read errors are reported to the client as
+     *                   an invalid compressed stream.
+     * @return The number of bytes in the entry.
+     */
+    private long readEntryData(final InputStream inputStream, final boolean compressed) throws IOException {
+        try {
+            return readAheadReader.read(inputStream, (data, off, len) -> {
+                streamProgressMonitor.progress(len);
+                handleEntryData(data, off, len);
+            });
+        } catch (final ReadAheadReader.ReadException e) {
+            // We have to separate errors reading the stream from errors writing it so we can return to the client an
+            // error in the case of a corrupt stream.
+            if (compressed) {
+                throw new StroomStreamException(StroomStatusCode.COMPRESSED_STREAM_INVALID, e.getCause().getMessage());
+            }
+            throw e.getCause();
+        }
+    }
+
     public void closeHandlers() {
         for (final StroomStreamHandler handler : stroomStreamHandlerList) {
             if (handler instanceof Closeable) {
@@ -14,6 +14,8 @@ import stroom.security.api.SecurityContext;
 import stroom.task.api.ExecutorProvider;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskContextFactory;
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -24,6 +26,8 @@ import java.util.Set;
 import java.util.function.Consumer;
 
 public class ExtractionDecoratorFactory {
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(ExtractionDecoratorFactory.class);
+
     private final ExtractionTaskExecutor extractionTaskExecutor;
     private final ExtractionConfig extractionConfig;
     private final MetaService metaService;
@@ -102,6 +106,12 @@ public class ExtractionDecoratorFactory {
             receivers.put(docRef, receiver);
         });
 
+        // If none of the coprocessors need values to be extracted with a pipeline then there is no need to group
+        // values by stream so bypass extraction and pass values to the coprocessors on the index shard search threads.
+        if (receivers.size() == 1 && receivers.containsKey(null)) {
+            return createExtractionBypassReceiver(parentReceiver, receivers.get(null), streamMapCreator);
+        }
+
         // Make a task producer that will create event data extraction tasks when requested by the executor.
         final ExtractionProgressTracker tracker = new ExtractionProgressTracker();
         final ExtractionTaskProducer extractionTaskProducer = new ExtractionTaskProducer(
@@ -121,4 +131,33 @@ public class ExtractionDecoratorFactory {
         // Begin processing.
         return extractionTaskProducer.process();
     }
+
+    /**
+     * Create a receiver that skips the extraction topic, the stream mapper thread and the per stream event map. Each
+     * row is still passed to the coprocessors one at a time so aggregation is unchanged, it just happens on the
+     * calling thread.
+     */
+    private Receiver createExtractionBypassReceiver(final Receiver parentReceiver,
+                                                    final Receiver receiver,
+                                                    final StreamMapCreator streamMapCreator) {
+        final Consumer<Values> valuesConsumer = values -> {
+            try {
+                // Elevate permissions so users with only `Use` feed permission can `Read` streams.
+                final Values data = securityContext.asProcessingUserResult(() ->
+                        streamMapCreator.getValues(values.getValues()));
+
+                // Ignore values from streams that have been deleted.
+                if (data.getValues() != null) {
+                    receiver.getValuesConsumer().accept(data);
+                }
+            } catch (final RuntimeException e) {
+                LOGGER.debug(e::getMessage, e);
+                receiver.getErrorConsumer().accept(new Error(e.getMessage(), e));
+            } finally {
+                receiver.getCompletionCountConsumer().accept(1L);
+            }
+        };
+
+        return new ReceiverImpl(valuesConsumer, parentReceiver.getErrorConsumer(), parentReceiver.getCompletionCountConsumer(), parentReceiver.getFieldIndexMap());
+    }
 }
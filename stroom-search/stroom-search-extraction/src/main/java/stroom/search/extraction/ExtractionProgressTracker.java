@@ -12,6 +12,7 @@ class ExtractionProgressTracker {
     private final AtomicBoolean finishedAddingTasks = new AtomicBoolean();
     private final AtomicInteger tasksTotal = new AtomicInteger();
     private final AtomicInteger tasksCompleted = new AtomicInteger();
+    private final AtomicInteger pipelinesBuilt = new AtomicInteger();
 
     boolean isComplete() {
         LOGGER.debug(this::toString);
@@ -30,12 +31,25 @@ class ExtractionProgressTracker {
         tasksCompleted.incrementAndGet();
     }
 
+    void incrementPipelinesBuilt() {
+        pipelinesBuilt.incrementAndGet();
+    }
+
+    int getTasksCompleted() {
+        return tasksCompleted.get();
+    }
+
+    int getPipelinesBuilt() {
+        return pipelinesBuilt.get();
+    }
+
     @Override
     public String toString() {
         return "ExtractionProgressTracker{" +
                 "finishedAddingTasks=" + finishedAddingTasks +
                 ", tasksTotal=" + tasksTotal +
                 ", tasksCompleted=" + tasksCompleted +
+                ", pipelinesBuilt=" + pipelinesBuilt +
                 '}';
     }
 }
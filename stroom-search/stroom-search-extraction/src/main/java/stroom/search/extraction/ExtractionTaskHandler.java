@@ -76,6 +76,11 @@ class ExtractionTaskHandler {
 
     private ExtractionTask task;
 
+    private DocRef pipelineRef;
+    private Pipeline pipeline;
+    private IdEnrichmentFilter idEnrichmentFilter;
+    private AbstractSearchResultOutputFilter searchResultOutputFilter;
+
     @Inject
     ExtractionTaskHandler(final Store streamStore,
                           final FeedHolder feedHolder,
@@ -101,22 +106,30 @@ class ExtractionTaskHandler {
         this.securityContext = securityContext;
     }
 
-    public void exec(final TaskContext taskContext, final ExtractionTask task) {
+    /**
+     * Extract data for the supplied task. The pipeline built for the task is kept by this handler and reused for
+     * subsequent tasks that use the same extraction pipeline so that pipelines are not rebuilt for every stream.
+     */
+    public void exec(final TaskContext taskContext,
+                     final ExtractionTask task,
+                     final ExtractionProgressTracker tracker) {
         // Elevate user permissions so that inherited pipelines that the user only has 'Use' permission on can be read.
         securityContext.useAsRead(() ->
                 LAMBDA_LOGGER.logDurationIfDebugEnabled(
                         () -> {
                             if (!Thread.currentThread().isInterrupted()) {
                                 final String streamId = String.valueOf(task.getStreamId());
-                                taskContext.info(() -> "Extracting " + task.getEventIds().length + " records from stream " + streamId);
+                                taskContext.info(() -> "Extracting " + task.getEventIds().length + " records from stream " + streamId +
+                                        " (pipelines built " + tracker.getPipelinesBuilt() +
+                                        ", tasks completed " + tracker.getTasksCompleted() + ")");
 
-                                extract(task);
+                                extract(task, tracker);
                             }
                         },
                         () -> "ExtractionTaskHandler.exec()"));
     }
 
-    private void extract(final ExtractionTask task) {
+    private void extract(final ExtractionTask task, final ExtractionProgressTracker tracker) {
         try {
             this.task = task;
 
@@ -130,17 +143,10 @@ class ExtractionTaskHandler {
                 throw new ExtractionException("Extraction is enabled, but no extraction pipeline is configured.");
             }
 
-            // Get the translation that will be used to display results.
-            final PipelineDoc pipelineDoc = pipelineStore.readDocument(pipelineRef);
-            if (pipelineDoc == null) {
-                throw new ExtractionException("Unable to find result pipeline: " + pipelineRef);
-            }
-
-            // Create the parser.
-            final PipelineData pipelineData = pipelineDataCache.get(pipelineDoc);
-            final Pipeline pipeline = pipelineFactory.create(pipelineData);
-            if (pipeline == null) {
-                throw new ExtractionException("Unable to create parser for pipeline: " + pipelineRef);
+            // Build the pipeline unless we already have one for this extraction pipeline.
+            if (pipeline == null || !pipelineRef.equals(this.pipelineRef)) {
+                buildPipeline(pipelineRef);
+                tracker.incrementPipelinesBuilt();
             }
 
             // Setup the id enrichment filter to try and recreate the conditions
@@ -149,21 +155,19 @@ class ExtractionTaskHandler {
             // the search. This means that the event ids cannot be calculated by
             // just counting events.
             final String streamId = String.valueOf(task.getStreamId());
-            final IdEnrichmentFilter idEnrichmentFilter = getFilter(pipeline, IdEnrichmentFilter.class);
             idEnrichmentFilter.setup(streamId, task.getEventIds());
 
             // Setup the search result output filter to expect the same order of
             // event ids and give it the result cache and stored data to write
             // values to.
-            final AbstractSearchResultOutputFilter searchResultOutputFilter = getFilter(pipeline,
-                    AbstractSearchResultOutputFilter.class);
-
             searchResultOutputFilter.setup(task.getReceiver().getFieldIndexMap(), task.getReceiver().getValuesConsumer());
 
             // Process the stream segments.
             processData(task.getStreamId(), task.getEventIds(), pipelineRef, pipeline);
 
         } catch (final RuntimeException e) {
+            // Don't reuse a pipeline that may have been left part way through processing.
+            pipeline = null;
             task.getReceiver().getErrorConsumer().accept(new Error(e.getMessage(), e));
 
         } finally {
@@ -172,6 +176,29 @@ class ExtractionTaskHandler {
         }
     }
 
+    private void buildPipeline(final DocRef pipelineRef) {
+        this.pipeline = null;
+
+        // Get the translation that will be used to display results.
+        final PipelineDoc pipelineDoc = pipelineStore.readDocument(pipelineRef);
+        if (pipelineDoc == null) {
+            throw new ExtractionException("Unable to find result pipeline: " + pipelineRef);
+        }
+
+        // Create the parser.
+        final PipelineData pipelineData = pipelineDataCache.get(pipelineDoc);
+        final Pipeline pipeline = pipelineFactory.create(pipelineData);
+        if (pipeline == null) {
+            throw new ExtractionException("Unable to create parser for pipeline: " + pipelineRef);
+        }
+
+        idEnrichmentFilter = getFilter(pipeline, IdEnrichmentFilter.class);
+        searchResultOutputFilter = getFilter(pipeline, AbstractSearchResultOutputFilter.class);
+
+        this.pipelineRef = pipelineRef;
+        this.pipeline = pipeline;
+    }
+
     private <T extends XMLFilter> T getFilter(final Pipeline pipeline, final Class<T> clazz) {
         final List<T> filters = pipeline.findFilters(clazz);
         if (filters == null || filters.size() != 1) {
@@ -47,15 +47,17 @@ import java.util.function.Consumer;
 class ExtractionTaskProducer extends TaskProducer {
     private static final Logger LOGGER = LoggerFactory.getLogger(ExtractionTaskProducer.class);
     private static final String TASK_NAME = "Extraction";
+    private static final int TOPIC_BATCH_SIZE = 1000;
 
     private final Receiver parentReceiver;
     private final Map<DocRef, Receiver> receivers;
     private final Provider<ExtractionTaskHandler> handlerProvider;
-    private final Queue<ExtractionRunnable> taskQueue = new ConcurrentLinkedQueue<>();
+    // Tasks are queued by extraction pipeline so that a worker can quickly find more work for the pipeline it has built.
+    private final Map<DocRef, Queue<ExtractionRunnable>> taskQueues = new ConcurrentHashMap<>();
 
     private final CompletionState streamMapCreatorCompletionState = new CompletionState();
     private final Map<Long, List<Event>> streamEventMap = new ConcurrentHashMap<>();
-    private final Topic<Values> topic;
+    private final RingBufferTopic<Values> topic;
     private final ExtractionProgressTracker tracker;
 
     ExtractionTaskProducer(final TaskExecutor taskExecutor,
@@ -77,7 +79,7 @@ class ExtractionTaskProducer extends TaskProducer {
         this.tracker = tracker;
 
         // Create a queue to receive values and store them for asynchronous processing.
-        topic = new LinkedBlockingQueueTopic<>(maxStoredDataQueueSize);
+        topic = new RingBufferTopic<>(maxStoredDataQueueSize, TOPIC_BATCH_SIZE);
 
 //        // Group coprocessors by extraction pipeline.
 //        final Map<DocRef, Set<NewCoprocessor>> map = new HashMap<>();
@@ -103,6 +105,7 @@ class ExtractionTaskProducer extends TaskProducer {
             // Elevate permissions so users with only `Use` feed permission can `Read` streams.
             securityContext.asProcessingUser(() -> {
                 LOGGER.debug("Starting extraction task producer");
+                tc.info(() -> "Mapping streams (" + topic + ", pipelines built=" + tracker.getPipelinesBuilt() + ")");
 
                 try {
                     while (!streamMapCreatorCompletionState.isComplete() && !Thread.currentThread().isInterrupted()) {
@@ -168,18 +171,28 @@ class ExtractionTaskProducer extends TaskProducer {
         ExtractionRunnable task = null;
 
         if (!isComplete()) {
-            task = taskQueue.poll();
+            task = pollAnyTask();
             if (task == null) {
                 if (addTasks()) {
                     tracker.finishedAddingTasks();
                 }
-                task = taskQueue.poll();
+                task = pollAnyTask();
             }
         }
 
         return task;
     }
 
+    private ExtractionRunnable pollAnyTask() {
+        for (final Queue<ExtractionRunnable> queue : taskQueues.values()) {
+            final ExtractionRunnable task = queue.poll();
+            if (task != null) {
+                return task;
+            }
+        }
+        return null;
+    }
+
     private boolean addTasks() {
         final boolean completedEventMapping = this.streamMapCreatorCompletionState.isComplete();
         for (final Entry<Long, List<Event>> entry : streamEventMap.entrySet()) {
@@ -201,7 +214,7 @@ class ExtractionTaskProducer extends TaskProducer {
             if (docRef != null) {
                 tracker.incrementTasksTotal();
                 final ExtractionTask task = new ExtractionTask(streamId, eventIds, docRef, receiver);
-                taskQueue.offer(new ExtractionRunnable(task, handlerProvider, tracker));
+                taskQueues.computeIfAbsent(docRef, k -> new ConcurrentLinkedQueue<>()).offer(new ExtractionRunnable(task));
                 tasksCreated.incrementAndGet();
 
             } else {
@@ -238,29 +251,57 @@ class ExtractionTaskProducer extends TaskProducer {
     public String toString() {
         return "ExtractionTaskProducer{" +
                 "tracker=" + tracker +
+                ", topic=" + topic +
                 '}';
     }
 
-    private static class ExtractionRunnable implements Consumer<TaskContext> {
+    /**
+     * Take the next queued task that uses the supplied extraction pipeline so that a worker can reuse the pipeline it
+     * has already built.
+     *
+     * @return The next task for the pipeline or null if there are none at this time.
+     */
+    private ExtractionTask pollTask(final DocRef pipelineRef) {
+        final Queue<ExtractionRunnable> queue = taskQueues.get(pipelineRef);
+        for (int attempt = 0; attempt < 2 && !isComplete(); attempt++) {
+            final ExtractionRunnable runnable = queue.poll();
+            if (runnable != null) {
+                return runnable.getTask();
+            }
+
+            // Try and create some more tasks.
+            if (attempt == 0 && addTasks()) {
+                tracker.finishedAddingTasks();
+            }
+        }
+        return null;
+    }
+
+    private class ExtractionRunnable implements Consumer<TaskContext> {
         private final ExtractionTask task;
-        private final Provider<ExtractionTaskHandler> handlerProvider;
-        private final ExtractionProgressTracker tracker;
 
-        ExtractionRunnable(final ExtractionTask task,
-                           final Provider<ExtractionTaskHandler> handlerProvider,
-                           final ExtractionProgressTracker tracker) {
+        ExtractionRunnable(final ExtractionTask task) {
             this.task = task;
-            this.handlerProvider = handlerProvider;
-            this.tracker = tracker;
         }
 
         @Override
         public void accept(final TaskContext taskContext) {
-            try {
-                final ExtractionTaskHandler handler = handlerProvider.get();
-                handler.exec(taskContext, task);
-            } finally {
-                tracker.incrementTasksCompleted();
+            // Feed this task and any other queued tasks for the same extraction pipeline through a single handler so
+            // that the pipeline is only built once.
+            final ExtractionTaskHandler handler = handlerProvider.get();
+            ExtractionTask current = task;
+            while (current != null) {
+                try {
+                    handler.exec(taskContext, current, tracker);
+                } finally {
+                    tracker.incrementTasksCompleted();
+                }
+
+                if (Thread.currentThread().isInterrupted()) {
+                    current = null;
+                } else {
+                    current = pollTask(current.getPipelineRef());
+                }
             }
         }
 
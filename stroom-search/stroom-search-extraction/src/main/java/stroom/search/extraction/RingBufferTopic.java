@@ -0,0 +1,258 @@
+package stroom.search.extraction;
+
+import stroom.util.logging.LambdaLogger;
+import stroom.util.logging.LambdaLoggerFactory;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded topic for many producing threads and a single consuming thread that avoids taking a lock for every
+ * item. Producers claim a slot in a ring buffer with a single atomic increment and only back off when the buffer is
+ * full. The consumer drains all published items into a batch array in one pass and then serves items from the
+ * batch.
+ * <p>
+ * Threads that still have to wait after briefly spinning are parked until they are signalled rather than polling.
+ * The consumer registers itself before parking and is unparked by the next producer to publish an item. Producers
+ * waiting for space wait on a condition that the consumer only signals if there are producers waiting.
+ * <p>
+ * Items must not be null. {@link #get()} must only ever be called by one thread at a time.
+ */
+class RingBufferTopic<T> implements Topic<T> {
+    private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(RingBufferTopic.class);
+
+    private static final int SPIN_TRIES = 100;
+
+    private final AtomicReferenceArray<T> buffer;
+    private final int capacity;
+    private final int mask;
+
+    // The next sequence to be claimed by a producer.
+    private final AtomicLong tail = new AtomicLong();
+    // The next sequence to be consumed.
+    private final AtomicLong head = new AtomicLong();
+
+    // The consumer thread if it is parked waiting for items.
+    private volatile Thread waitingConsumer;
+
+    // Producers that are waiting for space.
+    private final ReentrantLock notFullLock = new ReentrantLock();
+    private final Condition notFull = notFullLock.newCondition();
+    private final AtomicInteger waitingProducers = new AtomicInteger();
+
+    // The number of items taken by the consumer, published for other threads reporting the depth.
+    private final AtomicLong taken = new AtomicLong();
+    private final AtomicLong producerWaitNanos = new AtomicLong();
+    private final AtomicLong consumerWaitNanos = new AtomicLong();
+    private volatile long maxDepth;
+
+    // Consumer state, only written by the consuming thread.
+    private final Object[] batch;
+    private int batchPos;
+    private int batchLength;
+    private long takenCount;
+
+    RingBufferTopic(final int capacity, final int batchSize) {
+        // Round the capacity up to a power of 2 so slots can be found with a mask.
+        int size = 1;
+        while (size < capacity && size < (1 << 30)) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.buffer = new AtomicReferenceArray<>(size);
+        this.batch = new Object[Math.max(1, Math.min(batchSize, size))];
+    }
+
+    @Override
+    public void accept(final T t) {
+        if (t == null) {
+            throw new NullPointerException("Null item supplied");
+        }
+
+        final long sequence = tail.getAndIncrement();
+
+        // Wait until the consumer has freed the slot we have claimed.
+        if (sequence - head.get() >= capacity) {
+            final long startTime = System.nanoTime();
+            int tries = 0;
+            while (sequence - head.get() >= capacity && tries < SPIN_TRIES * 2) {
+                tries = backOff(tries);
+            }
+            if (sequence - head.get() >= capacity) {
+                awaitSpace(sequence);
+            }
+            producerWaitNanos.addAndGet(System.nanoTime() - startTime);
+        }
+
+        // Publish with a volatile write so that a consumer that has registered itself as waiting either sees the item
+        // or is seen by us and unparked.
+        buffer.set((int) sequence & mask, t);
+        final Thread consumer = waitingConsumer;
+        if (consumer != null) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void awaitSpace(final long sequence) {
+        notFullLock.lock();
+        try {
+            waitingProducers.incrementAndGet();
+            try {
+                while (sequence - head.get() >= capacity) {
+                    notFull.await();
+                }
+            } finally {
+                waitingProducers.decrementAndGet();
+            }
+        } catch (final InterruptedException e) {
+            // Continue to interrupt.
+            Thread.currentThread().interrupt();
+
+            LOGGER.debug(e::getMessage, e);
+            throw new RuntimeException(e.getMessage(), e);
+        } finally {
+            notFullLock.unlock();
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get() {
+        if (batchPos == batchLength) {
+            fillBatch();
+        }
+
+        final T t = (T) batch[batchPos];
+        batch[batchPos++] = null;
+        taken.lazySet(++takenCount);
+        return t;
+    }
+
+    private void fillBatch() {
+        batchPos = 0;
+        batchLength = drain();
+        if (batchLength == 0) {
+            final long startTime = System.nanoTime();
+            int tries = 0;
+            while (batchLength == 0) {
+                if (tries < SPIN_TRIES * 2) {
+                    tries = backOff(tries);
+                    batchLength = drain();
+                } else {
+                    batchLength = park();
+                }
+            }
+            consumerWaitNanos.addAndGet(System.nanoTime() - startTime);
+        }
+    }
+
+    private int park() {
+        checkInterrupted();
+
+        // Register before checking again so that a producer publishing after the check will unpark us.
+        waitingConsumer = Thread.currentThread();
+        try {
+            final int count = drain();
+            if (count == 0) {
+                LockSupport.park(this);
+            }
+            return count;
+        } finally {
+            waitingConsumer = null;
+        }
+    }
+
+    private int drain() {
+        long sequence = head.get();
+
+        final long depth = tail.get() - sequence;
+        if (depth > maxDepth) {
+            maxDepth = depth;
+        }
+
+        int count = 0;
+        while (count < batch.length) {
+            final int index = (int) sequence & mask;
+            final T t = buffer.get(index);
+            if (t == null) {
+                // The next slot has not been published yet.
+                break;
+            }
+            buffer.lazySet(index, null);
+            batch[count++] = t;
+            sequence++;
+        }
+
+        if (count > 0) {
+            // Free the slots for producers and wake any that are waiting for space.
+            head.set(sequence);
+            if (waitingProducers.get() > 0) {
+                notFullLock.lock();
+                try {
+                    notFull.signalAll();
+                } finally {
+                    notFullLock.unlock();
+                }
+            }
+        }
+        return count;
+    }
+
+    private int backOff(final int tries) {
+        checkInterrupted();
+
+        if (tries < SPIN_TRIES) {
+            Thread.onSpinWait();
+        } else {
+            Thread.yield();
+        }
+        return tries + 1;
+    }
+
+    private void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted()) {
+            final InterruptedException e = new InterruptedException();
+            LOGGER.debug(e::getMessage, e);
+            throw new RuntimeException("Interrupted", e);
+        }
+    }
+
+    /**
+     * @return The number of items that have been added but not yet taken by the consumer. This may be called from
+     * any thread so is only an estimate.
+     */
+    long getDepth() {
+        return Math.max(0, tail.get() - taken.get());
+    }
+
+    long getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * @return The total time producers have spent waiting for space in the buffer.
+     */
+    long getProducerWaitNanos() {
+        return producerWaitNanos.get();
+    }
+
+    /**
+     * @return The total time the consumer has spent waiting for items.
+     */
+    long getConsumerWaitNanos() {
+        return consumerWaitNanos.get();
+    }
+
+    @Override
+    public String toString() {
+        return "depth=" + getDepth() +
+                ", maxDepth=" + getMaxDepth() +
+                ", producerWait=" + (getProducerWaitNanos() / 1000000) + "ms" +
+                ", consumerWait=" + (getConsumerWaitNanos() / 1000000) + "ms";
+    }
+}
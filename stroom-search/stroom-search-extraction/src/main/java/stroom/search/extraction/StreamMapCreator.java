@@ -25,10 +25,10 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
 class StreamMapCreator {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(StreamMapCreator.class);
@@ -38,7 +38,7 @@ class StreamMapCreator {
     private final int streamIdIndex;
     private final int eventIdIndex;
 
-    private Map<Long, Optional<Object>> fiteredStreamCache;
+    private final Map<Long, Optional<Object>> fiteredStreamCache = new ConcurrentHashMap<>();
     private ExtractionException error;
 
     StreamMapCreator(final String[] storedFields,
@@ -86,11 +86,27 @@ class StreamMapCreator {
         }
     }
 
+    /**
+     * Get the values to pass to coprocessors for the supplied stored data without grouping them by stream. This
+     * checks the stream the values came from still exists and can be read and is safe to call from multiple threads.
+     *
+     * @return The values or values containing null if the stream has been deleted.
+     */
+    Values getValues(final Val[] storedData) {
+        if (error != null) {
+            throw error;
+        }
+
+        final long longStreamId = getLong(storedData, streamIdIndex);
+        final long longEventId = getLong(storedData, eventIdIndex);
+        return getData(longStreamId, longEventId, storedData);
+    }
+
     private Values getData(final long longStreamId, final long longEventId, final Val[] storedData) {
         if (longStreamId != -1 && longEventId != -1) {
-            // Create a map to cache stream lookups. If we have cached more than a million streams then discard the map and start again to avoid using too much memory.
-            if (fiteredStreamCache == null || fiteredStreamCache.size() > 1000000) {
-                fiteredStreamCache = new HashMap<>();
+            // Cache stream lookups. If we have cached more than a million streams then clear the cache and start again to avoid using too much memory.
+            if (fiteredStreamCache.size() > 1000000) {
+                fiteredStreamCache.clear();
             }
 
             final Optional<Object> optional = fiteredStreamCache.computeIfAbsent(longStreamId, k -> {
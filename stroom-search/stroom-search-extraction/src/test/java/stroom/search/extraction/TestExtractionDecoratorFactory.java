@@ -0,0 +1,269 @@
+package stroom.search.extraction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import stroom.dashboard.expression.v1.FieldIndexMap;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.docref.DocRef;
+import stroom.index.shared.IndexConstants;
+import stroom.meta.api.MetaService;
+import stroom.meta.shared.Meta;
+import stroom.query.common.v2.CoprocessorSettings;
+import stroom.search.coprocessor.Coprocessors;
+import stroom.search.coprocessor.Error;
+import stroom.search.coprocessor.NewCoprocessor;
+import stroom.search.coprocessor.Receiver;
+import stroom.search.coprocessor.ReceiverImpl;
+import stroom.search.coprocessor.Values;
+import stroom.security.mock.MockSecurityContext;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.shared.ThreadPool;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestExtractionDecoratorFactory {
+    private static final String[] STORED_FIELDS = {IndexConstants.STREAM_ID, IndexConstants.EVENT_ID, "UserId", "Bytes"};
+    private static final long DELETED_STREAM_ID = 3L;
+
+    private ExecutorService executorService;
+    private ExecutorProvider executorProvider;
+    private ExtractionTaskExecutor extractionTaskExecutor;
+    private MetaService metaService;
+
+    @BeforeEach
+    void setup() {
+        executorService = Executors.newCachedThreadPool();
+        executorProvider = new ExecutorProvider() {
+            @Override
+            public Executor get(final ThreadPool threadPool) {
+                return executorService;
+            }
+
+            @Override
+            public Executor get() {
+                return executorService;
+            }
+        };
+        extractionTaskExecutor = new ExtractionTaskExecutor(executorProvider);
+
+        metaService = mock(MetaService.class);
+        when(metaService.getMeta(anyLong())).thenAnswer(invocation ->
+                invocation.<Long>getArgument(0) == DELETED_STREAM_ID ? null : new Meta());
+    }
+
+    @AfterEach
+    void tearDown() {
+        extractionTaskExecutor.shutdown();
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testBypassMatchesExtraction() throws Exception {
+        final List<Val[]> rows = createRows();
+
+        // Send rows through the extraction topic and stream mapper as happened before extraction was bypassed.
+        final Table extracted = new Table();
+        final Receiver extractionReceiver = new ExtractionTaskProducer(
+                extractionTaskExecutor,
+                new StreamMapCreator(STORED_FIELDS, metaService),
+                createParentReceiver(),
+                createReceiverMap(extracted),
+                new ExtractionConfig().getMaxStoredDataQueueSize(),
+                new ExtractionConfig().getMaxThreadsPerTask(),
+                executorProvider,
+                new SimpleTaskContextFactory(),
+                null,
+                () -> null,
+                new MockSecurityContext(),
+                new ExtractionProgressTracker()).process();
+        send(extractionReceiver, rows);
+        extracted.waitForCompletion(rows.size());
+
+        // Send the same rows through the receiver the factory creates when no coprocessor extracts values.
+        final Table bypassed = new Table();
+        final Receiver bypassReceiver = createFactory().create(
+                null,
+                createParentReceiver(),
+                STORED_FIELDS,
+                createCoprocessors(bypassed),
+                null);
+        send(bypassReceiver, rows);
+        bypassed.waitForCompletion(rows.size());
+
+        assertThat(bypassed.errors).isEmpty();
+        assertThat(extracted.errors).isEmpty();
+        assertThat(bypassed.getRows()).isEqualTo(extracted.getRows());
+
+        // Rows from the deleted stream are excluded but still count towards completion.
+        assertThat(bypassed.getRows()).containsOnlyKeys("user1", "user2", "user3");
+        assertThat(bypassed.getRows().values().stream().mapToLong(row -> row.get(0)).sum())
+                .isEqualTo(rows.size() * 3 / 4);
+    }
+
+    @Test
+    void testBypassReportsMissingStreamId() throws Exception {
+        final Table table = new Table();
+        final Receiver receiver = createFactory().create(
+                null,
+                createParentReceiver(),
+                new String[]{IndexConstants.EVENT_ID, "UserId", "Bytes"},
+                createCoprocessors(table),
+                null);
+        send(receiver, List.of(new Val[]{ValLong.create(1L), ValString.create("user1"), ValLong.create(1L)}));
+        table.waitForCompletion(1);
+
+        assertThat(table.getRows()).isEmpty();
+        assertThat(table.errors).hasSize(1);
+        assertThat(table.errors.get(0).getMessage()).contains(IndexConstants.STREAM_ID);
+    }
+
+    private List<Val[]> createRows() {
+        // Interleave rows from several streams, including one that has been deleted, as shard searches return them.
+        final List<Val[]> rows = new ArrayList<>();
+        for (int i = 1; i <= 120; i++) {
+            final long streamId = (i % 4) + 1;
+            rows.add(new Val[]{
+                    ValLong.create(streamId),
+                    ValLong.create(i),
+                    ValString.create("user" + ((i % 3) + 1)),
+                    ValLong.create((i + 2) / 3)});
+        }
+        return rows;
+    }
+
+    private void send(final Receiver receiver, final List<Val[]> rows) throws Exception {
+        // Send values from several threads as each index shard is searched on its own thread.
+        final List<Future<?>> futures = new ArrayList<>();
+        final int threads = 4;
+        for (int thread = 0; thread < threads; thread++) {
+            final int offset = thread;
+            futures.add(executorService.submit(() -> {
+                for (int i = offset; i < rows.size(); i += threads) {
+                    receiver.getValuesConsumer().accept(new Values(rows.get(i)));
+                }
+            }));
+        }
+        for (final Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+    }
+
+    private ExtractionDecoratorFactory createFactory() {
+        return new ExtractionDecoratorFactory(
+                extractionTaskExecutor,
+                new ExtractionConfig(),
+                metaService,
+                executorProvider,
+                new SimpleTaskContextFactory(),
+                () -> null,
+                (receiver, query) -> receiver,
+                new MockSecurityContext());
+    }
+
+    private Map<DocRef, Receiver> createReceiverMap(final Table table) {
+        // Coprocessors that do not extract values are keyed by a null extraction pipeline.
+        final Map<DocRef, Receiver> receivers = new HashMap<>();
+        receivers.put(null, table);
+        return receivers;
+    }
+
+    private Coprocessors createCoprocessors(final Table table) {
+        final CoprocessorSettings settings = mock(CoprocessorSettings.class);
+        when(settings.extractValues()).thenReturn(false);
+
+        final NewCoprocessor coprocessor = mock(NewCoprocessor.class);
+        when(coprocessor.getSettings()).thenReturn(settings);
+        when(coprocessor.getFieldIndexMap()).thenReturn(table.getFieldIndexMap());
+        when(coprocessor.getValuesConsumer()).thenReturn(table.getValuesConsumer());
+        when(coprocessor.getErrorConsumer()).thenReturn(table.getErrorConsumer());
+        when(coprocessor.getCompletionCountConsumer()).thenReturn(table.getCompletionCountConsumer());
+
+        final Coprocessors coprocessors = mock(Coprocessors.class);
+        when(coprocessors.getSet()).thenReturn(Set.of(coprocessor));
+        return coprocessors;
+    }
+
+    private Receiver createParentReceiver() {
+        return new ReceiverImpl(values -> {
+        }, error -> {
+        }, count -> {
+        }, new FieldIndexMap());
+    }
+
+    /**
+     * A table grouped by user that counts rows and sums bytes.
+     */
+    private static class Table implements Receiver {
+        private final Map<String, long[]> rows = new ConcurrentHashMap<>();
+        private final List<Error> errors = new ArrayList<>();
+        private final AtomicLong completionCount = new AtomicLong();
+        private final FieldIndexMap fieldIndexMap = new FieldIndexMap();
+
+        @Override
+        public Consumer<Values> getValuesConsumer() {
+            return values -> {
+                // Values from deleted streams have no data.
+                final Val[] data = values.getValues();
+                if (data != null) {
+                    rows.merge(data[2].toString(), new long[]{1, data[3].toLong()}, (a, b) ->
+                            new long[]{a[0] + b[0], a[1] + b[1]});
+                }
+            };
+        }
+
+        @Override
+        public Consumer<Error> getErrorConsumer() {
+            return error -> {
+                synchronized (errors) {
+                    errors.add(error);
+                }
+            };
+        }
+
+        @Override
+        public Consumer<Long> getCompletionCountConsumer() {
+            return completionCount::addAndGet;
+        }
+
+        @Override
+        public FieldIndexMap getFieldIndexMap() {
+            return fieldIndexMap;
+        }
+
+        Map<String, List<Long>> getRows() {
+            final Map<String, List<Long>> map = new HashMap<>();
+            rows.forEach((k, v) -> map.put(k, List.of(v[0], v[1])));
+            return map;
+        }
+
+        void waitForCompletion(final long expected) throws InterruptedException {
+            final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+            while (completionCount.get() < expected) {
+                assertThat(System.currentTimeMillis()).isLessThan(end);
+                Thread.sleep(10);
+            }
+            assertThat(completionCount.get()).isEqualTo(expected);
+        }
+    }
+}
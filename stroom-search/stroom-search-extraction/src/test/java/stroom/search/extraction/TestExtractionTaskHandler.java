@@ -0,0 +1,231 @@
+package stroom.search.extraction;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.AttributesImpl;
+import stroom.dashboard.expression.v1.FieldIndexMap;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.data.store.api.InputStreamProvider;
+import stroom.data.store.api.SegmentInputStream;
+import stroom.data.store.api.Source;
+import stroom.data.store.api.Store;
+import stroom.docref.DocRef;
+import stroom.meta.shared.Meta;
+import stroom.pipeline.PipelineStore;
+import stroom.pipeline.errorhandler.ErrorReceiverProxy;
+import stroom.pipeline.factory.Pipeline;
+import stroom.pipeline.factory.PipelineDataCache;
+import stroom.pipeline.factory.PipelineFactory;
+import stroom.pipeline.filter.IdEnrichmentFilter;
+import stroom.pipeline.shared.PipelineDoc;
+import stroom.pipeline.shared.data.PipelineData;
+import stroom.pipeline.state.CurrentUserHolder;
+import stroom.pipeline.state.FeedHolder;
+import stroom.pipeline.state.MetaDataHolder;
+import stroom.pipeline.state.MetaHolder;
+import stroom.pipeline.state.PipelineHolder;
+import stroom.search.coprocessor.Error;
+import stroom.search.coprocessor.ReceiverImpl;
+import stroom.search.coprocessor.Values;
+import stroom.security.mock.MockSecurityContext;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.api.TaskContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TestExtractionTaskHandler {
+    private static final DocRef PIPELINE_REF = new DocRef(PipelineDoc.DOCUMENT_TYPE, "test-uuid", "test");
+    private static final long STREAM_1 = 1L;
+    private static final long STREAM_2 = 2L;
+
+    private final MetaHolder metaHolder = new MetaHolder();
+    private final ErrorReceiverProxy errorReceiverProxy = new ErrorReceiverProxy();
+    private final IdEnrichmentFilter idEnrichmentFilter = new IdEnrichmentFilter(metaHolder, errorReceiverProxy);
+    private final RecordOutputFilter recordOutputFilter = new RecordOutputFilter();
+    private final Map<Long, long[]> streamEventIds = Map.of(
+            STREAM_1, new long[]{3, 7},
+            STREAM_2, new long[]{2, 5, 9});
+
+    private PipelineFactory pipelineFactory;
+    private ExtractionTaskHandler extractionTaskHandler;
+
+    @BeforeEach
+    void setup() throws IOException {
+        idEnrichmentFilter.setTarget(recordOutputFilter);
+
+        final Store store = mock(Store.class);
+        when(store.openSource(anyLong())).thenAnswer(invocation -> createSource(invocation.getArgument(0)));
+
+        final PipelineStore pipelineStore = mock(PipelineStore.class);
+        when(pipelineStore.readDocument(PIPELINE_REF)).thenReturn(new PipelineDoc());
+        final PipelineDataCache pipelineDataCache = mock(PipelineDataCache.class);
+        when(pipelineDataCache.get(any())).thenReturn(new PipelineData());
+
+        final Pipeline pipeline = mock(Pipeline.class);
+        when(pipeline.findFilters(IdEnrichmentFilter.class)).thenReturn(List.of(idEnrichmentFilter));
+        when(pipeline.findFilters(AbstractSearchResultOutputFilter.class)).thenReturn(List.of(recordOutputFilter));
+        doAnswer(invocation -> {
+            parse(metaHolder.getMeta().getId());
+            return null;
+        }).when(pipeline).process(any(InputStream.class), anyString());
+        pipelineFactory = mock(PipelineFactory.class);
+        when(pipelineFactory.create(any())).thenReturn(pipeline);
+
+        extractionTaskHandler = new ExtractionTaskHandler(
+                store,
+                new FeedHolder(),
+                new MetaDataHolder(),
+                new CurrentUserHolder(),
+                metaHolder,
+                new PipelineHolder(),
+                errorReceiverProxy,
+                pipelineFactory,
+                pipelineStore,
+                pipelineDataCache,
+                new MockSecurityContext());
+    }
+
+    @Test
+    void testReusePipelineForSecondStream() {
+        final TaskContext taskContext = new SimpleTaskContextFactory().currentContext();
+        final ExtractionProgressTracker tracker = new ExtractionProgressTracker();
+
+        final Output output1 = new Output();
+        extractionTaskHandler.exec(taskContext,
+                new ExtractionTask(STREAM_1, streamEventIds.get(STREAM_1), PIPELINE_REF, output1.receiver),
+                tracker);
+        final Output output2 = new Output();
+        extractionTaskHandler.exec(taskContext,
+                new ExtractionTask(STREAM_2, streamEventIds.get(STREAM_2), PIPELINE_REF, output2.receiver),
+                tracker);
+
+        // The pipeline built for the first stream is reused for the second.
+        verify(pipelineFactory, times(1)).create(any());
+        assertThat(tracker.getPipelinesBuilt()).isEqualTo(1);
+
+        assertThat(output1.errors).isEmpty();
+        assertThat(output1.completionCount.get()).isEqualTo(2);
+        assertThat(output1.getRows()).containsExactly(
+                "1:3:stream 1 record 1",
+                "1:7:stream 1 record 2");
+
+        // The second stream must get its own stream and event ids rather than carrying on from the first.
+        assertThat(output2.errors).isEmpty();
+        assertThat(output2.completionCount.get()).isEqualTo(3);
+        assertThat(output2.getRows()).containsExactly(
+                "2:2:stream 2 record 1",
+                "2:5:stream 2 record 2",
+                "2:9:stream 2 record 3");
+    }
+
+    private Source createSource(final long streamId) throws IOException {
+        final Meta meta = new Meta();
+        meta.setId(streamId);
+        meta.setFeedName("TEST_FEED");
+
+        final SegmentInputStream segmentInputStream = mock(SegmentInputStream.class);
+        when(segmentInputStream.count()).thenReturn(20L);
+        final InputStreamProvider inputStreamProvider = mock(InputStreamProvider.class);
+        when(inputStreamProvider.get()).thenReturn(segmentInputStream);
+        final Source source = mock(Source.class);
+        when(source.getMeta()).thenReturn(meta);
+        when(source.get(0)).thenReturn(inputStreamProvider);
+        return source;
+    }
+
+    /**
+     * Simulate parsing the selected events of a stream by sending one record per event to the id enrichment filter.
+     */
+    private void parse(final long streamId) throws SAXException {
+        idEnrichmentFilter.startStream();
+        idEnrichmentFilter.startDocument();
+        idEnrichmentFilter.startElement("", "records", "records", new AttributesImpl());
+        for (int i = 1; i <= streamEventIds.get(streamId).length; i++) {
+            idEnrichmentFilter.startElement("", "record", "record", new AttributesImpl());
+            final AttributesImpl atts = new AttributesImpl();
+            atts.addAttribute("", "name", "name", "string", "Text");
+            atts.addAttribute("", "value", "value", "string", "stream " + streamId + " record " + i);
+            idEnrichmentFilter.startElement("", "data", "data", atts);
+            idEnrichmentFilter.endElement("", "data", "data");
+            idEnrichmentFilter.endElement("", "record", "record");
+        }
+        idEnrichmentFilter.endElement("", "records", "records");
+        idEnrichmentFilter.endDocument();
+        idEnrichmentFilter.endStream();
+    }
+
+    private static class Output {
+        private final FieldIndexMap fieldIndexMap = new FieldIndexMap();
+        private final List<Val[]> rows = new ArrayList<>();
+        private final List<Error> errors = new ArrayList<>();
+        private final AtomicLong completionCount = new AtomicLong();
+        private final ReceiverImpl receiver;
+
+        Output() {
+            fieldIndexMap.create("StreamId", true);
+            fieldIndexMap.create("EventId", true);
+            fieldIndexMap.create("Text", true);
+            receiver = new ReceiverImpl(
+                    values -> rows.add(values.getValues()),
+                    errors::add,
+                    completionCount::addAndGet,
+                    fieldIndexMap);
+        }
+
+        List<String> getRows() {
+            return rows.stream()
+                    .map(row -> Arrays.stream(row).map(Val::toString).collect(Collectors.joining(":")))
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Outputs the stream and event id that the id enrichment filter adds to each record along with the record data,
+     * in the way an extraction XSLT would.
+     */
+    private static class RecordOutputFilter extends AbstractSearchResultOutputFilter {
+        private Val[] values;
+
+        @Override
+        public void startElement(final String uri, final String localName, final String qName, final Attributes atts)
+                throws SAXException {
+            if ("record".equals(localName)) {
+                values = new Val[fieldIndexes.size()];
+                values[fieldIndexes.get("StreamId")] = ValString.create(atts.getValue("StreamId"));
+                values[fieldIndexes.get("EventId")] = ValString.create(atts.getValue("EventId"));
+            } else if ("data".equals(localName) && values != null) {
+                values[fieldIndexes.get(atts.getValue("name"))] = ValString.create(atts.getValue("value"));
+            }
+            super.startElement(uri, localName, qName, atts);
+        }
+
+        @Override
+        public void endElement(final String uri, final String localName, final String qName) throws SAXException {
+            if ("record".equals(localName)) {
+                consumer.accept(new Values(values));
+                values = null;
+            }
+            super.endElement(uri, localName, qName);
+        }
+    }
+}
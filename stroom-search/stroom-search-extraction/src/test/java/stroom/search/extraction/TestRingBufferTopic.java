@@ -0,0 +1,158 @@
+package stroom.search.extraction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestRingBufferTopic {
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setup() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testOrdering() throws Exception {
+        final RingBufferTopic<Integer> topic = new RingBufferTopic<>(16, 4);
+        final int count = 10000;
+
+        executorService.submit(() -> {
+            for (int i = 0; i < count; i++) {
+                topic.accept(i);
+            }
+        });
+
+        for (int i = 0; i < count; i++) {
+            assertThat(topic.get()).isEqualTo(i);
+        }
+        assertThat(topic.getDepth()).isZero();
+    }
+
+    @Test
+    void testCompletion() throws Exception {
+        final RingBufferTopic<long[]> topic = new RingBufferTopic<>(64, 16);
+        final int producers = 4;
+        final int count = 10000;
+
+        final CountDownLatch latch = new CountDownLatch(producers);
+        for (int i = 0; i < producers; i++) {
+            final int producer = i;
+            executorService.submit(() -> {
+                for (int j = 0; j < count; j++) {
+                    topic.accept(new long[]{producer, j});
+                }
+                latch.countDown();
+            });
+        }
+
+        // Every item from every producer must be delivered exactly once and in the order each producer added them.
+        final long[] next = new long[producers];
+        for (int i = 0; i < producers * count; i++) {
+            final long[] item = topic.get();
+            final int producer = (int) item[0];
+            assertThat(item[1]).isEqualTo(next[producer]);
+            next[producer]++;
+        }
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        for (final long n : next) {
+            assertThat(n).isEqualTo(count);
+        }
+        assertThat(topic.getDepth()).isZero();
+    }
+
+    @Test
+    void testConsumerWaitsForItems() throws Exception {
+        final RingBufferTopic<String> topic = new RingBufferTopic<>(4, 4);
+
+        final Future<String> future = executorService.submit(topic::get);
+        assertThatThrownBy(() -> future.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        // Adding an item must wake the waiting consumer.
+        topic.accept("test");
+        assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo("test");
+        assertThat(topic.getConsumerWaitNanos()).isPositive();
+    }
+
+    @Test
+    void testBackpressure() throws Exception {
+        final RingBufferTopic<Integer> topic = new RingBufferTopic<>(4, 4);
+        for (int i = 0; i < 4; i++) {
+            topic.accept(i);
+        }
+        assertThat(topic.getDepth()).isEqualTo(4);
+
+        // The buffer is full so the next producer must wait.
+        final Future<?> future = executorService.submit(() -> topic.accept(4));
+        assertThatThrownBy(() -> future.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+        assertThat(topic.getDepth()).isEqualTo(5);
+
+        // Taking items must free space and wake the waiting producer.
+        final List<Integer> items = new ArrayList<>();
+        items.add(topic.get());
+        future.get(10, TimeUnit.SECONDS);
+        assertThat(topic.getProducerWaitNanos()).isPositive();
+
+        for (int i = 0; i < 4; i++) {
+            items.add(topic.get());
+        }
+        assertThat(items).containsExactly(0, 1, 2, 3, 4);
+        assertThat(topic.getMaxDepth()).isLessThanOrEqualTo(5);
+        assertThat(topic.getDepth()).isZero();
+    }
+
+    @Test
+    void testInterruptWaitingConsumer() throws Exception {
+        final RingBufferTopic<String> topic = new RingBufferTopic<>(4, 4);
+        final CompletableFuture<Thread> consumerThread = new CompletableFuture<>();
+
+        final Future<String> future = executorService.submit(() -> {
+            consumerThread.complete(Thread.currentThread());
+            return topic.get();
+        });
+        assertThatThrownBy(() -> future.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        // Terminating a search interrupts the consumer which must stop waiting.
+        consumerThread.get().interrupt();
+        assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RuntimeException.class);
+    }
+
+    @Test
+    void testInterruptWaitingProducer() throws Exception {
+        final RingBufferTopic<Integer> topic = new RingBufferTopic<>(1, 1);
+        topic.accept(0);
+
+        final CompletableFuture<Thread> producerThread = new CompletableFuture<>();
+        final Future<?> future = executorService.submit(() -> {
+            producerThread.complete(Thread.currentThread());
+            topic.accept(1);
+        });
+        assertThatThrownBy(() -> future.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        producerThread.get().interrupt();
+        assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(RuntimeException.class);
+    }
+}
@@ -22,14 +22,21 @@ import stroom.cluster.task.api.ClusterTaskTerminator;
 import stroom.cluster.task.api.NodeNotFoundException;
 import stroom.cluster.task.api.NullClusterStateException;
 import stroom.cluster.task.api.TargetNodeSetFactory;
+import stroom.dashboard.expression.v1.FieldIndexMap;
 import stroom.index.impl.IndexShardService;
 import stroom.index.impl.IndexStore;
+import stroom.index.shared.IndexConstants;
 import stroom.index.shared.FindIndexShardCriteria;
 import stroom.index.shared.IndexDoc;
 import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldsMap;
 import stroom.index.shared.IndexShard;
 import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.query.api.v2.ExpressionParamUtil;
 import stroom.query.api.v2.Query;
+import stroom.query.common.v2.CoprocessorSettings;
+import stroom.query.common.v2.CoprocessorSettingsMap.CoprocessorKey;
+import stroom.search.coprocessor.CoprocessorFactory;
 import stroom.security.api.SecurityContext;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskManager;
@@ -44,6 +51,7 @@ import javax.inject.Provider;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -60,6 +68,8 @@ class AsyncSearchTaskHandler {
     private final TaskManager taskManager;
     private final ClusterTaskTerminator clusterTaskTerminator;
     private final SecurityContext securityContext;
+    private final SearchConfig searchConfig;
+    private final CoprocessorFactory coprocessorFactory;
 
     @Inject
     AsyncSearchTaskHandler(final TargetNodeSetFactory targetNodeSetFactory,
@@ -68,7 +78,9 @@ class AsyncSearchTaskHandler {
                            final IndexShardService indexShardService,
                            final TaskManager taskManager,
                            final ClusterTaskTerminator clusterTaskTerminator,
-                           final SecurityContext securityContext) {
+                           final SecurityContext securityContext,
+                           final SearchConfig searchConfig,
+                           final CoprocessorFactory coprocessorFactory) {
         this.targetNodeSetFactory = targetNodeSetFactory;
         this.dispatchAsyncProvider = dispatchAsyncProvider;
         this.indexStore = indexStore;
@@ -76,6 +88,8 @@ class AsyncSearchTaskHandler {
         this.taskManager = taskManager;
         this.clusterTaskTerminator = clusterTaskTerminator;
         this.securityContext = securityContext;
+        this.searchConfig = searchConfig;
+        this.coprocessorFactory = coprocessorFactory;
     }
 
     public void exec(final TaskContext taskContext, final AsyncSearchTask task) {
@@ -96,11 +110,9 @@ class AsyncSearchTaskHandler {
                     final IndexDoc index = indexStore.readDocument(query.getDataSource());
 
                     // Get an array of stored index fields that will be used for
-                    // getting stored data.
-                    // TODO : Specify stored fields based on the fields that all
-                    // coprocessors will require. Also
-                    // batch search only needs stream and event id stored fields.
-                    final String[] storedFields = getStoredFields(index);
+                    // getting stored data. Only the fields that the coprocessors
+                    // will require are requested.
+                    final String[] storedFields = getStoredFields(index, task.getCoprocessorMap(), query);
 
                     // Get a list of search index shards to look through.
                     final FindIndexShardCriteria findIndexShardCriteria = FindIndexShardCriteria.matchAll();
@@ -112,10 +124,21 @@ class AsyncSearchTaskHandler {
                     findIndexShardCriteria.addSort(FindIndexShardCriteria.FIELD_ID, true, false);
                     final ResultPage<IndexShard> indexShards = indexShardService.find(findIndexShardCriteria);
 
+                    // Skip shards that are partitioned before the time range of the query.
+                    final ShardTimeFilter shardTimeFilter = new ShardTimeFilter(
+                            searchConfig.getShardPruningTimeField(),
+                            new IndexFieldsMap(index.getFields()),
+                            query.getExpression(),
+                            task.getDateTimeLocale(),
+                            task.getNow());
+
                     // Build a map of nodes that will deal with each set of shards.
                     final Map<String, List<Long>> shardMap = new HashMap<>();
+                    int skippedShardCount = 0;
                     for (final IndexShard indexShard : indexShards.getValues()) {
-                        if (IndexShardStatus.CORRUPT.equals(indexShard.getStatus())) {
+                        if (!shardTimeFilter.include(indexShard)) {
+                            skippedShardCount++;
+                        } else if (IndexShardStatus.CORRUPT.equals(indexShard.getStatus())) {
                             resultCollector.getErrorSet(indexShard.getNodeName()).add(
                                     "Attempt to search an index shard marked as corrupt: id=" + indexShard.getId() + ".");
                         } else {
@@ -156,6 +179,10 @@ class AsyncSearchTaskHandler {
                         dispatchAsyncProvider.get().execAsync(taskContext, clusterSearchTask, resultCollector, sourceNode,
                                 Collections.singleton(node));
                     });
+                    if (skippedShardCount > 0) {
+                        LOGGER.info("{} - skipped {} of {} shards outside the query time range",
+                                task.getSearchName(), skippedShardCount, indexShards.size());
+                    }
                     taskContext.info(() -> task.getSearchName() + " - searching...");
 
                     // Await completion.
@@ -196,11 +223,51 @@ class AsyncSearchTaskHandler {
         clusterTaskTerminator.terminate(task.getSearchName(), taskId, "AsyncSearchTask");
     }
 
-    private String[] getStoredFields(final IndexDoc index) {
+    // Non private for testing purposes.
+    String[] getStoredFields(final IndexDoc index,
+                             final Map<CoprocessorKey, CoprocessorSettings> coprocessorMap,
+                             final Query query) {
+        final Set<String> requiredFields = getRequiredFields(coprocessorMap, query);
         return index.getFields()
                 .stream()
                 .filter(IndexField::isStored)
                 .map(IndexField::getFieldName)
+                .filter(fieldName -> requiredFields == null || requiredFields.contains(fieldName))
                 .toArray(String[]::new);
     }
+
+    /**
+     * @return The names of the fields that the coprocessors will use or null if all stored fields are needed.
+     */
+    private Set<String> getRequiredFields(final Map<CoprocessorKey, CoprocessorSettings> coprocessorMap,
+                                          final Query query) {
+        if (coprocessorMap == null) {
+            return null;
+        }
+
+        try {
+            final Map<String, String> paramMap = ExpressionParamUtil.createParamMap(query.getParams());
+
+            // Create each coprocessor against a field index map that records every field it asks for.
+            final FieldIndexMap fieldIndexMap = new FieldIndexMap(true);
+            for (final CoprocessorSettings coprocessorSettings : coprocessorMap.values()) {
+                if (coprocessorSettings.extractValues() && coprocessorSettings.getExtractionPipeline() != null
+                        && coprocessorSettings.getExtractionPipeline().getUuid() != null) {
+                    // Values are extracted from the source data so the index only needs to locate the events.
+                    continue;
+                }
+                coprocessorFactory.create(coprocessorSettings, fieldIndexMap, paramMap);
+            }
+
+            // Extraction and annotation decoration always need to know which event each document is for.
+            final Set<String> requiredFields = new HashSet<>(fieldIndexMap.getMap().keySet());
+            requiredFields.add(IndexConstants.STREAM_ID);
+            requiredFields.add(IndexConstants.EVENT_ID);
+            return requiredFields;
+        } catch (final RuntimeException e) {
+            // The worker nodes will report any problem with the coprocessor settings.
+            LOGGER.debug(e.getMessage(), e);
+            return null;
+        }
+    }
 }
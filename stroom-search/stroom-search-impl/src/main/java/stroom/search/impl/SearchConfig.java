@@ -21,6 +21,7 @@ public class SearchConfig extends AbstractConfig {
     private int maxStoredDataQueueSize = DEFAULT_MAX_STORED_DATA_QUEUE_SIZE;
     private int maxBooleanClauseCount = DEFAULT_MAX_BOOLEAN_CLAUSE_COUNT;
     private String storeSize = "1000000,100,10,1";
+    private String shardPruningTimeField;
     private ExtractionConfig extractionConfig = new ExtractionConfig();
     private IndexShardSearchConfig shardConfig = new IndexShardSearchConfig();
 
@@ -51,6 +52,18 @@ public class SearchConfig extends AbstractConfig {
         this.storeSize = storeSize;
     }
 
+    @JsonPropertyDescription("The date field used to skip index shards whose partition ends before the earliest time a " +
+            "query asks for. Shards are partitioned by stream creation time so this field must never hold a time " +
+            "later than the creation time of the stream containing it, e.g. a field holding the stream creation time. " +
+            "Not set by default so all shards are searched.")
+    public String getShardPruningTimeField() {
+        return shardPruningTimeField;
+    }
+
+    public void setShardPruningTimeField(final String shardPruningTimeField) {
+        this.shardPruningTimeField = shardPruningTimeField;
+    }
+
     @JsonProperty("extraction")
     public ExtractionConfig getExtractionConfig() {
         return extractionConfig;
@@ -75,6 +88,7 @@ public class SearchConfig extends AbstractConfig {
                 "maxStoredDataQueueSize=" + maxStoredDataQueueSize +
                 ", maxBooleanClauseCount=" + maxBooleanClauseCount +
                 ", storeSize='" + storeSize + '\'' +
+                ", shardPruningTimeField='" + shardPruningTimeField + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,145 @@
+package stroom.search.impl;
+
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldType;
+import stroom.index.shared.IndexFieldsMap;
+import stroom.index.shared.IndexShard;
+import stroom.query.api.v2.ExpressionItem;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.ExpressionTerm;
+import stroom.query.common.v2.DateExpressionParser;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Works out which index shards cannot contain any results for a query because of the time range the query asks for.
+ * <p>
+ * Shards are partitioned by the time the stream being indexed was created so a shard can only be skipped when every
+ * stream in its partition was created before the earliest event time the query will match. Events are not expected
+ * to be later than the time the stream holding them was created so only the lower bound of the query time range is
+ * used. The upper bound can't be used as data often arrives long after the events it contains happened.
+ */
+class ShardTimeFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ShardTimeFilter.class);
+
+    private static final String DELIMITER = ",";
+
+    private final Long minTime;
+
+    ShardTimeFilter(final String timeFieldName,
+                    final IndexFieldsMap indexFieldsMap,
+                    final ExpressionOperator expression,
+                    final String timeZoneId,
+                    final long nowEpochMilli) {
+        Long minTime = null;
+        if (timeFieldName != null && timeFieldName.trim().length() > 0 && indexFieldsMap != null) {
+            final IndexField indexField = indexFieldsMap.get(timeFieldName.trim());
+            if (indexField != null && IndexFieldType.DATE_FIELD.equals(indexField.getFieldType())) {
+                try {
+                    minTime = getMinTime(expression, indexField.getFieldName(), timeZoneId, nowEpochMilli);
+                } catch (final RuntimeException e) {
+                    // Bad date values will be reported when the query is built so just search all shards.
+                    LOGGER.debug(e.getMessage(), e);
+                }
+            }
+        }
+        this.minTime = minTime;
+    }
+
+    /**
+     * @return True if the shard may contain results for the query.
+     */
+    boolean include(final IndexShard indexShard) {
+        return minTime == null
+                || indexShard.getPartitionToTime() == null
+                || indexShard.getPartitionToTime() > minTime;
+    }
+
+    /**
+     * @return The earliest time the expression can match or null if the expression does not limit the time.
+     */
+    private Long getMinTime(final ExpressionItem item,
+                            final String fieldName,
+                            final String timeZoneId,
+                            final long nowEpochMilli) {
+        if (item == null || !item.enabled()) {
+            return null;
+        }
+
+        if (item instanceof ExpressionTerm) {
+            return getMinTime((ExpressionTerm) item, fieldName, timeZoneId, nowEpochMilli);
+        }
+
+        final ExpressionOperator operator = (ExpressionOperator) item;
+        if (operator.getChildren() == null || ExpressionOperator.Op.NOT.equals(operator.op())) {
+            return null;
+        }
+
+        Long minTime = null;
+        boolean allLimited = true;
+        for (final ExpressionItem child : operator.getChildren()) {
+            if (child.enabled()) {
+                final Long childMinTime = getMinTime(child, fieldName, timeZoneId, nowEpochMilli);
+                if (ExpressionOperator.Op.OR.equals(operator.op())) {
+                    // Every branch of an OR must be limited for the OR to be limited.
+                    if (childMinTime == null) {
+                        allLimited = false;
+                    } else if (minTime == null || childMinTime < minTime) {
+                        minTime = childMinTime;
+                    }
+                } else if (childMinTime != null && (minTime == null || childMinTime > minTime)) {
+                    minTime = childMinTime;
+                }
+            }
+        }
+
+        if (!allLimited) {
+            return null;
+        }
+        return minTime;
+    }
+
+    private Long getMinTime(final ExpressionTerm term,
+                            final String fieldName,
+                            final String timeZoneId,
+                            final long nowEpochMilli) {
+        if (term.getField() == null || !fieldName.equals(term.getField().trim()) || term.getValue() == null) {
+            return null;
+        }
+
+        final String value = term.getValue().trim();
+        switch (term.getCondition()) {
+            case EQUALS:
+            case GREATER_THAN:
+            case GREATER_THAN_OR_EQUAL_TO:
+                return getDate(value, timeZoneId, nowEpochMilli);
+            case BETWEEN:
+                final String[] between = value.split(DELIMITER);
+                if (between.length != 2) {
+                    return null;
+                }
+                return getDate(between[0].trim(), timeZoneId, nowEpochMilli);
+            case IN:
+                Long minTime = null;
+                for (final String in : value.split(DELIMITER)) {
+                    final Long time = getDate(in.trim(), timeZoneId, nowEpochMilli);
+                    if (time == null) {
+                        return null;
+                    }
+                    if (minTime == null || time < minTime) {
+                        minTime = time;
+                    }
+                }
+                return minTime;
+            default:
+                return null;
+        }
+    }
+
+    private Long getDate(final String value, final String timeZoneId, final long nowEpochMilli) {
+        return DateExpressionParser.parse(value, timeZoneId, nowEpochMilli)
+                .map(dt -> dt.toInstant().toEpochMilli())
+                .orElse(null);
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * Passes doc ids from a single producing collector thread to a single consuming thread in batches of primitive ints
+ * so that we don't box every doc id or acquire a lock for every hit.
+ */
+class DocIdQueue {
+    // An empty batch is used as a marker to indicate no more doc ids will be added.
+    private static final int[] COMPLETE = new int[0];
+
+    private final ArrayBlockingQueue<int[]> queue;
+    private final int batchSize;
+
+    private int[] batch;
+    private int batchLength;
+
+    DocIdQueue(final int maxDocIdQueueSize, final int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, maxDocIdQueueSize / this.batchSize));
+        this.batch = new int[this.batchSize];
+    }
+
+    /**
+     * Add a doc id to the current batch, passing the batch to the consumer once it is full. This will block if the
+     * queue is full.
+     */
+    void put(final int docId) throws InterruptedException {
+        batch[batchLength++] = docId;
+        if (batchLength == batchSize) {
+            queue.put(batch);
+            batch = new int[batchSize];
+            batchLength = 0;
+        }
+    }
+
+    /**
+     * Pass any partially filled batch to the consumer and tell it that there are no more doc ids.
+     */
+    void complete() throws InterruptedException {
+        try {
+            if (batchLength > 0) {
+                queue.put(Arrays.copyOf(batch, batchLength));
+                batchLength = 0;
+            }
+        } finally {
+            queue.put(COMPLETE);
+        }
+    }
+
+    /**
+     * Take the next batch of doc ids, blocking until one is available.
+     *
+     * @return The next batch of doc ids or an empty array if there are no more doc ids.
+     */
+    int[] take() throws InterruptedException {
+        return queue.take();
+    }
+}
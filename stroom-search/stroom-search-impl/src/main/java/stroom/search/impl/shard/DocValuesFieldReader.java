@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValDouble;
+import stroom.dashboard.expression.v1.ValInteger;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldType;
+import stroom.index.shared.IndexFieldsMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Reads the values of requested fields that have been indexed with doc values so that they do not need to be
+ * decoded from stored fields. Segments written before doc values were enabled for a field will not have any doc
+ * values for it, in which case the value is left for the stored field reader to provide.
+ * <p>
+ * A single instance is reused for every document read by a shard search so it is not thread safe.
+ */
+class DocValuesFieldReader {
+    // Values for terms of low cardinality fields, e.g. those typically grouped on, are cached by ordinal so that we
+    // don't decode the same term for every document in a segment.
+    private static final int MAX_CACHED_ORDS = 10000;
+
+    private final List<Column> columns;
+
+    DocValuesFieldReader(final String[] fieldNames, final IndexFieldsMap indexFieldsMap) {
+        columns = new ArrayList<>();
+        if (indexFieldsMap != null) {
+            final Set<String> seen = new HashSet<>();
+            for (int i = 0; i < fieldNames.length; i++) {
+                final String fieldName = fieldNames[i];
+                final IndexField indexField = indexFieldsMap.get(fieldName);
+                if (seen.add(fieldName) && indexField != null && indexField.isDocValues()) {
+                    columns.add(new Column(i, indexField));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return True if none of the requested fields have doc values.
+     */
+    boolean isEmpty() {
+        return columns.isEmpty();
+    }
+
+    /**
+     * Get the doc values for each column from the supplied segment.
+     */
+    void setLeaf(final LeafReaderContext leaf) throws IOException {
+        final LeafReader reader = leaf.reader();
+        for (final Column column : columns) {
+            column.setReader(reader);
+        }
+    }
+
+    /**
+     * Add the doc values for the specified document in the current segment to the visitor.
+     */
+    void read(final int segmentDocId, final StoredFieldValuesVisitor visitor) {
+        for (final Column column : columns) {
+            final Val val = column.read(segmentDocId);
+            if (val != null) {
+                visitor.set(column.index, val);
+            }
+        }
+    }
+
+    private static class Column {
+        private final int index;
+        private final String fieldName;
+        private final IndexFieldType fieldType;
+        private final DocValuesType docValuesType;
+
+        private NumericDocValues numericDocValues;
+        private SortedDocValues sortedDocValues;
+        private Bits docsWithField;
+        private Val[] ordValues;
+
+        Column(final int index, final IndexField indexField) {
+            this.index = index;
+            this.fieldName = indexField.getFieldName();
+            this.fieldType = indexField.getFieldType();
+            // Dates are written as numeric doc values in the same way as numeric fields.
+            if (fieldType.isNumeric() || IndexFieldType.DATE_FIELD.equals(fieldType)) {
+                docValuesType = DocValuesType.NUMERIC;
+            } else {
+                docValuesType = DocValuesType.SORTED;
+            }
+        }
+
+        void setReader(final LeafReader reader) throws IOException {
+            numericDocValues = null;
+            sortedDocValues = null;
+            docsWithField = null;
+            ordValues = null;
+
+            // Make sure this segment has doc values of the type we expect for the field.
+            final FieldInfo fieldInfo = reader.getFieldInfos().fieldInfo(fieldName);
+            if (fieldInfo != null && docValuesType.equals(fieldInfo.getDocValuesType())) {
+                if (DocValuesType.NUMERIC.equals(docValuesType)) {
+                    numericDocValues = reader.getNumericDocValues(fieldName);
+                    docsWithField = reader.getDocsWithField(fieldName);
+                } else {
+                    sortedDocValues = reader.getSortedDocValues(fieldName);
+                    if (sortedDocValues != null && sortedDocValues.getValueCount() <= MAX_CACHED_ORDS) {
+                        ordValues = new Val[sortedDocValues.getValueCount()];
+                    }
+                }
+            }
+        }
+
+        Val read(final int segmentDocId) {
+            if (numericDocValues != null) {
+                if (docsWithField == null || !docsWithField.get(segmentDocId)) {
+                    return null;
+                }
+
+                final long value = numericDocValues.get(segmentDocId);
+                switch (fieldType) {
+                    case INTEGER_FIELD:
+                        return ValInteger.create((int) value);
+                    case FLOAT_FIELD:
+                        return ValDouble.create(Float.intBitsToFloat((int) value));
+                    case DOUBLE_FIELD:
+                        return ValDouble.create(Double.longBitsToDouble(value));
+                    default:
+                        return ValLong.create(value);
+                }
+
+            } else if (sortedDocValues != null) {
+                final int ord = sortedDocValues.getOrd(segmentDocId);
+                if (ord < 0) {
+                    return null;
+                }
+
+                if (ordValues != null) {
+                    Val val = ordValues[ord];
+                    if (val == null) {
+                        val = lookupOrd(ord);
+                        ordValues[ord] = val;
+                    }
+                    return val;
+                }
+                return lookupOrd(ord);
+            }
+
+            return null;
+        }
+
+        private Val lookupOrd(final int ord) {
+            final BytesRef bytesRef = sortedDocValues.lookupOrd(ord);
+            return ValString.create(bytesRef.utf8ToString());
+        }
+    }
+}
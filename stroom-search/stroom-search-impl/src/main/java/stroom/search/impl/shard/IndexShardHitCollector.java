@@ -24,23 +24,20 @@ import stroom.util.logging.LambdaLogger;
 import stroom.util.logging.LambdaLoggerFactory;
 
 import java.io.IOException;
-import java.util.OptionalInt;
-import java.util.concurrent.LinkedBlockingQueue;
 import java.util.function.Supplier;
 
 class IndexShardHitCollector extends SimpleCollector {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardHitCollector.class);
 
     private final TaskContext taskContext;
-    //an empty optional is used as a marker to indicate no more items will be added
-    private final LinkedBlockingQueue<OptionalInt> docIdStore;
+    private final DocIdQueue docIdQueue;
     private final HitCount hitCount;
     private int docBase;
 
     IndexShardHitCollector(final TaskContext taskContext,
-                           final LinkedBlockingQueue<OptionalInt> docIdStore,
+                           final DocIdQueue docIdQueue,
                            final HitCount hitCount) {
-        this.docIdStore = docIdStore;
+        this.docIdQueue = docIdQueue;
         this.taskContext = taskContext;
         this.hitCount = hitCount;
 
@@ -55,11 +52,11 @@ class IndexShardHitCollector extends SimpleCollector {
 
     @Override
     public void collect(final int doc) {
-        // Pause the current search if the deque is full.
+        // Pause the current search if the queue is full.
         final int docId = docBase + doc;
 
         try {
-            docIdStore.put(OptionalInt.of(docId));
+            docIdQueue.put(docId);
             info(() -> "Found " + hitCount + " hits");
         } catch (final InterruptedException e) {
             // Continue to interrupt.
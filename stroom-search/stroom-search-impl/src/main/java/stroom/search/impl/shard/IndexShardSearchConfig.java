@@ -13,6 +13,7 @@ public class IndexShardSearchConfig extends AbstractConfig {
     private static final int DEFAULT_MAX_THREADS_PER_TASK = 2;
 
     private int maxDocIdQueueSize = 1000000;
+    private int docIdBatchSize = 1000;
     private int maxThreads = DEFAULT_MAX_THREADS;
     private int maxThreadsPerTask = DEFAULT_MAX_THREADS_PER_TASK;
     private CacheConfig searchResultCache = new CacheConfig.Builder()
@@ -20,7 +21,7 @@ public class IndexShardSearchConfig extends AbstractConfig {
             .expireAfterAccess(StroomDuration.ofMinutes(10))
             .build();
     private CacheConfig indexShardSearcherCache = new CacheConfig.Builder()
-            .maximumSize(2L)
+            .maximumSize(100L)
             .expireAfterAccess(StroomDuration.ofMinutes(1))
             .build();
 
@@ -33,6 +34,15 @@ public class IndexShardSearchConfig extends AbstractConfig {
         this.maxDocIdQueueSize = maxDocIdQueueSize;
     }
 
+    @JsonPropertyDescription("The number of doc ids that are passed together from the index shard searcher to the stored data retrieval")
+    public int getDocIdBatchSize() {
+        return docIdBatchSize;
+    }
+
+    public void setDocIdBatchSize(final int docIdBatchSize) {
+        this.docIdBatchSize = docIdBatchSize;
+    }
+
     @JsonPropertyDescription("The absolute maximum number of threads per node, used to search Lucene index shards across all searches")
     public int getMaxThreads() {
         return maxThreads;
@@ -71,6 +81,7 @@ public class IndexShardSearchConfig extends AbstractConfig {
     public String toString() {
         return "IndexShardSearchConfig{" +
                 "maxDocIdQueueSize=" + maxDocIdQueueSize +
+                ", docIdBatchSize=" + docIdBatchSize +
                 ", maxThreads=" + maxThreads +
                 ", maxThreadsPerTask=" + maxThreadsPerTask +
                 ", searchResultCache=" + searchResultCache +
@@ -84,6 +84,7 @@ public class IndexShardSearchFactory {
                     task.getShards(),
                     queryFactory,
                     task.getStoredFields(),
+                    indexFieldsMap,
                     indexShardSearchConfig.getMaxThreadsPerTask(),
                     taskContextFactory,
                     taskContext,
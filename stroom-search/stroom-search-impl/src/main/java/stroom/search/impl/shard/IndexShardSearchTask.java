@@ -18,12 +18,14 @@ package stroom.search.impl.shard;
 
 import org.apache.lucene.search.Query;
 import org.apache.lucene.util.Version;
+import stroom.index.shared.IndexFieldsMap;
 import stroom.search.coprocessor.Receiver;
 
 class IndexShardSearchTask {
     private final IndexShardQueryFactory queryFactory;
     private final long indexShardId;
     private final String[] fieldNames;
+    private final IndexFieldsMap indexFieldsMap;
     private final Receiver receiver;
     private final HitCount hitCount;
     private int shardNumber;
@@ -32,11 +34,13 @@ class IndexShardSearchTask {
     IndexShardSearchTask(final IndexShardQueryFactory queryFactory,
                          final long indexShardId,
                          final String[] fieldNames,
+                         final IndexFieldsMap indexFieldsMap,
                          final Receiver receiver,
                          final HitCount hitCount) {
         this.queryFactory = queryFactory;
         this.indexShardId = indexShardId;
         this.fieldNames = fieldNames;
+        this.indexFieldsMap = indexFieldsMap;
         this.receiver = receiver;
         this.hitCount = hitCount;
     }
@@ -53,6 +57,10 @@ class IndexShardSearchTask {
         return fieldNames;
     }
 
+    IndexFieldsMap getIndexFieldsMap() {
+        return indexFieldsMap;
+    }
+
     Receiver getReceiver() {
         return receiver;
     }
@@ -16,23 +16,16 @@
 
 package stroom.search.impl.shard;
 
-import org.apache.lucene.document.Document;
-import org.apache.lucene.index.IndexWriter;
-import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.ReaderUtil;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
 import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.util.Version;
-import stroom.dashboard.expression.v1.Val;
-import stroom.dashboard.expression.v1.ValString;
-import stroom.index.impl.IndexShardService;
-import stroom.index.impl.IndexShardWriter;
-import stroom.index.impl.IndexShardWriterCache;
 import stroom.index.impl.LuceneVersionUtil;
 import stroom.index.shared.IndexShard;
 import stroom.search.coprocessor.Error;
 import stroom.search.coprocessor.Values;
-import stroom.search.impl.SearchException;
 import stroom.task.api.ExecutorProvider;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskContextFactory;
@@ -42,28 +35,25 @@ import stroom.util.logging.LambdaLoggerFactory;
 
 import javax.inject.Inject;
 import java.io.IOException;
-import java.util.OptionalInt;
+import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
-import java.util.concurrent.LinkedBlockingQueue;
 
 public class IndexShardSearchTaskHandler {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSearchTaskHandler.class);
 
-    private final IndexShardWriterCache indexShardWriterCache;
-    private final IndexShardService indexShardService;
+    private final IndexShardSearcherCache indexShardSearcherCache;
     private final IndexShardSearchConfig shardConfig;
     private final Executor executor;
     private final TaskContextFactory taskContextFactory;
 
     @Inject
-    IndexShardSearchTaskHandler(final IndexShardWriterCache indexShardWriterCache,
-                                final IndexShardService indexShardService,
+    IndexShardSearchTaskHandler(final IndexShardSearcherCache indexShardSearcherCache,
                                 final IndexShardSearchConfig shardConfig,
                                 final ExecutorProvider executorProvider,
                                 final TaskContextFactory taskContextFactory) {
-        this.indexShardWriterCache = indexShardWriterCache;
-        this.indexShardService = indexShardService;
+        this.indexShardSearcherCache = indexShardSearcherCache;
         this.shardConfig = shardConfig;
         this.executor = executorProvider.get(IndexShardSearchTaskExecutor.THREAD_POOL);
         this.taskContextFactory = taskContextFactory;
@@ -80,15 +70,8 @@ public class IndexShardSearchTaskHandler {
                             taskContext.info(() -> "Searching shard " + task.getShardNumber() + " of " + task.getShardTotal() + " (id="
                                     + task.getIndexShardId() + ")");
 
-
-                            final IndexWriter indexWriter = getWriter(indexShardId);
-
-                            final IndexShard indexShard = indexShardService.loadById(indexShardId);
-                            if (indexShard == null) {
-                                throw new SearchException("Unable to find index shard with id = " + indexShardId);
-                            }
-
-                            indexShardSearcher = new IndexShardSearcher(indexShard, indexWriter);
+                            // Get a shared searcher for the shard, this will be opened if it isn't already cached.
+                            indexShardSearcher = indexShardSearcherCache.get(indexShardId);
 
                             // Start searching.
                             searchShard(taskContext, task, indexShardSearcher);
@@ -98,27 +81,15 @@ public class IndexShardSearchTaskHandler {
                         error(task, e.getMessage(), e);
 
                     } finally {
-                        taskContext.info(() -> "Closing searcher for index shard " + indexShardId);
+                        taskContext.info(() -> "Releasing searcher for index shard " + indexShardId);
                         if (indexShardSearcher != null) {
-                            indexShardSearcher.destroy();
+                            indexShardSearcher.decRef();
                         }
                     }
                 },
                 LambdaLogUtil.message("exec() for shard {}", task.getShardNumber()));
     }
 
-    private IndexWriter getWriter(final Long indexShardId) {
-        IndexWriter indexWriter = null;
-
-        // Load the current index shard.
-        final IndexShardWriter indexShardWriter = indexShardWriterCache.getWriterByShardId(indexShardId);
-        if (indexShardWriter != null) {
-            indexWriter = indexShardWriter.getWriter();
-        }
-
-        return indexWriter;
-    }
-
     private void searchShard(final TaskContext parentTaskContext, final IndexShardSearchTask task, final IndexShardSearcher indexShardSearcher) {
         // Get the index shard that this searcher uses.
         final IndexShard indexShard = indexShardSearcher.getIndexShard();
@@ -130,11 +101,12 @@ public class IndexShardSearchTaskHandler {
         // If there is an error building the query then it will be null here.
         if (query != null) {
             final int maxDocIdQueueSize = shardConfig.getMaxDocIdQueueSize();
-            LOGGER.debug(() -> "Creating docIdStore with size " + maxDocIdQueueSize);
-            final LinkedBlockingQueue<OptionalInt> docIdStore = new LinkedBlockingQueue<>(maxDocIdQueueSize);
+            final int docIdBatchSize = shardConfig.getDocIdBatchSize();
+            LOGGER.debug(() -> "Creating docIdQueue with size " + maxDocIdQueueSize + " and batch size " + docIdBatchSize);
+            final DocIdQueue docIdQueue = new DocIdQueue(maxDocIdQueueSize, docIdBatchSize);
 
             // Create a collector.
-            final IndexShardHitCollector collector = new IndexShardHitCollector(parentTaskContext, docIdStore, task.getHitCount());
+            final IndexShardHitCollector collector = new IndexShardHitCollector(parentTaskContext, docIdQueue, task.getHitCount());
 
             try {
                 final SearcherManager searcherManager = indexShardSearcher.getSearcherManager();
@@ -150,7 +122,7 @@ public class IndexShardSearchTaskHandler {
                                         }
 
                                         try {
-                                            docIdStore.put(OptionalInt.empty());
+                                            docIdQueue.complete();
                                         } catch (final InterruptedException e) {
                                             error(task, e.getMessage(), e);
 
@@ -162,13 +134,31 @@ public class IndexShardSearchTaskHandler {
                     CompletableFuture.runAsync(runnable, executor);
 
                     // Start converting found docIds into stored data values
+                    final List<LeafReaderContext> leaves = searcher.getIndexReader().leaves();
+                    final StoredFieldValuesVisitor visitor = new StoredFieldValuesVisitor(task.getFieldNames());
+                    final DocValuesFieldReader docValuesFieldReader = new DocValuesFieldReader(task.getFieldNames(), task.getIndexFieldsMap());
+                    LeafReaderContext currentLeaf = null;
                     boolean complete = false;
                     while (!complete) {
-                        // Take the next item
-                        final OptionalInt optDocId = docIdStore.take();
-                        if (optDocId.isPresent()) {
-                            // If we have a doc id then retrieve the stored data for it.
-                            getStoredData(task, searcher, optDocId.getAsInt());
+                        // Take the next batch of doc ids.
+                        final int[] docIds = docIdQueue.take();
+                        if (docIds.length > 0) {
+                            // Read documents in ascending doc id order so that each compressed block of stored fields
+                            // within a segment is only decompressed once.
+                            Arrays.sort(docIds);
+
+                            // If we have doc ids then retrieve the stored data for them.
+                            for (final int docId : docIds) {
+                                final LeafReaderContext leaf = leaves.get(ReaderUtil.subIndex(docId, leaves));
+                                if (leaf != currentLeaf) {
+                                    // Get doc values for requested fields from the new segment.
+                                    if (!docValuesFieldReader.isEmpty()) {
+                                        docValuesFieldReader.setLeaf(leaf);
+                                    }
+                                    currentLeaf = leaf;
+                                }
+                                getStoredData(task, leaf, docId - leaf.docBase, visitor, docValuesFieldReader);
+                            }
                         } else {
                             complete = true;
                         }
@@ -190,34 +180,26 @@ public class IndexShardSearchTaskHandler {
     }
 
     /**
-     * This method takes a list of document id's and extracts the stored fields
+     * This method takes a document id within a segment and extracts the stored fields
      * that are required for data display. In some cases such as batch search we
      * only want to get stream and event ids, in these cases no values are
-     * retrieved, only stream and event ids.
+     * retrieved, only stream and event ids. Fields that have doc values are read
+     * from them, only the remaining requested fields are decoded from stored fields
+     * and fields that are not in fact stored will be null.
      */
-    private void getStoredData(final IndexShardSearchTask task, final IndexSearcher searcher, final int docId) {
+    private void getStoredData(final IndexShardSearchTask task,
+                               final LeafReaderContext leaf,
+                               final int segmentDocId,
+                               final StoredFieldValuesVisitor visitor,
+                               final DocValuesFieldReader docValuesFieldReader) {
         try {
-            final String[] fieldNames = task.getFieldNames();
-            final Val[] values = new Val[fieldNames.length];
-            final Document document = searcher.doc(docId);
-
-            for (int i = 0; i < fieldNames.length; i++) {
-                final String storedField = fieldNames[i];
-                final IndexableField indexableField = document.getField(storedField);
-
-                // If the field is not in fact stored then it will be null here.
-                if (indexableField != null) {
-                    final String value = indexableField.stringValue();
-                    if (value != null) {
-                        final String trimmed = value.trim();
-                        if (trimmed.length() > 0) {
-                            values[i] = ValString.create(trimmed);
-                        }
-                    }
-                }
+            visitor.reset();
+            docValuesFieldReader.read(segmentDocId, visitor);
+            if (!visitor.isComplete()) {
+                leaf.reader().document(segmentDocId, visitor);
             }
 
-            task.getReceiver().getValuesConsumer().accept(new Values(values));
+            task.getReceiver().getValuesConsumer().accept(new Values(visitor.getValues()));
             task.getReceiver().getCompletionCountConsumer().accept(1L);
         } catch (final IOException | RuntimeException e) {
             error(task, e.getMessage(), e);
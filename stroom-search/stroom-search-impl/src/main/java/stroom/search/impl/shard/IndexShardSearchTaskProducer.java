@@ -16,6 +16,7 @@
 
 package stroom.search.impl.shard;
 
+import stroom.index.shared.IndexFieldsMap;
 import stroom.search.coprocessor.Receiver;
 import stroom.search.impl.shard.IndexShardSearchTask.IndexShardQueryFactory;
 import stroom.task.api.TaskContext;
@@ -46,6 +47,7 @@ class IndexShardSearchTaskProducer extends TaskProducer {
                                  final List<Long> shards,
                                  final IndexShardQueryFactory queryFactory,
                                  final String[] fieldNames,
+                                 final IndexFieldsMap indexFieldsMap,
                                  final int maxThreadsPerTask,
                                  final TaskContextFactory taskContextFactory,
                                  final TaskContext parentContext,
@@ -55,7 +57,7 @@ class IndexShardSearchTaskProducer extends TaskProducer {
         this.tracker = tracker;
 
         for (final Long shard : shards) {
-            final IndexShardSearchTask task = new IndexShardSearchTask(queryFactory, shard, fieldNames, receiver, tracker.getHitCount());
+            final IndexShardSearchTask task = new IndexShardSearchTask(queryFactory, shard, fieldNames, indexFieldsMap, receiver, tracker.getHitCount());
             final IndexShardSearchRunnable runnable = new IndexShardSearchRunnable(task, handlerProvider, tracker);
             taskQueue.add(runnable);
         }
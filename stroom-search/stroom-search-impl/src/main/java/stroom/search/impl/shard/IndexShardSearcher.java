@@ -34,6 +34,7 @@ import stroom.util.io.FileUtil;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class IndexShardSearcher {
     private static final Logger LOGGER = LoggerFactory.getLogger(IndexShardSearcher.class);
@@ -47,6 +48,12 @@ public class IndexShardSearcher {
     private final IndexWriter indexWriter;
     private final SearcherManager searcherManager;
 
+    /**
+     * The number of users of this searcher. The creator holds the initial reference and the searcher is destroyed
+     * when the last reference is released.
+     */
+    private final AtomicInteger refCount = new AtomicInteger(1);
+
     public IndexShardSearcher(final IndexShard indexShard) {
         this(indexShard, null);
     }
@@ -137,6 +144,33 @@ public class IndexShardSearcher {
         return searcherManager;
     }
 
+    /**
+     * Try to take a reference to this searcher so that it is not destroyed while in use.
+     *
+     * @return True if a reference was taken, false if the searcher has already been destroyed.
+     */
+    public boolean tryIncRef() {
+        int count;
+        while ((count = refCount.get()) > 0) {
+            if (refCount.compareAndSet(count, count + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Release a reference to this searcher, destroying it if this was the last reference.
+     */
+    public void decRef() {
+        final int count = refCount.decrementAndGet();
+        if (count == 0) {
+            destroy();
+        } else if (count < 0) {
+            LOGGER.error("Too many calls to decRef() for " + this);
+        }
+    }
+
     public synchronized void destroy() {
         try {
             try {
@@ -20,6 +20,10 @@ package stroom.search.impl.shard;
 import stroom.util.shared.Clearable;
 
 public interface IndexShardSearcherCache extends Clearable {
+    /**
+     * Get a shared searcher for the specified index shard. The returned searcher has had a reference taken on
+     * behalf of the caller so callers must call {@link IndexShardSearcher#decRef()} once they have finished with it.
+     */
     IndexShardSearcher get(Long indexShardId);
 
 //    boolean isCached(Long indexShardId);
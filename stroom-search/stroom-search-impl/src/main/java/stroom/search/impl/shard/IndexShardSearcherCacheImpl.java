@@ -19,10 +19,12 @@ package stroom.search.impl.shard;
 import org.apache.lucene.index.IndexWriter;
 import stroom.cache.api.CacheManager;
 import stroom.cache.api.ICache;
+import stroom.index.impl.IndexShardChangeListener;
 import stroom.index.impl.IndexShardService;
 import stroom.index.impl.IndexShardWriter;
 import stroom.index.impl.IndexShardWriterCache;
 import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
 import stroom.search.impl.SearchException;
 import stroom.security.api.SecurityContext;
 import stroom.task.api.ExecutorProvider;
@@ -37,12 +39,11 @@ import stroom.util.shared.Clearable;
 import javax.inject.Inject;
 import javax.inject.Singleton;
 import java.io.IOException;
-import java.util.Objects;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicLong;
 
 @Singleton
-public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Clearable {
+public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, IndexShardChangeListener, Clearable {
     private static final LambdaLogger LOGGER = LambdaLoggerFactory.getLogger(IndexShardSearcherCacheImpl.class);
     private static final String CACHE_NAME = "Index Shard Searcher Cache";
 
@@ -55,7 +56,7 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
     private final IndexShardSearchConfig indexShardSearchConfig;
     private final SecurityContext securityContext;
 
-    private volatile ICache<Key, IndexShardSearcher> cache;
+    private volatile ICache<Long, IndexShardSearcher> cache;
 
     @Inject
     IndexShardSearcherCacheImpl(final CacheManager cacheManager,
@@ -76,8 +77,8 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
         executor = executorProvider.get(threadPool);
     }
 
-    private ICache<Key, IndexShardSearcher> getCache() {
-        ICache<Key, IndexShardSearcher> result = cache;
+    private ICache<Long, IndexShardSearcher> getCache() {
+        ICache<Long, IndexShardSearcher> result = cache;
         if (result == null) {
             synchronized (this) {
                 result = cache;
@@ -91,18 +92,18 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
         return result;
     }
 
-    private IndexShardSearcher create(final Key key) {
-        if (key == null) {
+    private IndexShardSearcher create(final Long indexShardId) {
+        if (indexShardId == null) {
             throw new NullPointerException("Null key supplied");
         }
 
         try {
-            final IndexShard indexShard = indexShardService.loadById(key.indexShardId);
+            final IndexShard indexShard = indexShardService.loadById(indexShardId);
             if (indexShard == null) {
-                throw new SearchException("Unable to find index shard with id = " + key.indexShardId);
+                throw new SearchException("Unable to find index shard with id = " + indexShardId);
             }
 
-            return new IndexShardSearcher(indexShard, key.indexWriter);
+            return new IndexShardSearcher(indexShard, getWriter(indexShardId));
         } catch (final RuntimeException e) {
             LOGGER.error(e::getMessage, e);
             throw e;
@@ -111,9 +112,54 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
 
     @Override
     public IndexShardSearcher get(final Long indexShardId) {
-        final IndexWriter indexWriter = getWriter(indexShardId);
-        final Key key = new Key(indexShardId, indexWriter);
-        return getCache().get(key);
+        final ICache<Long, IndexShardSearcher> cache = getCache();
+        while (true) {
+            final IndexShardSearcher indexShardSearcher = cache.get(indexShardId);
+
+            // If a writer has been opened or closed for the shard since the searcher was created then the searcher
+            // is stale and must be replaced so that we either see near real time updates from the new writer or
+            // read the committed index from disk.
+            if (!isCurrent(indexShardSearcher)) {
+                LOGGER.debug(() -> "Evicting stale searcher for index shard " + indexShardId);
+                evict(indexShardId, indexShardSearcher);
+
+            } else if (indexShardSearcher.tryIncRef()) {
+                // If the shard is being written to then make sure we can see recently added documents.
+                if (indexShardSearcher.getWriter() != null) {
+                    try {
+                        indexShardSearcher.getSearcherManager().maybeRefresh();
+                    } catch (final IOException | RuntimeException e) {
+                        LOGGER.debug(e::getMessage, e);
+                    }
+                }
+                return indexShardSearcher;
+            }
+        }
+    }
+
+    private boolean isCurrent(final IndexShardSearcher indexShardSearcher) {
+        return indexShardSearcher.getWriter() == getWriter(indexShardSearcher.getIndexShard().getId());
+    }
+
+    private void evict(final Long indexShardId, final IndexShardSearcher indexShardSearcher) {
+        // Only remove the entry if it still maps to the searcher we checked. The removal listener will release the
+        // reference held by the cache.
+        getCache().asMap().remove(indexShardId, indexShardSearcher);
+    }
+
+    /**
+     * Called when the files of a closed shard have been changed, e.g. by a merge. The writer for the shard is the same
+     * as it was before the change so the searcher would otherwise be seen as current and go on reading the old
+     * segments.
+     */
+    @Override
+    public void onChange(final Long indexShardId) {
+        final ICache<Long, IndexShardSearcher> cache = this.cache;
+        if (cache != null) {
+            LOGGER.debug(() -> "Evicting searcher for changed index shard " + indexShardId);
+            // The removal listener will release the reference held by the cache.
+            cache.remove(indexShardId);
+        }
     }
 
 //    @Override
@@ -127,7 +173,7 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
 //        destroy(notification.getKey(), notification.getValue());
 //    }
 
-    private void destroy(final Key key, final Object value) {
+    private void destroy(final Long indexShardId, final Object value) {
         securityContext.asProcessingUser(() -> {
             if (value instanceof IndexShardSearcher) {
                 final IndexShardSearcher indexShardSearcher = (IndexShardSearcher) value;
@@ -136,9 +182,11 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
 
                 final Runnable runnable = taskContextFactory.context("Closing searcher", taskContext -> {
                     try {
-                        taskContext.info(() -> "Closing searcher for index shard " + key.indexShardId);
+                        taskContext.info(() -> "Closing searcher for index shard " + indexShardId);
 
-                        indexShardSearcher.destroy();
+                        // Release the reference held by the cache, the searcher will be destroyed once all
+                        // searches that are currently using it have released it too.
+                        indexShardSearcher.decRef();
                     } finally {
                         closing.decrementAndGet();
                     }
@@ -199,6 +247,11 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
         LOGGER.info(() -> "Finished clearing index shard searcher cache in " + logExecutionTime);
     }
 
+    private boolean isDeleted(final Long indexShardId) {
+        final IndexShard indexShard = indexShardService.loadById(indexShardId);
+        return indexShard == null || IndexShardStatus.DELETED.equals(indexShard.getStatus());
+    }
+
 //    @Override
 //    public long getMaxOpenShards() {
 //        return maxOpenShards;
@@ -222,18 +275,27 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
 
     /**
      * This is called by the lifecycle service and remove writers that are past their TTL, TTI or LRU items that exceed the capacity.
+     * Searchers for shards that have been closed, opened for writing or deleted since the searcher was created are
+     * evicted, all others are refreshed.
      */
     @Override
     public void refresh() {
-        final ICache<Key, IndexShardSearcher> cache = getCache();
+        final ICache<Long, IndexShardSearcher> cache = getCache();
         if (cache != null) {
             final LogExecutionTime logExecutionTime = new LogExecutionTime();
-            cache.asMap().values().forEach(v -> {
+            cache.asMap().forEach((k, v) -> {
                 if (v != null) {
-                    try {
-                        v.getSearcherManager().maybeRefresh();
-                    } catch (final IOException e) {
-                        LOGGER.error(e::getMessage, e);
+                    if (!isCurrent(v) || isDeleted(k)) {
+                        evict(k, v);
+
+                    } else if (v.tryIncRef()) {
+                        try {
+                            v.getSearcherManager().maybeRefresh();
+                        } catch (final IOException | RuntimeException e) {
+                            LOGGER.error(e::getMessage, e);
+                        } finally {
+                            v.decRef();
+                        }
                     }
                 }
             });
@@ -242,28 +304,4 @@ public class IndexShardSearcherCacheImpl implements IndexShardSearcherCache, Cle
             LOGGER.debug(() -> "Cache is null");
         }
     }
-
-    public static class Key {
-        private final long indexShardId;
-        private final IndexWriter indexWriter;
-
-        Key(final long indexShardId, final IndexWriter indexWriter) {
-            this.indexShardId = indexShardId;
-            this.indexWriter = indexWriter;
-        }
-
-        @Override
-        public boolean equals(final Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            final Key key = (Key) o;
-            return indexShardId == key.indexShardId &&
-                    Objects.equals(indexWriter, key.indexWriter);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hash(indexShardId, indexWriter);
-        }
-    }
 }
@@ -16,6 +16,7 @@
 
 package stroom.search.impl.shard;
 
+import stroom.index.impl.IndexShardChangeListener;
 import stroom.job.api.ScheduledJobsBinder;
 import stroom.lifecycle.api.LifecycleBinder;
 import stroom.util.RunnableWrapper;
@@ -36,6 +37,9 @@ public class ShardModule extends AbstractModule {
         GuiceUtil.buildMultiBinder(binder(), Clearable.class)
                 .addBinding(IndexShardSearcherCacheImpl.class);
 
+        GuiceUtil.buildMultiBinder(binder(), IndexShardChangeListener.class)
+                .addBinding(IndexShardSearcherCacheImpl.class);
+
         ScheduledJobsBinder.create(binder())
                 .bindJobTo(IndexSearcherCacheRefresh.class, builder -> builder
                         .withName("Index Searcher Cache Refresh")
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.StoredFieldVisitor;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValDouble;
+import stroom.dashboard.expression.v1.ValInteger;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes only the requested stored fields of a document directly into {@link Val} values, keeping numeric and date
+ * fields as numbers rather than converting them to strings. Once all requested fields have been found the rest of
+ * the stored document is skipped.
+ * <p>
+ * A single instance is reused for every document read by a shard search so it is not thread safe.
+ */
+class StoredFieldValuesVisitor extends StoredFieldVisitor {
+    private final Map<String, Integer> fieldIndexes;
+    private final int fieldCount;
+
+    private Val[] values;
+    private int found;
+
+    StoredFieldValuesVisitor(final String[] fieldNames) {
+        this.fieldCount = fieldNames.length;
+        this.fieldIndexes = new HashMap<>();
+        for (int i = 0; i < fieldNames.length; i++) {
+            fieldIndexes.putIfAbsent(fieldNames[i], i);
+        }
+    }
+
+    /**
+     * Prepare to visit the next document.
+     */
+    void reset() {
+        values = new Val[fieldCount];
+        found = 0;
+    }
+
+    Val[] getValues() {
+        return values;
+    }
+
+    /**
+     * Set a value that has been obtained some other way, e.g. from doc values, so that the stored field is not
+     * decoded.
+     */
+    void set(final int index, final Val val) {
+        if (values[index] == null) {
+            values[index] = val;
+            found++;
+        }
+    }
+
+    /**
+     * @return True if all requested fields already have values so there is no need to visit stored fields.
+     */
+    boolean isComplete() {
+        return found == fieldIndexes.size();
+    }
+
+    @Override
+    public Status needsField(final FieldInfo fieldInfo) {
+        if (isComplete()) {
+            return Status.STOP;
+        }
+        final Integer index = fieldIndexes.get(fieldInfo.name);
+        if (index != null && values[index] == null) {
+            return Status.YES;
+        }
+        return Status.NO;
+    }
+
+    @Override
+    public void stringField(final FieldInfo fieldInfo, final byte[] value) {
+        final String trimmed = new String(value, StandardCharsets.UTF_8).trim();
+        if (trimmed.length() > 0) {
+            set(fieldInfo, ValString.create(trimmed));
+        }
+    }
+
+    @Override
+    public void intField(final FieldInfo fieldInfo, final int value) {
+        set(fieldInfo, ValInteger.create(value));
+    }
+
+    @Override
+    public void longField(final FieldInfo fieldInfo, final long value) {
+        set(fieldInfo, ValLong.create(value));
+    }
+
+    @Override
+    public void floatField(final FieldInfo fieldInfo, final float value) {
+        set(fieldInfo, ValDouble.create(value));
+    }
+
+    @Override
+    public void doubleField(final FieldInfo fieldInfo, final double value) {
+        set(fieldInfo, ValDouble.create(value));
+    }
+
+    private void set(final FieldInfo fieldInfo, final Val val) {
+        final Integer index = fieldIndexes.get(fieldInfo.name);
+        if (index != null) {
+            set(index, val);
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package stroom.search.impl;
+
+import org.junit.jupiter.api.Test;
+import stroom.docref.DocRef;
+import stroom.index.shared.AnalyzerType;
+import stroom.index.shared.IndexConstants;
+import stroom.index.shared.IndexDoc;
+import stroom.index.shared.IndexField;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.Field;
+import stroom.query.api.v2.Query;
+import stroom.query.api.v2.TableSettings;
+import stroom.query.common.v2.CoprocessorSettings;
+import stroom.query.common.v2.CoprocessorSettingsMap.CoprocessorKey;
+import stroom.query.common.v2.TableCoprocessorSettings;
+import stroom.search.coprocessor.CoprocessorFactory;
+import stroom.search.coprocessor.EventCoprocessorSettings;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestAsyncSearchTaskHandler {
+    private static final DocRef PIPELINE_REF = new DocRef("Pipeline", "test-uuid", "test");
+
+    private final AsyncSearchTaskHandler asyncSearchTaskHandler = new AsyncSearchTaskHandler(
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            null,
+            new SearchConfig(),
+            new CoprocessorFactory());
+
+    @Test
+    void testTableWithExpressions() {
+        final String[] storedFields = getStoredFields(createTable(false,
+                field("User", "${UserId}"),
+                field("Total", "sum(${Bytes})"),
+                field("Label", "concat(${UserId}, ' ', ${user})")));
+
+        // Only the fields used by the expressions are requested along with those needed to locate each event.
+        assertThat(storedFields).containsExactly(
+                IndexConstants.STREAM_ID,
+                IndexConstants.EVENT_ID,
+                "UserId",
+                "Bytes");
+    }
+
+    @Test
+    void testExtractionPipeline() {
+        final String[] storedFields = getStoredFields(
+                createTable(true, field("Text", "${Text}")),
+                createTable(false, field("User", "${UserId}")));
+
+        // Values for the extracting table come from the source data so only the other table's fields are requested.
+        assertThat(storedFields).containsExactly(
+                IndexConstants.STREAM_ID,
+                IndexConstants.EVENT_ID,
+                "UserId");
+    }
+
+    @Test
+    void testEventSearch() {
+        final String[] storedFields = getStoredFields(new EventCoprocessorSettings(
+                null, null, 1000, 1000, 100));
+
+        assertThat(storedFields).containsExactly(
+                IndexConstants.STREAM_ID,
+                IndexConstants.EVENT_ID);
+    }
+
+    @Test
+    void testSettingsFailToCompile() {
+        final String[] storedFields = getStoredFields(createTable(false,
+                field("User", "${UserId}"),
+                field("Bad", "unknownFunction(${Bytes})")));
+
+        // The settings can't be used to decide which fields are needed so all stored fields are requested.
+        assertThat(storedFields).containsExactly(
+                IndexConstants.STREAM_ID,
+                IndexConstants.EVENT_ID,
+                "UserId",
+                "Bytes",
+                "Text");
+    }
+
+    @Test
+    void testNoCoprocessors() {
+        assertThat(asyncSearchTaskHandler.getStoredFields(createIndex(), null, createQuery()))
+                .containsExactly(
+                        IndexConstants.STREAM_ID,
+                        IndexConstants.EVENT_ID,
+                        "UserId",
+                        "Bytes",
+                        "Text");
+    }
+
+    private String[] getStoredFields(final CoprocessorSettings... coprocessorSettings) {
+        final Map<CoprocessorKey, CoprocessorSettings> coprocessorMap = new HashMap<>();
+        for (int i = 0; i < coprocessorSettings.length; i++) {
+            coprocessorMap.put(new CoprocessorKey(i, new String[]{"component" + i}), coprocessorSettings[i]);
+        }
+        return asyncSearchTaskHandler.getStoredFields(createIndex(), coprocessorMap, createQuery());
+    }
+
+    private IndexDoc createIndex() {
+        final IndexDoc index = new IndexDoc();
+        index.setFields(List.of(
+                IndexField.createIdField(IndexConstants.STREAM_ID),
+                IndexField.createIdField(IndexConstants.EVENT_ID),
+                IndexField.createField("UserId", AnalyzerType.KEYWORD, false, true, true, false),
+                IndexField.createField("Bytes", AnalyzerType.NUMERIC, false, true, true, false),
+                IndexField.createField("Text", AnalyzerType.ALPHA_NUMERIC, false, true, true, false),
+                IndexField.createField("Unstored", AnalyzerType.ALPHA_NUMERIC, false, false, true, false)));
+        return index;
+    }
+
+    private Query createQuery() {
+        return new Query.Builder()
+                .dataSource("Index", "index-uuid", "index")
+                .addParam("user", "user1")
+                .expression(new ExpressionOperator.Builder().build())
+                .build();
+    }
+
+    private TableCoprocessorSettings createTable(final boolean extractValues, final Field... fields) {
+        final TableSettings tableSettings = new TableSettings.Builder()
+                .queryId("query")
+                .addFields(fields)
+                .extractValues(extractValues)
+                .extractionPipeline(extractValues ? PIPELINE_REF : null)
+                .showDetail(true)
+                .build();
+        return new TableCoprocessorSettings(tableSettings);
+    }
+
+    private Field field(final String name, final String expression) {
+        return new Field.Builder()
+                .id(name)
+                .name(name)
+                .expression(expression)
+                .build();
+    }
+}
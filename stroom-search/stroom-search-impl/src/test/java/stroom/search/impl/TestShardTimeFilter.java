@@ -0,0 +1,195 @@
+package stroom.search.impl;
+
+import org.junit.jupiter.api.Test;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldsMap;
+import stroom.index.shared.IndexShard;
+import stroom.query.api.v2.ExpressionOperator;
+import stroom.query.api.v2.ExpressionOperator.Op;
+import stroom.query.api.v2.ExpressionTerm.Condition;
+import stroom.util.date.DateUtil;
+
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestShardTimeFilter {
+    private static final String TIME_FIELD = "EventTime";
+    private static final String OTHER_FIELD = "UserId";
+
+    private static final String JAN = "2020-01-01T00:00:00.000Z";
+    private static final String FEB = "2020-02-01T00:00:00.000Z";
+    private static final String MAR = "2020-03-01T00:00:00.000Z";
+
+    private static final IndexFieldsMap INDEX_FIELDS_MAP = new IndexFieldsMap(List.of(
+            IndexField.createDateField(TIME_FIELD),
+            IndexField.createField(OTHER_FIELD)));
+
+    @Test
+    void testGreaterThan() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB).build());
+        assertSkipped(filter, JAN);
+        assertSkipped(filter, FEB);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testGreaterThanOrEqualTo() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.GREATER_THAN_OR_EQUAL_TO, FEB).build());
+        assertSkipped(filter, JAN);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testOpenLowerBound() {
+        // Only the lower bound of a time range can be used so a query for everything before a time searches all shards.
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.LESS_THAN, FEB).build());
+        assertIncluded(filter, JAN);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testEquals() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.EQUALS, FEB).build());
+        assertSkipped(filter, JAN);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testBetween() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.BETWEEN, FEB + "," + MAR).build());
+        assertSkipped(filter, JAN);
+        assertSkipped(filter, FEB);
+        // Data for the range can arrive after it so later shards are still searched.
+        assertIncluded(filter, "2020-06-01T00:00:00.000Z");
+    }
+
+    @Test
+    void testBetweenWithBadValue() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.BETWEEN, FEB).build());
+        assertIncluded(filter, JAN);
+    }
+
+    @Test
+    void testIn() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.IN, MAR + "," + FEB).build());
+        assertSkipped(filter, JAN);
+        assertSkipped(filter, FEB);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testAnd() {
+        // The latest lower bound of an AND applies.
+        final ShardTimeFilter filter = create(and()
+                .addTerm(TIME_FIELD, Condition.GREATER_THAN, JAN)
+                .addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB)
+                .addTerm(OTHER_FIELD, Condition.EQUALS, "user1")
+                .build());
+        assertSkipped(filter, FEB);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testOr() {
+        // The earliest lower bound of an OR applies.
+        final ShardTimeFilter filter = create(new ExpressionOperator.Builder(Op.OR)
+                .addTerm(TIME_FIELD, Condition.GREATER_THAN, JAN)
+                .addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB)
+                .build());
+        assertSkipped(filter, JAN);
+        assertIncluded(filter, FEB);
+    }
+
+    @Test
+    void testOrWithUnlimitedBranch() {
+        // One branch of the OR can match any time so nothing can be skipped.
+        final ShardTimeFilter filter = create(new ExpressionOperator.Builder(Op.OR)
+                .addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB)
+                .addTerm(OTHER_FIELD, Condition.EQUALS, "user1")
+                .build());
+        assertIncluded(filter, JAN);
+    }
+
+    @Test
+    void testNot() {
+        final ShardTimeFilter filter = create(new ExpressionOperator.Builder(Op.NOT)
+                .addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB)
+                .build());
+        assertIncluded(filter, JAN);
+    }
+
+    @Test
+    void testNested() {
+        final ShardTimeFilter filter = create(and()
+                .addTerm(OTHER_FIELD, Condition.EQUALS, "user1")
+                .addOperator(new ExpressionOperator.Builder(Op.OR)
+                        .addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB)
+                        .addTerm(TIME_FIELD, Condition.EQUALS, MAR)
+                        .build())
+                .addOperator(new ExpressionOperator.Builder(Op.NOT)
+                        .addTerm(TIME_FIELD, Condition.GREATER_THAN, MAR)
+                        .build())
+                .build());
+        assertSkipped(filter, FEB);
+        assertIncluded(filter, MAR);
+    }
+
+    @Test
+    void testDisabledTerm() {
+        final ShardTimeFilter filter = create(and()
+                .addOperator(new ExpressionOperator.Builder(false, Op.AND)
+                        .addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB)
+                        .build())
+                .build());
+        assertIncluded(filter, JAN);
+    }
+
+    @Test
+    void testNoTimeField() {
+        final ExpressionOperator expression = and().addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB).build();
+        assertIncluded(create(null, expression), JAN);
+        assertIncluded(create("", expression), JAN);
+        // Fields that are not dates can't be used.
+        assertIncluded(create(OTHER_FIELD, and().addTerm(OTHER_FIELD, Condition.GREATER_THAN, FEB).build()), JAN);
+        // Fields that aren't in the index can't be used.
+        assertIncluded(create("Unknown", and().addTerm("Unknown", Condition.GREATER_THAN, FEB).build()), JAN);
+    }
+
+    @Test
+    void testShardWithoutPartitionTime() {
+        final ShardTimeFilter filter = create(and().addTerm(TIME_FIELD, Condition.GREATER_THAN, FEB).build());
+        assertThat(filter.include(new IndexShard())).isTrue();
+    }
+
+    private ExpressionOperator.Builder and() {
+        return new ExpressionOperator.Builder(Op.AND);
+    }
+
+    private ShardTimeFilter create(final ExpressionOperator expression) {
+        return create(TIME_FIELD, expression);
+    }
+
+    private ShardTimeFilter create(final String timeFieldName, final ExpressionOperator expression) {
+        return new ShardTimeFilter(timeFieldName,
+                INDEX_FIELDS_MAP,
+                expression,
+                ZoneOffset.UTC.getId(),
+                System.currentTimeMillis());
+    }
+
+    private void assertIncluded(final ShardTimeFilter filter, final String partitionToTime) {
+        assertThat(filter.include(createShard(partitionToTime))).isTrue();
+    }
+
+    private void assertSkipped(final ShardTimeFilter filter, final String partitionToTime) {
+        assertThat(filter.include(createShard(partitionToTime))).isFalse();
+    }
+
+    private IndexShard createShard(final String partitionToTime) {
+        final IndexShard indexShard = new IndexShard();
+        indexShard.setPartitionToTime(DateUtil.parseNormalDateTimeString(partitionToTime));
+        return indexShard;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import java.util.OptionalInt;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Compares the rate at which doc ids can be passed from a collector thread to a stored data retrieval thread using a
+ * queue of boxed doc ids against the batched {@link DocIdQueue}.
+ * <p>
+ * Usage = [HITS] [RUNS] [QUEUE SIZE]
+ */
+class BenchmarkDocIdQueue {
+    private static final int[] BATCH_SIZES = {1, 10, 100, 1000, 10000};
+
+    public static void main(final String[] args) throws Exception {
+        new BenchmarkDocIdQueue().run(args);
+    }
+
+    private void run(final String[] args) throws Exception {
+        int hits = 50000000;
+        if (args.length > 0) {
+            hits = Integer.parseInt(args[0]);
+        }
+
+        int runs = 3;
+        if (args.length > 1) {
+            runs = Integer.parseInt(args[1]);
+        }
+
+        int maxDocIdQueueSize = 1000000;
+        if (args.length > 2) {
+            maxDocIdQueueSize = Integer.parseInt(args[2]);
+        }
+
+        for (int i = 0; i < runs; i++) {
+            System.out.println("Run " + (i + 1));
+            report("LinkedBlockingQueue<OptionalInt>", hits, testLinkedBlockingQueue(hits, maxDocIdQueueSize));
+            for (final int batchSize : BATCH_SIZES) {
+                report("DocIdQueue batchSize=" + batchSize, hits, testDocIdQueue(hits, maxDocIdQueueSize, batchSize));
+            }
+        }
+    }
+
+    private long testLinkedBlockingQueue(final int hits, final int maxDocIdQueueSize) throws Exception {
+        final LinkedBlockingQueue<OptionalInt> docIdStore = new LinkedBlockingQueue<>(maxDocIdQueueSize);
+
+        final long startTime = System.nanoTime();
+        final CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < hits; i++) {
+                    docIdStore.put(OptionalInt.of(i));
+                }
+                docIdStore.put(OptionalInt.empty());
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long total = 0;
+        boolean complete = false;
+        while (!complete) {
+            final OptionalInt optDocId = docIdStore.take();
+            if (optDocId.isPresent()) {
+                total += optDocId.getAsInt();
+            } else {
+                complete = true;
+            }
+        }
+        producer.join();
+        check(hits, total);
+
+        return System.nanoTime() - startTime;
+    }
+
+    private long testDocIdQueue(final int hits, final int maxDocIdQueueSize, final int batchSize) throws Exception {
+        final DocIdQueue docIdQueue = new DocIdQueue(maxDocIdQueueSize, batchSize);
+
+        final long startTime = System.nanoTime();
+        final CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            try {
+                for (int i = 0; i < hits; i++) {
+                    docIdQueue.put(i);
+                }
+                docIdQueue.complete();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        long total = 0;
+        boolean complete = false;
+        while (!complete) {
+            final int[] docIds = docIdQueue.take();
+            if (docIds.length > 0) {
+                for (final int docId : docIds) {
+                    total += docId;
+                }
+            } else {
+                complete = true;
+            }
+        }
+        producer.join();
+        check(hits, total);
+
+        return System.nanoTime() - startTime;
+    }
+
+    private void check(final int hits, final long total) {
+        final long expected = ((long) hits * (hits - 1)) / 2;
+        if (total != expected) {
+            throw new IllegalStateException("Expected doc id total " + expected + " but got " + total);
+        }
+    }
+
+    private void report(final String name, final int hits, final long elapsedNanos) {
+        final long hitsPerSecond = (long) (hits / (elapsedNanos / 1000000000D));
+        System.out.println(name + " = " + hitsPerSecond + " hits/sec");
+    }
+}
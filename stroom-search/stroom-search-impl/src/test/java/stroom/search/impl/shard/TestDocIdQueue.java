@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TestDocIdQueue {
+    private ExecutorService executorService;
+
+    @BeforeEach
+    void setup() {
+        executorService = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    void testBatches() throws InterruptedException {
+        final DocIdQueue docIdQueue = new DocIdQueue(100, 10);
+        for (int i = 0; i < 25; i++) {
+            docIdQueue.put(i);
+        }
+
+        // Only full batches are passed on until the queue is completed.
+        assertThat(docIdQueue.take()).containsExactly(0, 1, 2, 3, 4, 5, 6, 7, 8, 9);
+        assertThat(docIdQueue.take()).containsExactly(10, 11, 12, 13, 14, 15, 16, 17, 18, 19);
+
+        docIdQueue.complete();
+        assertThat(docIdQueue.take()).containsExactly(20, 21, 22, 23, 24);
+        assertThat(docIdQueue.take()).isEmpty();
+    }
+
+    @Test
+    void testCompleteWithoutPartialBatch() throws InterruptedException {
+        final DocIdQueue docIdQueue = new DocIdQueue(100, 5);
+        for (int i = 0; i < 5; i++) {
+            docIdQueue.put(i);
+        }
+        docIdQueue.complete();
+
+        // No empty batch is passed on before the complete marker.
+        assertThat(docIdQueue.take()).containsExactly(0, 1, 2, 3, 4);
+        assertThat(docIdQueue.take()).isEmpty();
+    }
+
+    @Test
+    void testCompleteWithoutDocIds() throws InterruptedException {
+        final DocIdQueue docIdQueue = new DocIdQueue(100, 5);
+        docIdQueue.complete();
+        assertThat(docIdQueue.take()).isEmpty();
+    }
+
+    @Test
+    void testHandOff() throws Exception {
+        final int hits = 100000;
+        final DocIdQueue docIdQueue = new DocIdQueue(1000, 7);
+        final Future<?> producer = executorService.submit(() -> {
+            for (int i = 0; i < hits; i++) {
+                docIdQueue.put(i);
+            }
+            docIdQueue.complete();
+            return null;
+        });
+
+        // Every doc id must be received once and in order.
+        int next = 0;
+        int[] docIds;
+        while ((docIds = docIdQueue.take()).length > 0) {
+            for (final int docId : docIds) {
+                assertThat(docId).isEqualTo(next++);
+            }
+        }
+        assertThat(next).isEqualTo(hits);
+        producer.get(10, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void testProducerBlocksWhenFull() throws Exception {
+        // Room for two batches of two doc ids.
+        final DocIdQueue docIdQueue = new DocIdQueue(4, 2);
+        for (int i = 0; i < 4; i++) {
+            docIdQueue.put(i);
+        }
+
+        final Future<?> future = executorService.submit(() -> {
+            docIdQueue.put(4);
+            docIdQueue.put(5);
+            return null;
+        });
+        assertThatThrownBy(() -> future.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        // Taking a batch must free space and wake the waiting producer.
+        assertThat(docIdQueue.take()).containsExactly(0, 1);
+        future.get(10, TimeUnit.SECONDS);
+        assertThat(docIdQueue.take()).containsExactly(2, 3);
+        assertThat(docIdQueue.take()).containsExactly(4, 5);
+    }
+
+    @Test
+    void testInterruptBlockedProducer() throws Exception {
+        final DocIdQueue docIdQueue = new DocIdQueue(1, 1);
+        docIdQueue.put(0);
+
+        final CompletableFuture<Thread> producerThread = new CompletableFuture<>();
+        final Future<?> future = executorService.submit(() -> {
+            producerThread.complete(Thread.currentThread());
+            docIdQueue.put(1);
+            return null;
+        });
+        assertThatThrownBy(() -> future.get(200, TimeUnit.MILLISECONDS)).isInstanceOf(TimeoutException.class);
+
+        // Terminating a search interrupts the collector which must stop waiting.
+        producerThread.get().interrupt();
+        assertThatThrownBy(() -> future.get(10, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(InterruptedException.class);
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleDocValuesField;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.FloatDocValuesField;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.jupiter.api.Test;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValDouble;
+import stroom.dashboard.expression.v1.ValInteger;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+import stroom.index.shared.IndexField;
+import stroom.index.shared.IndexFieldType;
+import stroom.index.shared.IndexFieldsMap;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestDocValuesFieldReader {
+    private static final String[] FIELD_NAMES = {"long", "int", "float", "double", "date", "string", "stored"};
+
+    @Test
+    void testRead() throws IOException {
+        final List<Val[]> rows = read(createIndexFieldsMap(), doc -> {
+            doc.add(new NumericDocValuesField("long", 123456789012L));
+            doc.add(new NumericDocValuesField("int", 42));
+            doc.add(new FloatDocValuesField("float", 1.5F));
+            doc.add(new DoubleDocValuesField("double", 2.25D));
+            doc.add(new NumericDocValuesField("date", 1262347200000L));
+            doc.add(new SortedDocValuesField("string", new BytesRef("someuser")));
+            doc.add(new StringField("stored", "value", Store.YES));
+        });
+
+        assertThat(rows).hasSize(1);
+        final Val[] values = rows.get(0);
+        assertVal(values[0], ValLong.class, 123456789012L);
+        assertVal(values[1], ValInteger.class, 42);
+        assertVal(values[2], ValDouble.class, 1.5D);
+        assertVal(values[3], ValDouble.class, 2.25D);
+        assertVal(values[4], ValLong.class, 1262347200000L);
+        assertVal(values[5], ValString.class, "someuser");
+
+        // Fields without doc values are left for the stored field visitor.
+        assertThat(values[6]).isNull();
+    }
+
+    @Test
+    void testMissingValues() throws IOException {
+        final List<Val[]> rows = read(createIndexFieldsMap(),
+                doc -> {
+                    doc.add(new NumericDocValuesField("long", 1L));
+                    doc.add(new SortedDocValuesField("string", new BytesRef("a")));
+                },
+                doc -> doc.add(new StringField("stored", "value", Store.YES)),
+                doc -> {
+                    doc.add(new NumericDocValuesField("long", 3L));
+                    doc.add(new SortedDocValuesField("string", new BytesRef("a")));
+                });
+
+        assertThat(rows).hasSize(3);
+        assertVal(rows.get(0)[0], ValLong.class, 1L);
+        assertVal(rows.get(0)[5], ValString.class, "a");
+
+        // A document without a value must not get a default value of zero or an empty string.
+        assertThat(Arrays.asList(rows.get(1))).containsOnlyNulls();
+
+        assertVal(rows.get(2)[0], ValLong.class, 3L);
+        assertVal(rows.get(2)[5], ValString.class, "a");
+    }
+
+    @Test
+    void testSegmentWithoutDocValues() throws IOException {
+        // Simulate a segment written before doc values were turned on for a field.
+        final List<Val[]> rows = read(createIndexFieldsMap(),
+                doc -> doc.add(new StringField("string", "someuser", Store.YES)));
+
+        assertThat(rows).hasSize(1);
+        assertThat(Arrays.asList(rows.get(0))).containsOnlyNulls();
+    }
+
+    @Test
+    void testNoDocValuesFields() {
+        final IndexFieldsMap indexFieldsMap = new IndexFieldsMap(List.of(
+                IndexField.createField("string"),
+                IndexField.createNumericField("long")));
+        assertThat(new DocValuesFieldReader(FIELD_NAMES, indexFieldsMap).isEmpty()).isTrue();
+        assertThat(new DocValuesFieldReader(FIELD_NAMES, null).isEmpty()).isTrue();
+    }
+
+    private void assertVal(final Val actual, final Class<? extends Val> type, final Object expected) {
+        assertThat(actual).isInstanceOf(type);
+        if (expected instanceof String) {
+            assertThat(actual.toString()).isEqualTo(expected);
+        } else {
+            assertThat(actual.toDouble()).isEqualTo(((Number) expected).doubleValue());
+        }
+    }
+
+    private IndexFieldsMap createIndexFieldsMap() {
+        return new IndexFieldsMap(List.of(
+                createDocValuesField("long", IndexFieldType.LONG_FIELD),
+                createDocValuesField("int", IndexFieldType.INTEGER_FIELD),
+                createDocValuesField("float", IndexFieldType.FLOAT_FIELD),
+                createDocValuesField("double", IndexFieldType.DOUBLE_FIELD),
+                createDocValuesField("date", IndexFieldType.DATE_FIELD),
+                createDocValuesField("string", IndexFieldType.FIELD),
+                new IndexField.Builder()
+                        .fieldName("stored")
+                        .stored(true)
+                        .build()));
+    }
+
+    private IndexField createDocValuesField(final String fieldName, final IndexFieldType fieldType) {
+        return new IndexField.Builder()
+                .fieldName(fieldName)
+                .fieldType(fieldType)
+                .indexed(false)
+                .docValues(true)
+                .build();
+    }
+
+    private List<Val[]> read(final IndexFieldsMap indexFieldsMap,
+                             final DocumentBuilder... builders) throws IOException {
+        try (final Directory directory = new RAMDirectory()) {
+            try (final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+                for (final DocumentBuilder builder : builders) {
+                    final Document document = new Document();
+                    builder.build(document);
+                    indexWriter.addDocument(document);
+                }
+            }
+
+            final List<Val[]> rows = new ArrayList<>();
+            final DocValuesFieldReader docValuesFieldReader = new DocValuesFieldReader(FIELD_NAMES, indexFieldsMap);
+            final StoredFieldValuesVisitor visitor = new StoredFieldValuesVisitor(FIELD_NAMES);
+            try (final DirectoryReader directoryReader = DirectoryReader.open(directory)) {
+                for (final LeafReaderContext leaf : directoryReader.leaves()) {
+                    docValuesFieldReader.setLeaf(leaf);
+                    for (int docId = 0; docId < leaf.reader().maxDoc(); docId++) {
+                        visitor.reset();
+                        docValuesFieldReader.read(docId, visitor);
+                        rows.add(visitor.getValues());
+                    }
+                }
+            }
+            return rows;
+        }
+    }
+
+    private interface DocumentBuilder {
+        void build(Document document);
+    }
+}
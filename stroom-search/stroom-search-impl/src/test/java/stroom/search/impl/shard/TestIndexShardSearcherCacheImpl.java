@@ -0,0 +1,250 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.AlreadyClosedException;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import stroom.cache.impl.CacheManagerImpl;
+import stroom.index.impl.IndexShardService;
+import stroom.index.impl.IndexShardWriter;
+import stroom.index.impl.IndexShardWriterCache;
+import stroom.index.shared.IndexShard;
+import stroom.index.shared.IndexShard.IndexShardStatus;
+import stroom.security.mock.MockSecurityContext;
+import stroom.task.api.ExecutorProvider;
+import stroom.task.api.SimpleTaskContextFactory;
+import stroom.task.shared.ThreadPool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TestIndexShardSearcherCacheImpl {
+    private static final long SHARD_1 = 1L;
+    private static final long SHARD_2 = 2L;
+
+    private final Map<Long, IndexShard> indexShards = new ConcurrentHashMap<>();
+    private final Map<Long, IndexWriter> indexWriters = new ConcurrentHashMap<>();
+    private final List<IndexWriter> openWriters = new ArrayList<>();
+    // Counts the searcher references that the cache has released.
+    private final AtomicInteger released = new AtomicInteger();
+
+    private CacheManagerImpl cacheManager;
+    private IndexShardSearcherCacheImpl indexShardSearcherCache;
+
+    @BeforeEach
+    void setup() throws IOException {
+        final IndexShardService indexShardService = mock(IndexShardService.class);
+        when(indexShardService.loadById(anyLong())).thenAnswer(invocation ->
+                indexShards.get(invocation.<Long>getArgument(0)));
+
+        final IndexShardWriterCache indexShardWriterCache = mock(IndexShardWriterCache.class);
+        when(indexShardWriterCache.getWriterByShardId(anyLong())).thenAnswer(invocation -> {
+            final IndexWriter indexWriter = indexWriters.get(invocation.<Long>getArgument(0));
+            if (indexWriter == null) {
+                return null;
+            }
+            final IndexShardWriter indexShardWriter = mock(IndexShardWriter.class);
+            when(indexShardWriter.getWriter()).thenReturn(indexWriter);
+            return indexShardWriter;
+        });
+
+        // Run the release of each searcher straight away so that we can count them.
+        final Executor executor = runnable -> {
+            runnable.run();
+            released.incrementAndGet();
+        };
+        final ExecutorProvider executorProvider = new ExecutorProvider() {
+            @Override
+            public Executor get(final ThreadPool threadPool) {
+                return executor;
+            }
+
+            @Override
+            public Executor get() {
+                return executor;
+            }
+        };
+
+        cacheManager = new CacheManagerImpl();
+        indexShardSearcherCache = new IndexShardSearcherCacheImpl(cacheManager,
+                indexShardService,
+                indexShardWriterCache,
+                executorProvider,
+                new SimpleTaskContextFactory(),
+                new IndexShardSearchConfig(),
+                new MockSecurityContext());
+
+        addShard(SHARD_1);
+        addShard(SHARD_2);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        cacheManager.close();
+        for (final IndexWriter indexWriter : openWriters) {
+            indexWriter.close();
+        }
+    }
+
+    @Test
+    void testEvictedSearcherStaysOpenWhileInUse() throws IOException {
+        final IndexShardSearcher inUse = indexShardSearcherCache.get(SHARD_1);
+
+        // Opening a new writer for the shard evicts the searcher while the search still holds it.
+        indexWriters.put(SHARD_1, createWriter());
+        final IndexShardSearcher current = indexShardSearcherCache.get(SHARD_1);
+        assertThat(current).isNotSameAs(inUse);
+        waitFor(() -> released.get() == 1);
+
+        // The search can carry on using the evicted searcher.
+        assertSearchable(inUse);
+        assertThat(inUse.tryIncRef()).isTrue();
+        inUse.decRef();
+
+        // Releasing the last reference closes it.
+        inUse.decRef();
+        assertClosed(inUse);
+
+        current.decRef();
+        assertSearchable(current);
+    }
+
+    @Test
+    void testWriterChanged() throws IOException {
+        final IndexShardSearcher first = indexShardSearcherCache.get(SHARD_1);
+        first.decRef();
+
+        // The same searcher is returned while the writer is unchanged.
+        final IndexShardSearcher same = indexShardSearcherCache.get(SHARD_1);
+        assertThat(same).isSameAs(first);
+        same.decRef();
+
+        final IndexWriter newWriter = createWriter();
+        indexWriters.put(SHARD_1, newWriter);
+        final IndexShardSearcher replaced = indexShardSearcherCache.get(SHARD_1);
+        assertThat(replaced).isNotSameAs(first);
+        assertThat(replaced.getWriter()).isSameAs(newWriter);
+        replaced.decRef();
+
+        waitFor(() -> released.get() == 1);
+        assertClosed(first);
+        assertSearchable(replaced);
+    }
+
+    @Test
+    void testShardChanged() throws IOException {
+        final IndexShardSearcher changed = indexShardSearcherCache.get(SHARD_1);
+        changed.decRef();
+        final IndexShardSearcher kept = indexShardSearcherCache.get(SHARD_2);
+        kept.decRef();
+
+        // The writer is unchanged, e.g. after a merge of a closed shard, but the searcher must still be replaced.
+        indexShardSearcherCache.onChange(SHARD_1);
+
+        waitFor(() -> released.get() == 1);
+        assertClosed(changed);
+
+        final IndexShardSearcher replaced = indexShardSearcherCache.get(SHARD_1);
+        assertThat(replaced).isNotSameAs(changed);
+        replaced.decRef();
+        assertSearchable(replaced);
+
+        // Searchers for other shards are kept.
+        final IndexShardSearcher same = indexShardSearcherCache.get(SHARD_2);
+        assertThat(same).isSameAs(kept);
+        same.decRef();
+    }
+
+    @Test
+    void testRefreshDropsDeletedShards() throws IOException {
+        final IndexShardSearcher deleted = indexShardSearcherCache.get(SHARD_1);
+        deleted.decRef();
+        final IndexShardSearcher kept = indexShardSearcherCache.get(SHARD_2);
+        kept.decRef();
+
+        indexShards.get(SHARD_1).setStatus(IndexShardStatus.DELETED);
+        indexShardSearcherCache.refresh();
+
+        waitFor(() -> released.get() == 1);
+        assertClosed(deleted);
+
+        // Searchers for other shards are kept.
+        final IndexShardSearcher same = indexShardSearcherCache.get(SHARD_2);
+        assertThat(same).isSameAs(kept);
+        same.decRef();
+        assertSearchable(kept);
+    }
+
+    private void addShard(final long indexShardId) throws IOException {
+        final IndexShard indexShard = new IndexShard();
+        indexShard.setId(indexShardId);
+        indexShard.setStatus(IndexShardStatus.OPEN);
+        indexShards.put(indexShardId, indexShard);
+        indexWriters.put(indexShardId, createWriter());
+    }
+
+    private IndexWriter createWriter() throws IOException {
+        final IndexWriter indexWriter = new IndexWriter(new RAMDirectory(), new IndexWriterConfig(new KeywordAnalyzer()));
+        openWriters.add(indexWriter);
+        return indexWriter;
+    }
+
+    private void assertSearchable(final IndexShardSearcher indexShardSearcher) throws IOException {
+        final IndexSearcher indexSearcher = indexShardSearcher.getSearcherManager().acquire();
+        indexShardSearcher.getSearcherManager().release(indexSearcher);
+    }
+
+    private void assertClosed(final IndexShardSearcher indexShardSearcher) {
+        assertThat(indexShardSearcher.tryIncRef()).isFalse();
+        assertThatThrownBy(() -> indexShardSearcher.getSearcherManager().acquire())
+                .isInstanceOf(AlreadyClosedException.class);
+    }
+
+    private void waitFor(final BooleanSupplier condition) {
+        // The cache notifies removals on another thread.
+        final long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).isLessThan(end);
+            try {
+                Thread.sleep(10);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2020 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package stroom.search.impl.shard;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DoubleField;
+import org.apache.lucene.document.Field.Store;
+import org.apache.lucene.document.FloatField;
+import org.apache.lucene.document.IntField;
+import org.apache.lucene.document.LongField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.jupiter.api.Test;
+import stroom.dashboard.expression.v1.Val;
+import stroom.dashboard.expression.v1.ValDouble;
+import stroom.dashboard.expression.v1.ValInteger;
+import stroom.dashboard.expression.v1.ValLong;
+import stroom.dashboard.expression.v1.ValString;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TestStoredFieldValuesVisitor {
+    @Test
+    void testReadSubset() throws IOException {
+        final String[] fieldNames = {"double", "string", "date", "int", "long", "float"};
+        final List<String> visited = new ArrayList<>();
+        final Val[] values = read(fieldNames, visited, doc -> {
+            doc.add(new TextField("string", " some text ", Store.YES));
+            doc.add(new StringField("unwanted", "value", Store.YES));
+            doc.add(new LongField("long", 123456789012L, Store.YES));
+            doc.add(new IntField("int", 42, Store.YES));
+            doc.add(new FloatField("float", 1.5F, Store.YES));
+            doc.add(new DoubleField("double", 2.25D, Store.YES));
+            doc.add(new LongField("date", 1262347200000L, Store.YES));
+            doc.add(new StringField("trailing", "value", Store.YES));
+        });
+
+        // Values are returned in the order requested rather than the order stored.
+        assertVal(values[0], ValDouble.class, 2.25D);
+        assertVal(values[1], ValString.class, "some text");
+        assertVal(values[2], ValLong.class, 1262347200000L);
+        assertVal(values[3], ValInteger.class, 42);
+        assertVal(values[4], ValLong.class, 123456789012L);
+        assertVal(values[5], ValDouble.class, 1.5D);
+
+        // Unrequested fields are skipped and nothing is read after the last requested field.
+        assertThat(visited).containsExactly(
+                "string=YES",
+                "unwanted=NO",
+                "long=YES",
+                "int=YES",
+                "float=YES",
+                "double=YES",
+                "date=YES",
+                "trailing=STOP");
+    }
+
+    @Test
+    void testMissingAndBlankValues() throws IOException {
+        final String[] fieldNames = {"string", "missing", "long"};
+        final List<String> visited = new ArrayList<>();
+        final Val[] values = read(fieldNames, visited, doc -> {
+            doc.add(new StringField("string", "   ", Store.YES));
+            doc.add(new LongField("long", 7L, Store.YES));
+            doc.add(new StringField("trailing", "value", Store.YES));
+        });
+
+        assertThat(values[0]).isNull();
+        assertThat(values[1]).isNull();
+        assertVal(values[2], ValLong.class, 7L);
+
+        // The document is read to the end as the requested fields are never all found.
+        assertThat(visited).containsExactly("string=YES", "long=YES", "trailing=NO");
+    }
+
+    @Test
+    void testValuesAlreadySet() throws IOException {
+        final String[] fieldNames = {"string", "long"};
+        final List<String> visited = new ArrayList<>();
+        final RecordingVisitor visitor = new RecordingVisitor(fieldNames, visited);
+        visitor.reset();
+
+        // Simulate a value read from doc values so that the stored field is not decoded.
+        visitor.set(1, ValLong.create(99L));
+        assertThat(visitor.isComplete()).isFalse();
+
+        final Val[] values = read(visitor, doc -> {
+            doc.add(new LongField("long", 7L, Store.YES));
+            doc.add(new StringField("string", "value", Store.YES));
+            doc.add(new StringField("trailing", "value", Store.YES));
+        });
+
+        assertVal(values[0], ValString.class, "value");
+        assertVal(values[1], ValLong.class, 99L);
+        assertThat(visitor.isComplete()).isTrue();
+        assertThat(visited).containsExactly("long=NO", "string=YES", "trailing=STOP");
+    }
+
+    private void assertVal(final Val actual, final Class<? extends Val> type, final Object expected) {
+        assertThat(actual).isInstanceOf(type);
+        if (expected instanceof String) {
+            assertThat(actual.toString()).isEqualTo(expected);
+        } else {
+            assertThat(actual.toDouble()).isEqualTo(((Number) expected).doubleValue());
+        }
+    }
+
+    private Val[] read(final String[] fieldNames,
+                       final List<String> visited,
+                       final DocumentBuilder builder) throws IOException {
+        final RecordingVisitor visitor = new RecordingVisitor(fieldNames, visited);
+        visitor.reset();
+        return read(visitor, builder);
+    }
+
+    private Val[] read(final StoredFieldValuesVisitor visitor,
+                       final DocumentBuilder builder) throws IOException {
+        try (final Directory directory = new RAMDirectory()) {
+            try (final IndexWriter indexWriter = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()))) {
+                final Document document = new Document();
+                builder.build(document);
+                indexWriter.addDocument(document);
+            }
+
+            try (final DirectoryReader directoryReader = DirectoryReader.open(directory)) {
+                final LeafReaderContext leaf = directoryReader.leaves().get(0);
+                leaf.reader().document(0, visitor);
+            }
+            return visitor.getValues();
+        }
+    }
+
+    private interface DocumentBuilder {
+        void build(Document document);
+    }
+
+    /**
+     * Records the decision made for each stored field that is offered to the visitor.
+     */
+    private static class RecordingVisitor extends StoredFieldValuesVisitor {
+        private final List<String> visited;
+
+        RecordingVisitor(final String[] fieldNames, final List<String> visited) {
+            super(fieldNames);
+            this.visited = visited;
+        }
+
+        @Override
+        public Status needsField(final FieldInfo fieldInfo) {
+            final Status status = super.needsField(fieldInfo);
+            visited.add(fieldInfo.name + "=" + status);
+            return status;
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package stroom.task.mock;
 
+import stroom.task.api.ExecutorProvider;
 import stroom.task.api.TaskContext;
 import stroom.task.api.TaskContextFactory;
 import stroom.task.api.TaskManager;
 import stroom.task.shared.TaskId;
+import stroom.task.shared.ThreadPool;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Provides;
 
+import javax.inject.Singleton;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -40,6 +46,27 @@ public class MockTaskModule extends AbstractModule {
         };
     }
 
+    @Provides
+    @Singleton
+    ExecutorProvider getExecutorProvider() {
+        final ExecutorService executorService = Executors.newCachedThreadPool(runnable -> {
+            final Thread thread = new Thread(runnable);
+            thread.setDaemon(true);
+            return thread;
+        });
+        return new ExecutorProvider() {
+            @Override
+            public Executor get(final ThreadPool threadPool) {
+                return executorService;
+            }
+
+            @Override
+            public Executor get() {
+                return executorService;
+            }
+        };
+    }
+
     @Provides
     TaskContextFactory getTaskContextFactory() {
         return new TaskContextFactory() {